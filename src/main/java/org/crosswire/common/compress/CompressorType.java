@@ -20,6 +20,7 @@
 package org.crosswire.common.compress;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 
 /**
  * An Enumeration of the possible Compressions.
@@ -33,6 +34,11 @@ public enum CompressorType {
         public Compressor getCompressor(byte[] input) {
             return new Zip(new ByteArrayInputStream(input));
         }
+
+        @Override
+        public byte[] uncompress(byte[] input, int expectedLength) throws IOException {
+            return Zip.inflate(input, expectedLength);
+        }
     },
 
     LZSS {
@@ -40,6 +46,11 @@ public enum CompressorType {
         public Compressor getCompressor(byte[] input) {
             return new LZSS(new ByteArrayInputStream(input));
         }
+
+        @Override
+        public byte[] uncompress(byte[] input, int expectedLength) throws IOException {
+            return LZSSDecoder.decode(input, expectedLength);
+        }
     },
 
     BZIP2 {
@@ -71,6 +82,19 @@ public enum CompressorType {
      */
     public abstract Compressor getCompressor(byte[] input);
 
+    /**
+     * Uncompress a block of bytes. Some compressors can do this without
+     * going through streams.
+     * 
+     * @param input the bytes to uncompress
+     * @param expectedLength the size of the result buffer
+     * @return the uncompressed bytes
+     * @throws IOException if an exception is encountered
+     */
+    public byte[] uncompress(byte[] input, int expectedLength) throws IOException {
+        return getCompressor(input).uncompress(expectedLength).toByteArray();
+    }
+
     /**
      * Get a CompressorType from a String
      * 
@@ -0,0 +1,179 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.compress;
+
+import java.util.Arrays;
+
+/**
+ * A fast LZSS decoder that works directly from one byte array to another.
+ * It produces exactly the same result as {@link LZSS#uncompress(int)}.
+ *
+ * <p>
+ * Rather than keeping a separate ring buffer, the output itself serves as
+ * the window: a &lt;position,length&gt; pair is turned into a distance back
+ * from the end of the output, and the bytes are copied in bulk whenever the
+ * source does not overlap the destination. Only the first bytes of the
+ * output can refer to the initial content of the ring buffer, which is
+ * supplied on the fly. So there is no state at all, and the decoder can be
+ * used by any number of threads at once.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class LZSSDecoder {
+    /**
+     * Prevent instantiation
+     */
+    private LZSSDecoder() {
+    }
+
+    /**
+     * Uncompress LZSS data.
+     *
+     * @param input
+     *            the compressed data
+     * @param expectedLength
+     *            the expected size of the result, or 0 if not known
+     * @return the uncompressed data
+     */
+    public static byte[] decode(byte[] input, int expectedLength) {
+        return decode(input, 0, input.length, expectedLength);
+    }
+
+    /**
+     * Uncompress LZSS data. As with the stream based decoder, input that ends
+     * part way through an item is ignored.
+     *
+     * @param input
+     *            the compressed data
+     * @param offset
+     *            where the compressed data starts
+     * @param length
+     *            the number of bytes of compressed data
+     * @param expectedLength
+     *            the expected size of the result, or 0 if not known
+     * @return the uncompressed data
+     */
+    public static byte[] decode(byte[] input, int offset, int length, int expectedLength) {
+        int in = offset;
+        int inEnd = offset + length;
+        byte[] out = new byte[expectedLength > 0 ? expectedLength : Math.max(Compressor.BUF_SIZE, length * 3)];
+        int size = 0;
+
+        while (in < inEnd) {
+            // The low bit of each flag byte says what follows:
+            // 1 is a single unencoded byte, 0 is a <position,length> pair.
+            int flags = input[in++] & 0xFF;
+            for (int bit = 0; bit < 8; bit++, flags >>= 1) {
+                if ((flags & 1) != 0) {
+                    if (in >= inEnd) {
+                        return trim(out, size);
+                    }
+                    if (size == out.length) {
+                        out = grow(out, size + 1);
+                    }
+                    out[size++] = input[in++];
+                    continue;
+                }
+
+                if (in + 1 >= inEnd) {
+                    return trim(out, size);
+                }
+                int lo = input[in++] & 0xFF;
+                int hi = input[in++] & 0xFF;
+                int pos = lo | ((hi & 0xF0) << 4);
+                int len = (hi & 0x0F) + THRESHOLD;
+
+                if (size + len > out.length) {
+                    out = grow(out, size + len);
+                }
+
+                // The output byte at index i went into the ring buffer at
+                // (START + i) & RING_WRAP, so pos was last written "distance"
+                // bytes ago. A distance of 0 means a full turn of the ring.
+                int distance = (START + size - pos) & RING_WRAP;
+                if (distance == 0) {
+                    distance = RING_SIZE;
+                }
+                int src = size - distance;
+
+                if (src >= 0 && distance >= len) {
+                    System.arraycopy(out, src, out, size, len);
+                    size += len;
+                } else {
+                    // Either an overlapping run, or the start of the output
+                    // referring to what the ring buffer started with.
+                    for (int k = 0; k < len; k++, src++) {
+                        out[size++] = src >= 0 ? out[src] : initial(src);
+                    }
+                }
+            }
+        }
+        return trim(out, size);
+    }
+
+    /**
+     * The ring buffer starts with spaces except for the last
+     * MAX_STORE_LENGTH bytes, which are 0.
+     *
+     * @param src
+     *            a negative index into the output
+     * @return the byte that the ring buffer held there
+     */
+    private static byte initial(int src) {
+        return src >= -START ? SPACE : 0;
+    }
+
+    private static byte[] grow(byte[] out, int needed) {
+        return Arrays.copyOf(out, Math.max(needed, out.length * 2));
+    }
+
+    private static byte[] trim(byte[] out, int size) {
+        return size == out.length ? out : Arrays.copyOf(out, size);
+    }
+
+    /**
+     * The size of the ring buffer. A position within it is 12 bits.
+     */
+    private static final int RING_SIZE = 4096;
+
+    /**
+     * Used to wrap positions in the ring buffer.
+     */
+    private static final int RING_WRAP = RING_SIZE - 1;
+
+    /**
+     * The longest string that can be taken from the ring buffer.
+     */
+    private static final int MAX_STORE_LENGTH = 18;
+
+    /**
+     * The shortest string that is stored as a &lt;position,length&gt; pair.
+     */
+    private static final int THRESHOLD = 3;
+
+    /**
+     * Where the first output byte goes in the ring buffer.
+     */
+    private static final int START = RING_SIZE - MAX_STORE_LENGTH;
+
+    private static final byte SPACE = (byte) ' ';
+}
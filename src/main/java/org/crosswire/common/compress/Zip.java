@@ -21,8 +21,11 @@ package org.crosswire.common.compress;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
@@ -93,4 +96,39 @@ public class Zip extends AbstractCompressor {
         return out;
     }
 
+    /**
+     * Uncompress a block of bytes directly into an array, without going
+     * through streams.
+     * 
+     * @param input the bytes to uncompress
+     * @param expectedLength the expected size of the result, which need not
+     *            be exact
+     * @return the uncompressed bytes
+     * @throws IOException if the input is not valid
+     */
+    public static byte[] inflate(byte[] input, int expectedLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            byte[] output = new byte[Math.max(expectedLength, 1)];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                int count = inflater.inflate(output, length, output.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Unexpected end of ZLIB input stream");
+                }
+                length += count;
+            }
+            return length == output.length ? output : Arrays.copyOf(output, length);
+        } catch (DataFormatException e) {
+            IOException ex = new IOException(e.getMessage());
+            ex.initCause(e);
+            throw ex;
+        } finally {
+            inflater.end();
+        }
+    }
 }
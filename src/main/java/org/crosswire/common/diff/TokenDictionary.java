@@ -0,0 +1,176 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.diff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TokenDictionary splits text into tokens and gives each distinct token a
+ * number, so that texts can be compared as arrays of ints. A token is a run
+ * of letters and digits, a run of whitespace or a single other character,
+ * such as punctuation. Joining the tokens of a text gives back the text.
+ *
+ * <p>One dictionary should be shared by all the texts that are compared with
+ * each other, for example all the cells of a parallel view, so that the same
+ * word has the same number in each. A dictionary is not thread safe.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class TokenDictionary {
+    /**
+     * Create an empty dictionary.
+     */
+    public TokenDictionary() {
+        tokens = new ArrayList<String>();
+        ids = new HashMap<String, Integer>();
+        buffer = new int[64];
+    }
+
+    /**
+     * Split a text into tokens, adding any new tokens to the dictionary.
+     *
+     * @param text
+     *            the text to split
+     * @return the ids of the tokens, in order
+     */
+    public int[] tokenize(String text) {
+        int count = 0;
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            int end = start + 1;
+            int kind = getKind(text.charAt(start));
+            if (kind != KIND_OTHER) {
+                while (end < length && getKind(text.charAt(end)) == kind) {
+                    end++;
+                }
+            }
+            if (count == buffer.length) {
+                int[] bigger = new int[count * 2];
+                System.arraycopy(buffer, 0, bigger, 0, count);
+                buffer = bigger;
+            }
+            buffer[count++] = getId(text.substring(start, end));
+            start = end;
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * @param id
+     *            the id of a token
+     * @return the token
+     */
+    public String getToken(int id) {
+        return tokens.get(id);
+    }
+
+    /**
+     * @param id
+     *            the id of a token
+     * @return whether the token is whitespace
+     */
+    public boolean isWhitespace(int id) {
+        String token = tokens.get(id);
+        return token.length() > 0 && getKind(token.charAt(0)) == KIND_SPACE;
+    }
+
+    /**
+     * @return the number of distinct tokens seen so far
+     */
+    public int size() {
+        return tokens.size();
+    }
+
+    /**
+     * Join a range of tokens back into text.
+     *
+     * @param buf
+     *            where to append the text
+     * @param ids
+     *            the tokens
+     * @param from
+     *            the first token to join
+     * @param to
+     *            one past the last token to join
+     */
+    public void append(StringBuilder buf, int[] ids, int from, int to) {
+        for (int i = from; i < to; i++) {
+            buf.append(tokens.get(ids[i]));
+        }
+    }
+
+    private int getId(String token) {
+        Integer id = ids.get(token);
+        if (id == null) {
+            id = Integer.valueOf(tokens.size());
+            tokens.add(token);
+            ids.put(token, id);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Work out what kind of token a character belongs to. Accents and other
+     * marks stay with the word they are on.
+     */
+    private static int getKind(char c) {
+        if (Character.isLetterOrDigit(c)) {
+            return KIND_WORD;
+        }
+        if (Character.isWhitespace(c)) {
+            return KIND_SPACE;
+        }
+        switch (Character.getType(c)) {
+        case Character.NON_SPACING_MARK:
+        case Character.COMBINING_SPACING_MARK:
+        case Character.ENCLOSING_MARK:
+            return KIND_WORD;
+        default:
+            return KIND_OTHER;
+        }
+    }
+
+    private static final int KIND_WORD = 0;
+    private static final int KIND_SPACE = 1;
+    private static final int KIND_OTHER = 2;
+
+    /**
+     * The tokens by id
+     */
+    private List<String> tokens;
+
+    /**
+     * The id of each token
+     */
+    private Map<String, Integer> ids;
+
+    /**
+     * Scratch space for tokenizing
+     */
+    private int[] buffer;
+}
@@ -0,0 +1,349 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the difference between two texts a word at a time rather than a
+ * character at a time. The texts are turned into arrays of token ids by a
+ * {@link TokenDictionary} and compared with Myers' O(ND) algorithm, using
+ * the linear space "middle snake" refinement. Because whole words are added
+ * or removed the result reads naturally without any semantic cleanup.
+ *
+ * <p>A TokenDiff keeps its working storage between calls, so one instance
+ * can be used to compare many texts, for example each row of a parallel
+ * view. It is not thread safe.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class TokenDiff {
+    /**
+     * Construct an object that can find the differences between texts that
+     * have been tokenized by the given dictionary.
+     *
+     * @param dictionary
+     *            the dictionary used to tokenize the texts
+     */
+    public TokenDiff(TokenDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.forward = new int[0];
+        this.reverse = new int[0];
+    }
+
+    /**
+     * Find the differences between two texts.
+     *
+     * @param source
+     *            Old string to be diffed
+     * @param target
+     *            New string to be diffed
+     * @return List of Difference objects
+     */
+    public List<Difference> compare(String source, String target) {
+        return compare(dictionary.tokenize(source), dictionary.tokenize(target));
+    }
+
+    /**
+     * Find the differences between two tokenized texts. Adjacent changes are
+     * given as a single deletion followed by a single insertion. Whitespace
+     * that is all that separates two changes is folded into them.
+     *
+     * @param source
+     *            Old tokens to be diffed
+     * @param target
+     *            New tokens to be diffed
+     * @return List of Difference objects
+     */
+    public List<Difference> compare(int[] source, int[] target) {
+        List<Difference> diffs = new ArrayList<Difference>();
+        if (Arrays.equals(source, target)) {
+            if (source.length > 0) {
+                diffs.add(new Difference(EditType.EQUAL, join(source, 0, source.length)));
+            }
+            return diffs;
+        }
+
+        this.source = source;
+        this.target = target;
+        deleted = new boolean[source.length];
+        inserted = new boolean[target.length];
+
+        compareRange(0, source.length, 0, target.length);
+        foldWhitespace();
+        collect(diffs);
+
+        this.source = null;
+        this.target = null;
+        deleted = null;
+        inserted = null;
+        return diffs;
+    }
+
+    /**
+     * Mark the tokens that differ between source[xoff, xlim) and
+     * target[yoff, ylim).
+     */
+    private void compareRange(int xoff, int xlim, int yoff, int ylim) {
+        // Trim off common prefix and suffix (speedup)
+        while (xoff < xlim && yoff < ylim && source[xoff] == target[yoff]) {
+            xoff++;
+            yoff++;
+        }
+        while (xoff < xlim && yoff < ylim && source[xlim - 1] == target[ylim - 1]) {
+            xlim--;
+            ylim--;
+        }
+
+        if (xoff == xlim) {
+            Arrays.fill(inserted, yoff, ylim, true);
+            return;
+        }
+
+        if (yoff == ylim) {
+            Arrays.fill(deleted, xoff, xlim, true);
+            return;
+        }
+
+        long split = bisect(xoff, xlim, yoff, ylim);
+        int x = (int) (split >>> 32);
+        int y = (int) split;
+        if (split == NO_SPLIT || (x == xoff && y == yoff) || (x == xlim && y == ylim)) {
+            // Could not divide the problem, so it is a change of the whole range.
+            Arrays.fill(deleted, xoff, xlim, true);
+            Arrays.fill(inserted, yoff, ylim, true);
+            return;
+        }
+
+        compareRange(xoff, x, yoff, y);
+        compareRange(x, xlim, y, ylim);
+    }
+
+    /**
+     * Find the 'middle snake' of a diff, that is a point the shortest edit
+     * script passes through, by walking from both ends at once. See Myers'
+     * 1986 paper: An O(ND) Difference Algorithm and Its Variations.
+     *
+     * @return the point packed as x in the high 32 bits and y in the low, or
+     *         NO_SPLIT
+     */
+    private long bisect(int xoff, int xlim, int yoff, int ylim) {
+        int n = xlim - xoff;
+        int m = ylim - yoff;
+        int maxD = (n + m + 1) / 2;
+        int vOffset = maxD;
+        int vLength = 2 * maxD + 2;
+        if (forward.length < vLength) {
+            forward = new int[vLength];
+            reverse = new int[vLength];
+        }
+        int[] v1 = forward;
+        int[] v2 = reverse;
+        Arrays.fill(v1, 0, vLength, -1);
+        Arrays.fill(v2, 0, vLength, -1);
+        v1[vOffset + 1] = 0;
+        v2[vOffset + 1] = 0;
+
+        int delta = n - m;
+        // If the total number of tokens is odd, then the front path will
+        // collide with the reverse path.
+        boolean front = (delta & 1) != 0;
+        // Offsets for start and end of k loop.
+        // Prevents mapping of space beyond the grid.
+        int k1start = 0;
+        int k1end = 0;
+        int k2start = 0;
+        int k2end = 0;
+        for (int d = 0; d < maxD; d++) {
+            // Walk the front path one step.
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                int k1Offset = vOffset + k1;
+                int x1;
+                if (k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])) {
+                    x1 = v1[k1Offset + 1];
+                } else {
+                    x1 = v1[k1Offset - 1] + 1;
+                }
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && source[xoff + x1] == target[yoff + y1]) {
+                    x1++;
+                    y1++;
+                }
+                v1[k1Offset] = x1;
+                if (x1 > n) {
+                    // Ran off the right of the graph.
+                    k1end += 2;
+                } else if (y1 > m) {
+                    // Ran off the bottom of the graph.
+                    k1start += 2;
+                } else if (front) {
+                    int k2Offset = vOffset + delta - k1;
+                    if (k2Offset >= 0 && k2Offset < vLength && v2[k2Offset] != -1) {
+                        // Mirror x2 onto top-left coordinate system.
+                        int x2 = n - v2[k2Offset];
+                        if (x1 >= x2) {
+                            // Overlap detected.
+                            return pack(xoff + x1, yoff + y1);
+                        }
+                    }
+                }
+            }
+
+            // Walk the reverse path one step.
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                int k2Offset = vOffset + k2;
+                int x2;
+                if (k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])) {
+                    x2 = v2[k2Offset + 1];
+                } else {
+                    x2 = v2[k2Offset - 1] + 1;
+                }
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && source[xlim - x2 - 1] == target[ylim - y2 - 1]) {
+                    x2++;
+                    y2++;
+                }
+                v2[k2Offset] = x2;
+                if (x2 > n) {
+                    // Ran off the left of the graph.
+                    k2end += 2;
+                } else if (y2 > m) {
+                    // Ran off the top of the graph.
+                    k2start += 2;
+                } else if (!front) {
+                    int k1Offset = vOffset + delta - k2;
+                    if (k1Offset >= 0 && k1Offset < vLength && v1[k1Offset] != -1) {
+                        int x1 = v1[k1Offset];
+                        int y1 = vOffset + x1 - k1Offset;
+                        // Mirror x2 onto top-left coordinate system.
+                        if (x1 >= n - x2) {
+                            // Overlap detected.
+                            return pack(xoff + x1, yoff + y1);
+                        }
+                    }
+                }
+            }
+        }
+        return NO_SPLIT;
+    }
+
+    /**
+     * Where a run of whitespace is all that is left unchanged between two
+     * changes, treat it as changed too, so that the reader sees one phrase
+     * replaced by another rather than a word salad.
+     */
+    private void foldWhitespace() {
+        int i = 0;
+        int j = 0;
+        while (i < source.length && j < target.length) {
+            if (deleted[i]) {
+                i++;
+            } else if (inserted[j]) {
+                j++;
+            } else {
+                int i0 = i;
+                int j0 = j;
+                boolean blank = true;
+                while (i < source.length && j < target.length && !deleted[i] && !inserted[j]) {
+                    blank &= dictionary.isWhitespace(source[i]);
+                    i++;
+                    j++;
+                }
+                boolean atEnd = i == source.length && j == target.length;
+                if (blank && (i0 > 0 || j0 > 0) && !atEnd) {
+                    Arrays.fill(deleted, i0, i, true);
+                    Arrays.fill(inserted, j0, j, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Turn the marked tokens into a list of differences.
+     */
+    private void collect(List<Difference> diffs) {
+        int i = 0;
+        int j = 0;
+        while (i < source.length || j < target.length) {
+            int start = i;
+            while (i < source.length && deleted[i]) {
+                i++;
+            }
+            if (i > start) {
+                diffs.add(new Difference(EditType.DELETE, join(source, start, i)));
+            }
+
+            start = j;
+            while (j < target.length && inserted[j]) {
+                j++;
+            }
+            if (j > start) {
+                diffs.add(new Difference(EditType.INSERT, join(target, start, j)));
+            }
+
+            start = i;
+            while (i < source.length && j < target.length && !deleted[i] && !inserted[j]) {
+                i++;
+                j++;
+            }
+            if (i > start) {
+                diffs.add(new Difference(EditType.EQUAL, join(source, start, i)));
+            }
+        }
+    }
+
+    private String join(int[] tokens, int from, int to) {
+        StringBuilder buf = new StringBuilder();
+        dictionary.append(buf, tokens, from, to);
+        return buf.toString();
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static final long NO_SPLIT = -1L;
+
+    /**
+     * The dictionary that the tokens come from
+     */
+    private TokenDictionary dictionary;
+
+    /**
+     * The texts being compared
+     */
+    private int[] source;
+    private int[] target;
+
+    /**
+     * Which tokens are not part of the common subsequence
+     */
+    private boolean[] deleted;
+    private boolean[] inserted;
+
+    /**
+     * The furthest reaching paths, kept for reuse between calls
+     */
+    private int[] forward;
+    private int[] reverse;
+}
@@ -0,0 +1,331 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.metrics;
+
+import java.io.IOException;
+
+import org.crosswire.common.util.PluginUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The entry point for recording metrics. The recorder is read from
+ * MetricsRecorder.plugin and can be replaced at runtime with
+ * {@link #setRecorder(MetricsRecorder)}. When the recorder is the
+ * {@link NullMetricsRecorder} the calls here do no more than test a flag, so
+ * they can be left in hot paths.
+ *
+ * <p>A timing is taken as:</p>
+ * <pre>
+ * long start = Metrics.begin();
+ * try {
+ *     ...
+ * } finally {
+ *     Metrics.time(Metrics.SWORD_READ, initials, type, start);
+ * }
+ * </pre>
+ *
+ * <p>Low level code that does not know which book it is working for can
+ * record against the book of the enclosing operation. The operation is
+ * bracketed with {@link #enter(String, String)} and {@link #exit(Object)}
+ * and the low level code calls the methods without tags.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class Metrics {
+    /**
+     * Prevent instantiation
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Timer for reads from a module's files.
+     */
+    public static final String SWORD_READ = "jsword.sword.read";
+
+    /**
+     * Timer for decompressing a block of a module.
+     */
+    public static final String SWORD_UNCOMPRESS = "jsword.sword.uncompress";
+
+    /**
+     * Timer for deciphering the data of a locked module.
+     */
+    public static final String SWORD_DECIPHER = "jsword.sword.decipher";
+
+    /**
+     * Timer for converting raw module text into OSIS.
+     */
+    public static final String FILTER_TO_OSIS = "jsword.filter.toOSIS";
+
+    /**
+     * Timer for XSL transformations.
+     */
+    public static final String XSLT_TRANSFORM = "jsword.xslt.transform";
+
+    /**
+     * Timer for index searches.
+     */
+    public static final String INDEX_FIND = "jsword.index.find";
+
+    /**
+     * Counter of search indexes that had to be opened.
+     */
+    public static final String INDEX_OPEN = "jsword.index.open";
+
+    /**
+     * Counter of open search indexes that were evicted to make room.
+     */
+    public static final String INDEX_EVICT = "jsword.index.evict";
+
+    /**
+     * Counter of file states that had to be opened.
+     */
+    public static final String STATE_CREATE = "jsword.state.create";
+
+    /**
+     * Counter of file states that were reused from the pool.
+     */
+    public static final String STATE_REUSE = "jsword.state.reuse";
+
+    /**
+     * Counter of file states that were closed because they were not used.
+     */
+    public static final String STATE_EXPIRE = "jsword.state.expire";
+
+    /**
+     * Gauge of the file states waiting in the pool of a book.
+     */
+    public static final String STATE_POOLED = "jsword.state.pooled";
+
+    /**
+     * Counter of asynchronous requests that joined one already in flight.
+     */
+    public static final String ASYNC_COALESCED = "jsword.async.coalesced";
+
+    /**
+     * Counter of asynchronous requests cancelled by their deadline.
+     */
+    public static final String ASYNC_EXPIRED = "jsword.async.expired";
+
+    /**
+     * @return the current recorder
+     */
+    public static MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Replace the recorder. Passing null restores the no-op recorder.
+     *
+     * @param newRecorder the recorder to use
+     */
+    public static void setRecorder(MetricsRecorder newRecorder) {
+        if (newRecorder == null) {
+            recorder = new NullMetricsRecorder();
+        } else {
+            recorder = newRecorder;
+        }
+        enabled = !(recorder instanceof NullMetricsRecorder);
+    }
+
+    /**
+     * @return whether measurements are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start timing an operation.
+     *
+     * @return the start time to give to time(), or 0 if nothing is recorded
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Finish timing an operation.
+     *
+     * @param name the name of the timer
+     * @param initials the initials of the book, or null
+     * @param type the kind of backend, filter or other component, or null
+     * @param start the value returned by begin()
+     */
+    public static void time(String name, String initials, String type, long start) {
+        if (enabled && start != 0L) {
+            recorder.time(name, initials, type, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Finish timing an operation on behalf of the book of the enclosing
+     * operation.
+     *
+     * @param name the name of the timer
+     * @param start the value returned by begin()
+     */
+    public static void time(String name, long start) {
+        if (enabled && start != 0L) {
+            Context context = CONTEXT.get();
+            if (context == null) {
+                recorder.time(name, null, null, System.nanoTime() - start);
+            } else {
+                recorder.time(name, context.initials, context.type, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Add one to a counter.
+     *
+     * @param name the name of the counter
+     * @param initials the initials of the book, or null
+     * @param type the kind of backend, filter or other component, or null
+     */
+    public static void increment(String name, String initials, String type) {
+        if (enabled) {
+            recorder.increment(name, initials, type, 1L);
+        }
+    }
+
+    /**
+     * Record the current value of a gauge.
+     *
+     * @param name the name of the gauge
+     * @param initials the initials of the book, or null
+     * @param type the kind of backend, filter or other component, or null
+     * @param value the current value
+     */
+    public static void gauge(String name, String initials, String type, long value) {
+        if (enabled) {
+            recorder.gauge(name, initials, type, value);
+        }
+    }
+
+    /**
+     * Mark the start of an operation on a book by this thread. The result
+     * must be passed to {@link #exit(Object)} in a finally block.
+     *
+     * @param initials the initials of the book
+     * @param type the kind of backend
+     * @return the context to end, or null if nothing is recorded
+     */
+    public static Object enter(String initials, String type) {
+        if (!enabled) {
+            return null;
+        }
+        Context context = new Context(initials, type, CONTEXT.get());
+        CONTEXT.set(context);
+        return context;
+    }
+
+    /**
+     * Mark the end of an operation started with {@link #enter(String, String)}.
+     * The thread goes back to the context it had before the operation. This
+     * does not depend on whether recording is still enabled. Ending an
+     * operation a second time does nothing and ending an outer operation
+     * also ends any inner ones that were not ended.
+     *
+     * @param context the value returned by enter()
+     */
+    public static void exit(Object context) {
+        if (context == null) {
+            return;
+        }
+        for (Context current = CONTEXT.get(); current != null; current = current.parent) {
+            if (current == context) {
+                Context parent = current.parent;
+                if (parent == null) {
+                    CONTEXT.remove();
+                } else {
+                    CONTEXT.set(parent);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return whether this thread is working on behalf of a book
+     */
+    static boolean isEntered() {
+        return CONTEXT.get() != null;
+    }
+
+    /**
+     * The book and type on whose behalf a thread is working.
+     */
+    private static final class Context {
+        Context(String initials, String type, Context parent) {
+            this.initials = initials;
+            this.type = type;
+            this.parent = parent;
+        }
+
+        private final String initials;
+        private final String type;
+        private final Context parent;
+    }
+
+    /**
+     * The book and type on whose behalf each thread is working.
+     */
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<Context>();
+
+    /**
+     * Whether the recorder does anything.
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * Where measurements go.
+     */
+    private static volatile MetricsRecorder recorder;
+
+    /**
+     * The log stream
+     */
+    private static final Logger log = LoggerFactory.getLogger(Metrics.class);
+
+    /**
+     * Setup the recorder
+     */
+    static {
+        MetricsRecorder configured = null;
+        try {
+            configured = PluginUtil.getImplementation(MetricsRecorder.class);
+        } catch (IOException e) {
+            log.error("createMetricsRecorder failed", e);
+        } catch (ClassCastException e) {
+            log.error("createMetricsRecorder failed", e);
+        } catch (ClassNotFoundException e) {
+            log.error("createMetricsRecorder failed", e);
+        } catch (IllegalAccessException e) {
+            log.error("createMetricsRecorder failed", e);
+        } catch (InstantiationException e) {
+            log.error("createMetricsRecorder failed", e);
+        }
+        setRecorder(configured);
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.metrics;
+
+/**
+ * The service provider interface for metrics. An implementation is told about
+ * each measurement as it happens and is expected to aggregate it cheaply, for
+ * example by bridging it to Micrometer or a Prometheus client.
+ *
+ * <p>Every measurement is tagged with the initials of the book it concerns and
+ * with the type of thing that did the work, such as the module driver
+ * (e.g. zText) or the source filter (e.g. OSIS). Either tag may be null when
+ * it is not known.</p>
+ *
+ * <p>Implementations must be thread safe.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface MetricsRecorder {
+    /**
+     * Add to a counter.
+     *
+     * @param name the name of the counter
+     * @param initials the initials of the book, or null
+     * @param type the kind of backend, filter or other component, or null
+     * @param delta the amount to add
+     */
+    void increment(String name, String initials, String type, long delta);
+
+    /**
+     * Record the duration of an operation.
+     *
+     * @param name the name of the timer
+     * @param initials the initials of the book, or null
+     * @param type the kind of backend, filter or other component, or null
+     * @param nanos how long the operation took, in nanoseconds
+     */
+    void time(String name, String initials, String type, long nanos);
+
+    /**
+     * Record the current value of something that goes up and down.
+     *
+     * @param name the name of the gauge
+     * @param initials the initials of the book, or null
+     * @param type the kind of backend, filter or other component, or null
+     * @param value the current value
+     */
+    void gauge(String name, String initials, String type, long value);
+}
@@ -0,0 +1,49 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.metrics;
+
+/**
+ * A MetricsRecorder that discards everything. This is the default.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class NullMetricsRecorder implements MetricsRecorder {
+    /* (non-Javadoc)
+     * @see org.crosswire.common.metrics.MetricsRecorder#increment(java.lang.String, java.lang.String, java.lang.String, long)
+     */
+    public void increment(String name, String initials, String type, long delta) {
+        // no-op
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.common.metrics.MetricsRecorder#time(java.lang.String, java.lang.String, java.lang.String, long)
+     */
+    public void time(String name, String initials, String type, long nanos) {
+        // no-op
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.common.metrics.MetricsRecorder#gauge(java.lang.String, java.lang.String, java.lang.String, long)
+     */
+    public void gauge(String name, String initials, String type, long value) {
+        // no-op
+    }
+}
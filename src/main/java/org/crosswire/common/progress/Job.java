@@ -299,7 +299,9 @@ public final class Job implements Progress {
         if (!finished) {
             ignoreTimings();
             done();
-            if (workerThread != null) {
+            // A worker that cancels its own job is already stopping.
+            // Interrupting it would leave its thread interrupted afterwards.
+            if (workerThread != null && workerThread != Thread.currentThread()) {
                 workerThread.interrupt();
             }
         }
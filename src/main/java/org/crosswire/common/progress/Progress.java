@@ -33,6 +33,7 @@ public interface Progress {
      */
     int UNKNOWN = -1;
     String INSTALL_BOOK = "INSTALL_BOOK-%s";
+    String INSTALL_BOOKS = "INSTALL_BOOKS";
     String RELOAD_BOOK_LIST = "RELOAD_BOOK_LIST";
     String DOWNLOAD_SEARCH_INDEX = "DOWNLOAD_SEARCH_INDEX-%s";
     String CREATE_INDEX = "CREATE_INDEX-%s";
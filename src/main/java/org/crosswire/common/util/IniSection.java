@@ -106,6 +106,7 @@ public final class IniSection implements Iterable {
     public IniSection(IniSection config) {
         this.name = config.getName();
         section = new HashMap<String, List<String>>();
+        warnings = new StringBuilder();
         for (String key : config.getKeys()) {
             for (String value : config.getValues(key)) {
                 add(key, value);
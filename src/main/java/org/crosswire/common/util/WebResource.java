@@ -19,11 +19,18 @@
  */
 package org.crosswire.common.util;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Date;
+import java.util.concurrent.Semaphore;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
@@ -32,6 +39,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
@@ -40,6 +48,8 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.crosswire.common.progress.Progress;
 import org.crosswire.jsword.JSMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A WebResource is backed by an URL and potentially the proxy through which it
@@ -231,6 +241,13 @@ public class WebResource {
 
     /**
      * Copy this WebResource to the destination and report progress.
+     * <p>
+     * When the destination is a file, the resource is first copied to a
+     * partial file beside it, which replaces the destination once it is
+     * complete. If an earlier copy was interrupted, the rest of the resource
+     * is asked for with an HTTP Range request, so long as the resource has not
+     * changed in the meantime.
+     * </p>
      * 
      * @param dest
      *            the URI of the destination, typically a file:///.
@@ -239,6 +256,239 @@ public class WebResource {
      * @throws LucidException when an error is encountered
      */
     public void copy(URI dest, Progress meter) throws LucidException  {
+        transfer(dest, meter, false);
+    }
+
+    /**
+     * Copy this WebResource to the destination.
+     * 
+     * @param dest the destination URI
+     * @throws LucidException when an error is encountered
+     */
+    public void copy(URI dest) throws LucidException {
+        copy(dest, null);
+    }
+
+    /**
+     * Copy this WebResource to the destination file, but only if it has
+     * changed since it was last copied there. The server is asked using the
+     * ETag or Last-Modified date that it gave the last time.
+     * 
+     * @param dest
+     *            the URI of the destination, typically a file:///.
+     * @param meter
+     *            the job on which to report progress
+     * @return true if the resource was copied, false if it has not changed
+     * @throws LucidException when an error is encountered
+     */
+    public boolean copyIfModified(URI dest, Progress meter) throws LucidException {
+        return transfer(dest, meter, true);
+    }
+
+    /**
+     * Delete a file that was copied to, along with the partial copy and the
+     * HTTP validators kept beside it to resume or revalidate the copy.
+     *
+     * @param file
+     *            the destination of an earlier copy
+     * @return true if nothing is left
+     */
+    public static boolean deleteCopy(File file) {
+        boolean deleted = forgetCopy(file);
+        if (file.exists() && !file.delete()) {
+            deleted = false;
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete the partial copy and the HTTP validators kept beside a file
+     * that was copied to, but not the file itself. This is for a copy that
+     * is not to be resumed or revalidated.
+     *
+     * @param file
+     *            the destination of an earlier copy
+     * @return true if neither is left
+     */
+    public static boolean forgetCopy(File file) {
+        boolean deleted = true;
+        File[] files = {
+            new File(file.getPath() + PART_SUFFIX), new File(file.getPath() + VALIDATOR_SUFFIX)
+        };
+        for (File each : files) {
+            if (each.exists() && !each.delete()) {
+                deleted = false;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the most resources that may be copied at the same time
+     */
+    public static int getMaxTransfers() {
+        return maxTransfers;
+    }
+
+    /**
+     * Limit the number of resources that may be copied at the same time, by
+     * all WebResources. Any more wait their turn.
+     * 
+     * @param transfers
+     *            the most resources that may be copied at the same time
+     */
+    public static synchronized void setMaxTransfers(int transfers) {
+        maxTransfers = Math.max(1, transfers);
+        transferPermits = new Semaphore(maxTransfers, true);
+    }
+
+    private boolean transfer(URI dest, Progress meter, boolean conditional) throws LucidException {
+        Semaphore permits = transferPermits;
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // TRANSLATOR: Common error condition: {0} is a placeholder for the
+            // URL of what could not be found.
+            throw new LucidException(JSMsg.gettext("Unable to find: {0}", uri.toString()), e);
+        }
+        try {
+            if (NetUtil.PROTOCOL_FILE.equals(dest.getScheme())) {
+                return transferToFile(NetUtil.getAsFile(dest), meter, conditional);
+            }
+            transferToStream(dest, meter);
+            return true;
+        } catch (IOException e) {
+            // TRANSLATOR: Common error condition: {0} is a placeholder for the
+            // URL of what could not be found.
+            throw new LucidException(JSMsg.gettext("Unable to find: {0}", uri.toString()), e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean transferToFile(File file, Progress meter, boolean conditional) throws IOException, LucidException {
+        File part = new File(file.getPath() + PART_SUFFIX);
+        URI validatorURI = NetUtil.getURI(new File(file.getPath() + VALIDATOR_SUFFIX));
+        PropertyMap validators = NetUtil.isFile(validatorURI) ? NetUtil.loadProperties(validatorURI) : new PropertyMap();
+
+        HttpGet method = new HttpGet(uri);
+        long offset = 0;
+        String partValidator = validators.get(KEY_PART);
+        if (part.exists() && partValidator != null && part.length() > 0) {
+            // Ask for the rest, but only if the resource is the same
+            offset = part.length();
+            method.setHeader(HEADER_RANGE, "bytes=" + offset + '-');
+            method.setHeader(HEADER_IF_RANGE, partValidator);
+        } else if (conditional && file.exists()) {
+            String etag = validators.get(HEADER_ETAG);
+            String lastModified = validators.get(HEADER_LAST_MODIFIED);
+            if (etag != null) {
+                method.setHeader(HEADER_IF_NONE_MATCH, etag);
+            }
+            if (lastModified != null) {
+                method.setHeader(HEADER_IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+
+        CloseableHttpResponse response = client.execute(method);
+        FileChannel channel = null;
+        ReadableByteChannel source = null;
+        try {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_MODIFIED) {
+                return false;
+            }
+            if (status == HttpStatus.SC_PARTIAL_CONTENT && offset > 0 && getRangeStart(response) == offset) {
+                LOGGER.debug("Resuming {} at {}", uri, Long.toString(offset));
+            } else if (status == HttpStatus.SC_OK) {
+                // The resource changed or the server cannot resume
+                offset = 0;
+            } else if (offset > 0) {
+                // The partial file cannot be resumed, for example because it
+                // is already complete (416), so start again without it.
+                LOGGER.debug("Unable to resume {} at {}: {}", uri, Long.toString(offset), Integer.toString(status));
+                IOUtil.close(response);
+                if (!part.delete()) {
+                    throw new IOException("Unable to delete " + part);
+                }
+                validators.remove(KEY_PART);
+                NetUtil.storeProperties(validators, validatorURI, VALIDATOR_TITLE);
+                return transferToFile(file, meter, conditional);
+            } else {
+                String reason = response.getStatusLine().getReasonPhrase();
+                // TRANSLATOR: Common error condition: {0} is a placeholder for
+                // the URL of what could not be found.
+                throw new LucidException(JSMsg.gettext("Unable to find: {0}", reason + ':' + uri.getPath()));
+            }
+
+            // Remember what we are getting, so that it can be resumed
+            String validator = getValidator(response);
+            if (validator == null) {
+                validators.remove(KEY_PART);
+            } else {
+                validators.put(KEY_PART, validator);
+            }
+            NetUtil.storeProperties(validators, validatorURI, VALIDATOR_TITLE);
+
+            HttpEntity entity = response.getEntity();
+            if (meter != null) {
+                long length = entity == null ? -1 : entity.getContentLength();
+                meter.setTotalWork((int) (offset + Math.max(length, 0)));
+                meter.incrementWorkDone((int) offset);
+            }
+
+            channel = new RandomAccessFile(part, "rw").getChannel();
+            channel.truncate(offset);
+            channel.position(offset);
+            if (entity != null) {
+                source = Channels.newChannel(entity.getContent());
+                ByteBuffer buffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    int count = buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                    if (meter != null) {
+                        meter.incrementWorkDone(count);
+                    }
+                }
+            }
+            channel.close();
+            channel = null;
+
+            // Swap in the completed copy
+            if (file.exists() && !file.delete() || !part.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+            validators.remove(KEY_PART);
+            validators.remove(HEADER_ETAG);
+            validators.remove(HEADER_LAST_MODIFIED);
+            Header etag = response.getFirstHeader(HEADER_ETAG);
+            if (etag != null) {
+                validators.put(HEADER_ETAG, etag.getValue());
+            }
+            Header lastModified = response.getFirstHeader(HEADER_LAST_MODIFIED);
+            if (lastModified != null) {
+                validators.put(HEADER_LAST_MODIFIED, lastModified.getValue());
+                Date date = DateUtils.parseDate(lastModified.getValue());
+                if (date != null) {
+                    file.setLastModified(date.getTime());
+                }
+            }
+            NetUtil.storeProperties(validators, validatorURI, VALIDATOR_TITLE);
+            return true;
+        } finally {
+            // A partial file is kept, so the copy can be resumed
+            IOUtil.close(source);
+            IOUtil.close(channel);
+            IOUtil.close(response);
+        }
+    }
+
+    private void transferToStream(URI dest, Progress meter) throws IOException {
         InputStream in = null;
         OutputStream out = null;
         HttpRequestBase method = new HttpGet(uri);
@@ -265,7 +515,7 @@ public class WebResource {
                 // Download the index file
                 out = NetUtil.getOutputStream(dest);
 
-                byte[] buf = new byte[4096];
+                byte[] buf = new byte[TRANSFER_BUFFER_SIZE];
                 int count = in.read(buf);
                 while (-1 != count) {
                     if (meter != null) {
@@ -280,10 +530,6 @@ public class WebResource {
                 // the URL of what could not be found.
                 Reporter.informUser(this, JSMsg.gettext("Unable to find: {0}", reason + ':' + uri.getPath()));
             }
-        } catch (IOException e) {
-            // TRANSLATOR: Common error condition: {0} is a placeholder for the
-            // URL of what could not be found.
-            throw new LucidException(JSMsg.gettext("Unable to find: {0}", uri.toString()), e);
         } finally {
             // Close the streams
             IOUtil.close(in);
@@ -292,13 +538,37 @@ public class WebResource {
     }
 
     /**
-     * Copy this WebResource to the destination.
-     * 
-     * @param dest the destination URI
-     * @throws LucidException when an error is encountered
+     * @return what identifies this version of the resource, preferring the
+     *         ETag, or null if the server gave neither it nor a date
      */
-    public void copy(URI dest) throws LucidException {
-        copy(dest, null);
+    private String getValidator(HttpResponse response) {
+        Header header = response.getFirstHeader(HEADER_ETAG);
+        if (header == null) {
+            header = response.getFirstHeader(HEADER_LAST_MODIFIED);
+        }
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * @return where a partial response starts, from "bytes start-end/total",
+     *         or -1 if it cannot be told
+     */
+    private long getRangeStart(HttpResponse response) {
+        Header header = response.getFirstHeader(HEADER_CONTENT_RANGE);
+        if (header == null) {
+            return -1;
+        }
+        String value = header.getValue().trim();
+        int space = value.indexOf(' ');
+        int dash = value.indexOf('-');
+        if (space < 0 || dash < space) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.substring(space + 1, dash).trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
     }
 
     /**
@@ -341,6 +611,28 @@ public class WebResource {
      */
     private static int timeout = 750;
 
+    /**
+     * The most resources that can be copied at once, and the permits that
+     * enforce it.
+     */
+    private static volatile int maxTransfers = 4;
+    private static volatile Semaphore transferPermits = new Semaphore(maxTransfers, true);
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+    private static final String PART_SUFFIX = ".part";
+    private static final String VALIDATOR_SUFFIX = ".http";
+    private static final String VALIDATOR_TITLE = "HTTP validators of a downloaded file";
+    private static final String KEY_PART = "Partial";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String HEADER_RANGE = "Range";
+    private static final String HEADER_IF_RANGE = "If-Range";
+    private static final String HEADER_CONTENT_RANGE = "Content-Range";
+
     private URI uri;
     private CloseableHttpClient client;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebResource.class);
 }
@@ -25,6 +25,10 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Result;
@@ -39,6 +43,7 @@ import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
 
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.common.util.IOUtil;
 import org.crosswire.common.util.NetUtil;
 import org.slf4j.Logger;
@@ -62,6 +67,7 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
      */
     public TransformingSAXEventProvider(URI xsluri, SAXEventProvider xmlsep) {
         this.xsluri = xsluri;
+        this.xslName = getBaseName(xsluri);
         this.xmlsep = xmlsep;
         this.outputs = new Properties();
         this.params = new HashMap<String, Object>();
@@ -70,52 +76,100 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
     /**
      * Compile the XSL or retrieve it from the cache
      * 
+     * @param xsluri the URI of XSL
      * @return the template information
      * @throws TransformerConfigurationException when there is a problem with configuring the transformer
      * @throws IOException when there is an I/O error
      */
-    private TemplateInfo getTemplateInfo() throws TransformerConfigurationException, IOException {
+    private static TemplateInfo getTemplateInfo(URI xsluri) throws TransformerConfigurationException, IOException {
         // we may have one cached
         TemplateInfo tinfo = txers.get(xsluri);
 
-        long modtime = -1;
-        if (TransformingSAXEventProvider.developmentMode) {
-            if (tinfo != null) {
-                modtime = NetUtil.getLastModified(xsluri);
-
-                // But check it is up to date
-                if (modtime > tinfo.getModtime()) {
-                    txers.remove(xsluri);
-                    tinfo = null;
-                    log.debug("updated style, re-caching. xsl={}", xsluri);
-                }
-            }
+        // Only in development mode is it worth asking whether it is up to date
+        if (tinfo != null && developmentMode && NetUtil.getLastModified(xsluri) > tinfo.getModtime()) {
+            txers.remove(xsluri, tinfo);
+            tinfo = null;
+            log.debug("updated style, re-caching. xsl={}", xsluri);
         }
 
         if (tinfo == null) {
-            log.debug("generating templates for {}", xsluri);
+            tinfo = compileTemplateInfo(xsluri);
+        }
 
-            InputStream xslStream = null;
-            try {
-                xslStream = NetUtil.getInputStream(xsluri);
-                if (transfact == null) {
-                    transfact = TransformerFactory.newInstance();
-                }
-                Templates templates = transfact.newTemplates(new StreamSource(xslStream));
+        return tinfo;
+    }
 
-                if (modtime == -1) {
-                    modtime = NetUtil.getLastModified(xsluri);
-                }
+    /**
+     * Get the name of a stylesheet without its location or extension, e.g.
+     * simple for .../xsl/cswing/simple.xsl. This keeps the number of
+     * distinct tags on the timings small and free of local paths.
+     *
+     * @param xsluri the URI of XSL
+     * @return the base name of the stylesheet
+     */
+    private static String getBaseName(URI xsluri) {
+        String name = xsluri.toString();
+        int slash = name.lastIndexOf('/');
+        if (slash >= 0) {
+            name = name.substring(slash + 1);
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return name;
+    }
 
-                tinfo = new TemplateInfo(templates, modtime);
+    /**
+     * Compile the XSL and cache it. If another thread has compiled it in the
+     * meantime, that compilation is used.
+     * 
+     * @param xsluri the URI of XSL
+     * @return the template information
+     * @throws TransformerConfigurationException when there is a problem with configuring the transformer
+     * @throws IOException when there is an I/O error
+     */
+    private static TemplateInfo compileTemplateInfo(URI xsluri) throws TransformerConfigurationException, IOException {
+        log.debug("generating templates for {}", xsluri);
 
-                txers.put(xsluri, tinfo);
-            } finally {
-                IOUtil.close(xslStream);
+        long modtime = NetUtil.getLastModified(xsluri);
+        Templates templates;
+        InputStream xslStream = null;
+        try {
+            xslStream = NetUtil.getInputStream(xsluri);
+            // A TransformerFactory is not thread safe
+            synchronized (TransformingSAXEventProvider.class) {
+                if (transfact == null) {
+                    transfact = TransformerFactory.newInstance();
+                }
+                templates = transfact.newTemplates(new StreamSource(xslStream));
             }
+        } finally {
+            IOUtil.close(xslStream);
         }
 
-        return tinfo;
+        TemplateInfo tinfo = new TemplateInfo(templates, modtime);
+        TemplateInfo current = txers.get(xsluri);
+        if (current == null || current.getModtime() < modtime) {
+            txers.put(xsluri, tinfo);
+            return tinfo;
+        }
+        return current;
+    }
+
+    /**
+     * Compile stylesheets ahead of their first use, so that the first
+     * transformation of each does not pay for it. This is meant to be called
+     * at startup with every stylesheet the application is configured to use.
+     * 
+     * @param xsluris the URIs of the XSL
+     * @throws TransformerConfigurationException when there is a problem with configuring the transformer
+     * @throws IOException when there is an I/O error
+     */
+    public static void compile(URI... xsluris) throws TransformerConfigurationException, IOException {
+        for (URI xsluri : xsluris) {
+            getTemplateInfo(xsluri);
+        }
     }
 
     /* (non-Javadoc)
@@ -125,12 +179,12 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
     public void transform(Source xmlSource, Result outputTarget) throws TransformerException {
         TemplateInfo tinfo;
         try {
-            tinfo = getTemplateInfo();
+            tinfo = getTemplateInfo(xsluri);
         } catch (IOException e) {
             throw new TransformerException(e);
         }
 
-        Transformer transformer = tinfo.getTemplates().newTransformer();
+        Transformer transformer = tinfo.acquireTransformer();
 
         for (Object obj : outputs.keySet()) {
             String key = (String) obj;
@@ -138,9 +192,8 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
             transformer.setOutputProperty(key, val);
         }
 
-        for (String key : params.keySet()) {
-            Object val = params.get(key);
-            transformer.setParameter(key, val);
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            transformer.setParameter(entry.getKey(), entry.getValue());
         }
 
         if (errors != null) {
@@ -151,7 +204,12 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
             transformer.setURIResolver(resolver);
         }
 
+        long start = Metrics.begin();
         transformer.transform(xmlSource, outputTarget);
+        Metrics.time(Metrics.XSLT_TRANSFORM, null, xslName, start);
+
+        // Only a transformer that completed normally is reused.
+        tinfo.releaseTransformer(transformer);
     }
 
     /* (non-Javadoc)
@@ -276,7 +334,27 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
     }
 
     /**
-     * A simple class to link modification times to Templates objects
+     * Set the number of idle Transformers kept for reuse for each stylesheet.
+     * This only affects stylesheets compiled after the call.
+     * 
+     * @param size the maximum number of pooled Transformers per stylesheet
+     */
+    public static void setTransformerPoolSize(int size) {
+        TransformingSAXEventProvider.poolSize = size;
+    }
+
+    /**
+     * The number of idle Transformers kept for reuse for each stylesheet.
+     * 
+     * @return the maximum number of pooled Transformers per stylesheet
+     */
+    public static int getTransformerPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * A simple class to link modification times to Templates objects, and to
+     * keep a pool of Transformers created from them.
      */
     private static class TemplateInfo {
         /**
@@ -288,28 +366,56 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
         TemplateInfo(Templates templates, long modtime) {
             this.templates = templates;
             this.modtime = modtime;
+            this.pool = poolSize > 0 ? new ArrayBlockingQueue<Transformer>(poolSize) : null;
         }
 
         /**
-         * The transformer
+         * The time the xsl file was last modified
          * 
-         * @return the compiled XSL
+         * @return when the xsl was last modified.
          */
-        Templates getTemplates() {
-            return templates;
+        long getModtime() {
+            return modtime;
         }
 
         /**
-         * The time the xsl file was last modified
+         * Get an idle Transformer or create one.
          * 
-         * @return when the xsl was last modified.
+         * @return a Transformer for the exclusive use of the caller
+         * @throws TransformerConfigurationException when the Transformer cannot be created
          */
-        long getModtime() {
-            return modtime;
+        Transformer acquireTransformer() throws TransformerConfigurationException {
+            Transformer transformer = pool == null ? null : pool.poll();
+            if (transformer == null) {
+                transformer = templates.newTransformer();
+            }
+            return transformer;
+        }
+
+        /**
+         * Return a Transformer to the pool, after resetting it to the state it
+         * had when it was created. If the pool is full it is discarded.
+         * 
+         * @param transformer the Transformer that is no longer used
+         */
+        void releaseTransformer(Transformer transformer) {
+            if (pool == null) {
+                return;
+            }
+            try {
+                // Some implementations do not clear parameters on reset
+                transformer.clearParameters();
+                transformer.reset();
+            } catch (UnsupportedOperationException e) {
+                // This implementation cannot be reused
+                return;
+            }
+            pool.offer(transformer);
         }
 
         private Templates templates;
         private long modtime;
+        private BlockingQueue<Transformer> pool;
     }
 
     /**
@@ -343,6 +449,11 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
      */
     private URI xsluri;
 
+    /**
+     * The base name of the XSL, used to tag its timings
+     */
+    private String xslName;
+
     /**
      * The XML input source
      */
@@ -351,12 +462,17 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
     /**
      * How we get the transformer objects
      */
-    private TransformerFactory transfact;
+    private static TransformerFactory transfact;
+
+    /**
+     * The number of idle Transformers kept for each stylesheet.
+     */
+    private static int poolSize = 8;
 
     /**
      * A cache of transformers
      */
-    private static Map<URI, TemplateInfo> txers = new HashMap<URI, TemplateInfo>();
+    private static ConcurrentMap<URI, TemplateInfo> txers = new ConcurrentHashMap<URI, TemplateInfo>();
 
     /**
      * The log stream
@@ -19,8 +19,11 @@
  */
 package org.crosswire.common.xml;
 
+import java.io.IOException;
 import java.net.URI;
 
+import javax.xml.transform.TransformerConfigurationException;
+
 /**
  * An implementation of Converter that uses a TransformingSAXEventProvider to
  * transform one SAXEventProvider into another SAXEventProvider using XSL.
@@ -49,6 +52,16 @@ public class TransformingSAXEventProviderConverter implements Converter {
         return new TransformingSAXEventProvider(xsluri, provider);
     }
 
+    /**
+     * Compile the stylesheet now rather than on its first use.
+     * 
+     * @throws TransformerConfigurationException when there is a problem with configuring the transformer
+     * @throws IOException when there is an I/O error
+     */
+    public void compile() throws TransformerConfigurationException, IOException {
+        TransformingSAXEventProvider.compile(xsluri);
+    }
+
     /**
      * The URI of the stylesheet
      */
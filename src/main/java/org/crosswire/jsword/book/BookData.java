@@ -25,9 +25,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-import org.crosswire.common.diff.Diff;
-import org.crosswire.common.diff.DiffCleanup;
 import org.crosswire.common.diff.Difference;
+import org.crosswire.common.diff.TokenDiff;
+import org.crosswire.common.diff.TokenDictionary;
 import org.crosswire.common.util.Language;
 import org.crosswire.common.xml.JDOMSAXEventProvider;
 import org.crosswire.common.xml.SAXEventProvider;
@@ -139,12 +139,18 @@ public class BookData implements BookProvider {
     }
 
     /**
-     * Output the current data as a SAX stream.
+     * Output the current data as a SAX stream. When the data is from a single
+     * book and has not already been built as a fragment, the events are
+     * streamed from the book without building the fragment.
      *
      * @return A way of posting SAX events
      * @throws BookException if there is any problem with this request
      */
     public SAXEventProvider getSAXEventProvider() throws BookException {
+        if (fragment == null && books.length == 1) {
+            return new BookDataSAXEventProvider(books[0], key, true);
+        }
+
         // If the fragment is already in a document, then use that.
         Element frag = getOsisFragment();
         Document doc = frag.getDocument();
@@ -245,11 +251,20 @@ public class BookData implements BookProvider {
             int cellCount = 0;
             int rowCount = 0;
 
+            // Compare word by word. The dictionary is shared by all the rows
+            // so that each word is only numbered once.
+            TokenDictionary dictionary = null;
+            TokenDiff tokenDiff = null;
+            if (doDiffs) {
+                dictionary = new TokenDictionary();
+                tokenDiff = new TokenDiff(dictionary);
+            }
+
             //we iterate through the first book's contents, and match the verses from all the other ones
             for (Map.Entry<Verse, List<Content>> verseContent : booksContents[0].entrySet()) {
                 cellCount = 0;
                 row = OSISUtil.factory().createRow();
-                String firstText = "";
+                int[] firstTokens = new int[0];
 
                 for (int i = 0; i < books.length; i++) {
                     Book book = books[i];
@@ -295,8 +310,7 @@ public class BookData implements BookProvider {
                             }
 
                             if (i > 0 && showDiffs[i - 1]) {
-                                List<Difference> diffs = new Diff(firstText, thisText, false).compare();
-                                DiffCleanup.cleanupSemantic(diffs);
+                                List<Difference> diffs = tokenDiff.compare(firstTokens, dictionary.tokenize(thisText));
                                 cell.addContent(OSISUtil.diffToOsis(diffs));
 
                                 // Since we used that cell create another
@@ -306,7 +320,7 @@ public class BookData implements BookProvider {
                                 row.addContent(cell);
                             }
                             if (i == 0) {
-                                firstText = thisText;
+                                firstTokens = dictionary.tokenize(thisText);
                             }
                         }
 
@@ -0,0 +1,143 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.jsword.book.basic.AbstractPassageBook;
+import org.crosswire.jsword.passage.Key;
+import org.jdom2.Content;
+import org.jdom2.JDOMException;
+import org.jdom2.output.SAXOutputter;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * A SAXEventProvider that streams the content of a single Book without first
+ * building the whole OSIS fragment. Passages are read one chapter at a time,
+ * each chapter is run through the Book's filter and its SAX events are sent to
+ * the ContentHandler before the next chapter is read. So the memory needed is
+ * bounded by the largest chapter and the first events are emitted as soon as
+ * the first chapter has been read.
+ *
+ * <p>The events are the same as those produced by replaying
+ * {@link BookData#getOsisFragment(boolean)} as a Document: a single
+ * <code>div</code> wrapping the content of the key.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class BookDataSAXEventProvider implements SAXEventProvider {
+    /**
+     * Create a streaming provider for the content of a key in a book.
+     *
+     * @param book the Book to which the data belongs
+     * @param key the Key specifying the data
+     * @param allowGenTitles whether to generate titles
+     */
+    public BookDataSAXEventProvider(Book book, Key key, boolean allowGenTitles) {
+        assert book != null;
+        assert key != null;
+
+        this.book = book;
+        this.key = key;
+        this.allowGenTitles = allowGenTitles;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.common.xml.SAXEventProvider#provideSAXEvents(org.xml.sax.ContentHandler)
+     */
+    public void provideSAXEvents(ContentHandler handler) throws SAXException {
+        SAXOutputter output = new SAXOutputter(handler);
+        handler.startDocument();
+        handler.startElement("", OSISUtil.OSIS_ELEMENT_DIV, OSISUtil.OSIS_ELEMENT_DIV, new AttributesImpl());
+        try {
+            if (book instanceof AbstractPassageBook) {
+                providePassageEvents((AbstractPassageBook) book, output);
+            } else {
+                outputChunk(output, key, allowGenTitles);
+            }
+        } catch (BookException ex) {
+            throw new SAXException(ex);
+        } catch (JDOMException ex) {
+            throw new SAXException(ex);
+        }
+        handler.endElement("", OSISUtil.OSIS_ELEMENT_DIV, OSISUtil.OSIS_ELEMENT_DIV);
+        handler.endDocument();
+    }
+
+    /**
+     * Emit a passage a chapter at a time. The book decides the generated
+     * titles and which linked verses to skip on the whole passage, so the
+     * events are the same as if the passage were read in one go.
+     *
+     * @param pbook the book from which to read
+     * @param output where to send each chapter
+     * @throws BookException if there is any problem reading the book
+     */
+    private void providePassageEvents(AbstractPassageBook pbook, final SAXOutputter output) throws BookException {
+        pbook.readOsisByChapter(key, false, allowGenTitles, new AbstractPassageBook.ChapterHandler() {
+            public void handleChapter(List<Content> content) throws BookException {
+                try {
+                    output.outputFragment(content);
+                } catch (JDOMException ex) {
+                    throw new BookException(ex.getMessage(), ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * Read and emit the content of part of the key.
+     *
+     * @param output where to send the content
+     * @param chunk the part of the key to read
+     * @param genTitles whether to generate titles for this part
+     * @throws BookException if there is any problem reading the book
+     * @throws JDOMException if the content cannot be converted to SAX events
+     */
+    private void outputChunk(SAXOutputter output, Key chunk, boolean genTitles) throws BookException, JDOMException {
+        Iterator<Content> iter = book.getOsisIterator(chunk, false, genTitles);
+        List<Content> content = new ArrayList<Content>();
+        while (iter.hasNext()) {
+            content.add(iter.next());
+        }
+        output.outputFragment(content);
+    }
+
+    /**
+     * The book from which content is read.
+     */
+    private Book book;
+
+    /**
+     * What key is being streamed.
+     */
+    private Key key;
+
+    /**
+     * Whether generated titles are allowed.
+     */
+    private boolean allowGenTitles;
+}
@@ -0,0 +1,443 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.async;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.crosswire.common.metrics.Metrics;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookData;
+import org.crosswire.jsword.index.search.SearchModifier;
+import org.crosswire.jsword.index.search.SearchRequest;
+import org.crosswire.jsword.passage.Key;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An asynchronous facade over reading and searching books. Each request is
+ * run on an executor and the caller gets a {@link BookFuture} at once, so a
+ * thread serving a request need not wait on module I/O.
+ * 
+ * <p>Identical requests that are in flight at the same time are coalesced:
+ * the work is done once. Each caller of the methods here gets its own copy of
+ * a result that can be changed, such as an Element or a Key, so a caller may
+ * change or reparent what it gets. Each caller may cancel its own request, and
+ * a request may be given a deadline after which it is cancelled. The work is
+ * only abandoned when all its callers have cancelled, and work that has
+ * already started is left to finish, because interrupting it can close the
+ * files and indexes that are shared through the
+ * {@link org.crosswire.jsword.book.sword.state.OpenFileStateManager} and
+ * the index manager.</p>
+ * 
+ * <p>By default the work is run on virtual threads when the JVM has them
+ * (Java 21 and later), and on a bounded pool of daemon threads otherwise.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class AsyncReader {
+    /**
+     * Create a reader with its own default executor.
+     */
+    public AsyncReader() {
+        this(createDefaultExecutor(), true);
+    }
+
+    /**
+     * Create a reader that runs its work on the given executor. The caller
+     * remains responsible for shutting it down.
+     * 
+     * @param executor
+     *            where to run the work
+     */
+    public AsyncReader(Executor executor) {
+        this(executor, false);
+    }
+
+    private AsyncReader(Executor executor, boolean ownsExecutor) {
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.inFlight = new ConcurrentHashMap<Object, SharedRequest<?>>();
+    }
+
+    /**
+     * @return the shared reader, which uses the default executor
+     */
+    public static AsyncReader instance() {
+        return AsyncReaderHolder.INSTANCE;
+    }
+
+    /**
+     * Set the deadline given to each request made through the convenience
+     * methods.
+     * 
+     * @param timeout
+     *            the time allowed, or 0 for no deadline
+     * @param unit
+     *            the unit of the timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * @return the time allowed for each request in milliseconds, or 0 for no
+     *         deadline
+     */
+    public long getTimeout() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Read the raw text of a key.
+     * 
+     * @param book
+     *            the book to read
+     * @param key
+     *            the key to read
+     * @return the pending text
+     * @see Book#getRawText(Key)
+     */
+    public BookFuture<String> getRawText(final Book book, final Key key) {
+        return submit(Arrays.asList("raw", book, key.getOsisRef()), new Callable<String>() {
+            public String call() throws Exception {
+                return book.getRawText(key);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Read the OSIS content of a key.
+     * 
+     * @param book
+     *            the book to read
+     * @param key
+     *            the key to read
+     * @param allowEmpty
+     *            whether to include empty entries
+     * @param allowGenTitles
+     *            whether to generate titles
+     * @return the pending content
+     * @see Book#getOsisIterator(Key, boolean, boolean)
+     */
+    public BookFuture<List<Content>> getOsis(final Book book, final Key key, final boolean allowEmpty, final boolean allowGenTitles) {
+        Object requestKey = Arrays.asList("osis", book, key.getOsisRef(), Boolean.valueOf(allowEmpty), Boolean.valueOf(allowGenTitles));
+        return submit(requestKey, new Callable<List<Content>>() {
+            public List<Content> call() throws Exception {
+                List<Content> content = new ArrayList<Content>();
+                Iterator<Content> iter = book.getOsisIterator(key, allowEmpty, allowGenTitles);
+                while (iter.hasNext()) {
+                    content.add(iter.next());
+                }
+                return content;
+            }
+        }, CONTENT_COPIER, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Read a key as an OSIS fragment.
+     * 
+     * @param book
+     *            the book to read
+     * @param key
+     *            the key to read
+     * @param allowGenTitles
+     *            whether to generate titles
+     * @return the pending fragment
+     * @see BookData#getOsisFragment(boolean)
+     */
+    public BookFuture<Element> getOsisFragment(final Book book, final Key key, final boolean allowGenTitles) {
+        Object requestKey = Arrays.asList("fragment", book, key.getOsisRef(), Boolean.valueOf(allowGenTitles));
+        return submit(requestKey, new Callable<Element>() {
+            public Element call() throws Exception {
+                return new BookData(book, key).getOsisFragment(allowGenTitles);
+            }
+        }, ELEMENT_COPIER, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Search a book.
+     * 
+     * @param book
+     *            the book to search
+     * @param request
+     *            the search
+     * @return the pending matches
+     * @see Book#find(String)
+     */
+    public BookFuture<Key> find(final Book book, final String request) {
+        return submit(Arrays.asList("find", book, request), new Callable<Key>() {
+            public Key call() throws Exception {
+                return book.find(request);
+            }
+        }, KEY_COPIER, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Search a book.
+     * 
+     * @param book
+     *            the book to search
+     * @param request
+     *            the search
+     * @return the pending matches
+     * @see Book#find(SearchRequest)
+     */
+    public BookFuture<Key> find(final Book book, final SearchRequest request) {
+        SearchModifier modifier = request.getSearchModifier();
+        Object requestKey = modifier == null
+                ? Arrays.asList("find", book, request.getRequest())
+                : Arrays.asList("find", book, request.getRequest(), Boolean.valueOf(modifier.isRanked()), Integer.valueOf(modifier.getMaxResults()));
+        return submit(requestKey, new Callable<Key>() {
+            public Key call() throws Exception {
+                return book.find(request);
+            }
+        }, KEY_COPIER, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run some work asynchronously.
+     * 
+     * @param <T> the type of the result
+     * @param requestKey
+     *            what identifies the work, so that identical requests in
+     *            flight are done once, or null if it is not to be shared.
+     *            Work with equal keys must have the same type of result.
+     *            Callers of shared work get the same result, so it must not
+     *            be changed.
+     * @param work
+     *            the work to do
+     * @param timeout
+     *            the time allowed, or 0 for no deadline
+     * @param unit
+     *            the unit of the timeout
+     * @return the pending result
+     * @throws RejectedExecutionException
+     *             if the executor will not take the work
+     */
+    public <T> BookFuture<T> submit(Object requestKey, Callable<T> work, long timeout, TimeUnit unit) {
+        return submit(requestKey, work, null, timeout, unit);
+    }
+
+    /**
+     * Run some work asynchronously, giving each caller that shares it its
+     * own copy of the result.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> BookFuture<T> submit(Object requestKey, Callable<T> work, ResultCopier<T> copier, long timeout, TimeUnit unit) {
+        RequestHandle<T> handle = null;
+        while (handle == null) {
+            SharedRequest<T> request = requestKey == null ? null : (SharedRequest<T>) inFlight.get(requestKey);
+            if (request != null) {
+                handle = request.join();
+                if (handle == null) {
+                    // It finished or was abandoned while we looked
+                    inFlight.remove(requestKey, request);
+                } else {
+                    Metrics.increment(Metrics.ASYNC_COALESCED, null, null);
+                }
+                continue;
+            }
+
+            request = new SharedRequest<T>(this, requestKey, work, copier);
+            handle = request.join();
+            if (requestKey != null && inFlight.putIfAbsent(requestKey, request) != null) {
+                // Someone else got in first, so join theirs
+                handle = null;
+                continue;
+            }
+            try {
+                executor.execute(request);
+            } catch (RejectedExecutionException e) {
+                finished(request);
+                throw e;
+            }
+        }
+
+        if (timeout > 0) {
+            expire(handle, timeout, unit);
+        }
+        return handle;
+    }
+
+    /**
+     * @return the number of distinct shared requests in flight
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Stop taking new work. The default executor is shut down, letting work
+     * that has been submitted finish. An executor supplied by the caller is
+     * left alone.
+     */
+    public void shutdown() {
+        if (ownsExecutor && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * Called by a shared request when its work is done or abandoned.
+     * 
+     * @param request
+     *            the request
+     */
+    void finished(SharedRequest<?> request) {
+        Object requestKey = request.getRequestKey();
+        if (requestKey != null) {
+            inFlight.remove(requestKey, request);
+        }
+    }
+
+    /**
+     * Cancel a request when its deadline passes.
+     */
+    private static void expire(final BookFuture<?> handle, long timeout, TimeUnit unit) {
+        final ScheduledFuture<?> timer = DeadlineHolder.SCHEDULER.schedule(new Runnable() {
+            public void run() {
+                if (handle.cancel(false)) {
+                    Metrics.increment(Metrics.ASYNC_EXPIRED, null, null);
+                }
+            }
+        }, timeout, unit);
+        handle.addListener(new Runnable() {
+            public void run() {
+                timer.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Use virtual threads if this JVM has them. Otherwise use a pool bounded
+     * to a few threads per processor, since most of the work is waiting on
+     * disk.
+     */
+    private static Executor createDefaultExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            // Before Java 21
+        } catch (IllegalAccessException e) {
+            LOGGER.warn("Unable to use virtual threads", e);
+        } catch (InvocationTargetException e) {
+            LOGGER.warn("Unable to use virtual threads", e);
+        }
+
+        int threads = Math.max(MIN_THREADS, Runtime.getRuntime().availableProcessors() * 2);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("AsyncReader"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Make daemon threads, so that pending work does not keep the JVM alive.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        }
+
+        private final String name;
+    }
+
+    /**
+     * Lazily create the shared reader.
+     */
+    private static final class AsyncReaderHolder {
+        static final AsyncReader INSTANCE = new AsyncReader();
+    }
+
+    /**
+     * Lazily create the thread that enforces deadlines.
+     */
+    private static final class DeadlineHolder {
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("AsyncReader-deadline"));
+    }
+
+    /**
+     * Copies OSIS content, as a JDOM Content can only have one parent.
+     */
+    private static final ResultCopier<List<Content>> CONTENT_COPIER = new ResultCopier<List<Content>>() {
+        public List<Content> copy(List<Content> result) {
+            List<Content> copy = new ArrayList<Content>(result.size());
+            for (Content content : result) {
+                copy.add(content.clone());
+            }
+            return copy;
+        }
+    };
+
+    /**
+     * Copies an OSIS fragment.
+     */
+    private static final ResultCopier<Element> ELEMENT_COPIER = new ResultCopier<Element>() {
+        public Element copy(Element result) {
+            return result.clone();
+        }
+    };
+
+    /**
+     * Copies the matches of a search, as a Key can be changed.
+     */
+    private static final ResultCopier<Key> KEY_COPIER = new ResultCopier<Key>() {
+        public Key copy(Key result) {
+            return result == null ? null : result.clone();
+        }
+    };
+
+    private static final int MIN_THREADS = 4;
+    private static final long IDLE_SECONDS = 60L;
+
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final ConcurrentMap<Object, SharedRequest<?>> inFlight;
+    private volatile long timeoutMillis;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncReader.class);
+}
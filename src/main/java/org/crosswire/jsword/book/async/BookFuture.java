@@ -0,0 +1,43 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.async;
+
+import java.util.concurrent.Future;
+
+/**
+ * The pending result of an asynchronous request. Besides waiting on it, a
+ * caller can ask to be told when it is done.
+ * 
+ * @param <T> the type of the result
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface BookFuture<T> extends Future<T> {
+    /**
+     * Run the listener when this is done, whether it completed, failed or was
+     * cancelled. If it is already done, the listener is run straight away.
+     * Otherwise it is run by the thread that finishes it, so it should be
+     * quick.
+     * 
+     * @param listener
+     *            what to run
+     */
+    void addListener(Runnable listener);
+}
@@ -0,0 +1,175 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One caller's view of a {@link SharedRequest}. Cancelling it only affects
+ * this caller.
+ * 
+ * @param <T> the type of the result
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class RequestHandle<T> implements BookFuture<T> {
+    /**
+     * @param request
+     *            the work this is waiting on
+     */
+    RequestHandle(SharedRequest<T> request) {
+        this.request = request;
+        this.latch = new CountDownLatch(1);
+        this.listeners = new ArrayList<Runnable>();
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Future#cancel(boolean)
+     */
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            cancelled = true;
+        }
+        request.leave(this);
+        fireDone();
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Future#isCancelled()
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Future#isDone()
+     */
+    public synchronized boolean isDone() {
+        return finished;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Future#get()
+     */
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getResult();
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+     */
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return getResult();
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.async.BookFuture#addListener(java.lang.Runnable)
+     */
+    public void addListener(Runnable listener) {
+        synchronized (this) {
+            if (!finished) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        run(listener);
+    }
+
+    /**
+     * Called when the shared work is done.
+     * 
+     * @param copy
+     *            whether this caller is to have its own copy of the result
+     */
+    void complete(boolean copy) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            this.copy = copy;
+        }
+        fireDone();
+    }
+
+    private T getResult() throws ExecutionException, InterruptedException {
+        synchronized (this) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (!copy) {
+                return request.get();
+            }
+            // The same copy each time this caller asks
+            if (result == null) {
+                result = request.getCopy();
+            }
+            return result;
+        }
+    }
+
+    private void fireDone() {
+        latch.countDown();
+        List<Runnable> toRun;
+        synchronized (this) {
+            toRun = new ArrayList<Runnable>(listeners);
+            listeners.clear();
+        }
+        for (Runnable listener : toRun) {
+            run(listener);
+        }
+    }
+
+    private void run(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Listener failed", e);
+        }
+    }
+
+    private final SharedRequest<T> request;
+    private final CountDownLatch latch;
+    private final List<Runnable> listeners;
+    private boolean finished;
+    private boolean cancelled;
+    private boolean copy;
+    private T result;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestHandle.class);
+}
@@ -0,0 +1,135 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The work behind one or more identical requests. Each caller has its own
+ * {@link RequestHandle}, and the work is abandoned only when every caller has
+ * cancelled. When the result is shared by more than one caller and it can be
+ * changed, each caller is given its own copy and the result itself is not
+ * handed out.
+ * 
+ * @param <T> the type of the result
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class SharedRequest<T> extends FutureTask<T> {
+    /**
+     * @param reader
+     *            the reader that is to be told when the work is done
+     * @param requestKey
+     *            what identifies the request, or null if it is not shared
+     * @param work
+     *            the work to do
+     * @param copier
+     *            how to copy the result for each caller, or null if it
+     *            cannot be changed
+     */
+    SharedRequest(AsyncReader reader, Object requestKey, Callable<T> work, ResultCopier<T> copier) {
+        super(work);
+        this.reader = reader;
+        this.requestKey = requestKey;
+        this.copier = copier;
+        this.handles = new ArrayList<RequestHandle<T>>();
+    }
+
+    /**
+     * @return what identifies the request, or null if it is not shared
+     */
+    Object getRequestKey() {
+        return requestKey;
+    }
+
+    /**
+     * Add a caller to this request.
+     * 
+     * @return the caller's handle, or null if it is too late to join
+     */
+    synchronized RequestHandle<T> join() {
+        if (abandoned || isDone()) {
+            return null;
+        }
+        RequestHandle<T> handle = new RequestHandle<T>(this);
+        handles.add(handle);
+        return handle;
+    }
+
+    /**
+     * Remove a caller that has cancelled. When none are left, work that has
+     * not started is dropped. Work that is running is left to finish, as
+     * interrupting it could close files and indexes that are shared with
+     * other readers.
+     * 
+     * @param handle
+     *            the caller's handle
+     */
+    void leave(RequestHandle<T> handle) {
+        synchronized (this) {
+            handles.remove(handle);
+            if (!handles.isEmpty()) {
+                return;
+            }
+            abandoned = true;
+        }
+        cancel(false);
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.FutureTask#done()
+     */
+    @Override
+    protected void done() {
+        reader.finished(this);
+        List<RequestHandle<T>> waiting;
+        synchronized (this) {
+            waiting = new ArrayList<RequestHandle<T>>(handles);
+            handles.clear();
+        }
+        boolean shared = copier != null && waiting.size() > 1;
+        for (RequestHandle<T> handle : waiting) {
+            handle.complete(shared);
+        }
+    }
+
+    /**
+     * Get a caller's own copy of the result.
+     * 
+     * @return the copy
+     * @throws ExecutionException
+     *             if the work failed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    T getCopy() throws ExecutionException, InterruptedException {
+        return copier.copy(get());
+    }
+
+    private final AsyncReader reader;
+    private final Object requestKey;
+    private final ResultCopier<T> copier;
+    private final List<RequestHandle<T>> handles;
+    private boolean abandoned;
+}
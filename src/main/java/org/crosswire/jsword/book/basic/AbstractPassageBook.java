@@ -32,6 +32,7 @@ import org.crosswire.jsword.book.BookMetaData;
 import org.crosswire.jsword.book.OSISUtil;
 import org.crosswire.jsword.book.filter.SourceFilter;
 import org.crosswire.jsword.book.sword.Backend;
+import org.crosswire.jsword.book.sword.processing.OsisContentProcessor;
 import org.crosswire.jsword.book.sword.processing.RawTextToXmlProcessor;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.KeyUtil;
@@ -79,7 +80,6 @@ public abstract class AbstractPassageBook extends AbstractBook {
     public Iterator<Content> getOsisIterator(final Key key, final boolean allowEmpty, final boolean allowGenTitles) throws BookException {
         // Note: allowEmpty indicates parallel view
         // TODO(DMS): make the iterator be demand driven
-        final SourceFilter filter = getFilter();
 
         // For all the ranges in this Passage
         //TODO(CJB): I'd prefer to do the key mapping in KeyUtil, and pass in our current versification.
@@ -87,12 +87,68 @@ public abstract class AbstractPassageBook extends AbstractBook {
         //but that has far reaching consequences.
         Passage ref = VersificationsMapper.instance().map(KeyUtil.getPassage(key), this.getVersification());
 
+        RawTextToXmlProcessor processor = createProcessor(ref, allowEmpty, allowGenTitles);
+
+        return getOsis(ref, processor).iterator();
+    }
+
+    /**
+     * Read the OSIS content of a key one chapter at a time, handing each
+     * chapter to the handler before the next chapter is read. The generated
+     * titles and the skipping of linked verses are decided on the whole key,
+     * so the chapters taken together are the same as the content of
+     * {@link #getOsisIterator(Key, boolean, boolean)}.
+     *
+     * @param key the key to read
+     * @param allowEmpty whether to allow empty verses
+     * @param allowGenTitles whether to generate titles
+     * @param handler what to do with each chapter
+     * @throws BookException if there is any problem reading the book
+     */
+    public void readOsisByChapter(Key key, boolean allowEmpty, boolean allowGenTitles, ChapterHandler handler) throws BookException {
+        Passage ref = VersificationsMapper.instance().map(KeyUtil.getPassage(key), this.getVersification());
+
+        // One processor for the whole key, so that it remembers the last verse across chapters
+        RawTextToXmlProcessor processor = createProcessor(ref, allowEmpty, allowGenTitles);
+
+        Iterator<VerseRange> rit = ref.rangeIterator(RestrictionType.CHAPTER);
+        while (rit.hasNext()) {
+            handler.handleChapter(getOsis(rit.next(), processor));
+        }
+    }
+
+    /**
+     * Receives the content of a key a chapter at a time.
+     *
+     * @see AbstractPassageBook#readOsisByChapter(Key, boolean, boolean, ChapterHandler)
+     */
+    public interface ChapterHandler {
+        /**
+         * Take the OSIS content of the next chapter.
+         *
+         * @param content the content of the chapter
+         * @throws BookException if the content cannot be handled
+         */
+        void handleChapter(List<Content> content) throws BookException;
+    }
+
+    /**
+     * Create the processor that turns the raw text of a passage into OSIS.
+     *
+     * @param ref the whole passage being read
+     * @param allowEmpty whether to allow empty verses
+     * @param allowGenTitles whether to generate titles
+     * @return the processor
+     */
+    private RawTextToXmlProcessor createProcessor(Passage ref, final boolean allowEmpty, boolean allowGenTitles) {
+        final SourceFilter filter = getFilter();
+
         // Generated titles are shown when
         // there are 2 or more ranges or
         // empty are not allowed and generated titles are allowed
         final boolean showTitles = ref.hasRanges(RestrictionType.CHAPTER) || (!allowEmpty && allowGenTitles);
 
-        RawTextToXmlProcessor processor = new RawTextToXmlProcessor() {
+        RawTextToXmlProcessor processor = new OsisContentProcessor() {
             // track previous text to exclude duplicates caused by merged verses
             private String previousVerseText = "";
 
@@ -105,10 +161,17 @@ public abstract class AbstractPassageBook extends AbstractBook {
             }
 
             public void postVerse(Key verse, List<Content> partialDom, String rawText) {
+                postVerse(verse, partialDom, rawText, null);
+            }
+
+            public void postVerse(Key verse, List<Content> partialDom, String rawText, List<Content> osisContent) {
                 // If the verse is empty or repeated then we shouldn't add the verse
                 if ((allowEmpty || rawText.length() > 0) && !previousVerseText.equals(rawText)) {
-                    List<Content> osisContent = filter.toOSIS(AbstractPassageBook.this, verse, rawText);
-                    addOSIS(verse, partialDom, osisContent);
+                    List<Content> content = osisContent;
+                    if (content == null) {
+                        content = filter.toOSIS(AbstractPassageBook.this, verse, rawText);
+                    }
+                    addOSIS(verse, partialDom, content);
                 }
                 previousVerseText = rawText;
             }
@@ -118,7 +181,7 @@ public abstract class AbstractPassageBook extends AbstractBook {
             }
         };
 
-        return getOsis(ref, processor).iterator();
+        return processor;
     }
 
     /**
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.DataPolice;
 import org.crosswire.jsword.book.OSISUtil;
@@ -45,6 +46,15 @@ public class GBFFilter implements SourceFilter {
      * @see org.crosswire.jsword.book.filter.Filter#toOSIS(org.crosswire.jsword.book.Book, org.crosswire.jsword.passage.Key, java.lang.String)
      */
     public List<Content> toOSIS(Book book, Key key, String plain) {
+        long start = Metrics.begin();
+        try {
+            return toOSISInternal(book, key, plain);
+        } finally {
+            Metrics.time(Metrics.FILTER_TO_OSIS, book.getInitials(), "GBF", start);
+        }
+    }
+
+    private List<Content> toOSISInternal(Book book, Key key, String plain) {
         Element ele = OSISUtil.factory().createDiv();
         LinkedList<Content> stack = new LinkedList<Content>();
         stack.addFirst(ele);
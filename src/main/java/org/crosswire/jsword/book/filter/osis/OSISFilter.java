@@ -27,6 +27,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.regex.Pattern;
 
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.common.xml.XMLUtil;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.DataPolice;
@@ -52,6 +53,15 @@ public class OSISFilter implements SourceFilter {
      * @see org.crosswire.jsword.book.filter.Filter#toOSIS(org.crosswire.jsword.book.Book, org.crosswire.jsword.passage.Key, java.lang.String)
      */
     public List<Content> toOSIS(Book book, Key key, String plain) {
+        long start = Metrics.begin();
+        try {
+            return toOSISInternal(book, key, plain);
+        } finally {
+            Metrics.time(Metrics.FILTER_TO_OSIS, book.getInitials(), "OSIS", start);
+        }
+    }
+
+    private List<Content> toOSISInternal(Book book, Key key, String plain) {
         Element ele = null;
         Exception ex = null;
         String clean = plain;
@@ -21,6 +21,7 @@ package org.crosswire.jsword.book.filter.plaintext;
 
 import java.util.List;
 
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.common.util.StringUtil;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.OSISUtil;
@@ -42,6 +43,15 @@ public class PlainTextFilter implements SourceFilter {
      * @see org.crosswire.jsword.book.filter.Filter#toOSIS(org.crosswire.jsword.book.Book, org.crosswire.jsword.passage.Key, java.lang.String)
      */
     public List<Content> toOSIS(Book book, Key key, String plain) {
+        long start = Metrics.begin();
+        try {
+            return toOSISInternal(book, key, plain);
+        } finally {
+            Metrics.time(Metrics.FILTER_TO_OSIS, book.getInitials(), "Plaintext", start);
+        }
+    }
+
+    private List<Content> toOSISInternal(Book book, Key key, String plain) {
         OSISUtil.OSISFactory factory = OSISUtil.factory();
         Element ele = factory.createDiv();
 
@@ -27,6 +27,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.common.xml.XMLUtil;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.OSISUtil;
@@ -58,6 +59,15 @@ public class THMLFilter implements SourceFilter {
      * @see org.crosswire.jsword.book.filter.Filter#toOSIS(org.crosswire.jsword.book.Book, org.crosswire.jsword.passage.Key, java.lang.String)
      */
     public List<Content> toOSIS(Book book, Key key, String plain) {
+        long start = Metrics.begin();
+        try {
+            return toOSISInternal(book, key, plain);
+        } finally {
+            Metrics.time(Metrics.FILTER_TO_OSIS, book.getInitials(), "ThML", start);
+        }
+    }
+
+    private List<Content> toOSISInternal(Book book, Key key, String plain) {
         Element ele = cleanParse(book, key, plain);
 
         if (ele == null) {
@@ -27,7 +27,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.crosswire.common.util.CWProject;
 import org.crosswire.common.util.FileUtil;
@@ -35,6 +41,8 @@ import org.crosswire.common.util.NetUtil;
 import org.crosswire.common.util.PluginUtil;
 import org.crosswire.common.util.PropertyMap;
 import org.crosswire.common.util.Reporter;
+import org.crosswire.common.util.WebResource;
+import org.crosswire.jsword.JSMsg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -211,6 +219,55 @@ public final class InstallManager {
         return installers.get(name);
     }
 
+    /**
+     * Refresh the book lists of all the installers at the same time. No more
+     * than {@link WebResource#getMaxTransfers()} are downloaded at once.
+     * 
+     * @return the installers that could not be refreshed, by name, with why
+     * @throws InstallException
+     *             if the refresh was interrupted
+     */
+    public Map<String, InstallException> reloadBookLists() throws InstallException {
+        Map<String, Future<Object>> pending = new LinkedHashMap<String, Future<Object>>();
+        Map<String, InstallException> failures = new LinkedHashMap<String, InstallException>();
+        ExecutorService executor = Executors.newFixedThreadPool(WebResource.getMaxTransfers(), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "InstallManager-reload");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (Map.Entry<String, Installer> entry : installers.entrySet()) {
+                final Installer installer = entry.getValue();
+                pending.put(entry.getKey(), executor.submit(new Callable<Object>() {
+                    public Object call() throws InstallException {
+                        installer.reloadBookList();
+                        return null;
+                    }
+                }));
+            }
+            for (Map.Entry<String, Future<Object>> entry : pending.entrySet()) {
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(entry.getKey(), cause instanceof InstallException
+                            ? (InstallException) cause
+                            // TRANSLATOR: Common error condition: {0} is a placeholder for the name of a download site.
+                            : new InstallException(JSMsg.gettext("Unable to find: {0}", entry.getKey()), cause));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // TRANSLATOR: Common error condition: {0} is a placeholder for the name of a download site.
+            throw new InstallException(JSMsg.gettext("Unable to find: {0}", installers.keySet().toString()), e);
+        } finally {
+            executor.shutdown();
+        }
+        return failures;
+    }
+
     /**
      * Add an installer to our list of installers
      * 
@@ -20,20 +20,28 @@
 package org.crosswire.jsword.book.install.sword;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
-import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.crosswire.common.progress.JobManager;
@@ -45,6 +53,7 @@ import org.crosswire.common.util.IOUtil;
 import org.crosswire.common.util.NetUtil;
 import org.crosswire.common.util.Reporter;
 import org.crosswire.common.util.StringUtil;
+import org.crosswire.common.util.WebResource;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.JSOtherMsg;
 import org.crosswire.jsword.book.AbstractBookList;
@@ -58,11 +67,13 @@ import org.crosswire.jsword.book.BookSet;
 import org.crosswire.jsword.book.install.InstallException;
 import org.crosswire.jsword.book.install.Installer;
 import org.crosswire.jsword.book.sword.Backend;
+import org.crosswire.jsword.book.sword.CatalogChanges;
 import org.crosswire.jsword.book.sword.NullBackend;
 import org.crosswire.jsword.book.sword.SwordBook;
 import org.crosswire.jsword.book.sword.SwordBookDriver;
 import org.crosswire.jsword.book.sword.SwordBookMetaData;
 import org.crosswire.jsword.book.sword.SwordBookPath;
+import org.crosswire.jsword.book.sword.SwordCatalog;
 import org.crosswire.jsword.book.sword.SwordConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,6 +107,27 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
      */
     protected abstract void download(Progress job, String dir, String file, URI dest) throws InstallException;
 
+    /**
+     * Utility to download a file from a remote site, if it has changed since
+     * it was last downloaded to the same place. By default it is always
+     * downloaded.
+     * 
+     * @param job
+     *            The way of noting progress
+     * @param dir
+     *            The directory from which to download the file
+     * @param file
+     *            The file to download
+     * @param dest
+     *            Where to put it
+     * @return whether it was downloaded
+     * @throws InstallException
+     */
+    protected boolean downloadIfModified(Progress job, String dir, String file, URI dest) throws InstallException {
+        download(job, dir, file, dest);
+        return true;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.install.Installer#getInstallerDefinition()
      */
@@ -226,13 +258,97 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
         // return;
         // }
         //
+        try {
+            installBook(book);
+        } catch (InstallException e) {
+            Reporter.informUser(this, e);
+        }
+    }
+
+    /**
+     * Download and install several books at once. A book that cannot be
+     * installed does not stop the others.
+     * 
+     * @param books
+     *            The books to install
+     * @return the books that could not be installed, with why
+     * @throws InstallException
+     *             if the install was interrupted
+     */
+    public Map<Book, InstallException> install(Collection<Book> books) throws InstallException {
+        // TRANSLATOR: Progress label indicating the installation of several books.
+        String jobName = JSMsg.gettext("Installing books");
+        Progress job = JobManager.createJob(Progress.INSTALL_BOOKS, jobName, Thread.currentThread());
+        job.beginJob(jobName, books.size());
+
+        Map<Book, Future<Object>> pending = new LinkedHashMap<Book, Future<Object>>();
+        Map<Book, InstallException> failures = new LinkedHashMap<Book, InstallException>();
+        // Downloads are limited by WebResource, so there are enough threads
+        // for some to unpack while others download.
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(books.size(), 2 * WebResource.getMaxTransfers()) + 1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "AbstractSwordInstaller-install");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (final Book book : books) {
+                pending.put(book, executor.submit(new Callable<Object>() {
+                    public Object call() throws InstallException {
+                        installBook(book);
+                        return null;
+                    }
+                }));
+            }
+            for (Map.Entry<Book, Future<Object>> entry : pending.entrySet()) {
+                Book book = entry.getKey();
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    failures.put(book, cause instanceof InstallException
+                            ? (InstallException) cause
+                            // TRANSLATOR: Common error condition: {0} is a placeholder for the URL of what could not be found.
+                            : new InstallException(JSMsg.gettext("Unable to find: {0}", toRemoteURI(book).toString()), cause));
+                }
+                job.setSectionName(book.getName());
+                job.incrementWorkDone(1);
+            }
+        } catch (InterruptedException e) {
+            // Books that have started are finished, the rest are not begun
+            for (Future<Object> future : pending.values()) {
+                future.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            job.cancel();
+            // TRANSLATOR: Common error condition: {0} is a placeholder for the URL of what could not be found.
+            throw new InstallException(JSMsg.gettext("Unable to find: {0}", packageDirectory), e);
+        } finally {
+            executor.shutdown();
+            job.done();
+        }
+        return failures;
+    }
+
+    /**
+     * Download a book and install it, in a single pass over its zip.
+     * 
+     * @param book
+     *            the book to install
+     * @throws InstallException
+     *             if it could not be downloaded or installed
+     */
+    private void installBook(final Book book) throws InstallException {
         final SwordBookMetaData sbmd = (SwordBookMetaData) book.getBookMetaData();
 
         // TRANSLATOR: Progress label indicating the installation of a book. {0} is a placeholder for the name of the book.
         String jobName = JSMsg.gettext("Installing book: {0}", sbmd.getName());
         Progress job = JobManager.createJob(String.format(Progress.INSTALL_BOOK, book.getInitials()), jobName, Thread.currentThread());
 
-        URI temp = null;
+        File temp = null;
+        boolean downloaded = false;
+        StagedInstall stage = null;
         try {
             // Don't bother setting a size, we'll do it later.
             job.beginJob(jobName);
@@ -242,50 +358,76 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
             // TRANSLATOR: Progress label indicating the Initialization of installing of a book.
             job.setSectionName(JSMsg.gettext("Initializing"));
 
-            temp = NetUtil.getTemporaryURI("swd", ZIP_SUFFIX);
-
-            download(job, packageDirectory, sbmd.getInitials() + ZIP_SUFFIX, temp);
+            // Download to the same place each time, so that an interrupted
+            // download can be resumed
+            temp = getDownloadFile(sbmd.getInitials() + ZIP_SUFFIX);
+            download(job, packageDirectory, sbmd.getInitials() + ZIP_SUFFIX, NetUtil.getURI(temp));
+            downloaded = true;
 
             // Once the unzipping is started, we need to continue
             job.setCancelable(false);
             if (!job.isFinished()) {
-                //copy into mods.d and modules under SWORD_HOME
+                // mods.d and modules go under SWORD_HOME, everything else into JSWORD_HOME
                 File dldir = SwordBookPath.getSwordDownloadDir();
-                IOUtil.unpackZip(NetUtil.getAsFile(temp), dldir, true, SwordConstants.DIR_CONF, SwordConstants.DIR_DATA);
-
-                //copy everything else into JSWORD_HOME
                 File jswordHome = NetUtil.getAsFile(CWProject.instance().getWritableProjectDir());
-                IOUtil.unpackZip(NetUtil.getAsFile(temp), jswordHome, false, SwordConstants.DIR_CONF, SwordConstants.DIR_DATA);
+                stage = new StagedInstall(dldir, jswordHome);
+                InputStream in = new FileInputStream(temp);
+                try {
+                    stage.unpack(in);
+                } finally {
+                    IOUtil.close(in);
+                }
+
                 // TRANSLATOR: Progress label for installing the conf file for a book.
                 job.setSectionName(JSMsg.gettext("Copying config file"));
+                stage.commit();
+                stage = null;
                 sbmd.setLibrary(NetUtil.getURI(dldir));
                 SwordBookDriver.registerNewBook(sbmd);
             }
 
         } catch (IOException e) {
-            Reporter.informUser(this, e);
             job.cancel();
+            // TRANSLATOR: Common error condition: {0} is a placeholder for the URL of what could not be found.
+            throw new InstallException(JSMsg.gettext("Unable to find: {0}", toRemoteURI(book).toString()), e);
         } catch (InstallException e) {
-            Reporter.informUser(this, e);
             job.cancel();
+            throw e;
         } catch (BookException e) {
-            Reporter.informUser(this, e);
             job.cancel();
+            // TRANSLATOR: Common error condition: {0} is a placeholder for the URL of what could not be found.
+            throw new InstallException(JSMsg.gettext("Unable to find: {0}", toRemoteURI(book).toString()), e);
         } finally {
+            if (stage != null) {
+                stage.abort();
+            }
             job.done();
-            // tidy up after ourselves
-            // This is a best effort. If for some reason it does not delete now
-            // it will automatically be deleted when the JVM exits normally.
-            if (temp != null) {
-                try {
-                    NetUtil.delete(temp);
-                } catch (IOException e) {
-                    log.warn("Error deleting temp download file.", e);
-                }
+            // tidy up after ourselves, once there is nothing left to resume.
+            // A complete download is not kept, as it may be what failed to unpack.
+            if (downloaded && !WebResource.deleteCopy(temp)) {
+                log.warn("Error deleting download file {}", temp);
             }
         }
     }
 
+    /**
+     * Where a book's zip is downloaded to, so that the same book from this
+     * installer always goes to the same place.
+     * 
+     * @param file
+     *            the name of the file being downloaded
+     * @return the file to download to
+     * @throws InstallException
+     *             if the download directory could not be made
+     */
+    private File getDownloadFile(String file) throws InstallException {
+        File dir = new File(getCachedIndexDir().getPath(), DOWNLOAD_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new InstallException(JSOtherMsg.lookupText("URL manipulation failed"));
+        }
+        return new File(dir, file);
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.install.Installer#reloadBookList()
      */
@@ -300,9 +442,13 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
             URI cacheDir = getCachedIndexDir();
             URI confDir = NetUtil.lengthenURI(cacheDir, "mods.d.zip");
             URI cache = getCachedIndexFile();
-            download(job, catalogDirectory, FILE_LIST_GZ, cache);
+            // The catalog is large and seldom changes, so only get it when it has
+            boolean changed = downloadIfModified(job, catalogDirectory, FILE_LIST_GZ, cache);
             // It cannot be cancelled from this point forward
             job.setCancelable(false);
+            if (!changed && NetUtil.isFile(confDir)) {
+                return;
+            }
             if (NetUtil.isFile(confDir)) {
                 String confDirPath = confDir.getPath();
                 String confDirPathOld = confDirPath + ".old";
@@ -326,6 +472,8 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
                 unpack(cacheDir, cache);
                 // Best effort to delete
                 FileUtil.delete(dirConfOld);
+
+                catalogChanges = getCatalog().refresh(NetUtil.getAsFile(confDir));
             }
 
             loaded = false;
@@ -356,6 +504,10 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
             throw ex;
         } finally {
             job.done();
+            // The caller's destination is used once, so nothing is kept to resume it
+            if (NetUtil.PROTOCOL_FILE.equals(localDest.getScheme()) && !WebResource.forgetCopy(new File(localDest))) {
+                log.warn("Error deleting the download state of {}", localDest);
+            }
         }
     }
 
@@ -445,65 +597,46 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
             unpack(cacheDir, cache);
         }
 
-        InputStream fin = null;
-        ZipArchiveInputStream zin = null;
-        try {
-            fin = NetUtil.getInputStream(confDir);
-            zin = new ZipArchiveInputStream(fin);
-            while (true) {
-                ArchiveEntry entry = zin.getNextZipEntry();
-                if (entry == null) {
-                    break;
-                }
-
-                // We'll create the mods.d directory elsewhere
-                if (entry.isDirectory()) {
-                    continue;
-                }
-
-                String path = entry.getName();
-
-                if (!path.endsWith(SwordConstants.EXTENSION_CONF)) {
-                    log.error("Not a SWORD config file: {}", path);
-                    continue;
-                }
-
-                int size = (int) entry.getSize();
-                // Every now and then an empty entry sneaks in
-                if (size == 0) {
-                    log.error("Empty entry: {}", path);
-                    continue;
-                }
+        File source = NetUtil.getAsFile(confDir);
+        CatalogChanges changes = getCatalog().refresh(source);
+        if (!changes.isEmpty()) {
+            catalogChanges = changes;
+            log.info("Book list of {} has changed: {}", getInstallerDefinition(), changes);
+        }
 
-                // Create a buffer of the right size
-                byte[] buffer = new byte[size];
-                // Repeatedly read until all has been read
-                int offset = 0;
-                while (offset < size) {
-                    offset += zin.read(buffer, offset, size - offset);
-                }
+        for (SwordBookMetaData sbmd : getCatalog().getBookMetaDatas(source)) {
+            sbmd.setDriver(fake);
 
-                if (offset != size) {
-                    log.error("Error: Could not read {} bytes, instead {}, for {} from {}", Integer.toString(size), Integer.toString(offset), path, cache.getPath());
-                }
+            // skip any book that is not supported.
+            if (!sbmd.isSupported()) {
+                continue;
+            }
 
-                // Set the path to something that gives the path to the zip and the entry in the zip
-                SwordBookMetaData sbmd = new SwordBookMetaData(buffer, confDir.getPath() + '!' + path);
-                sbmd.setDriver(fake);
+            Book book = new SwordBook(sbmd, nullBackend);
+            entries.put(book.getInitials() + book.getName(), book);
+        }
+        loaded = true;
+    }
 
-                // skip any book that is not supported.
-                if (!sbmd.isSupported()) {
-                    continue;
-                }
+    /**
+     * Get what changed in the book list the last time it was refreshed from
+     * the remote site, that is which books were added, removed or updated.
+     * 
+     * @return the changes or null if it has not been refreshed
+     */
+    public CatalogChanges getCatalogChanges() {
+        return catalogChanges;
+    }
 
-                Book book = new SwordBook(sbmd, nullBackend);
-                entries.put(book.getInitials() + book.getName(), book);
-            }
-        } finally {
-            IOUtil.close(fin);
-            IOUtil.close(zin);
+    /**
+     * @return the snapshot of the book list, kept with the cached index
+     * @throws InstallException
+     */
+    private synchronized SwordCatalog getCatalog() throws InstallException {
+        if (catalog == null) {
+            catalog = new SwordCatalog(new File(getCachedIndexDir().getPath(), CATALOG_FILE));
         }
-        loaded = true;
+        return catalog;
     }
 
     /** remove the cached book list to clear memory
@@ -727,11 +860,26 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
      */
     protected boolean loaded;
 
+    /**
+     * The snapshot of the book list
+     */
+    private SwordCatalog catalog;
+
+    /**
+     * What changed the last time the book list was refreshed
+     */
+    private volatile CatalogChanges catalogChanges;
+
     /**
      * The sword index file
      */
     protected static final String FILE_LIST_GZ = "mods.d.tar.gz";
 
+    /**
+     * The snapshot of the book list
+     */
+    private static final String CATALOG_FILE = "catalog.dat";
+
     /**
      * The sword conf directory
      */
@@ -752,6 +900,12 @@ public abstract class AbstractSwordInstaller extends AbstractBookList implements
      */
     protected static final String DOWNLOAD_PREFIX = "download-";
 
+    /**
+     * The directory, within the cache of this installer, that books are
+     * downloaded to.
+     */
+    private static final String DOWNLOAD_DIR = "books";
+
     /**
      * The log stream
      */
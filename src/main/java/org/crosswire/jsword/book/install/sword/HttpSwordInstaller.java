@@ -70,6 +70,27 @@ public class HttpSwordInstaller extends AbstractSwordInstaller {
      */
     @Override
     protected void download(Progress job, String dir, String file, URI dest) throws InstallException {
+        copy(job, dir, file, dest, false);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.install.sword.AbstractSwordInstaller#downloadIfModified(org.crosswire.common.progress.Progress, java.lang.String, java.lang.String, java.net.URI)
+     */
+    @Override
+    protected boolean downloadIfModified(Progress job, String dir, String file, URI dest) throws InstallException {
+        return copy(job, dir, file, dest, true);
+    }
+
+    /**
+     * @param job
+     * @param dir
+     * @param file
+     * @param dest
+     * @param conditional whether to copy only if it has changed
+     * @return whether it was copied
+     * @throws InstallException
+     */
+    private boolean copy(Progress job, String dir, String file, URI dest, boolean conditional) throws InstallException {
         URI uri;
         try {
             uri = new URI(NetUtil.PROTOCOL_HTTP, host, dir + '/' + file, null);
@@ -78,29 +99,24 @@ public class HttpSwordInstaller extends AbstractSwordInstaller {
             throw new InstallException(JSMsg.gettext("Unable to find: {0}", dir + '/' + file), ex);
         }
 
-        try {
-            copy(job, uri, dest);
-        } catch (LucidException ex) {
-            // TRANSLATOR: Common error condition: {0} is a placeholder for the URL of what could not be found.
-            throw new InstallException(JSMsg.gettext("Unable to find: {0}", uri.toString()), ex);
-        }
-    }
-
-    /**
-     * @param job
-     * @param uri
-     * @param dest
-     * @throws LucidException
-     */
-    private void copy(Progress job, URI uri, URI dest) throws LucidException {
         if (job != null) {
             // TRANSLATOR: Progress label for downloading one or more files.
             job.setSectionName(JSMsg.gettext("Downloading files"));
         }
 
         WebResource wr = new WebResource(uri, proxyHost, proxyPort);
-        wr.copy(dest, job);
-        wr.shutdown();
+        try {
+            if (conditional) {
+                return wr.copyIfModified(dest, job);
+            }
+            wr.copy(dest, job);
+            return true;
+        } catch (LucidException ex) {
+            // TRANSLATOR: Common error condition: {0} is a placeholder for the URL of what could not be found.
+            throw new InstallException(JSMsg.gettext("Unable to find: {0}", uri.toString()), ex);
+        } finally {
+            wr.shutdown();
+        }
     }
 
     /* (non-Javadoc)
@@ -0,0 +1,290 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.install.sword;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.common.util.StringUtil;
+import org.crosswire.jsword.book.sword.SwordConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A StagedInstall unpacks a module's zip in a single pass. What belongs in
+ * the SWORD library, the conf and the data, is put aside in a staging
+ * directory in the library and everything else in a staging directory in
+ * the JSword home. Nothing that is installed is changed until
+ * {@link #commit()}, which moves each module's data directory into place,
+ * then the other files and lastly the conf. So a book is only seen once
+ * all of it is there, and a failed download or unpack leaves what was
+ * installed as it was.
+ * 
+ * <p>The staging directories are beside where the files end up, so that
+ * the moves are renames on the same file system.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class StagedInstall {
+    /**
+     * Prepare to install into the given places.
+     * 
+     * @param swordDir
+     *            where mods.d and modules go
+     * @param jswordHome
+     *            where everything else goes
+     */
+    public StagedInstall(File swordDir, File jswordHome) {
+        this.swordDir = swordDir;
+        this.jswordHome = jswordHome;
+        String name = STAGING_PREFIX + Long.toString(System.nanoTime(), 36) + '-' + Integer.toString(COUNTER.incrementAndGet(), 36);
+        this.swordStage = new File(swordDir, name);
+        this.jswordStage = new File(jswordHome, name);
+        this.swordFiles = new ArrayList<String>();
+        this.jswordFiles = new ArrayList<String>();
+    }
+
+    /**
+     * Read a module's zip, putting each entry in the staging area.
+     * 
+     * @param zip
+     *            the module's zip
+     * @throws IOException
+     *             if the zip could not be read or an entry written. What was
+     *             staged is removed.
+     */
+    public void unpack(InputStream zip) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ZipArchiveInputStream zin = new ZipArchiveInputStream(zip);
+        boolean ok = false;
+        try {
+            while (true) {
+                ZipArchiveEntry entry = zin.getNextZipEntry();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                String path = normalize(entry.getName());
+                if (path == null) {
+                    LOGGER.error("Skipping unsafe entry: {}", entry.getName());
+                    continue;
+                }
+
+                File target;
+                if (isSwordPath(path)) {
+                    target = new File(swordStage, path);
+                    swordFiles.add(path);
+                } else {
+                    target = new File(jswordStage, path);
+                    jswordFiles.add(path);
+                }
+                write(zin, target, buffer);
+            }
+            ok = true;
+        } finally {
+            if (!ok) {
+                abort();
+            }
+        }
+    }
+
+    /**
+     * Move what was unpacked into place, replacing what was there.
+     * 
+     * @return the confs that were installed, relative to the SWORD library
+     * @throws IOException
+     *             if something could not be moved
+     */
+    public List<String> commit() throws IOException {
+        try {
+            List<String> confs = new ArrayList<String>();
+            List<String> others = new ArrayList<String>();
+            for (String path : swordFiles) {
+                if (path.toLowerCase(Locale.ENGLISH).startsWith(SwordConstants.DIR_CONF)) {
+                    confs.add(path);
+                } else {
+                    others.add(path);
+                }
+            }
+
+            // Swap whole data directories, so that a newer version does not
+            // leave behind files that an older one had.
+            for (String dir : getDataDirs(others)) {
+                swap(new File(swordStage, dir), new File(swordDir, dir));
+            }
+            for (String path : others) {
+                File staged = new File(swordStage, path);
+                if (staged.exists()) {
+                    move(staged, new File(swordDir, path));
+                }
+            }
+            for (String path : jswordFiles) {
+                move(new File(jswordStage, path), new File(jswordHome, path));
+            }
+            // The conf is last as it is what makes the book visible
+            for (String path : confs) {
+                move(new File(swordStage, path), new File(swordDir, path));
+            }
+            return confs;
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * Remove the staging area and anything left in it.
+     */
+    public void abort() {
+        FileUtil.delete(swordStage);
+        FileUtil.delete(jswordStage);
+    }
+
+    /**
+     * Find the directories that hold a module's data. Each is at least as
+     * deep as modules/category/driver/name, so that a directory shared with
+     * other modules is never replaced. Files that are not in such a directory
+     * are moved one at a time.
+     */
+    private static Set<String> getDataDirs(List<String> paths) {
+        Set<String> dirs = new LinkedHashSet<String>();
+        for (String path : paths) {
+            String[] parts = StringUtil.split(path, '/');
+            if (parts.length > DATA_DEPTH) {
+                StringBuilder dir = new StringBuilder(parts[0]);
+                for (int i = 1; i < DATA_DEPTH; i++) {
+                    dir.append('/').append(parts[i]);
+                }
+                dirs.add(dir.toString());
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * Replace a directory with another, keeping the original until the new
+     * one is in place.
+     */
+    private static void swap(File staged, File target) throws IOException {
+        mkParent(target);
+        File old = new File(target.getPath() + OLD_SUFFIX);
+        FileUtil.delete(old);
+        if (target.exists() && !target.renameTo(old)) {
+            throw new IOException("Unable to replace " + target);
+        }
+        if (!staged.renameTo(target)) {
+            // Put back what was there
+            if (old.exists() && !old.renameTo(target)) {
+                LOGGER.error("Unable to restore {}", target);
+            }
+            throw new IOException("Unable to replace " + target);
+        }
+        FileUtil.delete(old);
+    }
+
+    private static void move(File staged, File target) throws IOException {
+        mkParent(target);
+        if (target.exists() && !target.delete() || !staged.renameTo(target)) {
+            throw new IOException("Unable to replace " + target);
+        }
+    }
+
+    private static void write(InputStream in, File target, byte[] buffer) throws IOException {
+        mkParent(target);
+        OutputStream out = new FileOutputStream(target);
+        try {
+            while (true) {
+                int count = in.read(buffer);
+                if (count == -1) {
+                    break;
+                }
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            IOUtil.close(out);
+        }
+    }
+
+    private static void mkParent(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Unable to create " + parent);
+        }
+    }
+
+    /**
+     * Make a zip entry's name into a relative path using '/', or null if it
+     * would climb out of where it is put.
+     */
+    private static String normalize(String name) {
+        String path = name.replace('\\', '/');
+        while (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        if (path.startsWith("/") || path.length() == 0) {
+            return null;
+        }
+        for (String part : StringUtil.split(path, '/')) {
+            if ("..".equals(part)) {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    private static boolean isSwordPath(String path) {
+        String lower = path.toLowerCase(Locale.ENGLISH);
+        return lower.startsWith(SwordConstants.DIR_CONF) || lower.startsWith(SwordConstants.DIR_DATA);
+    }
+
+    private static final String STAGING_PREFIX = ".install-";
+    private static final String OLD_SUFFIX = ".old";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int DATA_DEPTH = 4;
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final File swordDir;
+    private final File jswordHome;
+    private final File swordStage;
+    private final File jswordStage;
+    private final List<String> swordFiles;
+    private final List<String> jswordFiles;
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(StagedInstall.class);
+}
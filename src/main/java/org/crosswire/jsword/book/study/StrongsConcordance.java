@@ -0,0 +1,474 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.study;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.passage.BitwisePassage;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.jdom2.Content;
+import org.jdom2.Element;
+
+/**
+ * A StrongsConcordance records, for each Strong's Number in a book, the verses
+ * it is found in and how many times it is found in each. Optionally it also
+ * records the words that the Strong's Number marks up, as a
+ * {@link StrongsMapSet} does.
+ *
+ * <p>
+ * The verses for a Strong's Number are kept as a sorted array of ordinals
+ * with a parallel array of counts. Most Strong's Numbers are found in only a
+ * handful of verses, so this is far smaller than a bitmap of the whole Bible
+ * per number, and answers a lookup with a binary search.
+ * </p>
+ *
+ * <p>
+ * A concordance is built while the book is indexed and is saved with the
+ * index. It is not thread safe while it is being built, but once built it is
+ * not changed and may be shared.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class StrongsConcordance {
+    /**
+     * Build an empty concordance.
+     *
+     * @param v11n
+     *            the versification of the book
+     * @param withForms
+     *            whether to record the words that Strong's Numbers mark up
+     */
+    public StrongsConcordance(Versification v11n, boolean withForms) {
+        this.v11n = v11n;
+        this.withForms = withForms;
+        this.entries = new HashMap<String, Entry>();
+    }
+
+    /**
+     * Record all the Strong's Numbers in the OSIS of a verse.
+     *
+     * @param verse
+     *            the verse
+     * @param osis
+     *            the content of the verse
+     */
+    public void add(Verse verse, Element osis) {
+        int ordinal = verse.getOrdinal();
+        for (Content content : OSISUtil.getDeepContent(osis, OSISUtil.OSIS_ELEMENT_W)) {
+            Element wElement = (Element) content;
+            String lemma = wElement.getAttributeValue(OSISUtil.ATTRIBUTE_W_LEMMA);
+            if (lemma == null) {
+                continue;
+            }
+
+            String form = withForms ? OSISUtil.getPlainText(wElement) : null;
+            Matcher matcher = STRONGS_PATTERN.matcher(lemma);
+            while (matcher.find()) {
+                add(matcher.group(1), ordinal, form);
+            }
+        }
+    }
+
+    /**
+     * Record one occurrence of a Strong's Number.
+     *
+     * @param strongsNumber
+     *            the Strong's Number
+     * @param ordinal
+     *            the ordinal of the verse it is found in
+     * @param form
+     *            the word it marks up, which may be null
+     */
+    public void add(String strongsNumber, int ordinal, String form) {
+        String key = normalize(strongsNumber);
+        if (key == null) {
+            return;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(withForms);
+            entries.put(key, entry);
+        }
+        entry.add(ordinal);
+        if (withForms && form != null && form.length() > 0) {
+            entry.forms.add(form.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * @return the versification of the verses in this concordance
+     */
+    public Versification getVersification() {
+        return v11n;
+    }
+
+    /**
+     * @return whether the words that Strong's Numbers mark up are recorded
+     */
+    public boolean hasForms() {
+        return withForms;
+    }
+
+    /**
+     * @return all the Strong's Numbers found, zero padded to 4 digits
+     */
+    public Set<String> getStrongsNumbers() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Get the number of verses containing a Strong's Number.
+     *
+     * @param strongsNumber
+     *            the Strong's Number
+     * @return the number of verses
+     */
+    public int getVerseCount(String strongsNumber) {
+        Entry entry = getEntry(strongsNumber);
+        return entry == null ? 0 : entry.size;
+    }
+
+    /**
+     * Get the number of times a Strong's Number is found in the book.
+     *
+     * @param strongsNumber
+     *            the Strong's Number
+     * @return the number of occurrences
+     */
+    public int getOccurrenceCount(String strongsNumber) {
+        Entry entry = getEntry(strongsNumber);
+        if (entry == null) {
+            return 0;
+        }
+        int total = 0;
+        for (int i = 0; i < entry.size; i++) {
+            total += entry.counts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Get the number of times a Strong's Number is found in a verse.
+     *
+     * @param strongsNumber
+     *            the Strong's Number
+     * @param verse
+     *            the verse
+     * @return the number of occurrences
+     */
+    public int getCount(String strongsNumber, Verse verse) {
+        Entry entry = getEntry(strongsNumber);
+        if (entry == null) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(entry.ordinals, 0, entry.size, verse.getOrdinal());
+        return index < 0 ? 0 : entry.counts[index];
+    }
+
+    /**
+     * Get the verses that contain a Strong's Number.
+     *
+     * @param strongsNumber
+     *            the Strong's Number
+     * @return the verses, which may be empty
+     */
+    public Passage getPassage(String strongsNumber) {
+        BitwisePassage passage = new BitwisePassage(v11n);
+        Entry entry = getEntry(strongsNumber);
+        if (entry != null) {
+            passage.raiseEventSuppresion();
+            for (int i = 0; i < entry.size; i++) {
+                passage.addVersifiedOrdinal(entry.ordinals[i]);
+            }
+            passage.lowerEventSuppressionAndTest();
+        }
+        return passage;
+    }
+
+    /**
+     * Get the verses that contain a Strong's Number, each tallied by the
+     * number of times it is found there.
+     *
+     * @param strongsNumber
+     *            the Strong's Number
+     * @return the tally, which may be empty
+     */
+    public PassageTally getTally(String strongsNumber) {
+        PassageTally tally = new PassageTally(v11n);
+        Entry entry = getEntry(strongsNumber);
+        if (entry != null) {
+            tally.raiseEventSuppresion();
+            tally.raiseNormalizeProtection();
+            for (int i = 0; i < entry.size; i++) {
+                tally.add(v11n.decodeOrdinal(entry.ordinals[i]), entry.counts[i]);
+            }
+            tally.lowerNormalizeProtection();
+            tally.lowerEventSuppressionAndTest();
+        }
+        return tally;
+    }
+
+    /**
+     * Get the words that a Strong's Number marks up, in lower case.
+     *
+     * @param strongsNumber
+     *            the Strong's Number
+     * @return the words, which is empty if forms are not recorded
+     */
+    public Set<String> getForms(String strongsNumber) {
+        Entry entry = getEntry(strongsNumber);
+        if (entry == null || entry.forms == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(entry.forms);
+    }
+
+    /**
+     * Copy the words that each Strong's Number marks up to a StrongsMapSet.
+     * Each Strong's Number is a key of its own, zero padded to 4 digits, so a
+     * word marked up with two numbers is a form of each of them.
+     *
+     * @param sms
+     *            the set to add to
+     */
+    public void addTo(StrongsMapSet sms) {
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Set<String> forms = mapEntry.getValue().forms;
+            if (forms != null) {
+                for (String form : forms) {
+                    sms.add(mapEntry.getKey(), form);
+                }
+            }
+        }
+    }
+
+    /**
+     * Save the concordance.
+     *
+     * @param file
+     *            where to save it
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(v11n.getName());
+            out.writeBoolean(withForms);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                writeVarInt(out, entry.size);
+                // The ordinals are ascending so store the gaps between them
+                int last = 0;
+                for (int i = 0; i < entry.size; i++) {
+                    writeVarInt(out, entry.ordinals[i] - last);
+                    writeVarInt(out, entry.counts[i]);
+                    last = entry.ordinals[i];
+                }
+                if (withForms) {
+                    writeVarInt(out, entry.forms.size());
+                    for (String form : entry.forms) {
+                        out.writeUTF(form);
+                    }
+                }
+            }
+            out.close();
+            out = null;
+        } finally {
+            IOUtil.close(out);
+        }
+    }
+
+    /**
+     * Load a concordance that was saved with {@link #write(File)}.
+     *
+     * @param file
+     *            where it was saved
+     * @return the concordance
+     * @throws IOException
+     *             if the file cannot be read or is not a concordance
+     */
+    public static StrongsConcordance read(File file) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a Strong's concordance: " + file);
+            }
+            Versification v11n = Versifications.instance().getVersification(in.readUTF());
+            boolean withForms = in.readBoolean();
+            StrongsConcordance concordance = new StrongsConcordance(v11n, withForms);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                int size = readVarInt(in);
+                Entry entry = new Entry(withForms, size);
+                int ordinal = 0;
+                for (int j = 0; j < size; j++) {
+                    ordinal += readVarInt(in);
+                    entry.ordinals[j] = ordinal;
+                    entry.counts[j] = readVarInt(in);
+                }
+                entry.size = size;
+                if (withForms) {
+                    int forms = readVarInt(in);
+                    for (int j = 0; j < forms; j++) {
+                        entry.forms.add(in.readUTF());
+                    }
+                }
+                concordance.entries.put(key, entry);
+            }
+            return concordance;
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    private Entry getEntry(String strongsNumber) {
+        String key = normalize(strongsNumber);
+        return key == null ? null : entries.get(key);
+    }
+
+    /**
+     * Get the standard form of a Strong's Number, so that G1, g0001 and
+     * G0001 are the same.
+     */
+    private static String normalize(String strongsNumber) {
+        StrongsNumber sn = new StrongsNumber(strongsNumber);
+        return sn.isValid() ? sn.getStrongsNumber() : null;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in Strong's concordance");
+    }
+
+    /**
+     * The verses of one Strong's Number.
+     */
+    private static final class Entry {
+        Entry(boolean withForms) {
+            this(withForms, 4);
+        }
+
+        Entry(boolean withForms, int capacity) {
+            ordinals = new int[capacity];
+            counts = new int[capacity];
+            forms = withForms ? new TreeSet<String>() : null;
+        }
+
+        /**
+         * Count an occurrence in a verse. Verses normally come in order, so
+         * this is usually an increment or an append.
+         */
+        void add(int ordinal) {
+            if (size > 0 && ordinals[size - 1] == ordinal) {
+                counts[size - 1]++;
+                return;
+            }
+
+            int index = size;
+            if (size > 0 && ordinals[size - 1] > ordinal) {
+                index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+                if (index >= 0) {
+                    counts[index]++;
+                    return;
+                }
+                index = -index - 1;
+            }
+
+            if (size == ordinals.length) {
+                int capacity = Math.max(4, size * 2);
+                ordinals = Arrays.copyOf(ordinals, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+            System.arraycopy(counts, index, counts, index + 1, size - index);
+            ordinals[index] = ordinal;
+            counts[index] = 1;
+            size++;
+        }
+
+        int[] ordinals;
+        int[] counts;
+        int size;
+        Set<String> forms;
+    }
+
+    /**
+     * The name of the file holding the concordance in an index directory.
+     */
+    public static final String FILE_NAME = "strongs.jsc";
+
+    private static final Pattern STRONGS_PATTERN = Pattern.compile("strong:([GgHh][0-9]+)");
+    private static final int MAGIC = 0x4A53534E; // JSSN
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Versification v11n;
+    private boolean withForms;
+    private Map<String, Entry> entries;
+}
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.crosswire.common.crypt.Sapphire;
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.JSOtherMsg;
 import org.crosswire.jsword.book.BookException;
@@ -51,7 +52,7 @@ import org.slf4j.LoggerFactory;
  * @author DM Smith
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  */
-public abstract class AbstractBackend<T extends OpenFileState> implements StatefulFileBackedBackend<T>, Backend<T> {
+public abstract class AbstractBackend<T extends OpenFileState> implements StatefulFileBackedBackend<T>, WritableBackend<T> {
 
     /**
      * Default constructor for the sake of serialization.
@@ -82,15 +83,52 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
     public void decipher(byte[] data) {
         String cipherKeyString = getBookMetaData().getProperty(SwordBookMetaData.KEY_CIPHER_KEY);
         if (cipherKeyString != null) {
+            long start = Metrics.begin();
             Sapphire cipherEngine = new Sapphire(cipherKeyString.getBytes());
             for (int i = 0; i < data.length; i++) {
                 data[i] = cipherEngine.cipher(data[i]);
             }
             // destroy any evidence!
             cipherEngine.burn();
+            Metrics.time(Metrics.SWORD_DECIPHER, bmd.getInitials(), getDriverName(), start);
         }
     }
 
+    /**
+     * The name of the SWORD driver for this backend's book, e.g. zText. This
+     * is used to tag metrics.
+     *
+     * @return the module driver
+     */
+    protected String getDriverName() {
+        return bmd.getProperty(SwordBookMetaData.KEY_MOD_DRV);
+    }
+
+    /**
+     * A book's conf may have been only partially loaded when the book was
+     * found. Complete it before the book is first read.
+     *
+     * @throws BookException if the conf cannot be loaded
+     */
+    private void loadFully() throws BookException {
+        if (bmd != null) {
+            bmd.loadFully();
+        }
+    }
+
+    /**
+     * Record low level metrics against this backend's book until the
+     * matching {@link Metrics#exit(Object)}.
+     *
+     * @return the context to end
+     */
+    private Object enterMetrics() {
+        if (!Metrics.isEnabled() || bmd == null) {
+            return null;
+        }
+        return Metrics.enter(bmd.getInitials(), getDriverName());
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.Backend#encipher(byte[])
      */
@@ -117,12 +155,34 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
      * @see org.crosswire.jsword.book.sword.Backend#getRawText(org.crosswire.jsword.passage.Key)
      */
     public String getRawText(Key key) throws BookException {
+        loadFully();
         T state = null;
+        Object metricsContext = enterMetrics();
         try {
             state = initState();
             return readRawContent(state, key);
         } catch (IOException e) {
             throw new BookException("Unable to obtain raw content from backend for key='" + key + '\'', e);
+        } finally {
+            OpenFileStateManager.instance().release(state);
+            Metrics.exit(metricsContext);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.WritableBackend#setRawText(org.crosswire.jsword.passage.Key, java.lang.String)
+     */
+    public void setRawText(Key key, String text) throws BookException {
+        if (!isWritable()) {
+            // TRANSLATOR: Error condition: An attempt was made to change a Book that cannot be changed.
+            throw new BookException(JSMsg.gettext("This Book is read-only."));
+        }
+        T state = null;
+        try {
+            state = initState();
+            setRawText(state, key, text);
+        } catch (IOException e) {
+            throw new BookException(JSOtherMsg.lookupText("Unable to save {0}.", key.getOsisID()), e);
         } finally {
             OpenFileStateManager.instance().release(state);
         }
@@ -171,9 +231,11 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
      */
     public List<Content> readToOsis(Key key, RawTextToXmlProcessor processor) throws BookException {
 
+        loadFully();
         final List<Content> content = new ArrayList<Content>();
 
         T openFileState = null;
+        Object metricsContext = enterMetrics();
 
         try {
             openFileState = initState();
@@ -194,6 +256,7 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
             return content;
         } finally {
             OpenFileStateManager.instance().release(openFileState);
+            Metrics.exit(metricsContext);
         }
     }
 
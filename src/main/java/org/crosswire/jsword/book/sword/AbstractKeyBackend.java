@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.sword.state.OpenFileState;
 import org.crosswire.jsword.passage.Key;
@@ -137,7 +138,8 @@ public abstract class AbstractKeyBackend<T extends OpenFileState> extends Abstra
     }
 
     public void setRawText(T state, Key key, String text) throws BookException, IOException {
-        throw new UnsupportedOperationException();
+        // TRANSLATOR: Error condition: An attempt was made to change a Book that cannot be changed.
+        throw new BookException(JSMsg.gettext("This Book is read-only."));
     }
 
     /* (non-Javadoc)
@@ -273,14 +273,20 @@ public enum BookType {
     }
 
     /**
-     * Create a Book appropriate for the BookMetaData
+     * Create a Book appropriate for the BookMetaData. A verse based book that
+     * has been compiled is read from its compiled copy.
      * 
      * @param sbmd the book metadata 
      * @return a book for that metadata
      * @throws BookException
+     * @see NativeModules
      */
     public Book createBook(SwordBookMetaData sbmd) throws BookException {
-        return getBook(sbmd, getBackend(sbmd));
+        Backend backend = getBackend(sbmd);
+        if (keyType == KeyType.VERSE) {
+            backend = NativeModules.instance().getBackend(sbmd, backend);
+        }
+        return getBook(sbmd, backend);
     }
 
     /**
@@ -0,0 +1,86 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a refresh of a {@link SwordCatalog} found had changed in a
+ * repository's list of books. Each book is named by its initials.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class CatalogChanges {
+    /**
+     * @param added
+     *            the books that are new
+     * @param removed
+     *            the books that are gone
+     * @param updated
+     *            the books whose conf has changed
+     */
+    CatalogChanges(List<String> added, List<String> removed, List<String> updated) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.updated = Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * @return the initials of the books that are new
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the initials of the books that are gone
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the initials of the books whose conf has changed
+     */
+    public List<String> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return whether nothing has changed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "added " + added + ", removed " + removed + ", updated " + updated;
+    }
+
+    private final List<String> added;
+    private final List<String> removed;
+    private final List<String> updated;
+}
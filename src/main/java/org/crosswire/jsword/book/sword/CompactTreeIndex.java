@@ -0,0 +1,305 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * An immutable, array backed copy of the tree held in a Sword GenBook's idx
+ * and dat files. The whole tree is parsed once, so navigating it does not
+ * touch the disk, and a node can be found from its path with a single hash
+ * lookup. Since nothing changes after construction, an instance can be shared
+ * freely between threads.
+ *
+ * <p>Nodes are numbered by their record in the idx file, so the root is node
+ * 0. The links between nodes are held as node numbers, with -1 meaning that
+ * there is no such node.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class CompactTreeIndex {
+    /**
+     * Parse the tree from the content of the idx and dat files.
+     *
+     * @param idx the content of the idx file
+     * @param dat the content of the dat file
+     * @param key the name to use when reporting decoding problems
+     * @param charset the encoding of the node names
+     */
+    CompactTreeIndex(byte[] idx, byte[] dat, String key, String charset) {
+        int count = idx.length / 4;
+        offsets = new int[count];
+        parents = new int[count];
+        nextSiblings = new int[count];
+        firstChildren = new int[count];
+        starts = new int[count];
+        sizes = new int[count];
+        names = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            int offset = SwordUtil.decodeLittleEndian32(idx, i * 4);
+            offsets[i] = offset;
+            parents[i] = toNode(SwordUtil.decodeLittleEndian32(dat, offset));
+            nextSiblings[i] = toNode(SwordUtil.decodeLittleEndian32(dat, offset + 4));
+            firstChildren[i] = toNode(SwordUtil.decodeLittleEndian32(dat, offset + 8));
+
+            int nameStart = offset + 12;
+            int nameEnd = nameStart;
+            while (nameEnd < dat.length && dat[nameEnd] != 0) {
+                nameEnd++;
+            }
+            // Some of the keys have extraneous whitespace, so remove it.
+            names[i] = SwordUtil.decode(key, dat, nameStart, nameEnd - nameStart, charset).trim();
+
+            // Step over the terminating null
+            int pos = nameEnd + 1;
+            int userDataSize = SwordUtil.decodeLittleEndian16(dat, pos);
+            if (userDataSize == 8) {
+                starts[i] = SwordUtil.decodeLittleEndian32(dat, pos + 2);
+                sizes[i] = SwordUtil.decodeLittleEndian32(dat, pos + 6);
+            } else {
+                starts[i] = -1;
+                sizes[i] = -1;
+            }
+        }
+
+        paths = new HashMap<String, Integer>(count * 4 / 3 + 1);
+        if (count > 0) {
+            addPaths(0, "");
+        }
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * Find the node for a key by building the path from the key's ancestry.
+     * As with the tree itself, the unnamed root is not part of the path.
+     *
+     * @param key the key to find
+     * @return the node number or -1 if it is not in the tree
+     */
+    int find(Key key) {
+        StringBuilder path = new StringBuilder(100);
+        for (Key parentKey = key; parentKey != null && parentKey.getName().length() > 0; parentKey = parentKey.getParent()) {
+            if (path.length() > 0) {
+                path.insert(0, PATH_SEPARATOR);
+            }
+            path.insert(0, parentKey.getName());
+        }
+        return find(path.toString());
+    }
+
+    /**
+     * Find the node with the given path, e.g. <code>a/b/c</code>.
+     *
+     * @param path the path from the root to the node
+     * @return the node number or -1 if it is not in the tree
+     */
+    int find(String path) {
+        Integer node = paths.get(path);
+        return node == null ? -1 : node.intValue();
+    }
+
+    /**
+     * @param node the node number
+     * @return the name of the node
+     */
+    String getName(int node) {
+        return names[node];
+    }
+
+    /**
+     * @param node the node number
+     * @return the parent of the node or -1 for the root
+     */
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * @param node the node number
+     * @return the first child of the node or -1 for a leaf
+     */
+    int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    /**
+     * @param node the node number
+     * @return the next sibling of the node or -1 for the last sibling
+     */
+    int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * @param node the node number
+     * @return where the node's entry starts in the bdt file or -1 if it has none
+     */
+    int getDataStart(int node) {
+        return starts[node];
+    }
+
+    /**
+     * @param node the node number
+     * @return the length of the node's entry in the bdt file or -1 if it has none
+     */
+    int getDataSize(int node) {
+        return sizes[node];
+    }
+
+    /**
+     * Build a stand alone TreeNode, as would be read from the dat file.
+     *
+     * @param node the node number
+     * @return the TreeNode
+     */
+    TreeNode getTreeNode(int node) {
+        if (node == -1) {
+            return new TreeNode(-1);
+        }
+
+        TreeNode treeNode = new TreeNode(offsets[node]);
+        treeNode.setName(names[node]);
+        treeNode.setParent(toRecord(parents[node]));
+        treeNode.setNextSibling(toRecord(nextSiblings[node]));
+        treeNode.setFirstChild(toRecord(firstChildren[node]));
+        if (starts[node] != -1) {
+            byte[] userData = new byte[8];
+            SwordUtil.encodeLittleEndian32(starts[node], userData, 0);
+            SwordUtil.encodeLittleEndian32(sizes[node], userData, 4);
+            treeNode.setUserData(userData);
+        }
+        return treeNode;
+    }
+
+    /**
+     * Convert a TreeNode's record pointer to a node number.
+     *
+     * @param record the byte offset of a record in the idx file
+     * @return the node number
+     */
+    static int toNode(int record) {
+        return record == -1 ? -1 : record / 4;
+    }
+
+    /**
+     * Convert a node number to a TreeNode's record pointer.
+     *
+     * @param node the node number
+     * @return the byte offset of the record in the idx file
+     */
+    static int toRecord(int node) {
+        return node == -1 ? -1 : node * 4;
+    }
+
+    /**
+     * Record the path of every node under the given one. This walks the tree
+     * without recursion as some books are deep. When siblings share a name
+     * the first one wins, just as it does when walking the tree.
+     *
+     * @param root the node whose descendants are to be added
+     * @param rootPath the path of that node
+     */
+    private void addPaths(int root, String rootPath) {
+        int count = names.length;
+        int[] stack = new int[count];
+        String[] stackPaths = new String[count];
+        boolean[] visited = new boolean[count];
+        int top = 0;
+        stack[top] = root;
+        stackPaths[top] = rootPath;
+        top++;
+        while (top > 0) {
+            top--;
+            int parent = stack[top];
+            String parentPath = stackPaths[top];
+            stackPaths[top] = null;
+            // Guard against malformed files that point back up the tree
+            for (int child = firstChildren[parent]; child >= 0 && child < count && !visited[child]; child = nextSiblings[child]) {
+                visited[child] = true;
+                String path = parentPath.length() == 0 ? names[child] : parentPath + PATH_SEPARATOR + names[child];
+                if (paths.containsKey(path)) {
+                    continue;
+                }
+                paths.put(path, Integer.valueOf(child));
+                if (firstChildren[child] != -1) {
+                    stack[top] = child;
+                    stackPaths[top] = path;
+                    top++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The separator between the names of the nodes in a path.
+     */
+    private static final char PATH_SEPARATOR = '/';
+
+    /**
+     * The offset of each node's record in the dat file.
+     */
+    private final int[] offsets;
+
+    /**
+     * The parent of each node.
+     */
+    private final int[] parents;
+
+    /**
+     * The next sibling of each node.
+     */
+    private final int[] nextSiblings;
+
+    /**
+     * The first child of each node.
+     */
+    private final int[] firstChildren;
+
+    /**
+     * Where each node's entry starts in the bdt file.
+     */
+    private final int[] starts;
+
+    /**
+     * The length of each node's entry in the bdt file.
+     */
+    private final int[] sizes;
+
+    /**
+     * The name of each node.
+     */
+    private final String[] names;
+
+    /**
+     * The node for each path.
+     */
+    private final Map<String, Integer> paths;
+}
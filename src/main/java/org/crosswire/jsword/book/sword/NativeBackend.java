@@ -0,0 +1,230 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.crosswire.common.metrics.Metrics;
+import org.crosswire.jsword.JSMsg;
+import org.crosswire.jsword.JSOtherMsg;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.KeyType;
+import org.crosswire.jsword.book.sword.processing.OsisContentProcessor;
+import org.crosswire.jsword.book.sword.processing.RawTextToXmlProcessor;
+import org.crosswire.jsword.book.sword.state.OpenFileState;
+import org.crosswire.jsword.passage.BitwisePassage;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.RestrictionType;
+import org.crosswire.jsword.passage.RocketPassage;
+import org.crosswire.jsword.passage.VerseRange;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.jdom2.Content;
+
+/**
+ * A backend that reads a verse based book from its compiled copy, as made by
+ * {@link NativeModules}. Verses are found by ordinal in a memory mapped file
+ * and are already UTF-8 and deciphered. Their OSIS was made when the book was
+ * compiled, so a processor that can take it as it is, an
+ * {@link OsisContentProcessor}, is given it without the book's filter having
+ * to parse the text again.
+ * 
+ * <p>The module that the copy was compiled from remains the source of the
+ * book. This backend is read-only and does anything that the copy cannot do
+ * with the module's own backend.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class NativeBackend implements Backend<OpenFileState> {
+    /**
+     * Create a backend reading a compiled copy of a book.
+     * 
+     * @param sbmd the metadata of the book
+     * @param module the compiled copy
+     * @param source the backend reading the module itself
+     */
+    NativeBackend(SwordBookMetaData sbmd, NativeModule module, Backend<?> source) {
+        this.bmd = sbmd;
+        this.module = module;
+        this.source = source;
+    }
+
+    /**
+     * @return the backend reading the module that this was compiled from
+     */
+    public Backend<?> getSource() {
+        return source;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#getBookMetaData()
+     */
+    public BookMetaData getBookMetaData() {
+        return bmd;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#decipher(byte[])
+     */
+    public void decipher(byte[] data) {
+        source.decipher(data);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#encipher(byte[])
+     */
+    public void encipher(byte[] data) {
+        source.encipher(data);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#readIndex()
+     */
+    @Deprecated
+    public Key readIndex() {
+        return null;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#contains(org.crosswire.jsword.passage.Key)
+     */
+    public boolean contains(Key key) {
+        return getRawTextLength(key) > 0;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#getRawText(org.crosswire.jsword.passage.Key)
+     */
+    public String getRawText(Key key) throws BookException {
+        try {
+            return module.getRawText(KeyUtil.getVerse(key).getOrdinal());
+        } catch (IOException e) {
+            throw new BookException("Unable to obtain raw content from backend for key='" + key + '\'', e);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#setAliasKey(org.crosswire.jsword.passage.Key, org.crosswire.jsword.passage.Key)
+     */
+    public void setAliasKey(Key alias, Key source) throws BookException {
+        throw new BookException(JSOtherMsg.lookupText("This Book is read-only."));
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#getRawTextLength(org.crosswire.jsword.passage.Key)
+     */
+    public int getRawTextLength(Key key) {
+        return module.getRawLength(KeyUtil.getVerse(key).getOrdinal());
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#getGlobalKeyList()
+     */
+    public Key getGlobalKeyList() throws BookException {
+        Versification v11n = Versifications.instance().getVersification(bmd.getProperty(BookMetaData.KEY_VERSIFICATION));
+        BitwisePassage passage = new RocketPassage(v11n);
+        passage.raiseEventSuppresion();
+        passage.raiseNormalizeProtection();
+
+        int count = module.getVerseCount();
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            if (module.getRawLength(ordinal) > 0) {
+                passage.addVersifiedOrdinal(ordinal);
+            }
+        }
+
+        passage.lowerNormalizeProtection();
+        passage.lowerEventSuppressionAndTest();
+        return passage;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#readToOsis(org.crosswire.jsword.passage.Key, org.crosswire.jsword.book.sword.processing.RawTextToXmlProcessor)
+     */
+    public List<Content> readToOsis(Key key, RawTextToXmlProcessor processor) throws BookException {
+        if (bmd.getKeyType() != KeyType.VERSE) {
+            return source.readToOsis(key, processor);
+        }
+
+        Object metricsContext = Metrics.isEnabled() ? Metrics.enter(bmd.getInitials(), NativeModule.DRIVER_NAME) : null;
+        try {
+            OsisContentProcessor parsed = processor instanceof OsisContentProcessor ? (OsisContentProcessor) processor : null;
+            List<Content> content = new ArrayList<Content>();
+            Passage ref = KeyUtil.getPassage(key);
+            Iterator<VerseRange> rit = ref.rangeIterator(RestrictionType.CHAPTER);
+            while (rit.hasNext()) {
+                VerseRange range = rit.next();
+                processor.preRange(range, content);
+
+                for (Key verseInRange : range) {
+                    int ordinal = KeyUtil.getVerse(verseInRange).getOrdinal();
+                    try {
+                        String rawText = module.getRawText(ordinal);
+                        if (parsed == null) {
+                            processor.postVerse(verseInRange, content, rawText);
+                        } else {
+                            parsed.postVerse(verseInRange, content, rawText, module.getOsis(ordinal));
+                        }
+                    } catch (IOException e) {
+                        // TRANSLATOR: Common error condition: The file could not be read.
+                        // There can be many reasons.
+                        // {0} is a placeholder for the key.
+                        throw new BookException(JSMsg.gettext("Error reading {0}", verseInRange.getName()), e);
+                    }
+                }
+            }
+            return content;
+        } finally {
+            Metrics.exit(metricsContext);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#create()
+     */
+    public void create() throws IOException, BookException {
+        source.create();
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#isSupported()
+     */
+    public boolean isSupported() {
+        return source.isSupported();
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.Backend#isWritable()
+     */
+    public boolean isWritable() {
+        return false;
+    }
+
+    private final SwordBookMetaData bmd;
+    private final NativeModule module;
+    private final Backend<?> source;
+}
@@ -0,0 +1,172 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jdom2.Attribute;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.JDOMFactory;
+import org.jdom2.Namespace;
+import org.jdom2.Text;
+import org.jdom2.UncheckedJDOMFactory;
+
+/**
+ * Writes OSIS content as a compact tree and reads it back, so that text which
+ * has already been filtered to OSIS does not need to be parsed again.
+ * 
+ * <p>Each node is a type byte followed by its data. An element has its name and
+ * namespace, its attributes and then its children. A text node has its text.
+ * Comments and processing instructions are dropped. As the content was well
+ * formed when it was written, it is not checked when it is read.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class NativeContent {
+    /**
+     * Prevent instantiation
+     */
+    private NativeContent() {
+    }
+
+    /**
+     * Write a list of content, such as a SourceFilter produces.
+     * 
+     * @param out where to write the content
+     * @param content the content to write
+     * @throws IOException if the content cannot be written
+     */
+    static void write(DataOutputStream out, List<Content> content) throws IOException {
+        out.writeInt(count(content));
+        for (Content node : content) {
+            writeNode(out, node);
+        }
+    }
+
+    /**
+     * Read a list of content, as written by write(). The content is new and
+     * does not have a parent.
+     * 
+     * @param data the buffer holding the content
+     * @param offset where the content starts
+     * @param length the size of the content
+     * @return the content
+     * @throws IOException if the content is damaged
+     */
+    static List<Content> read(byte[] data, int offset, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+        int count = in.readInt();
+        List<Content> content = new ArrayList<Content>(count);
+        for (int i = 0; i < count; i++) {
+            content.add(readNode(in));
+        }
+        return content;
+    }
+
+    private static void writeNode(DataOutputStream out, Content node) throws IOException {
+        if (node instanceof Element) {
+            Element element = (Element) node;
+            out.writeByte(TYPE_ELEMENT);
+            out.writeUTF(element.getName());
+            writeNamespace(out, element.getNamespace());
+            List<Attribute> attributes = element.getAttributes();
+            out.writeInt(attributes.size());
+            for (Attribute attribute : attributes) {
+                out.writeUTF(attribute.getName());
+                writeNamespace(out, attribute.getNamespace());
+                SwordConfCache.writeString(out, attribute.getValue());
+            }
+            List<Content> children = element.getContent();
+            out.writeInt(count(children));
+            for (Content child : children) {
+                writeNode(out, child);
+            }
+        } else if (node instanceof Text) {
+            out.writeByte(TYPE_TEXT);
+            SwordConfCache.writeString(out, ((Text) node).getText());
+        }
+    }
+
+    private static Content readNode(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type == TYPE_TEXT) {
+            return FACTORY.text(SwordConfCache.readString(in));
+        }
+        if (type != TYPE_ELEMENT) {
+            throw new IOException("Unknown content type " + type);
+        }
+
+        Element element = FACTORY.element(in.readUTF(), readNamespace(in));
+        int attributes = in.readInt();
+        for (int i = 0; i < attributes; i++) {
+            String name = in.readUTF();
+            Namespace namespace = readNamespace(in);
+            FACTORY.setAttribute(element, FACTORY.attribute(name, SwordConfCache.readString(in), namespace));
+        }
+        int children = in.readInt();
+        for (int i = 0; i < children; i++) {
+            FACTORY.addContent(element, readNode(in));
+        }
+        return element;
+    }
+
+    private static void writeNamespace(DataOutputStream out, Namespace namespace) throws IOException {
+        out.writeUTF(namespace.getPrefix());
+        out.writeUTF(namespace.getURI());
+    }
+
+    private static Namespace readNamespace(DataInputStream in) throws IOException {
+        String prefix = in.readUTF();
+        String uri = in.readUTF();
+        if (prefix.length() == 0 && uri.length() == 0) {
+            return Namespace.NO_NAMESPACE;
+        }
+        return Namespace.getNamespace(prefix, uri);
+    }
+
+    /**
+     * Count the nodes that are written, that is the elements and text.
+     */
+    private static int count(List<Content> content) {
+        int count = 0;
+        for (Content node : content) {
+            if (node instanceof Element || node instanceof Text) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final byte TYPE_ELEMENT = 1;
+    private static final byte TYPE_TEXT = 2;
+
+    /**
+     * Creates content without checking names and text, which were checked
+     * when the content was first built.
+     */
+    private static final JDOMFactory FACTORY = new UncheckedJDOMFactory();
+}
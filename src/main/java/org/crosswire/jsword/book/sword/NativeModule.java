@@ -0,0 +1,274 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.metrics.Metrics;
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.common.util.IOUtil;
+import org.jdom2.Content;
+
+/**
+ * A compiled copy of a verse based SWORD module, read through a memory map.
+ * 
+ * <p>The file is laid out as follows, with all numbers big endian:</p>
+ * <ul>
+ * <li>The header: a magic number, the format version, then the initials of
+ * the book, its versification and the stamp of the module it was compiled
+ * from, each as a length and UTF-8 bytes. Then the number of verses and of
+ * blocks.</li>
+ * <li>The verse table, with one 16 byte entry per ordinal of the
+ * versification: the block holding the verse or -1, the start of the verse in
+ * the uncompressed block, the size of its raw text and the size of its
+ * OSIS.</li>
+ * <li>The block table, with one 16 byte entry per block: the start of the
+ * compressed block in the file, its compressed size and its uncompressed
+ * size.</li>
+ * <li>The blocks, one per chapter, each compressed with ZIP. Within a block
+ * each verse is its raw text as UTF-8 followed by its OSIS, as written by
+ * {@link NativeContent}.</li>
+ * </ul>
+ * 
+ * <p>Nothing in the file needs a charset, a cipher or a filter to be read.
+ * The last block that was uncompressed is kept, as verses are mostly read a
+ * chapter at a time. A NativeModule is safe for use by many threads.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class NativeModule {
+    /**
+     * Map the file and read its header.
+     */
+    private NativeModule(File file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a native module: " + file);
+        }
+        this.version = buffer.getInt();
+        if (version != VERSION) {
+            // The rest may be laid out in some other way.
+            this.initials = null;
+            this.versification = null;
+            this.stamp = null;
+            this.verseCount = 0;
+            this.verseTable = 0;
+            this.blockTable = 0;
+            return;
+        }
+        this.initials = readString(buffer);
+        this.versification = readString(buffer);
+        this.stamp = readString(buffer);
+        this.verseCount = buffer.getInt();
+        int blockCount = buffer.getInt();
+        this.verseTable = buffer.position();
+        this.blockTable = verseTable + verseCount * ENTRY_SIZE;
+        if (blockTable + (long) blockCount * ENTRY_SIZE > buffer.limit()) {
+            throw new IOException("Truncated native module: " + file);
+        }
+    }
+
+    /**
+     * Open a compiled module.
+     * 
+     * @param file the compiled module
+     * @return the module
+     * @throws IOException if the file cannot be read or is not a native module
+     */
+    static NativeModule open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, FileUtil.MODE_READ);
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Native module is too large: " + file);
+            }
+            // The mapping stays valid once the file is closed.
+            return new NativeModule(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            IOUtil.close(raf);
+        }
+    }
+
+    /**
+     * Determine whether this was compiled with the current format from the
+     * given state of a module.
+     * 
+     * @param bookInitials the initials of the book
+     * @param v11nName the versification of the book
+     * @param sourceStamp the stamp of the module as it is now
+     * @return true if this can be used in place of the module
+     */
+    boolean isCurrent(String bookInitials, String v11nName, String sourceStamp) {
+        return version == VERSION && bookInitials.equals(initials) && v11nName.equals(versification) && sourceStamp.equals(stamp);
+    }
+
+    /**
+     * @return the compiled file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the number of ordinals in the verse table
+     */
+    int getVerseCount() {
+        return verseCount;
+    }
+
+    /**
+     * Get the size of the raw text of a verse.
+     * 
+     * @param ordinal the ordinal of the verse
+     * @return the size in bytes of its text as UTF-8, 0 if it has none
+     */
+    int getRawLength(int ordinal) {
+        if (ordinal < 0 || ordinal >= verseCount) {
+            return 0;
+        }
+        return buffer.getInt(verseTable + ordinal * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Get the raw text of a verse as it was read from the module, deciphered
+     * and decoded.
+     * 
+     * @param ordinal the ordinal of the verse
+     * @return the text, which is empty if there is none
+     * @throws IOException if the block cannot be uncompressed
+     */
+    String getRawText(int ordinal) throws IOException {
+        int rawLength = getRawLength(ordinal);
+        if (rawLength == 0) {
+            return "";
+        }
+        int entry = verseTable + ordinal * ENTRY_SIZE;
+        byte[] block = getBlock(buffer.getInt(entry));
+        return new String(block, buffer.getInt(entry + 4), rawLength, UTF8);
+    }
+
+    /**
+     * Get the OSIS of a verse, as the book's filter made it.
+     * 
+     * @param ordinal the ordinal of the verse
+     * @return new OSIS content, or null if the verse has no text
+     * @throws IOException if the block cannot be uncompressed or is damaged
+     */
+    List<Content> getOsis(int ordinal) throws IOException {
+        int rawLength = getRawLength(ordinal);
+        if (rawLength == 0) {
+            return null;
+        }
+        int entry = verseTable + ordinal * ENTRY_SIZE;
+        byte[] block = getBlock(buffer.getInt(entry));
+        return NativeContent.read(block, buffer.getInt(entry + 4) + rawLength, buffer.getInt(entry + 12));
+    }
+
+    /**
+     * Get an uncompressed block, reusing the last one if it is the same.
+     */
+    private byte[] getBlock(int index) throws IOException {
+        Block block = last;
+        if (block != null && block.index == index) {
+            return block.data;
+        }
+
+        int entry = blockTable + index * ENTRY_SIZE;
+        int start = (int) buffer.getLong(entry);
+        byte[] compressed = new byte[buffer.getInt(entry + 8)];
+        // The position of a duplicate is not shared with other threads.
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(compressed);
+
+        long begin = Metrics.begin();
+        block = new Block(index, CompressorType.ZIP.uncompress(compressed, buffer.getInt(entry + 12)));
+        Metrics.time(Metrics.SWORD_UNCOMPRESS, initials, DRIVER_NAME, begin);
+        last = block;
+        return block.data;
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * An uncompressed block and its number.
+     */
+    private static final class Block {
+        Block(int index, byte[] data) {
+            this.index = index;
+            this.data = data;
+        }
+
+        final int index;
+        final byte[] data;
+    }
+
+    /**
+     * The first bytes of a native module.
+     */
+    static final int MAGIC = 0x4A534E4D; // JSNM
+
+    /**
+     * The version of the layout. Modules compiled with another are compiled
+     * again.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size of an entry in the verse and block tables.
+     */
+    static final int ENTRY_SIZE = 16;
+
+    /**
+     * The name that metrics for compiled books are recorded against.
+     */
+    static final String DRIVER_NAME = "Native";
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final ByteBuffer buffer;
+    private final int version;
+    private final String initials;
+    private final String versification;
+    private final String stamp;
+    private final int verseCount;
+    private final int verseTable;
+    private final int blockTable;
+
+    /**
+     * The last block that was uncompressed.
+     */
+    private volatile Block last;
+}
@@ -0,0 +1,200 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.filter.SourceFilter;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Versification;
+
+/**
+ * Compiles a verse based book into the layout read by {@link NativeModule}.
+ * Every verse with text is read from the module once and run through the
+ * book's filter, so that the markup is repaired and parsed at compile time
+ * rather than each time it is read.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class NativeModuleWriter {
+    /**
+     * Prepare to compile a book.
+     * 
+     * @param book the book, which is used to find its verses and by its filter
+     * @param source the backend that reads the book's module
+     */
+    NativeModuleWriter(SwordBook book, Backend<?> source) {
+        this.book = book;
+        this.source = source;
+    }
+
+    /**
+     * Compile the book. The file is written under another name and renamed
+     * once it is complete, so a partial copy is never opened. It is a new
+     * file, as an older copy may still be mapped.
+     * 
+     * @param file where to write the compiled book
+     * @param stamp the stamp of the module that is being compiled
+     * @throws BookException if the book cannot be read
+     * @throws IOException if the file cannot be written
+     */
+    void write(File file, String stamp) throws BookException, IOException {
+        SwordBookMetaData sbmd = (SwordBookMetaData) book.getBookMetaData();
+        SourceFilter filter = sbmd.getFilter();
+        Versification v11n = book.getVersification();
+        int verseCount = v11n.maximumOrdinal() + 1;
+
+        // For each verse: its block, start, raw text size and OSIS size
+        int[] verses = new int[verseCount * 4];
+        for (int i = 0; i < verses.length; i += 4) {
+            verses[i] = -1;
+        }
+        // For each block: its start in the data, compressed and full size
+        int[] blocks = new int[64 * 3];
+        int blockCount = 0;
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        DataOutputStream blockOut = new DataOutputStream(block);
+        int chapter = -1;
+        String previous = null;
+        int previousEntry = -1;
+        for (Key key : book.getGlobalKeyList()) {
+            Verse verse = KeyUtil.getVerse(key);
+            String rawText = source.getRawText(verse);
+            if (rawText == null || rawText.length() == 0) {
+                continue;
+            }
+
+            // A new chapter starts a new block
+            int ordinal = verse.getOrdinal();
+            int start = ordinal - verse.getVerse();
+            if (start != chapter) {
+                if (block.size() > 0) {
+                    blocks = addBlock(blocks, blockCount++, data, block);
+                }
+                chapter = start;
+                previous = null;
+            }
+
+            int entry = ordinal * 4;
+            if (rawText.equals(previous)) {
+                // Linked verses share their text
+                System.arraycopy(verses, previousEntry, verses, entry, 4);
+                continue;
+            }
+
+            byte[] raw = rawText.getBytes(NativeModule.UTF8);
+            int offset = block.size();
+            blockOut.write(raw);
+            NativeContent.write(blockOut, filter.toOSIS(book, verse, rawText));
+            blockOut.flush();
+            verses[entry] = blockCount;
+            verses[entry + 1] = offset;
+            verses[entry + 2] = raw.length;
+            verses[entry + 3] = block.size() - offset - raw.length;
+            previous = rawText;
+            previousEntry = entry;
+        }
+        if (block.size() > 0) {
+            blocks = addBlock(blocks, blockCount++, data, block);
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(NativeModule.MAGIC);
+        headerOut.writeInt(NativeModule.VERSION);
+        SwordConfCache.writeString(headerOut, sbmd.getInitials());
+        SwordConfCache.writeString(headerOut, v11n.getName());
+        SwordConfCache.writeString(headerOut, stamp);
+        headerOut.writeInt(verseCount);
+        headerOut.writeInt(blockCount);
+        headerOut.flush();
+        long dataStart = header.size() + (long) (verseCount + blockCount) * NativeModule.ENTRY_SIZE;
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Unable to create " + parent);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+            header.writeTo(out);
+            for (int i = 0; i < verses.length; i++) {
+                out.writeInt(verses[i]);
+            }
+            for (int i = 0; i < blockCount * 3; i += 3) {
+                out.writeLong(dataStart + blocks[i]);
+                out.writeInt(blocks[i + 1]);
+                out.writeInt(blocks[i + 2]);
+            }
+            data.writeTo(out);
+            out.close();
+            out = null;
+
+            if (file.exists() || !temp.renameTo(file)) {
+                throw new IOException("Unable to create " + file);
+            }
+        } finally {
+            IOUtil.close(out);
+            if (temp.exists() && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Compress a block onto the data and note where it is.
+     * 
+     * @return the block table, which may have grown
+     */
+    private static int[] addBlock(int[] blocks, int index, ByteArrayOutputStream data, ByteArrayOutputStream block) throws IOException {
+        byte[] uncompressed = block.toByteArray();
+        byte[] compressed = CompressorType.ZIP.getCompressor(uncompressed).compress().toByteArray();
+        int[] table = blocks;
+        if (index * 3 == table.length) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        table[index * 3] = data.size();
+        table[index * 3 + 1] = compressed.length;
+        table[index * 3 + 2] = uncompressed.length;
+        data.write(compressed);
+        block.reset();
+        return table;
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SwordBook book;
+    private final Backend<?> source;
+}
@@ -0,0 +1,442 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.crosswire.common.util.CWProject;
+import org.crosswire.common.util.NetUtil;
+import org.crosswire.jsword.JSOtherMsg;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.BooksEvent;
+import org.crosswire.jsword.book.BooksListener;
+import org.crosswire.jsword.book.KeyType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiled copies of verse based SWORD modules. A book is compiled once, on
+ * request, into a file that can be read through a memory map, with its text
+ * in UTF-8 and its markup already repaired and parsed to OSIS. From then on,
+ * when the book is loaded it is read from the compiled copy by a
+ * {@link NativeBackend}.
+ * 
+ * <p>The module stays the source of the book. Each compiled copy is stamped
+ * with the version of the module, the size and time of each of its files, and
+ * the filter that parsed it. If the module has changed since, for example
+ * because it was upgraded, or the filter has, the copy is not used, and the
+ * book is compiled again in the background.</p>
+ * 
+ * <p>A copy that is mapped cannot be replaced on every platform, and the
+ * mapping lasts until it is garbage collected. So each compilation of a book
+ * is written to a new file, numbered after the last, and older ones are
+ * deleted once they can be. The copies of a book that is removed from the
+ * installed books are deleted as well.</p>
+ * 
+ * <p>Books that can be written to are not compiled, as the copy would not see
+ * their changes. Nor are enciphered books, as the copy would hold their text
+ * in the clear.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class NativeModules {
+    /**
+     * Keep compiled books in a directory.
+     * 
+     * @param directory where compiled books are kept, or null for none
+     * @param executor what compiles changed books again
+     */
+    NativeModules(File directory, Executor executor) {
+        this(directory, executor, false);
+    }
+
+    /**
+     * Keep compiled books in a directory.
+     * 
+     * @param directory where compiled books are kept, or null for none
+     * @param executor what compiles changed books again
+     * @param followInstalled whether to delete the copies of books that are
+     *            removed from the installed books
+     */
+    NativeModules(File directory, Executor executor, boolean followInstalled) {
+        this.directory = directory;
+        this.executor = executor;
+        this.followInstalled = followInstalled;
+        this.listening = new AtomicBoolean();
+        this.pending = new ConcurrentHashMap<String, String>();
+    }
+
+    /**
+     * @return the compiled books of this JSword installation
+     */
+    public static NativeModules instance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Determine whether a book can be compiled: it is a verse based SWORD
+     * book that is neither writable nor enciphered.
+     * 
+     * @param book the book to check
+     * @return true if the book can be compiled
+     */
+    public boolean isCompilable(Book book) {
+        return directory != null && book instanceof SwordBook && isCompilable((SwordBookMetaData) book.getBookMetaData(), getSource(book));
+    }
+
+    /**
+     * Determine whether there is a compiled copy of a book that is up to date
+     * with its module.
+     * 
+     * @param book the book to check
+     * @return true if the book has been compiled since its module last changed
+     */
+    public boolean isCompiled(Book book) {
+        if (!isCompilable(book)) {
+            return false;
+        }
+        SwordBookMetaData sbmd = (SwordBookMetaData) book.getBookMetaData();
+        try {
+            NativeModule module = open(sbmd);
+            return module != null && isCurrent(module, sbmd);
+        } catch (IOException e) {
+            return false;
+        } catch (BookException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compile a book, replacing any earlier copy. The book goes on being read
+     * as it was, and the compiled copy is used when the book is next loaded.
+     * 
+     * @param book the book to compile
+     * @throws BookException if the book cannot be compiled
+     */
+    public void compile(Book book) throws BookException {
+        if (!isCompilable(book)) {
+            throw new BookException(JSOtherMsg.lookupText("Unable to compile {0}.", book.getInitials()));
+        }
+        compile((SwordBook) book, getSource(book));
+    }
+
+    /**
+     * Delete the compiled copies of a book, if there are any. The book is
+     * read from its module when it is next loaded.
+     * 
+     * @param book the book whose copies are no longer wanted
+     * @return true if there is no longer a copy
+     */
+    public boolean delete(Book book) {
+        if (directory == null) {
+            return true;
+        }
+        return deleteOlder(getFiles(book.getInitials()), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the backend through which to read a book: the compiled copy if
+     * there is an up to date one, otherwise the module's own. A copy that is
+     * out of date is compiled again in the background.
+     * 
+     * @param sbmd the book to read
+     * @param source the backend of the book's module
+     * @return the backend to use
+     */
+    Backend<?> getBackend(SwordBookMetaData sbmd, Backend<?> source) {
+        if (directory == null || !isCompilable(sbmd, source)) {
+            return source;
+        }
+        followInstalled();
+
+        try {
+            NativeModule module = open(sbmd);
+            if (module == null) {
+                return source;
+            }
+            if (isCurrent(module, sbmd)) {
+                return new NativeBackend(sbmd, module, source);
+            }
+            LOGGER.info("Compiling {} again as its module has changed", sbmd.getInitials());
+        } catch (IOException e) {
+            LOGGER.warn("Compiling {} again as its compiled copy is damaged", sbmd.getInitials(), e);
+        } catch (BookException e) {
+            LOGGER.warn("Unable to check the compiled copy of {}", sbmd.getInitials(), e);
+            return source;
+        }
+
+        recompile(sbmd, source);
+        return source;
+    }
+
+    /**
+     * Compile a book again in the background, unless it is already waiting to
+     * be.
+     */
+    private void recompile(final SwordBookMetaData sbmd, final Backend<?> source) {
+        final String initials = sbmd.getInitials();
+        if (pending.putIfAbsent(initials, initials) != null) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    compile(new SwordBook(sbmd, source), source);
+                } catch (BookException e) {
+                    LOGGER.warn("Unable to compile {}", initials, e);
+                } finally {
+                    pending.remove(initials);
+                }
+            }
+        });
+    }
+
+    private synchronized void compile(SwordBook book, Backend<?> source) throws BookException {
+        followInstalled();
+        SwordBookMetaData sbmd = (SwordBookMetaData) book.getBookMetaData();
+        String initials = sbmd.getInitials();
+        SortedMap<Integer, File> files = getFiles(initials);
+        int generation = files.isEmpty() ? 1 : files.lastKey().intValue() + 1;
+        try {
+            long start = System.currentTimeMillis();
+            new NativeModuleWriter(book, source).write(getFile(initials, generation), getStamp(sbmd));
+            LOGGER.info("Compiled {} in {} ms", initials, Long.toString(System.currentTimeMillis() - start));
+        } catch (IOException e) {
+            throw new BookException(JSOtherMsg.lookupText("Unable to compile {0}.", initials), e);
+        }
+        deleteOlder(files, generation);
+    }
+
+    /**
+     * Open the latest compiled copy of a book.
+     * 
+     * @return the copy or null if there is none
+     */
+    private NativeModule open(SwordBookMetaData sbmd) throws IOException, BookException {
+        SortedMap<Integer, File> files = getFiles(sbmd.getInitials());
+        if (files.isEmpty()) {
+            return null;
+        }
+        Integer latest = files.lastKey();
+        // Those that were still mapped when they were replaced may be free now
+        deleteOlder(files, latest.intValue());
+        return NativeModule.open(files.get(latest));
+    }
+
+    /**
+     * Delete the copies older than the given generation. One that cannot be
+     * deleted, because it is still mapped, is left for another time.
+     * 
+     * @return true if they are all gone
+     */
+    private static boolean deleteOlder(SortedMap<Integer, File> files, int generation) {
+        boolean deleted = true;
+        for (File file : files.headMap(Integer.valueOf(generation)).values()) {
+            if (file.exists() && !file.delete()) {
+                LOGGER.debug("Unable to delete {} yet", file);
+                deleted = false;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete the compiled copies of each book that is removed from the
+     * installed books. This is begun on first use rather than when the
+     * default is made, since that is while the installed books are loading.
+     */
+    private void followInstalled() {
+        if (!followInstalled || listening.getAndSet(true)) {
+            return;
+        }
+        Books.installed().addBooksListener(new BooksListener() {
+            public void bookAdded(BooksEvent ev) {
+                // It is compiled when it is asked for
+            }
+
+            public void bookRemoved(BooksEvent ev) {
+                delete(ev.getBook());
+            }
+        });
+    }
+
+    private boolean isCurrent(NativeModule module, SwordBookMetaData sbmd) throws BookException {
+        return module.isCurrent(sbmd.getInitials(), sbmd.getProperty(BookMetaData.KEY_VERSIFICATION), getStamp(sbmd));
+    }
+
+    private File getFile(String initials, int generation) {
+        return new File(directory, initials + '.' + generation + EXTENSION);
+    }
+
+    /**
+     * Find the compiled copies of a book, by generation.
+     */
+    private SortedMap<Integer, File> getFiles(String initials) {
+        SortedMap<Integer, File> files = new TreeMap<Integer, File>();
+        String prefix = initials + '.';
+        String[] names = directory.list();
+        if (names == null) {
+            return files;
+        }
+        for (String name : names) {
+            if (!name.startsWith(prefix) || !name.endsWith(EXTENSION)) {
+                continue;
+            }
+            String generation = name.substring(prefix.length(), name.length() - EXTENSION.length());
+            try {
+                files.put(Integer.valueOf(generation), new File(directory, name));
+            } catch (NumberFormatException e) {
+                // It is another book's, whose initials start with these
+            }
+        }
+        return files;
+    }
+
+    private static boolean isCompilable(SwordBookMetaData sbmd, Backend<?> source) {
+        return sbmd.getKeyType() == KeyType.VERSE && !sbmd.isEnciphered() && !source.isWritable();
+    }
+
+    /**
+     * Get the backend of a book's module, looking past any compiled copy.
+     */
+    private static Backend<?> getSource(Book book) {
+        Backend<?> backend = ((SwordBook) book).getBackend();
+        if (backend instanceof NativeBackend) {
+            return ((NativeBackend) backend).getSource();
+        }
+        return backend;
+    }
+
+    /**
+     * Describe the state of a module, so that a compiled copy can tell
+     * whether it was made from the module as it is now. This covers what the
+     * conf says about how to read the module, the name, size and time of
+     * each of its data files, and the filter that parses it.
+     * 
+     * @param sbmd the book whose module is described
+     * @return the stamp
+     * @throws BookException if the module's data cannot be found
+     */
+    static String getStamp(SwordBookMetaData sbmd) throws BookException {
+        StringBuilder buf = new StringBuilder();
+        buf.append(sbmd.getProperty(SwordBookMetaData.KEY_VERSION));
+        buf.append('|').append(sbmd.getProperty(SwordBookMetaData.KEY_MOD_DRV));
+        buf.append('|').append(sbmd.getProperty(SwordBookMetaData.KEY_SOURCE_TYPE));
+        buf.append('|').append(sbmd.getProperty(SwordBookMetaData.KEY_ENCODING));
+        Class<?> filter = sbmd.getFilter().getClass();
+        Package pkg = filter.getPackage();
+        buf.append('|').append(filter.getName());
+        buf.append(':').append(FILTER_VERSION);
+        buf.append(':').append(pkg == null ? null : pkg.getImplementationVersion());
+        try {
+            File dir = NetUtil.getAsFile(SwordUtil.getExpandedDataPath(sbmd));
+            File[] files = dir.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    buf.append('|').append(file.getName());
+                    buf.append(':').append(file.length());
+                    buf.append(':').append(file.lastModified());
+                }
+            }
+        } catch (IOException e) {
+            throw new BookException(JSOtherMsg.lookupText("Missing data files for old and new testaments in {0}."), e);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Find the default place to keep compiled books. Books are not compiled
+     * again until they are asked for.
+     */
+    static NativeModules createDefault() {
+        File dir = null;
+        try {
+            URI uri = CWProject.instance().getWritableProjectSubdir(DIR_NATIVE, false);
+            dir = NetUtil.getAsFile(uri);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to find the storage area for compiled books.", ex);
+        }
+
+        Executor executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "NativeModules");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+        return new NativeModules(dir, executor, true);
+    }
+
+    /**
+     * Lazily create the singleton.
+     */
+    private static final class InstanceHolder {
+        static final NativeModules INSTANCE = createDefault();
+    }
+
+    /**
+     * The directory, within the writable area, holding compiled books.
+     */
+    public static final String DIR_NATIVE = "native";
+
+    private static final String EXTENSION = ".jsn";
+
+    /**
+     * Raise this when a filter changes what it makes of the same text, so
+     * that books are compiled again. Released builds also stamp the JSword
+     * version.
+     */
+    private static final int FILTER_VERSION = 1;
+
+    private final File directory;
+    private final Executor executor;
+    private final boolean followInstalled;
+
+    /**
+     * Whether the installed books are being followed.
+     */
+    private final AtomicBoolean listening;
+
+    /**
+     * The books waiting to be compiled again.
+     */
+    private final ConcurrentHashMap<String, String> pending;
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeModules.class);
+}
@@ -22,10 +22,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.crosswire.jsword.JSOtherMsg;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.sword.processing.RawTextToXmlProcessor;
+import org.crosswire.jsword.book.sword.state.OpenFileState;
 import org.crosswire.jsword.passage.DefaultKeyList;
 import org.crosswire.jsword.passage.Key;
+import org.jdom2.Content;
 
 /**
  * A NullBackend is not attached to resources.
@@ -33,7 +36,7 @@ import org.crosswire.jsword.passage.Key;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class NullBackend implements Backend {
+public class NullBackend implements WritableBackend<OpenFileState> {
 
     public NullBackend() {
     }
@@ -78,6 +81,13 @@ public class NullBackend implements Backend {
         return "";
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.WritableBackend#setRawText(org.crosswire.jsword.passage.Key, java.lang.String)
+     */
+    public void setRawText(Key key, String text) throws BookException {
+        throw new BookException(JSOtherMsg.lookupText("This Book is read-only."));
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.Backend#setAliasKey(org.crosswire.jsword.passage.Key, org.crosswire.jsword.passage.Key)
      */
@@ -101,8 +111,8 @@ public class NullBackend implements Backend {
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.Backend#readToOsis(org.crosswire.jsword.passage.Key, org.crosswire.jsword.book.sword.processing.RawTextToXmlProcessor)
      */
-    public List readToOsis(Key key, RawTextToXmlProcessor processor) throws BookException {
-        return new ArrayList();
+    public List<Content> readToOsis(Key key, RawTextToXmlProcessor processor) throws BookException {
+        return new ArrayList<Content>();
     }
 
     /* (non-Javadoc)
@@ -206,6 +206,8 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
      * @see org.crosswire.jsword.book.sword.AbstractBackend#setRawText(org.crosswire.jsword.passage.Key, java.lang.String)
      */
     public void setRawText(RawBackendState state, Key key, String text) throws BookException, IOException {
+        // TRANSLATOR: Error condition: An attempt was made to change a Book that cannot be changed.
+        throw new BookException(JSMsg.gettext("This Book is read-only."));
     }
 
     /* (non-Javadoc)
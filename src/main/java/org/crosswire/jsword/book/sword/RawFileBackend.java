@@ -140,6 +140,23 @@ public class RawFileBackend extends RawBackend<RawFileBackendState> {
         writeTextDataFile(dataFile, textData);
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.RawBackend#setRawText(org.crosswire.jsword.book.sword.state.RawBackendState, org.crosswire.jsword.passage.Key, java.lang.String)
+     */
+    @Override
+    public void setRawText(RawBackendState state, Key key, String text) throws BookException, IOException {
+        // The state comes from initState(), so it is ours
+        setRawText((RawFileBackendState) state, key, text);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.RawBackend#setAliasKey(org.crosswire.jsword.book.sword.state.RawBackendState, org.crosswire.jsword.passage.Key, org.crosswire.jsword.passage.Key)
+     */
+    @Override
+    public void setAliasKey(RawBackendState state, Key alias, Key source) throws IOException {
+        setAliasKey((RawFileBackendState) state, alias, source);
+    }
+
     public void setAliasKey(RawFileBackendState state, Key alias, Key source) throws IOException {
         String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
         Versification v11n = Versifications.instance().getVersification(v11nName);
@@ -28,6 +28,9 @@ import org.crosswire.jsword.book.OSISUtil;
 import org.crosswire.jsword.book.basic.AbstractPassageBook;
 import org.crosswire.jsword.book.filter.SourceFilter;
 import org.crosswire.jsword.book.sword.processing.RawTextToXmlProcessor;
+import org.crosswire.jsword.index.IndexManager;
+import org.crosswire.jsword.index.IndexManagerFactory;
+import org.crosswire.jsword.index.UpdatableIndexManager;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.KeyUtil;
 import org.crosswire.jsword.passage.NoSuchKeyException;
@@ -292,7 +295,12 @@ public class SwordBook extends AbstractPassageBook {
      * @see org.crosswire.jsword.book.Book#setRawText(org.crosswire.jsword.passage.Key, java.lang.String)
      */
     public void setRawText(Key key, String rawData) throws BookException {
-        throw new BookException(JSOtherMsg.lookupText("This Book is read-only."));
+        Backend<?> backend = getBackend();
+        if (!isWritable() || !(backend instanceof WritableBackend)) {
+            throw new BookException(JSOtherMsg.lookupText("This Book is read-only."));
+        }
+        ((WritableBackend<?>) backend).setRawText(key, rawData);
+        updateIndex(key);
     }
 
     /* (non-Javadoc)
@@ -300,6 +308,19 @@ public class SwordBook extends AbstractPassageBook {
      */
     public void setAliasKey(Key alias, Key source) throws BookException {
         getBackend().setAliasKey(alias, source);
+        updateIndex(alias);
+    }
+
+    /**
+     * Let the index of this book know that an entry has changed.
+     * 
+     * @param key the key of the entry
+     */
+    private void updateIndex(Key key) {
+        IndexManager manager = IndexManagerFactory.getIndexManager();
+        if (manager instanceof UpdatableIndexManager) {
+            ((UpdatableIndexManager) manager).scheduleIndexUpdate(this, key);
+        }
     }
 
     /* (non-Javadoc)
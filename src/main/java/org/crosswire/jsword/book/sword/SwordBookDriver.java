@@ -22,11 +22,20 @@ package org.crosswire.jsword.book.sword;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import org.crosswire.common.util.CWProject;
 import org.crosswire.common.util.FileUtil;
+import org.crosswire.common.util.IniSection;
 import org.crosswire.common.util.NetUtil;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.JSOtherMsg;
@@ -69,16 +78,33 @@ public class SwordBookDriver extends AbstractBookDriver {
      */
     public Book[] getBooks() {
         File[] dirs = SwordBookPath.getSwordPath();
+
+        // Gather the confs in the order of the sword path so that
+        // the first "installation" of a Book can be recognized.
+        List<File> confs = new ArrayList<File>();
+        List<URI> roots = new ArrayList<URI>();
+        for (int j = 0; j < dirs.length; j++) {
+            findConfs(confs, roots, dirs[j]);
+        }
+
+        SwordConfCache cache = getConfCache();
+        List<SwordBookMetaData> parsed = parseConfs(confs, roots, cache);
+        if (cache != null) {
+            cache.save();
+        }
+
         //initial size based on Guava's  newHashMapWithExpectedSize method:
         //http://docs.guava-libraries.googlecode.com/git/javadoc/src-html/com/google/common/collect/Maps.html#line.201
         Set<Book> valid = new HashSet<Book>(dirs.length + dirs.length / 3);
-        for (int j = 0; j < dirs.length; j++) {
-            getBooks(valid, dirs[j]);
+        for (SwordBookMetaData sbmd : parsed) {
+            if (sbmd != null) {
+                addBook(valid, sbmd);
+            }
         }
         return valid.toArray(new Book[valid.size()]);
     }
 
-    private void getBooks(Set<Book> valid, File bookDir) {
+    private void findConfs(List<File> confs, List<URI> roots, File bookDir) {
         File mods = new File(bookDir, SwordConstants.DIR_CONF);
         if (!mods.isDirectory()) {
             LOGGER.debug("mods.d directory at {} does not exist", mods);
@@ -90,50 +116,170 @@ public class SwordBookDriver extends AbstractBookDriver {
         // Loop through the entries in this mods.d directory
         URI bookDirURI = NetUtil.getURI(bookDir);
         for (int i = 0; i < bookConfs.length; i++) {
-            String bookConf = bookConfs[i];
-            try {
-                SwordBookMetaData sbmd = null;
-
-                File configfile = new File(mods, bookConf);
-                if (configfile.exists()) {
-                    // First time here chain is null, indicating that we are at the master BookMetaData
-                    sbmd = new SwordBookMetaData(configfile, bookDirURI);
-                }
+            confs.add(new File(mods, bookConfs[i]));
+            roots.add(bookDirURI);
+        }
+    }
 
-                if (sbmd == null) {
-                    LOGGER.error("The book's configuration files is not supported.");
-                    continue;
-                }
+    /**
+     * Parse the confs, in parallel when there are enough of them. The result
+     * is in the same order as the confs, with null for those that could not
+     * be parsed.
+     */
+    private List<SwordBookMetaData> parseConfs(List<File> confs, List<URI> roots, final SwordConfCache cache) {
+        int count = confs.size();
+        List<SwordBookMetaData> parsed = new ArrayList<SwordBookMetaData>(count);
+        int threads = Math.min(discoveryThreads, count / MIN_CONFS_PER_THREAD);
+        if (threads < 2) {
+            for (int i = 0; i < count; i++) {
+                parsed.add(parseConf(confs.get(i), roots.get(i), cache));
+            }
+            return parsed;
+        }
 
-                // skip any book that is not supported.
-                if (!sbmd.isSupported()) {
-                    LOGGER.error("The book's configuration files is not supported. -> Initials [{}], Driver=[{}], Versification=[{}], Book type=[{}], Book category=[{}]",
-                            sbmd.getInitials(), sbmd.getDriver(), sbmd.getProperty(BookMetaData.KEY_VERSIFICATION), sbmd.getBookType(), sbmd.getBookCategory());
-                    continue;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "SwordBookDriver-discovery");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            List<Future<SwordBookMetaData>> futures = new ArrayList<Future<SwordBookMetaData>>(count);
+            for (int i = 0; i < count; i++) {
+                final File conf = confs.get(i);
+                final URI root = roots.get(i);
+                futures.add(executor.submit(new Callable<SwordBookMetaData>() {
+                    public SwordBookMetaData call() {
+                        return parseConf(conf, root, cache);
+                    }
+                }));
+            }
+            for (Future<SwordBookMetaData> future : futures) {
+                try {
+                    parsed.add(future.get());
+                } catch (ExecutionException e) {
+                    LOGGER.warn("Couldn't create SwordBookMetaData", e.getCause());
                 }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while reading confs", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return parsed;
+    }
 
-                sbmd.setDriver(this);
+    private SwordBookMetaData parseConf(File configfile, URI bookDirURI, SwordConfCache cache) {
+        try {
+            if (!configfile.exists()) {
+                LOGGER.error("The book's configuration files is not supported.");
+                return null;
+            }
 
-                // Only take the first "installation" of the Book
-                Book book = createBook(sbmd);
-                if (!valid.contains(book)) {
-                    valid.add(book);
+            if (cache == null) {
+                // First time here chain is null, indicating that we are at the master BookMetaData
+                return new SwordBookMetaData(configfile, bookDirURI);
+            }
 
-                    IndexManager imanager = IndexManagerFactory.getIndexManager();
-                    if (imanager.isIndexed(book)) {
-                        sbmd.setIndexStatus(IndexStatus.DONE);
-                    } else {
-                        sbmd.setIndexStatus(IndexStatus.UNDONE);
-                    }
+            boolean partial = SwordBookMetaData.isPartialLoading();
+            IniSection config = cache.get(configfile, partial);
+            if (config == null) {
+                config = SwordBookMetaData.loadConf(configfile, SwordBookMetaData.getKeyKeepers());
+                SwordBookMetaData.report(config);
+                cache.put(configfile, partial, config);
+            }
+            return new SwordBookMetaData(configfile, bookDirURI, config, partial);
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't create SwordBookMetaData", e);
+        } catch (BookException e) {
+            LOGGER.warn("Couldn't create SwordBookMetaData", e);
+        }
+        return null;
+    }
+
+    private void addBook(Set<Book> valid, SwordBookMetaData sbmd) {
+        // skip any book that is not supported.
+        if (!sbmd.isSupported()) {
+            LOGGER.error("The book's configuration files is not supported. -> Initials [{}], Driver=[{}], Versification=[{}], Book type=[{}], Book category=[{}]",
+                    sbmd.getInitials(), sbmd.getDriver(), sbmd.getProperty(BookMetaData.KEY_VERSIFICATION), sbmd.getBookType(), sbmd.getBookCategory());
+            return;
+        }
+
+        sbmd.setDriver(this);
+
+        try {
+            // Only take the first "installation" of the Book
+            Book book = createBook(sbmd);
+            if (!valid.contains(book)) {
+                valid.add(book);
+
+                IndexManager imanager = IndexManagerFactory.getIndexManager();
+                if (imanager.isIndexed(book)) {
+                    sbmd.setIndexStatus(IndexStatus.DONE);
+                } else {
+                    sbmd.setIndexStatus(IndexStatus.UNDONE);
                 }
-            } catch (IOException e) {
-                LOGGER.warn("Couldn't create SwordBookMetaData", e);
-            } catch (BookException e) {
-                LOGGER.warn("Couldn't create SwordBookMetaData", e);
             }
+        } catch (BookException e) {
+            LOGGER.warn("Couldn't create SwordBookMetaData", e);
         }
     }
 
+    /**
+     * @return the conf cache to use, or null if it is not enabled
+     */
+    private static SwordConfCache getConfCache() {
+        if (!confCacheEnabled) {
+            return null;
+        }
+        URI uri = CWProject.instance().getWritableURI(CONF_CACHE_NAME, CONF_CACHE_EXTENSION);
+        if (uri == null) {
+            return null;
+        }
+        SwordConfCache cache = new SwordConfCache(new File(uri.getPath()));
+        cache.load();
+        return cache;
+    }
+
+    /**
+     * Set the most threads used to read the confs of the installed books.
+     * With 1 they are read on the calling thread.
+     * 
+     * @param threads the maximum number of threads
+     */
+    public static void setDiscoveryThreads(int threads) {
+        discoveryThreads = Math.max(1, threads);
+    }
+
+    /**
+     * @return the maximum number of threads used to read confs
+     */
+    public static int getDiscoveryThreads() {
+        return discoveryThreads;
+    }
+
+    /**
+     * Keep a snapshot of the parsed confs in the JSword home, so that later
+     * starts only parse the confs that have changed. This is off by default.
+     * 
+     * <p>To also defer the full parse of each conf until its book is first
+     * read, use {@link SwordBookMetaData#setPartialLoading(boolean)}.</p>
+     * 
+     * @param enabled whether to use the snapshot
+     */
+    public static void setConfCacheEnabled(boolean enabled) {
+        confCacheEnabled = enabled;
+    }
+
+    /**
+     * @return whether a snapshot of the parsed confs is kept
+     */
+    public static boolean isConfCacheEnabled() {
+        return confCacheEnabled;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.basic.AbstractBookDriver#isDeletable(org.crosswire.jsword.book.Book)
      */
@@ -219,6 +365,24 @@ public class SwordBookDriver extends AbstractBookDriver {
         return modtype.createBook(sbmd);
     }
 
+    /**
+     * The most threads used to read confs.
+     */
+    private static volatile int discoveryThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Whether a snapshot of the parsed confs is kept.
+     */
+    private static volatile boolean confCacheEnabled;
+
+    /**
+     * Below this many confs per thread, it is not worth starting threads.
+     */
+    private static final int MIN_CONFS_PER_THREAD = 16;
+
+    private static final String CONF_CACHE_NAME = "sword-confs";
+    private static final String CONF_CACHE_EXTENSION = ".cache";
+
     /**
      * A shared instance of this driver.
      */
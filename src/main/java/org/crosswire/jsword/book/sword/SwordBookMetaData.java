@@ -203,6 +203,59 @@ public final class SwordBookMetaData extends AbstractBookMetaData {
         reload(keyKeepers);
     }
 
+    /**
+     * Loads a sword config from the already parsed content of a given File,
+     * such as that held by a {@link SwordConfCache}. The content is not
+     * reported on, as that was done when it was first parsed.
+     *
+     * @param file
+     *            the config file
+     * @param bookRootPath
+     *            the root path for the book
+     * @param config
+     *            the content of the config file, which becomes owned by this
+     * @param partial
+     *            whether the content was loaded with the partial loading filter
+     * @throws BookException
+     *             indicates missing data files
+     */
+    SwordBookMetaData(File file, URI bookRootPath, IniSection config, boolean partial) throws BookException {
+        this.installed = true;
+        this.configFile = file;
+        this.bookConf = file.getName();
+        setLibrary(bookRootPath);
+
+        this.supported = true;
+        this.configAll = config;
+        this.filtered = partial;
+        adjustConfig();
+
+        this.configJSword = addConfig(MetaDataLocator.JSWORD);
+        this.configFrontend = addConfig(MetaDataLocator.FRONTEND);
+    }
+
+    /**
+     * Loads a sword config from the already parsed content of an entry in
+     * mods.d.zip, such as that held by a {@link SwordCatalog}. The content is
+     * not reported on, as that was done when it was first parsed.
+     *
+     * @param config
+     *            the content of the entry, which becomes owned by this
+     * @param bookConf
+     *            the path to the zip and the entry in the zip
+     * @param partial
+     *            whether the content was loaded with the partial loading filter
+     * @throws BookException
+     */
+    SwordBookMetaData(IniSection config, String bookConf, boolean partial) throws BookException {
+        this.installed = false;
+        this.bookConf = bookConf;
+        this.supported = true;
+        this.configAll = config;
+        this.filtered = partial;
+        adjustConfig();
+    }
+
     /**
      * Loads a sword config from a buffer gotten from mods.d.tar.gz or mods.d.zip.
      *
@@ -660,6 +713,48 @@ public final class SwordBookMetaData extends AbstractBookMetaData {
         partialLoading = partial;
     }
 
+    /**
+     * Whether books are being loaded with only the keys that JSword needs.
+     *
+     * @return true if partial loading is on
+     */
+    public static boolean isPartialLoading() {
+        return partialLoading;
+    }
+
+    /**
+     * The filter that is used when partially loading.
+     *
+     * @return the filter or null when loading all keys
+     */
+    static Filter<String> getKeyKeepers() {
+        return keyKeepers;
+    }
+
+    /**
+     * @return whether only the keys that JSword needs have been loaded
+     */
+    public boolean isPartiallyLoaded() {
+        return filtered;
+    }
+
+    /**
+     * Load the whole conf if it was only partially loaded. It is safe to call
+     * this before each use of the book as it does nothing once loaded.
+     *
+     * @throws BookException
+     *             indicates missing data files
+     */
+    public void loadFully() throws BookException {
+        if (filtered) {
+            synchronized (this) {
+                if (filtered) {
+                    reload(null);
+                }
+            }
+        }
+    }
+
     /**
      * Load the conf from a file.
      *
@@ -669,14 +764,50 @@ public final class SwordBookMetaData extends AbstractBookMetaData {
      */
     private void loadFile(Filter<String> keepers) throws IOException {
         filtered = keepers != null;
+        configAll = loadConf(configFile, keepers);
+    }
 
-        configAll.clear();
-        configAll.load(configFile, ENCODING_UTF8, keepers);
-        String encoding = configAll.get(KEY_ENCODING);
+    /**
+     * Parse a conf file. It is read as UTF-8 unless it says otherwise, in
+     * which case it is read as Latin-1.
+     *
+     * @param file
+     *            the conf file
+     * @param keepers
+     *            the keys to keep. When null keep all
+     * @return the content of the conf
+     * @throws IOException
+     */
+    static IniSection loadConf(File file, Filter<String> keepers) throws IOException {
+        IniSection config = new IniSection();
+        config.load(file, ENCODING_UTF8, keepers);
+        String encoding = config.get(KEY_ENCODING);
         if (!ENCODING_UTF8.equalsIgnoreCase(encoding)) {
-            configAll.clear();
-            configAll.load(configFile, ENCODING_LATIN1, keepers);
+            config.clear();
+            config.load(file, ENCODING_LATIN1, keepers);
+        }
+        return config;
+    }
+
+    /**
+     * Parse a conf held in memory, as {@link #loadConf(File, Filter)} does.
+     *
+     * @param buffer
+     *            the content of the conf
+     * @param keepers
+     *            the keys to keep. When null keep all
+     * @return the content of the conf
+     * @throws IOException
+     */
+    static IniSection loadConf(byte[] buffer, Filter<String> keepers) throws IOException {
+        IniSection config = new IniSection();
+        config.load(buffer, ENCODING_UTF8, keepers);
+        String encoding = config.get(KEY_ENCODING);
+        if (!ENCODING_UTF8.equalsIgnoreCase(encoding)) {
+            config.clear();
+            config.load(buffer, ENCODING_LATIN1, keepers);
         }
+        return config;
     }
 
     /**
@@ -1047,7 +1178,7 @@ public final class SwordBookMetaData extends AbstractBookMetaData {
      * When true this BookMetaData is filtered and only partially loaded.
      * Reloading without a filter will change this to false.
      */
-    private boolean filtered;
+    private volatile boolean filtered;
 
     /**
      * The name of the conf file, such as kjv.conf.
@@ -1160,7 +1291,7 @@ public final class SwordBookMetaData extends AbstractBookMetaData {
 
     private static boolean partialLoading;
 
-    private static Filter keyKeepers;
+    private static Filter<String> keyKeepers;
 
     private static final String[] OSIS_INFO = {
             KEY_ABBREVIATION,
@@ -0,0 +1,343 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.common.util.IniSection;
+import org.crosswire.jsword.book.BookException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent snapshot of a repository's list of books, that is the parsed
+ * confs in its mods.d.zip. The snapshot is read with a single read, so that
+ * listing the books of a repository does not have to unzip and parse every
+ * conf each time.
+ * 
+ * <p>When mods.d.zip has changed, a refresh reads it once and re-parses only
+ * those confs whose content hash differs from the snapshot, reporting which
+ * books were added, removed and updated. The snapshot is then written to a
+ * temporary file that replaces the old one.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class SwordCatalog {
+    /**
+     * Create a catalog backed by a file. Nothing is read until it is
+     * refreshed.
+     * 
+     * @param file
+     *            where the snapshot is kept
+     */
+    public SwordCatalog(File file) {
+        this.file = file;
+        this.entries = new LinkedHashMap<String, Entry>();
+    }
+
+    /**
+     * Bring the catalog up to date with a repository's mods.d.zip. If the zip
+     * is unchanged since the snapshot was taken, the snapshot is used as is.
+     * 
+     * @param source
+     *            the repository's mods.d.zip
+     * @return what has changed since the snapshot was taken
+     * @throws IOException
+     *             if the zip could not be read
+     */
+    public synchronized CatalogChanges refresh(File source) throws IOException {
+        boolean partial = SwordBookMetaData.isPartialLoading();
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        // Content parsed with other keys has to be parsed again
+        boolean reparse = partial != this.partial;
+        if (!reparse && source.lastModified() == sourceModified && source.length() == sourceSize) {
+            return new CatalogChanges(new ArrayList<String>(), new ArrayList<String>(), new ArrayList<String>());
+        }
+
+        List<String> added = new ArrayList<String>();
+        List<String> updated = new ArrayList<String>();
+        Map<String, Entry> previous = new LinkedHashMap<String, Entry>(entries);
+        Map<String, Entry> current = new LinkedHashMap<String, Entry>();
+        MessageDigest digest = getDigest();
+
+        InputStream in = null;
+        ZipArchiveInputStream zin = null;
+        try {
+            in = new FileInputStream(source);
+            zin = new ZipArchiveInputStream(in);
+            while (true) {
+                ZipArchiveEntry zipEntry = zin.getNextZipEntry();
+                if (zipEntry == null) {
+                    break;
+                }
+
+                if (zipEntry.isDirectory()) {
+                    continue;
+                }
+
+                String path = zipEntry.getName();
+                if (!path.endsWith(SwordConstants.EXTENSION_CONF)) {
+                    LOGGER.error("Not a SWORD config file: {}", path);
+                    continue;
+                }
+
+                byte[] buffer = readEntry(zin);
+                // Every now and then an empty entry sneaks in
+                if (buffer.length == 0) {
+                    LOGGER.error("Empty entry: {}", path);
+                    continue;
+                }
+
+                byte[] hash = digest.digest(buffer);
+                Entry entry = previous.remove(path);
+                boolean changed = entry != null && !Arrays.equals(hash, entry.hash);
+                if (entry == null || changed || reparse) {
+                    IniSection config = SwordBookMetaData.loadConf(buffer, partial ? SwordBookMetaData.getKeyKeepers() : null);
+                    if (entry == null) {
+                        added.add(config.getName());
+                    } else if (changed) {
+                        updated.add(config.getName());
+                    }
+                    if (entry == null || changed) {
+                        SwordBookMetaData.report(config);
+                    }
+                    entry = new Entry(path, hash, config);
+                }
+                current.put(path, entry);
+            }
+        } finally {
+            IOUtil.close(zin);
+            IOUtil.close(in);
+        }
+
+        List<String> removed = new ArrayList<String>();
+        for (Entry entry : previous.values()) {
+            removed.add(entry.config.getName());
+        }
+
+        entries.clear();
+        entries.putAll(current);
+        this.partial = partial;
+        sourceModified = source.lastModified();
+        sourceSize = source.length();
+        save();
+        return new CatalogChanges(added, removed, updated);
+    }
+
+    /**
+     * Create the meta data of each book in the catalog, whether or not it is
+     * supported. The catalog should have been refreshed first.
+     * 
+     * @param source
+     *            the repository's mods.d.zip, from which a book's conf is read
+     *            if it is loaded in full
+     * @return the meta data, in the order of mods.d.zip
+     */
+    public synchronized List<SwordBookMetaData> getBookMetaDatas(File source) {
+        List<SwordBookMetaData> sbmds = new ArrayList<SwordBookMetaData>(entries.size());
+        for (Entry entry : entries.values()) {
+            try {
+                // Set the path to something that gives the path to the zip and the entry in the zip
+                sbmds.add(new SwordBookMetaData(new IniSection(entry.config), source.getPath() + '!' + entry.path, partial));
+            } catch (BookException e) {
+                LOGGER.warn("Couldn't create SwordBookMetaData for {}", entry.path, e);
+            }
+        }
+        return sbmds;
+    }
+
+    /**
+     * Read the snapshot. A missing, old or damaged snapshot results in an
+     * empty catalog.
+     */
+    private void load() {
+        entries.clear();
+        sourceModified = 0L;
+        sourceSize = -1L;
+        if (!file.isFile()) {
+            return;
+        }
+
+        InputStream in = null;
+        try {
+            byte[] buffer = new byte[(int) file.length()];
+            in = new FileInputStream(file);
+            new DataInputStream(in).readFully(buffer);
+
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(buffer));
+            if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+                LOGGER.info("Ignoring catalog {} from another version", file);
+                return;
+            }
+            long modified = data.readLong();
+            long size = data.readLong();
+            boolean wasPartial = data.readBoolean();
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = SwordConfCache.readString(data);
+                byte[] hash = new byte[data.readUnsignedByte()];
+                data.readFully(hash);
+                IniSection config = SwordConfCache.readConfig(data);
+                entries.put(path, new Entry(path, hash, config));
+            }
+            sourceModified = modified;
+            sourceSize = size;
+            partial = wasPartial;
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring damaged catalog {}", file, e);
+            entries.clear();
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    /**
+     * Write the snapshot. Failure is not fatal, as the catalog will be
+     * rebuilt from mods.d.zip the next time.
+     */
+    private void save() {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceModified);
+            out.writeLong(sourceSize);
+            out.writeBoolean(partial);
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                SwordConfCache.writeString(out, entry.path);
+                out.writeByte(entry.hash.length);
+                out.write(entry.hash);
+                SwordConfCache.writeConfig(out, entry.config);
+            }
+            out.close();
+            out = null;
+
+            if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save catalog {}", file, e);
+            if (!temp.delete()) {
+                temp.deleteOnExit();
+            }
+        } finally {
+            IOUtil.close(out);
+        }
+    }
+
+    private static byte[] readEntry(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        while (true) {
+            int count = in.read(buffer);
+            if (count == -1) {
+                break;
+            }
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to have it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The parsed content of one conf and the hash of what it was parsed from.
+     */
+    private static final class Entry {
+        Entry(String path, byte[] hash, IniSection config) {
+            this.path = path;
+            this.hash = hash;
+            this.config = config;
+        }
+
+        private final String path;
+        private final byte[] hash;
+        private final IniSection config;
+    }
+
+    /**
+     * Where the snapshot is kept.
+     */
+    private final File file;
+
+    /**
+     * The entries by their path in mods.d.zip.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * Whether the snapshot has been read.
+     */
+    private boolean loaded;
+
+    /**
+     * Whether the entries were loaded with the partial loading filter.
+     */
+    private boolean partial;
+
+    /**
+     * The modification time and size of the mods.d.zip the entries are from.
+     */
+    private long sourceModified;
+    private long sourceSize;
+
+    private static final int MAGIC = 0x4A534354; // JSCT
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String DIGEST = "SHA-1";
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SwordCatalog.class);
+}
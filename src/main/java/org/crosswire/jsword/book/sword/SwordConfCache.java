@@ -0,0 +1,292 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.common.util.IniSection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent snapshot of parsed conf files, so that SWORD module discovery
+ * does not have to parse every conf on every start. An entry is used only when
+ * the conf file still has the same path, modification time and size as when
+ * it was parsed, and was parsed with the same partial loading setting.
+ * 
+ * <p>The whole snapshot is read with a single read and written in one go to a
+ * temporary file that then replaces the old snapshot. Entries for confs that
+ * were not looked up since the snapshot was loaded are dropped on save.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class SwordConfCache {
+    /**
+     * Create a cache backed by a file. Nothing is read until load() is called.
+     * 
+     * @param file where the snapshot is kept
+     */
+    SwordConfCache(File file) {
+        this.file = file;
+        this.entries = new ConcurrentHashMap<String, Entry>();
+        this.used = new ConcurrentHashMap<String, Entry>();
+    }
+
+    /**
+     * Read the snapshot. A missing, old or damaged snapshot results in an
+     * empty cache.
+     */
+    void load() {
+        entries.clear();
+        used.clear();
+        dirty = false;
+        if (!file.isFile()) {
+            return;
+        }
+
+        InputStream in = null;
+        try {
+            byte[] buffer = new byte[(int) file.length()];
+            in = new FileInputStream(file);
+            new DataInputStream(in).readFully(buffer);
+
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(buffer));
+            if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+                LOGGER.info("Ignoring conf cache {} from another version", file);
+                return;
+            }
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                Entry entry = readEntry(data);
+                entries.put(entry.path, entry);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring damaged conf cache {}", file, e);
+            entries.clear();
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    /**
+     * Get the parsed content of a conf file, if it is unchanged since it was
+     * cached.
+     * 
+     * @param conf the conf file
+     * @param partial whether only the keys JSword needs are wanted
+     * @return a copy of the cached content or null
+     */
+    IniSection get(File conf, boolean partial) {
+        String path = conf.getAbsolutePath();
+        Entry entry = entries.get(path);
+        if (entry == null || entry.modified != conf.lastModified() || entry.size != conf.length() || entry.partial != partial) {
+            return null;
+        }
+        used.put(path, entry);
+        return new IniSection(entry.config);
+    }
+
+    /**
+     * Remember the parsed content of a conf file.
+     * 
+     * @param conf the conf file
+     * @param partial whether only the keys JSword needs were loaded
+     * @param config the parsed content, which is copied
+     */
+    void put(File conf, boolean partial, IniSection config) {
+        Entry entry = new Entry(conf.getAbsolutePath(), conf.lastModified(), conf.length(), partial, new IniSection(config));
+        entries.put(entry.path, entry);
+        used.put(entry.path, entry);
+        dirty = true;
+    }
+
+    /**
+     * Write the snapshot if anything has changed since it was loaded.
+     */
+    void save() {
+        if (!dirty && used.size() == entries.size()) {
+            return;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Unable to create " + parent);
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(used.size());
+            for (Entry entry : used.values()) {
+                writeEntry(out, entry);
+            }
+            out.close();
+            out = null;
+
+            if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.warn("Unable to save conf cache {}", file, e);
+            if (!temp.delete()) {
+                temp.deleteOnExit();
+            }
+        } finally {
+            IOUtil.close(out);
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        String path = readString(in);
+        long modified = in.readLong();
+        long size = in.readLong();
+        boolean partial = in.readBoolean();
+        IniSection config = readConfig(in);
+        return new Entry(path, modified, size, partial, config);
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        writeString(out, entry.path);
+        out.writeLong(entry.modified);
+        out.writeLong(entry.size);
+        out.writeBoolean(entry.partial);
+        writeConfig(out, entry.config);
+    }
+
+    /**
+     * Read the parsed content of a conf, as written by writeConfig.
+     */
+    static IniSection readConfig(DataInputStream in) throws IOException {
+        IniSection config = new IniSection(readString(in));
+        int keys = in.readInt();
+        for (int i = 0; i < keys; i++) {
+            String key = readString(in);
+            int values = in.readInt();
+            for (int j = 0; j < values; j++) {
+                config.add(key, readString(in));
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Write the parsed content of a conf: its name, then each key with its
+     * values.
+     */
+    static void writeConfig(DataOutputStream out, IniSection config) throws IOException {
+        writeString(out, config.getName());
+        out.writeInt(config.getKeys().size());
+        for (String key : config.getKeys()) {
+            writeString(out, key);
+            out.writeInt(config.size(key));
+            for (String value : config.getValues(key)) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    /**
+     * Strings are written as UTF-8 with a length, as conf values such as About
+     * may be longer than writeUTF allows. A null is written as -1.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * The parsed content of one conf and what it was parsed from.
+     */
+    private static final class Entry {
+        Entry(String path, long modified, long size, boolean partial, IniSection config) {
+            this.path = path;
+            this.modified = modified;
+            this.size = size;
+            this.partial = partial;
+            this.config = config;
+        }
+
+        private final String path;
+        private final long modified;
+        private final long size;
+        private final boolean partial;
+        private final IniSection config;
+    }
+
+    /**
+     * Where the snapshot is kept.
+     */
+    private final File file;
+
+    /**
+     * The entries of the loaded snapshot and those added since, by path.
+     */
+    private final Map<String, Entry> entries;
+
+    /**
+     * The entries looked up or added since the snapshot was loaded.
+     */
+    private final Map<String, Entry> used;
+
+    /**
+     * Whether an entry has been added since the snapshot was loaded.
+     */
+    private volatile boolean dirty;
+
+    private static final int MAGIC = 0x4A534343; // JSCC
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String UTF8 = "UTF-8";
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SwordConfCache.class);
+}
@@ -19,9 +19,11 @@
  */
 package org.crosswire.jsword.book.sword;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.crosswire.common.activate.Activator;
@@ -75,10 +77,24 @@ public class SwordGenBook extends AbstractBook {
 
         set = getBackend().readIndex();
 
-        map = new HashMap<String, Key>();
+        // Build everything that getKey needs up front, so that a lookup is
+        // never a scan of the whole book.
+        Map<String, Key> newMap = new HashMap<String, Key>();
+        Map<String, Key> newLowerMap = new HashMap<String, Key>();
         for (Key key : set) {
-            map.put(key.getOsisRef(), key);
+            String keyName = key.getOsisRef();
+            newMap.put(keyName, key);
+            String lowerName = keyName.toLowerCase(Locale.ENGLISH);
+            if (!newLowerMap.containsKey(lowerName)) {
+                newLowerMap.put(lowerName, key);
+            }
         }
+        String[] newNames = newMap.keySet().toArray(new String[newMap.size()]);
+        Arrays.sort(newNames);
+
+        map = newMap;
+        lowerMap = newLowerMap;
+        names = newNames;
 
         global = new ReadOnlyKeyList(set, false);
 
@@ -96,6 +112,8 @@ public class SwordGenBook extends AbstractBook {
         super.deactivate(lock);
 
         map = null;
+        lowerMap = null;
+        names = null;
         set = null;
         global = null;
 
@@ -199,29 +217,33 @@ public class SwordGenBook extends AbstractBook {
     public Key getKey(String text) throws NoSuchKeyException {
         checkActive();
 
-        Key key = map.get(text);
+        Map<String, Key> keys = map;
+        Key key = keys.get(text);
         if (key != null) {
             return key;
         }
 
         // First check for keys that match ignoring case
-        for (String keyName : map.keySet()) {
-            if (keyName.equalsIgnoreCase(text)) {
-                return map.get(keyName);
-            }
+        key = lowerMap.get(text.toLowerCase(Locale.ENGLISH));
+        if (key != null) {
+            return key;
         }
 
-        // Next keys that start with the given text
-        for (String keyName : map.keySet()) {
-            if (keyName.startsWith(text)) {
-                return map.get(keyName);
-            }
+        // Next keys that start with the given text. The first of these in
+        // sorted order is where the text would be inserted.
+        String[] sortedNames = names;
+        int pos = Arrays.binarySearch(sortedNames, text);
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        if (pos < sortedNames.length && sortedNames[pos].startsWith(text)) {
+            return keys.get(sortedNames[pos]);
         }
 
         // Next try keys that contain the given text
-        for (String keyName : map.keySet()) {
+        for (String keyName : sortedNames) {
             if (keyName.indexOf(text) != -1) {
-                return map.get(keyName);
+                return keys.get(keyName);
             }
         }
 
@@ -261,7 +283,18 @@ public class SwordGenBook extends AbstractBook {
     /**
      * So we can quickly find a Key given the text for the key
      */
-    private Map<String, Key> map;
+    private volatile Map<String, Key> map;
+
+    /**
+     * So we can quickly find a Key given the text for the key in any case
+     */
+    private volatile Map<String, Key> lowerMap;
+
+    /**
+     * The text of all the keys, sorted so those with a given prefix can be
+     * found quickly
+     */
+    private volatile String[] names;
 
     /**
      * So we can implement getIndex() easily
@@ -24,6 +24,7 @@ import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.common.util.NetUtil;
 import org.crosswire.jsword.JSOtherMsg;
 import org.crosswire.jsword.book.BookException;
@@ -58,8 +59,13 @@ public final class SwordUtil {
      *             on error
      */
     protected static byte[] readRAF(RandomAccessFile raf, long offset, int theSize) throws IOException {
-        raf.seek(offset);
-        return readNextRAF(raf, theSize);
+        long start = Metrics.begin();
+        try {
+            raf.seek(offset);
+            return readNextRAF(raf, theSize);
+        } finally {
+            Metrics.time(Metrics.SWORD_READ, start);
+        }
     }
 
     /**
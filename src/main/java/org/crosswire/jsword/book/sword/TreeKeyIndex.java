@@ -28,13 +28,12 @@ import org.crosswire.common.activate.Activatable;
 import org.crosswire.common.activate.Activator;
 import org.crosswire.common.activate.Lock;
 import org.crosswire.common.util.FileUtil;
+import org.crosswire.common.util.IOUtil;
 import org.crosswire.common.util.NetUtil;
 import org.crosswire.common.util.Reporter;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.JSOtherMsg;
 import org.crosswire.jsword.book.BookException;
-import org.crosswire.jsword.passage.DefaultKeyList;
-import org.crosswire.jsword.passage.Key;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +42,9 @@ import org.slf4j.LoggerFactory;
  * form /a/b/c, and can be of any depth. The ultimate output of a TreeKeyIndex
  * is the offset and length of a chunk of data in another file that can be read.
  * 
+ * <p>The index is read into memory when it is activated, so that lookups do
+ * not share a file pointer and can be made from any number of threads.</p>
+ * 
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
@@ -61,7 +63,8 @@ public class TreeKeyIndex implements Activatable {
      * @throws IOException
      */
     public TreeNode getRoot() throws IOException {
-        return getTreeNode(getOffset(0));
+        CompactTreeIndex tree = getTree();
+        return tree.getTreeNode(tree.size() > 0 ? 0 : -1);
     }
 
     /**
@@ -73,7 +76,7 @@ public class TreeKeyIndex implements Activatable {
      * @throws IOException
      */
     public TreeNode getParent(TreeNode node) throws IOException {
-        return getTreeNode(getOffset(node.getParent()));
+        return getTree().getTreeNode(CompactTreeIndex.toNode(node.getParent()));
     }
 
     /**
@@ -85,7 +88,7 @@ public class TreeKeyIndex implements Activatable {
      * @throws IOException
      */
     public TreeNode getFirstChild(TreeNode node) throws IOException {
-        return getTreeNode(getOffset(node.getFirstChild()));
+        return getTree().getTreeNode(CompactTreeIndex.toNode(node.getFirstChild()));
     }
 
     /**
@@ -97,65 +100,27 @@ public class TreeKeyIndex implements Activatable {
      * @throws IOException
      */
     public TreeNode getNextSibling(TreeNode node) throws IOException {
-        return getTreeNode(getOffset(node.getNextSibling()));
+        return getTree().getTreeNode(CompactTreeIndex.toNode(node.getNextSibling()));
     }
 
     /**
-     * The idx file contains offsets into the dat file.
+     * Get the resident copy of the tree, loading it if necessary. The tree
+     * is immutable so it can be used by many threads at once.
      * 
-     * @param index
-     *            the record id
-     * @return an offset into the dat file
+     * @return the tree
      * @throws IOException
+     *             if the tree could not be loaded
      */
-    private int getOffset(int index) throws IOException {
-        if (index == -1) {
-            return -1;
+    CompactTreeIndex getTree() throws IOException {
+        CompactTreeIndex current = tree;
+        if (current == null) {
+            checkActive();
+            current = tree;
+            if (current == null) {
+                throw new IOException(JSMsg.gettext("Error reading {0}", datFile == null ? bmd.getInitials() : datFile.getAbsolutePath()));
+            }
         }
-
-        checkActive();
-        byte[] buffer = SwordUtil.readRAF(idxRaf, index, 4);
-        return SwordUtil.decodeLittleEndian32(buffer, 0);
-    }
-
-    /**
-     * Given an offset get the TreeNode from the dat file.
-     * 
-     * @param offset
-     *            start of a TreeNode record in the dat file.
-     * @return the TreeNode
-     * @throws IOException
-     */
-    private TreeNode getTreeNode(int offset) throws IOException {
-        TreeNode node = new TreeNode(offset);
-
-        if (offset == -1) {
-            return node;
-        }
-
-        checkActive();
-        byte[] buffer = SwordUtil.readRAF(datRaf, offset, 12);
-        node.setParent(SwordUtil.decodeLittleEndian32(buffer, 0));
-        node.setNextSibling(SwordUtil.decodeLittleEndian32(buffer, 4));
-        node.setFirstChild(SwordUtil.decodeLittleEndian32(buffer, 8));
-
-        buffer = SwordUtil.readUntilRAF(datRaf, (byte) 0);
-        int size = buffer.length;
-        if (buffer[size - 1] == 0) {
-            size--;
-        }
-
-        Key key = new DefaultKeyList(null, bmd.getName());
-        // Some of the keys have extraneous whitespace, so remove it.
-        node.setName(SwordUtil.decode(key.getName(), buffer, size, bmd.getBookCharset()).trim());
-
-        buffer = SwordUtil.readNextRAF(datRaf, 2);
-        int userDataSize = SwordUtil.decodeLittleEndian16(buffer, 0);
-        if (userDataSize > 0) {
-            node.setUserData(SwordUtil.readNextRAF(datRaf, userDataSize));
-        }
-
-        return node;
+        return current;
     }
 
     /* (non-Javadoc)
@@ -188,12 +153,17 @@ public class TreeKeyIndex implements Activatable {
         }
 
         try {
-            idxRaf = new RandomAccessFile(idxFile, FileUtil.MODE_READ);
-            datRaf = new RandomAccessFile(datFile, FileUtil.MODE_READ);
+            // The tree is small compared to the text, so read it all in one
+            // go rather than seeking around the files for every lookup.
+            byte[] idx = readFile(idxFile);
+            byte[] dat = readFile(datFile);
+            tree = new CompactTreeIndex(idx, dat, bmd.getName(), bmd.getBookCharset());
         } catch (IOException ex) {
-            log.error("failed to open files", ex);
-            idxRaf = null;
-            datRaf = null;
+            log.error("failed to read files", ex);
+            tree = null;
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            log.error("malformed tree in {}", datFile.getAbsolutePath(), ex);
+            tree = null;
         }
         active = true;
     }
@@ -202,19 +172,7 @@ public class TreeKeyIndex implements Activatable {
      * @see org.crosswire.common.activate.Activatable#deactivate(org.crosswire.common.activate.Lock)
      */
     public final void deactivate(Lock lock) {
-        try {
-            if (idxRaf != null) {
-                idxRaf.close();
-            }
-            if (datRaf != null) {
-                datRaf.close();
-            }
-        } catch (IOException ex) {
-            log.error("failed to close nt files", ex);
-        } finally {
-            idxRaf = null;
-            datRaf = null;
-        }
+        tree = null;
         active = false;
     }
 
@@ -227,6 +185,26 @@ public class TreeKeyIndex implements Activatable {
         }
     }
 
+    /**
+     * Read the whole of a file.
+     * 
+     * @param file
+     *            the file to read
+     * @return the content of the file
+     * @throws IOException
+     */
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, FileUtil.MODE_READ);
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return data;
+        } finally {
+            IOUtil.close(raf);
+        }
+    }
+
     private String getExpandedDataPath() throws BookException {
         URI loc = NetUtil.lengthenURI(bmd.getLibrary(), bmd.getProperty(SwordBookMetaData.KEY_DATA_PATH));
 
@@ -244,9 +222,8 @@ public class TreeKeyIndex implements Activatable {
     private SwordBookMetaData bmd;
     private File idxFile;
     private File datFile;
-    private RandomAccessFile idxRaf;
-    private RandomAccessFile datRaf;
-    private boolean active;
+    private volatile CompactTreeIndex tree;
+    private volatile boolean active;
 
     /**
      * The log stream
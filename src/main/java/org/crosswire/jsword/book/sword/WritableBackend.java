@@ -0,0 +1,43 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.sword.state.OpenFileState;
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * A Backend whose entries can be written, such as that of a personal
+ * commentary.
+ *
+ * @param <T> The type of the OpenFileState that this class extends.
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface WritableBackend<T extends OpenFileState> extends Backend<T> {
+    /**
+     * Set the text of an entry of a writable book.
+     * 
+     * @param key the key of the entry
+     * @param text the text as it is to be stored in the module
+     * @throws BookException if the book is read-only or could not be written
+     */
+    void setRawText(Key key, String text) throws BookException;
+}
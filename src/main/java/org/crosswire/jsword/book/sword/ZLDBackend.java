@@ -22,7 +22,9 @@ package org.crosswire.jsword.book.sword;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 
+import org.crosswire.common.compress.Compressor;
 import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.sword.state.OpenFileStateManager;
 import org.crosswire.jsword.book.sword.state.RawLDBackendState;
@@ -92,7 +94,9 @@ public class ZLDBackend extends RawLDBackend<ZLDBackendState> {
                 decipher(temp);
 
                 String compressType = getBookMetaData().getProperty(SwordBookMetaData.KEY_COMPRESS_TYPE);
-                uncompressed = CompressorType.fromString(compressType).getCompressor(temp).uncompress().toByteArray();
+                long start = Metrics.begin();
+                uncompressed = CompressorType.fromString(compressType).uncompress(temp, Compressor.BUF_SIZE);
+                Metrics.time(Metrics.SWORD_UNCOMPRESS, getBookMetaData().getInitials(), getDriverName(), start);
 
                 // cache the uncompressed data for next time
                 state.setLastBlockNum(blockNum);
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 
 import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.BookMetaData;
@@ -333,7 +334,9 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
 
             decipher(data);
 
-            uncompressed = CompressorType.fromString(compressType).getCompressor(data).uncompress(uncompressedSize).toByteArray();
+            long start = Metrics.begin();
+            uncompressed = CompressorType.fromString(compressType).uncompress(data, uncompressedSize);
+            Metrics.time(Metrics.SWORD_UNCOMPRESS, getBookMetaData().getInitials(), getDriverName(), start);
 
             // cache the uncompressed data for next time
             rafBook.setLastBlockNum(blockNum);
@@ -360,7 +363,8 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
      * @see org.crosswire.jsword.book.sword.AbstractBackend#setRawText(org.crosswire.jsword.passage.Key, java.lang.String)
      */
     public void setRawText(ZVerseBackendState rafBook, Key key, String text) throws BookException, IOException {
-        throw new UnsupportedOperationException();
+        // TRANSLATOR: Error condition: An attempt was made to change a Book that cannot be changed.
+        throw new BookException(JSMsg.gettext("This Book is read-only."));
     }
 
     /** 
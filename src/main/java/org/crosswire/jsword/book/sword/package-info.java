@@ -19,6 +19,7 @@
  */
 /**
  * An implementation of the Book interfaces that reads from SWORD project
- * books (modules).
+ * books (modules). Bibles and commentaries can also be compiled into a
+ * faster format of JSword's own, which is described by NativeModules.
  */
 package org.crosswire.jsword.book.sword;
@@ -0,0 +1,47 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword.processing;
+
+import java.util.List;
+
+import org.crosswire.jsword.passage.Key;
+import org.jdom2.Content;
+
+/**
+ * A processor that can also be given a verse that a backend already holds as
+ * OSIS, so that the verse does not need to be filtered again.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface OsisContentProcessor extends RawTextToXmlProcessor {
+    /**
+     * Executes after a verse is read, in place of
+     * {@link RawTextToXmlProcessor#postVerse(Key, List, String)}, by backends
+     * that hold verses as OSIS.
+     * 
+     * @param verse the verse that is currently being examined
+     * @param partialDom the DOM that is being built up as data is read
+     * @param rawText the text that has been read, deciphered
+     * @param osisContent the text as OSIS, which the processor may keep, or
+     *            null if the backend has none and the text is to be filtered
+     */
+    void postVerse(Key verse, List<Content> partialDom, String rawText, List<Content> osisContent);
+}
@@ -29,9 +29,11 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.BookMetaData;
 import org.crosswire.jsword.book.sword.BlockType;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,8 +80,8 @@ public final class OpenFileStateManager {
                 // the heap.
                 long currentTime = System.currentTimeMillis();
 
-                for (Queue<OpenFileState> e : OpenFileStateManager.this.metaToStates.values()) {
-                    for (Iterator<OpenFileState> iterator = e.iterator(); iterator.hasNext(); ) {
+                for (Map.Entry<BookMetaData, Queue<OpenFileState>> e : OpenFileStateManager.this.metaToStates.entrySet()) {
+                    for (Iterator<OpenFileState> iterator = e.getValue().iterator(); iterator.hasNext(); ) {
                         final OpenFileState state = iterator.next();
                         if (state.getLastAccess() + maxExpiry * 1000 < currentTime) {
                             //release resources
@@ -87,6 +89,7 @@ public final class OpenFileStateManager {
 
                             //remove from the queues
                             iterator.remove();
+                            Metrics.increment(Metrics.STATE_EXPIRE, e.getKey().getInitials(), getDriverName(e.getKey()));
                         }
                     }
                 }
@@ -130,10 +133,12 @@ public final class OpenFileStateManager {
         RawBackendState state = getInstance(metadata);
         if (state == null) {
             LOGGER.trace("Initializing: {}", metadata.getInitials());
+            Metrics.increment(Metrics.STATE_CREATE, metadata.getInitials(), getDriverName(metadata));
             return new RawBackendState(metadata);
         }
 
         LOGGER.trace("Reusing: {}", metadata.getInitials());
+        Metrics.increment(Metrics.STATE_REUSE, metadata.getInitials(), getDriverName(metadata));
         return state;
     }
 
@@ -143,10 +148,12 @@ public final class OpenFileStateManager {
         RawFileBackendState state = getInstance(metadata);
         if (state == null) {
             LOGGER.trace("Initializing: {}", metadata.getInitials());
+            Metrics.increment(Metrics.STATE_CREATE, metadata.getInitials(), getDriverName(metadata));
             return new RawFileBackendState(metadata);
         }
 
         LOGGER.trace("Reusing: {}", metadata.getInitials());
+        Metrics.increment(Metrics.STATE_REUSE, metadata.getInitials(), getDriverName(metadata));
         return state;
     }
 
@@ -156,10 +163,12 @@ public final class OpenFileStateManager {
         GenBookBackendState state = getInstance(metadata);
         if (state == null) {
             LOGGER.trace("Initializing: {}", metadata.getInitials());
+            Metrics.increment(Metrics.STATE_CREATE, metadata.getInitials(), getDriverName(metadata));
             return new GenBookBackendState(metadata);
         }
 
         LOGGER.trace("Reusing: {}", metadata.getInitials());
+        Metrics.increment(Metrics.STATE_REUSE, metadata.getInitials(), getDriverName(metadata));
         return state;
     }
 
@@ -169,10 +178,12 @@ public final class OpenFileStateManager {
         RawLDBackendState state = getInstance(metadata);
         if (state == null) {
             LOGGER.trace("Initializing: {}", metadata.getInitials());
+            Metrics.increment(Metrics.STATE_CREATE, metadata.getInitials(), getDriverName(metadata));
             return new RawLDBackendState(metadata);
         }
 
         LOGGER.trace("Reusing: {}", metadata.getInitials());
+        Metrics.increment(Metrics.STATE_REUSE, metadata.getInitials(), getDriverName(metadata));
         return state;
     }
 
@@ -182,10 +193,12 @@ public final class OpenFileStateManager {
         ZLDBackendState state = getInstance(metadata);
         if (state == null) {
             LOGGER.trace("Initializing: {}", metadata.getInitials());
+            Metrics.increment(Metrics.STATE_CREATE, metadata.getInitials(), getDriverName(metadata));
             return new ZLDBackendState(metadata);
         }
 
         LOGGER.trace("Reusing: {}", metadata.getInitials());
+        Metrics.increment(Metrics.STATE_REUSE, metadata.getInitials(), getDriverName(metadata));
         return state;
     }
 
@@ -195,10 +208,12 @@ public final class OpenFileStateManager {
         ZVerseBackendState state = getInstance(metadata);
         if (state == null) {
             LOGGER.trace("Initializing: {}", metadata.getInitials());
+            Metrics.increment(Metrics.STATE_CREATE, metadata.getInitials(), getDriverName(metadata));
             return new ZVerseBackendState(metadata, blockType);
         }
 
         LOGGER.trace("Reusing: {}", metadata.getInitials());
+        Metrics.increment(Metrics.STATE_REUSE, metadata.getInitials(), getDriverName(metadata));
         return state;
     }
 
@@ -248,6 +263,20 @@ public final class OpenFileStateManager {
             LOGGER.trace("Released: {}", bmd.getInitials());
             fileState.releaseResources();
         }
+
+        if (Metrics.isEnabled()) {
+            Metrics.gauge(Metrics.STATE_POOLED, bmd.getInitials(), getDriverName(bmd), queueForMeta.size());
+        }
+    }
+
+    /**
+     * The SWORD driver of a book, used to tag metrics.
+     *
+     * @param metadata the book's metadata
+     * @return the module driver
+     */
+    private static String getDriverName(BookMetaData metadata) {
+        return metadata.getProperty(SwordBookMetaData.KEY_MOD_DRV);
     }
 
     /**
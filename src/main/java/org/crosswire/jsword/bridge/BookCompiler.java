@@ -0,0 +1,106 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.bridge;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.sword.NativeModules;
+
+/**
+ * BookCompiler compiles a Bible or commentary into JSword's own format, which
+ * is faster to read than a SWORD module. It can also check whether a book's
+ * compiled copy is up to date, or delete it.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class BookCompiler {
+
+    public BookCompiler(Book book) {
+        this.book = book;
+        modules = NativeModules.instance();
+    }
+
+    public boolean isCompiled() {
+        return modules.isCompiled(book);
+    }
+
+    public void compile() throws BookException {
+        modules.compile(book);
+    }
+
+    public boolean delete() {
+        return modules.delete(book);
+    }
+
+    /**
+     * Call with &lt;operation&gt; book. Where operation can be one of:
+     * <ul>
+     * <li>check - returns "true" or "false" indicating whether the compiled
+     * copy is up to date</li>
+     * <li>compile - (re)compile the book</li>
+     * <li>delete - delete the compiled copy</li>
+     * </ul>
+     * And book is the initials of a book, e.g. KJV.
+     * 
+     * @param args
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            usage();
+            return;
+        }
+
+        System.err.println("BookCompiler " + args[0] + " " + args[1]);
+
+        String operation = args[0];
+        Book b = Books.installed().getBook(args[1]);
+        if (b == null) {
+            System.err.println("Book not found");
+            return;
+        }
+
+        BookCompiler compiler = new BookCompiler(b);
+        if ("compile".equalsIgnoreCase(operation)) {
+            try {
+                compiler.compile();
+            } catch (BookException e) {
+                System.err.println("Unable to compile book.");
+                e.printStackTrace();
+            }
+        } else if ("delete".equalsIgnoreCase(operation)) {
+            if (!compiler.delete()) {
+                System.err.println("Unable to delete compiled book.");
+            }
+        } else if ("check".equalsIgnoreCase(operation)) {
+            System.err.println(compiler.isCompiled());
+        } else {
+            usage();
+        }
+    }
+
+    public static void usage() {
+        System.err.println("Usage: BookCompiler operation book");
+    }
+
+    private Book book;
+    private NativeModules modules;
+}
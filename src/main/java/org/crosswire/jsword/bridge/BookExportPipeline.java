@@ -0,0 +1,411 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.bridge;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.progress.JobManager;
+import org.crosswire.common.progress.Progress;
+import org.crosswire.jsword.JSMsg;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookData;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.output.XMLOutputter;
+
+/**
+ * Exports a Book as imp, OSIS or plain text, reading and converting it on
+ * several threads while writing it in order to a stream, which may be
+ * compressed.
+ *
+ * <p>
+ * The keys are split into chunks, one per book of the Bible for verse keyed
+ * Books and a fixed number of keys otherwise. Each chunk is converted on a
+ * worker thread. The chunks are written in order as they complete, with no
+ * more than a few chunks held waiting at any time, so memory use does not
+ * depend on the size of the Book.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class BookExportPipeline {
+    /**
+     * The formats that a Book can be exported to.
+     */
+    public enum Format {
+        /**
+         * SWORD's imp format, as produced by mod2imp.
+         */
+        IMP,
+
+        /**
+         * An OSIS document.
+         */
+        OSIS,
+
+        /**
+         * One line of plain text per key.
+         */
+        TEXT
+    }
+
+    /**
+     * Create an exporter for a book, using a thread per processor.
+     *
+     * @param book
+     *            the book to export
+     */
+    public BookExportPipeline(Book book) {
+        this.book = book;
+        this.format = Format.IMP;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * @param format
+     *            the format to export to, IMP by default
+     */
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * @param compression
+     *            how to compress the output, or null, the default, for none.
+     *            GZIP, BZIP2, XZ and ZIP (a raw deflate stream) are supported.
+     */
+    public void setCompression(CompressorType compression) {
+        if (compression == CompressorType.LZSS) {
+            throw new IllegalArgumentException("LZSS is not a streaming compression");
+        }
+        this.compression = compression;
+    }
+
+    /**
+     * @param threads
+     *            the number of threads converting keys
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param chunkSize
+     *            the number of keys in a chunk of a Book that is not keyed by
+     *            verse
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Export the whole book.
+     *
+     * @param out
+     *            where to write it. It is finished but not closed.
+     * @throws BookException
+     *             if the book could not be read
+     * @throws IOException
+     *             if the output could not be written
+     */
+    public void export(OutputStream out) throws BookException, IOException {
+        export(book.getGlobalKeyList(), out);
+    }
+
+    /**
+     * Export part of the book.
+     *
+     * @param keys
+     *            the keys to export
+     * @param out
+     *            where to write it. It is finished but not closed.
+     * @throws BookException
+     *             if the book could not be read
+     * @throws IOException
+     *             if the output could not be written
+     */
+    public void export(Key keys, OutputStream out) throws BookException, IOException {
+        // TRANSLATOR: Progress label for exporting a book. {0} is a placeholder for the book's short name.
+        String jobName = JSMsg.gettext("Exporting {0}", book.getInitials());
+        Progress job = JobManager.createJob(String.format(EXPORT_BOOK, book.getInitials()), jobName, Thread.currentThread());
+        job.beginJob(jobName);
+        job.setTotalWork(keys.getCardinality());
+
+        OutputStream compressed = compress(out);
+        Writer writer = new OutputStreamWriter(new BufferedOutputStream(compressed, BUFFER_SIZE), UTF8);
+
+        // Chunks being converted, in the order they are to be written.
+        LinkedList<Future<Chunk>> pending = new LinkedList<Future<Chunk>>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            writer.write(getPrologue());
+
+            List<Key> chunk = new ArrayList<Key>();
+            BibleBook chunkBook = null;
+            for (Key key : flatten(keys, new ArrayList<Key>())) {
+                BibleBook keyBook = key instanceof Verse ? ((Verse) key).getBook() : null;
+                boolean full = keyBook == null ? chunk.size() >= chunkSize : keyBook != chunkBook;
+                if (full && !chunk.isEmpty()) {
+                    write(writer, job, pending, executor.submit(new Converter(chunk)));
+                    chunk = new ArrayList<Key>();
+                }
+                chunkBook = keyBook;
+                chunk.add(key);
+            }
+            if (!chunk.isEmpty()) {
+                write(writer, job, pending, executor.submit(new Converter(chunk)));
+            }
+
+            while (!pending.isEmpty()) {
+                writeChunk(writer, job, pending.removeFirst());
+            }
+
+            writer.write(getEpilogue());
+            writer.flush();
+            finish(compressed);
+        } finally {
+            for (Future<Chunk> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+            job.done();
+        }
+    }
+
+    /**
+     * Queue a converted chunk, writing the oldest ones while too many are
+     * waiting.
+     */
+    private void write(Writer writer, Progress job, LinkedList<Future<Chunk>> pending, Future<Chunk> future) throws BookException, IOException {
+        pending.add(future);
+        while (pending.size() > threads * 2) {
+            writeChunk(writer, job, pending.removeFirst());
+        }
+    }
+
+    private void writeChunk(Writer writer, Progress job, Future<Chunk> future) throws BookException, IOException {
+        if (job.isFinished()) {
+            // TRANSLATOR: Error condition: the user stopped the export of a book.
+            throw new BookException(JSMsg.gettext("Export cancelled."));
+        }
+        try {
+            Chunk converted = future.get();
+            writer.write(converted.text);
+            job.incrementWorkDone(converted.count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // TRANSLATOR: Error condition: the user stopped the export of a book.
+            throw new BookException(JSMsg.gettext("Export cancelled."), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BookException) {
+                throw (BookException) cause;
+            }
+            // TRANSLATOR: Error condition: a book could not be exported.
+            throw new BookException(JSMsg.gettext("Export failed."), cause);
+        }
+    }
+
+    /**
+     * Get the leaf keys, and any others that might have content, in order.
+     */
+    private List<Key> flatten(Key keys, List<Key> result) {
+        for (Key key : keys) {
+            if (key.canHaveChildren()) {
+                if (key.getName().length() > 0) {
+                    result.add(key);
+                }
+                flatten(key, result);
+            } else {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert a single key.
+     */
+    private void convert(Key key, StringBuilder buf, XMLOutputter outputter) throws BookException {
+        if (format == Format.IMP) {
+            String rawText = book.getRawText(key);
+            if (rawText != null && rawText.trim().length() > 0) {
+                buf.append("$$$").append(key).append('\n').append(rawText).append('\n');
+            }
+            return;
+        }
+
+        Element fragment = new BookData(book, key).getOsisFragment(false);
+        if (format == Format.TEXT) {
+            String text = OSISUtil.getCanonicalText(fragment).trim();
+            if (text.length() > 0) {
+                buf.append(key.getOsisRef()).append('\t').append(text.replace('\n', ' ')).append('\n');
+            }
+        } else if (fragment.getContentSize() > 0) {
+            if (key instanceof Verse) {
+                // The verse markup is already there
+                buf.append(outputter.outputString(fragment.getContent()));
+            } else {
+                Element div = OSISUtil.factory().createDiv();
+                div.setAttribute(OSISUtil.OSIS_ATTR_TYPE, "x-entry");
+                div.setAttribute(OSISUtil.OSIS_ATTR_OSISID, key.getOsisRef());
+                div.addContent(fragment.removeContent());
+                buf.append(outputter.outputString(div));
+            }
+            buf.append('\n');
+        }
+    }
+
+    /**
+     * @return what goes before the first key
+     */
+    private String getPrologue() {
+        if (format != Format.OSIS) {
+            return "";
+        }
+        String doc = getOsisFramework();
+        return doc.substring(0, doc.lastIndexOf(OSIS_TEXT_END)) + '\n';
+    }
+
+    /**
+     * @return what goes after the last key
+     */
+    private String getEpilogue() {
+        if (format != Format.OSIS) {
+            return "";
+        }
+        String doc = getOsisFramework();
+        return doc.substring(doc.lastIndexOf(OSIS_TEXT_END));
+    }
+
+    private String getOsisFramework() {
+        Element osis = OSISUtil.createOsisFramework(book.getBookMetaData());
+        return new XMLOutputter().outputString(new Document(osis));
+    }
+
+    private OutputStream compress(OutputStream out) throws IOException {
+        if (compression == null) {
+            return out;
+        }
+        switch (compression) {
+        case GZIP:
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        case BZIP2:
+            return new BZip2CompressorOutputStream(out);
+        case XZ:
+            return new XZCompressorOutputStream(out);
+        case ZIP:
+            return new DeflaterOutputStream(out);
+        default:
+            throw new IllegalArgumentException(compression.toString());
+        }
+    }
+
+    /**
+     * Write out whatever the compressor is holding, without closing the
+     * underlying stream.
+     */
+    private void finish(OutputStream compressed) throws IOException {
+        if (compressed instanceof DeflaterOutputStream) {
+            ((DeflaterOutputStream) compressed).finish();
+        } else if (compressed instanceof BZip2CompressorOutputStream) {
+            ((BZip2CompressorOutputStream) compressed).finish();
+        } else if (compressed instanceof XZCompressorOutputStream) {
+            ((XZCompressorOutputStream) compressed).finish();
+        }
+        compressed.flush();
+    }
+
+    /**
+     * Converts a chunk of keys on a worker thread.
+     */
+    private final class Converter implements Callable<Chunk> {
+        Converter(List<Key> keys) {
+            this.keys = keys;
+        }
+
+        public Chunk call() throws BookException {
+            StringBuilder buf = new StringBuilder();
+            XMLOutputter outputter = new XMLOutputter();
+            for (Key key : keys) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                convert(key, buf, outputter);
+            }
+            return new Chunk(buf.toString(), keys.size());
+        }
+
+        private List<Key> keys;
+    }
+
+    /**
+     * The converted text of a chunk of keys.
+     */
+    private static final class Chunk {
+        Chunk(String text, int count) {
+            this.text = text;
+            this.count = count;
+        }
+
+        private String text;
+        private int count;
+    }
+
+    private Book book;
+    private Format format;
+    private CompressorType compression;
+    private int threads;
+    private int chunkSize;
+
+    /**
+     * The job ID for exporting a book. The book's initials fill in the %s.
+     */
+    public static final String EXPORT_BOOK = "EXPORT_BOOK-%s";
+
+    private static final int DEFAULT_CHUNK_SIZE = 200;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String UTF8 = "UTF-8";
+    private static final String OSIS_TEXT_END = "</" + OSISUtil.OSIS_ELEMENT_OSISTEXT + '>';
+}
@@ -19,16 +19,21 @@
  */
 package org.crosswire.jsword.bridge;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+import org.crosswire.common.compress.CompressorType;
+import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookCategory;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.Books;
-import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.versification.BookName;
 
 /**
  * Exports the Book in SWORD's imp format. This is identical to SWORD's mod2imp.
- * Note: it does not work with GenBook.
+ * It can also export OSIS and plain text, optionally compressed.
  * 
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
@@ -40,41 +45,47 @@ public class BookExporter {
     }
 
     public void mod2imp() throws BookException {
+        export(BookExportPipeline.Format.IMP, null, System.out);
+    }
+
+    /**
+     * Export the whole book.
+     * 
+     * @param format the format to write
+     * @param compression how to compress the output, or null for none
+     * @param out where to write it, which is flushed but not closed
+     * @throws BookException if the book could not be read or written
+     */
+    public void export(BookExportPipeline.Format format, CompressorType compression, OutputStream out) throws BookException {
         // Use short key names for Bibles.
         if (BookCategory.BIBLE.equals(book.getBookCategory())) {
             BookName.setFullBookName(false);
         }
 
-        Key keys = book.getGlobalKeyList();
-
-        StringBuilder buf = new StringBuilder();
-        for (Key key : keys) {
-            //FIXME(CJB) iteration should be pushed down to benefit from performance improvement
-            String rawText = book.getRawText(key);
-            if (rawText != null && rawText.trim().length() > 0) {
-                buf.delete(0, buf.length());
-                buf.append("$$$").append(key).append('\n').append(rawText);
-                System.out.println(buf.toString());
-            }
+        BookExportPipeline pipeline = new BookExportPipeline(book);
+        pipeline.setFormat(format);
+        pipeline.setCompression(compression);
+        try {
+            pipeline.export(out);
+            out.flush();
+        } catch (IOException e) {
+            // TRANSLATOR: Error condition: a book could not be exported.
+            throw new BookException(JSMsg.gettext("Export failed."), e);
         }
     }
 
     private Book book;
 
     /**
-     * Call with &lt;operation&gt; book. Where operation can be one of:
-     * <ul>
-     * <li>check - returns "TRUE" or "FALSE" indicating whether the index exists
-     * or not</li>
-     * <li>create - (re)create the index</li>
-     * <li>delete - delete the index if it exists</li>
-     * </ul>
-     * And book is the initials of a book, e.g. KJV.
+     * Call with book [format [compression]]. Where book is the initials of a
+     * book, e.g. KJV, format is one of imp (the default), osis or text, and
+     * compression is one of gzip, bzip2 or xz. The book is written to
+     * standard out.
      * 
      * @param args
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
+        if (args.length < 1 || args.length > 3) {
             usage();
             return;
         }
@@ -89,7 +100,17 @@ public class BookExporter {
 
         BookExporter exporter = new BookExporter(b);
         try {
-            exporter.mod2imp();
+            BookExportPipeline.Format format = BookExportPipeline.Format.IMP;
+            if (args.length > 1) {
+                format = BookExportPipeline.Format.valueOf(args[1].toUpperCase(Locale.ENGLISH));
+            }
+            CompressorType compression = null;
+            if (args.length > 2) {
+                compression = CompressorType.fromString(args[2]);
+            }
+            exporter.export(format, compression, System.out);
+        } catch (IllegalArgumentException e) {
+            usage();
         } catch (BookException e) {
             System.err.println("Error while exporting");
             e.printStackTrace();
@@ -97,6 +118,6 @@ public class BookExporter {
     }
 
     public static void usage() {
-        System.err.println("Usage: BookExporter book");
+        System.err.println("Usage: BookExporter book [imp|osis|text [gzip|bzip2|xz]]");
     }
 }
@@ -22,6 +22,7 @@ package org.crosswire.jsword.bridge;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.index.IndexBuildScheduler;
 import org.crosswire.jsword.index.IndexManager;
 import org.crosswire.jsword.index.IndexManagerFactory;
 import org.crosswire.jsword.index.IndexStatus;
@@ -74,12 +75,7 @@ public class BookIndexer {
             if (isIndexed()) {
                 deleteIndex();
             }
-            Thread work = new Thread(new Runnable() {
-                public void run() {
-                    indexManager.scheduleIndexCreation(book);
-                }
-            });
-            work.start();
+            IndexBuildScheduler.instance().schedule(book);
             while (!done) {
                 try {
                     Thread.sleep(100);
@@ -21,20 +21,24 @@ package org.crosswire.jsword.examples;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookData;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.BookFilters;
+import org.crosswire.jsword.book.BookMetaData;
 import org.crosswire.jsword.book.Books;
 import org.crosswire.jsword.book.FeatureType;
-import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.book.study.StrongsConcordance;
 import org.crosswire.jsword.book.study.StrongsMapSet;
-import org.crosswire.jsword.book.study.StrongsNumber;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.IndexManager;
+import org.crosswire.jsword.index.IndexManagerFactory;
+import org.crosswire.jsword.index.StrongsIndex;
 import org.crosswire.jsword.passage.Key;
-import org.jdom2.Content;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
 import org.jdom2.Element;
 
 /**
@@ -62,27 +66,70 @@ public class StrongsAnalysis {
             return;
         }
 
-        List<Key> errors = new ArrayList<Key>();
         StrongsMapSet sms = new StrongsMapSet();
+
+        // The concordance built with the search index has already done the work.
+        StrongsConcordance concordance = getConcordance(bible);
+        if (concordance != null && concordance.hasForms()) {
+            concordance.addTo(sms);
+            return;
+        }
+
+        List<Key> errors = new ArrayList<Key>();
         analyze(sms, bible, errors, bible.getGlobalKeyList());
     }
 
     /**
+     * @param book
+     * @return the Strong's concordance of the book's search index, if any
+     */
+    private StrongsConcordance getConcordance(Book book) {
+        IndexManager indexManager = IndexManagerFactory.getIndexManager();
+        if (!indexManager.isIndexed(book)) {
+            return null;
+        }
+        try {
+            Index index = indexManager.getIndex(book);
+            if (index instanceof StrongsIndex) {
+                return ((StrongsIndex) index).getStrongsConcordance();
+            }
+        } catch (BookException e) {
+            // Fall back to analyzing the text
+        }
+        return null;
+    }
+
+    /**
+     * Collect the words that each Strong's Number marks up. The words are
+     * gathered in a {@link StrongsConcordance}, the same as when the book is
+     * indexed, so that both give the same StrongsMapSet: each Strong's Number
+     * is a key of its own and the words are in lower case.
+     *
      * @param sms
      * @param book
      * @param errors
      * @param wholeBible
      */
     public void analyze(StrongsMapSet sms, Book book, List<Key> errors, Key wholeBible) {
-        BookData data = null;
-        Element osis = null;
-        StringBuilder buffer = new StringBuilder();
+        Versification v11n = Versifications.instance().getVersification(book.getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION));
+        StrongsConcordance concordance = new StrongsConcordance(v11n, true);
+        analyze(concordance, book, errors, wholeBible);
+        concordance.addTo(sms);
+    }
+
+    /**
+     * @param concordance
+     * @param book
+     * @param errors
+     * @param wholeBible
+     */
+    private void analyze(StrongsConcordance concordance, Book book, List<Key> errors, Key wholeBible) {
         for (Key subkey : wholeBible) {
             if (subkey.canHaveChildren()) {
-                analyze(sms, book, errors, subkey);
+                analyze(concordance, book, errors, subkey);
             } else {
-                data = new BookData(book, subkey);
-                osis = null;
+                BookData data = new BookData(book, subkey);
+                Element osis = null;
 
                 try {
                     osis = data.getOsisFragment();
@@ -92,32 +139,7 @@ public class StrongsAnalysis {
                 }
 
                 // Do the actual indexing
-                for (Content content : OSISUtil.getDeepContent(osis, OSISUtil.OSIS_ELEMENT_W)) {
-                    // Clear out the buffer for re-use
-                    int len = buffer.length();
-                    if (len > 0) {
-                        buffer.delete(0, len);
-                    }
-
-                    Element wElement = (Element) content;
-                    String snAttr = wElement.getAttributeValue(OSISUtil.ATTRIBUTE_W_LEMMA);
-
-                    String text = OSISUtil.getPlainText(wElement);
-
-                    Matcher matcher = strongsNumberPattern.matcher(snAttr);
-                    while (matcher.find()) {
-                        StrongsNumber strongsNumber = new StrongsNumber(matcher.group(1));
-                        if (strongsNumber.isValid()) {
-                            if (buffer.length() > 0) {
-                                buffer.append(' ');
-                            }
-                            buffer.append(strongsNumber.getStrongsNumber());
-                        }
-                    }
-
-                    // now we can actually store the mapping
-                    sms.add(buffer.toString(), text);
-                }
+                concordance.add(KeyUtil.getVerse(subkey), osis);
             }
         }
     }
@@ -128,6 +150,4 @@ public class StrongsAnalysis {
     public static void main(String[] args) {
         new StrongsAnalysis();
     }
-
-    private static Pattern strongsNumberPattern = Pattern.compile("strong:([GH][0-9]+)");
 }
@@ -0,0 +1,354 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.crosswire.jsword.book.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds indexes in the background, a few at a time. Books waiting to be
+ * indexed are taken in order of priority, so that the books that are used
+ * most can be made searchable first, and then in the order they were
+ * scheduled.
+ * 
+ * <p>Builds run on low priority daemon threads, no more than
+ * {@link #getMaxConcurrent()} at once, and each is paced by an
+ * {@link IndexThrottle} so that it takes no more than
+ * {@link #getThrottle()} percent of the time of its thread. The changes in
+ * the index status of each scheduled book are passed on to the listeners of
+ * the scheduler.</p>
+ * 
+ * <p>The building itself is done by the {@link IndexManager}. Lucene indexes
+ * of Bibles are committed after each Bible book, so that a build that is
+ * interrupted carries on from there the next time it is scheduled.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class IndexBuildScheduler {
+    /**
+     * Create a scheduler that builds with the given IndexManager.
+     * 
+     * @param manager
+     *            what builds the indexes
+     */
+    public IndexBuildScheduler(IndexManager manager) {
+        this.manager = manager;
+        this.queue = new PriorityQueue<Request>();
+        this.queued = new HashMap<Book, Request>();
+        this.building = new ArrayList<Book>();
+        this.listeners = new CopyOnWriteArrayList<IndexStatusListener>();
+        this.forwarder = new IndexStatusListener() {
+            public void statusChanged(IndexStatusEvent ev) {
+                fireStatusChanged(ev);
+            }
+        };
+        this.sequence = new AtomicLong();
+        this.maxConcurrent = DEFAULT_MAX_CONCURRENT;
+        this.throttle = 100;
+    }
+
+    /**
+     * @return the scheduler for the default IndexManager
+     */
+    public static IndexBuildScheduler instance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Index a book in the background with normal priority.
+     * 
+     * @param book
+     *            the book to index
+     * @return false if the book is already scheduled or being built
+     */
+    public boolean schedule(Book book) {
+        return schedule(book, PRIORITY_NORMAL);
+    }
+
+    /**
+     * Index a book in the background. If it is already waiting, it is moved
+     * up to the given priority if that is higher.
+     * 
+     * @param book
+     *            the book to index
+     * @param priority
+     *            the higher, the sooner it is built
+     * @return false if the book is already scheduled or being built
+     */
+    public boolean schedule(Book book, int priority) {
+        synchronized (this) {
+            if (shutdown) {
+                throw new IllegalStateException("The index build scheduler has been shut down");
+            }
+            if (building.contains(book)) {
+                return false;
+            }
+            Request request = queued.get(book);
+            if (request != null) {
+                if (priority > request.priority) {
+                    queue.remove(request);
+                    request.priority = priority;
+                    queue.add(request);
+                }
+                return false;
+            }
+            request = new Request(book, priority, sequence.getAndIncrement(), book.getIndexStatus());
+            queued.put(book, request);
+            queue.add(request);
+            // Under the lock, so that a build or cancel cannot come between
+            book.addIndexStatusListener(forwarder);
+            book.setIndexStatus(IndexStatus.SCHEDULED);
+        }
+
+        dispatch();
+        return true;
+    }
+
+    /**
+     * Remove a book that is waiting to be indexed. A build that has started
+     * is not stopped.
+     * 
+     * @param book
+     *            the book not to index
+     * @return whether it was waiting
+     */
+    public synchronized boolean cancel(Book book) {
+        Request request = queued.remove(book);
+        if (request == null) {
+            return false;
+        }
+        queue.remove(request);
+        book.setIndexStatus(request.previous);
+        book.removeIndexStatusListener(forwarder);
+        return true;
+    }
+
+    /**
+     * @return the books waiting to be indexed, those to be built first first
+     */
+    public synchronized List<Book> getQueued() {
+        List<Request> requests = new ArrayList<Request>(queue);
+        Collections.sort(requests);
+        List<Book> books = new ArrayList<Book>(requests.size());
+        for (Request request : requests) {
+            books.add(request.book);
+        }
+        return books;
+    }
+
+    /**
+     * @return the books being indexed
+     */
+    public synchronized List<Book> getBuilding() {
+        return new ArrayList<Book>(building);
+    }
+
+    /**
+     * @return the most indexes that are built at once
+     */
+    public synchronized int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Set the most indexes that are built at once. Builds that have started
+     * are not stopped when it is lowered.
+     * 
+     * @param maxConcurrent
+     *            at least 1
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+        synchronized (this) {
+            this.maxConcurrent = Math.max(1, maxConcurrent);
+        }
+        dispatch();
+    }
+
+    /**
+     * @return the share of time, as a percent, a build works
+     */
+    public int getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Set the share of time, as a percent, a build works. It takes effect for
+     * builds that start after it is set.
+     * 
+     * @param percent
+     *            from 1 to 100, where 100 is not throttled
+     */
+    public void setThrottle(int percent) {
+        this.throttle = Math.max(1, Math.min(100, percent));
+    }
+
+    /**
+     * Listen to the changes in the index status of every scheduled book. The
+     * source of each event is the book.
+     * 
+     * @param li
+     *            the listener to add
+     */
+    public void addIndexStatusListener(IndexStatusListener li) {
+        listeners.add(li);
+    }
+
+    /**
+     * @param li
+     *            the listener to remove
+     */
+    public void removeIndexStatusListener(IndexStatusListener li) {
+        listeners.remove(li);
+    }
+
+    /**
+     * Stop building. Books that are waiting are removed and builds that have
+     * started are finished.
+     */
+    public void shutdown() {
+        List<Book> waiting;
+        synchronized (this) {
+            shutdown = true;
+            waiting = new ArrayList<Book>(queued.keySet());
+        }
+        for (Book book : waiting) {
+            cancel(book);
+        }
+    }
+
+    /**
+     * Start as many waiting builds as are allowed.
+     */
+    private void dispatch() {
+        while (true) {
+            final Request request;
+            synchronized (this) {
+                if (building.size() >= maxConcurrent || queue.isEmpty()) {
+                    return;
+                }
+                request = queue.poll();
+                queued.remove(request.book);
+                building.add(request.book);
+            }
+
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    build(request.book);
+                }
+            }, "IndexBuildScheduler-" + request.book.getInitials());
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.start();
+        }
+    }
+
+    private void build(Book book) {
+        IndexThrottle.begin(throttle);
+        try {
+            // An existing index is replaced once the new one is built
+            manager.scheduleIndexCreation(book);
+        } catch (Exception e) {
+            // A failed build must not stop the others
+            LOGGER.error("Unable to index {}", book.getInitials(), e);
+            book.setIndexStatus(IndexStatus.UNDONE);
+        } finally {
+            IndexThrottle.end();
+            book.removeIndexStatusListener(forwarder);
+            synchronized (this) {
+                building.remove(book);
+            }
+            dispatch();
+        }
+    }
+
+    private void fireStatusChanged(IndexStatusEvent ev) {
+        for (IndexStatusListener listener : listeners) {
+            listener.statusChanged(ev);
+        }
+    }
+
+    /**
+     * A book waiting to be indexed.
+     */
+    private static final class Request implements Comparable<Request> {
+        Request(Book book, int priority, long order, IndexStatus previous) {
+            this.book = book;
+            this.priority = priority;
+            this.order = order;
+            this.previous = previous;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        public int compareTo(Request o) {
+            if (priority != o.priority) {
+                return priority > o.priority ? -1 : 1;
+            }
+            return order < o.order ? -1 : order == o.order ? 0 : 1;
+        }
+
+        private final Book book;
+        private int priority;
+        private final long order;
+        private final IndexStatus previous;
+    }
+
+    /**
+     * Lazily creates the scheduler for the default IndexManager.
+     */
+    private static final class InstanceHolder {
+        private static final IndexBuildScheduler INSTANCE = new IndexBuildScheduler(IndexManagerFactory.getIndexManager());
+    }
+
+    /**
+     * The priority of most books
+     */
+    public static final int PRIORITY_NORMAL = 0;
+
+    private final IndexManager manager;
+    private final PriorityQueue<Request> queue;
+    private final Map<Book, Request> queued;
+    private final List<Book> building;
+    private final List<IndexStatusListener> listeners;
+    private final IndexStatusListener forwarder;
+    private final AtomicLong sequence;
+    private int maxConcurrent;
+    private volatile int throttle;
+    private boolean shutdown;
+
+    private static final int DEFAULT_MAX_CONCURRENT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexBuildScheduler.class);
+}
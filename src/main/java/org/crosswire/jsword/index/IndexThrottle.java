@@ -0,0 +1,113 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index;
+
+/**
+ * Paces the building of an index so that it uses no more than a share of
+ * the time of the thread doing it, leaving the CPU and disk for other work.
+ * An indexer calls {@link #pace()} after each unit of work, and after each
+ * stretch of work the thread sleeps long enough to keep to the share.
+ * 
+ * <p>The share is set for the current thread, normally by the
+ * {@link IndexBuildScheduler}. A thread without one is not slowed.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class IndexThrottle {
+    /**
+     * Prevent instantiation
+     */
+    private IndexThrottle() {
+    }
+
+    /**
+     * Called by an indexer after each unit of work. If the thread is
+     * throttled and has worked long enough, it sleeps. An interrupted sleep
+     * leaves the thread interrupted, so the indexer sees it.
+     */
+    public static void pace() {
+        IndexThrottle throttle = CURRENT.get();
+        if (throttle == null) {
+            Thread.yield();
+            return;
+        }
+
+        long now = System.nanoTime();
+        throttle.busy += now - throttle.last;
+        throttle.last = now;
+        if (throttle.busy < SLICE) {
+            return;
+        }
+
+        long idle = throttle.busy * (100 - throttle.percent) / throttle.percent;
+        throttle.busy = 0;
+        if (idle > 0) {
+            try {
+                Thread.sleep(idle / 1000000L, (int) (idle % 1000000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        throttle.last = System.nanoTime();
+    }
+
+    /**
+     * Throttle the current thread.
+     * 
+     * @param percent
+     *            the share of time to work, from 1 to 100
+     */
+    static void begin(int percent) {
+        IndexThrottle throttle = new IndexThrottle();
+        throttle.percent = Math.max(1, Math.min(100, percent));
+        throttle.last = System.nanoTime();
+        CURRENT.set(throttle);
+    }
+
+    /**
+     * Stop throttling the current thread.
+     */
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The share of time to work
+     */
+    private int percent;
+
+    /**
+     * The time worked since the last sleep
+     */
+    private long busy;
+
+    /**
+     * When the time worked was last noted
+     */
+    private long last;
+
+    /**
+     * How long to work between sleeps, in nanoseconds
+     */
+    private static final long SLICE = 50000000L;
+
+    private static final ThreadLocal<IndexThrottle> CURRENT = new ThreadLocal<IndexThrottle>();
+}
@@ -0,0 +1,52 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * An Index that can find what is near to something else itself, in one
+ * search, rather than finding each separately and comparing the passages.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface ProximityIndex extends Index {
+    /**
+     * Find the entries that satisfy the query and that are within a distance
+     * of an entry that satisfies the other. Not every query can be answered
+     * this way, nor can every index, in which case null is returned and the
+     * caller has to find both and blur one by the distance.
+     * 
+     * @param query
+     *            The text to search for
+     * @param near
+     *            The text that has to be near
+     * @param distance
+     *            How many verses apart they can be
+     * @param restriction
+     *            What to search within, or null to search everything
+     * @return The references that were found, or null
+     * @throws BookException
+     *             if the query cannot be understood
+     */
+    Key findNear(String query, String near, int distance, Key restriction) throws BookException;
+}
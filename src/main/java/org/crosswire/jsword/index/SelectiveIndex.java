@@ -0,0 +1,60 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * An Index that can tell about how much a query will find before it is run,
+ * and that can search within a restriction rather than searching everything
+ * and then throwing most of it away. A query planner uses these to run the
+ * selective parts of a query first.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface SelectiveIndex extends Index {
+    /**
+     * Estimate how many entries the query will find. The estimate should be
+     * cheap, so it may be well above what is found, but not below.
+     * 
+     * @param query
+     *            The text to search for
+     * @return about how many entries will be found
+     * @throws BookException
+     *             if the query cannot be understood
+     */
+    int estimate(String query) throws BookException;
+
+    /**
+     * Find the set of references that satisfy the query and that are in the
+     * restriction. Only the entries in the restriction need to be searched.
+     * 
+     * @param query
+     *            The text to search for
+     * @param restriction
+     *            What to search within, or null to search everything
+     * @return The references to the word
+     * @throws BookException
+     * @see Index#find(String)
+     */
+    Key find(String query, Key restriction) throws BookException;
+}
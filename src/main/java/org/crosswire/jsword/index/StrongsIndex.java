@@ -0,0 +1,39 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index;
+
+import org.crosswire.jsword.book.study.StrongsConcordance;
+
+/**
+ * An Index that was built with a concordance of the Strong's Numbers in its
+ * book, so that the verses and words for a Strong's Number can be had
+ * without searching or reading the book.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface StrongsIndex extends Index {
+    /**
+     * Get the Strong's concordance that was built with this index.
+     * 
+     * @return the concordance, or null if the index does not have one
+     */
+    StrongsConcordance getStrongsConcordance();
+}
@@ -0,0 +1,41 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * An IndexManager that can bring an index up to date as the entries of a
+ * writable book change, without building it again.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface UpdatableIndexManager extends IndexManager {
+    /**
+     * An entry of a writable book has been changed. If the book has an
+     * index, bring it up to date in the background, shortly after.
+     * 
+     * @param book The book that was changed
+     * @param key The key of the entry that was changed
+     */
+    void scheduleIndexUpdate(Book book, Key key);
+}
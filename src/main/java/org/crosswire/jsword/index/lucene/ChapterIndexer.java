@@ -0,0 +1,216 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+
+/**
+ * Indexes each chapter of a Bible as one document, in addition to its
+ * verses, so that how near words are to each other can be searched for with
+ * positional queries. The text of the verses is analyzed as it is for the
+ * verses, one after the other, but each verse starts at a position that is
+ * its number times {@link #VERSE_GAP}. So the verse a word is in is its
+ * position divided by the gap.
+ * 
+ * <p>The verses of a chapter are to be added in order. Before each, the
+ * indexer is told where indexing has reached, so that it can write a
+ * chapter as soon as it is complete.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class ChapterIndexer {
+    /**
+     * Create an indexer that analyzes text as the body of a verse.
+     * 
+     * @param analyzer
+     *            the analyzer of the index
+     */
+    ChapterIndexer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+        this.terms = new ArrayList<String>();
+        this.positions = new int[64];
+        this.chapter = -1;
+    }
+
+    /**
+     * Write the chapter that is being indexed if the key is not in it.
+     * 
+     * @param key
+     *            where indexing has reached
+     * @param writer
+     *            where the chapter is written
+     * @throws IOException
+     */
+    void reached(Key key, IndexWriter writer) throws IOException {
+        if (chapter >= 0 && (!(key instanceof Verse) || getChapter((Verse) key) != chapter)) {
+            flush(writer);
+        }
+    }
+
+    /**
+     * Add the text of a verse to its chapter. The introduction of a chapter
+     * is not part of it.
+     * 
+     * @param verse
+     *            the verse
+     * @param text
+     *            the canonical text of the verse
+     * @throws IOException
+     */
+    void add(Verse verse, String text) throws IOException {
+        chapter = getChapter(verse);
+        if (verse.getVerse() == 0 || text == null || text.length() == 0) {
+            return;
+        }
+
+        int start = verse.getVerse() * VERSE_GAP;
+        int offset = -1;
+        TokenStream stream = analyzer.tokenStream(LuceneIndex.FIELD_BODY, new StringReader(text));
+        TermAttribute termAtt = stream.addAttribute(TermAttribute.class);
+        PositionIncrementAttribute incrementAtt = stream.addAttribute(PositionIncrementAttribute.class);
+        try {
+            stream.reset();
+            while (stream.incrementToken()) {
+                // Words beyond the gap are piled on the last position of the verse
+                offset = Math.max(0, Math.min(offset + incrementAtt.getPositionIncrement(), VERSE_GAP - 1));
+                if (terms.size() == positions.length) {
+                    int[] bigger = new int[positions.length * 2];
+                    System.arraycopy(positions, 0, bigger, 0, positions.length);
+                    positions = bigger;
+                }
+                positions[terms.size()] = start + offset;
+                terms.add(termAtt.term());
+            }
+            stream.end();
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Write the chapter that is being indexed, replacing what was indexed
+     * for it before. A chapter that has no text is removed.
+     * 
+     * @param writer
+     *            where the chapter is written
+     * @throws IOException
+     */
+    void flush(IndexWriter writer) throws IOException {
+        if (chapter < 0) {
+            return;
+        }
+
+        String id = Integer.toString(chapter);
+        Term term = new Term(LuceneIndex.FIELD_CHAPTER, id);
+        if (terms.isEmpty()) {
+            writer.deleteDocuments(term);
+        } else {
+            Document doc = new Document();
+            doc.add(new Field(LuceneIndex.FIELD_CHAPTER, id, Field.Store.YES, Field.Index.NOT_ANALYZED));
+            doc.add(new Field(LuceneIndex.FIELD_PROXIMITY, new PositionedTokenStream(terms.toArray(new String[terms.size()]), Arrays.copyOf(positions, terms.size()))));
+            writer.updateDocument(term, doc);
+        }
+
+        terms.clear();
+        chapter = -1;
+    }
+
+    /**
+     * The ordinal of the introduction of the chapter of a verse identifies
+     * the chapter. The ordinal of a verse is that plus its number.
+     * 
+     * @param verse
+     *            the verse
+     * @return the chapter of the verse
+     */
+    static int getChapter(Verse verse) {
+        return verse.getOrdinal() - verse.getVerse();
+    }
+
+    /**
+     * Gives back tokens that have already been analyzed, at their positions.
+     */
+    private static final class PositionedTokenStream extends TokenStream {
+        PositionedTokenStream(String[] terms, int[] positions) {
+            this.terms = terms;
+            this.positions = positions;
+            this.termAtt = addAttribute(TermAttribute.class);
+            this.incrementAtt = addAttribute(PositionIncrementAttribute.class);
+            this.last = -1;
+        }
+
+        /* (non-Javadoc)
+         * @see org.apache.lucene.analysis.TokenStream#incrementToken()
+         */
+        @Override
+        public boolean incrementToken() {
+            if (next == terms.length) {
+                return false;
+            }
+            clearAttributes();
+            termAtt.setTermBuffer(terms[next]);
+            incrementAtt.setPositionIncrement(positions[next] - last);
+            last = positions[next];
+            next++;
+            return true;
+        }
+
+        private final String[] terms;
+        private final int[] positions;
+        private final TermAttribute termAtt;
+        private final PositionIncrementAttribute incrementAtt;
+        private int last;
+        private int next;
+    }
+
+    /**
+     * How many positions each verse of a chapter has
+     */
+    static final int VERSE_GAP = 1024;
+
+    private final Analyzer analyzer;
+
+    /**
+     * The analyzed words of the chapter, and the position of each
+     */
+    private final List<String> terms;
+    private int[] positions;
+
+    /**
+     * The chapter that is being indexed, or -1
+     */
+    private int chapter;
+}
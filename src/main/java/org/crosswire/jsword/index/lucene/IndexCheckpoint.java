@@ -0,0 +1,193 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexWriter;
+import org.crosswire.common.util.NetUtil;
+import org.crosswire.common.util.PropertyMap;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.index.IndexPolicy;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records which Bible books an index being built holds, so that a build
+ * that was interrupted, even by a restart, can carry on from where it was.
+ * 
+ * <p>The index is committed each time the build moves on to another Bible
+ * book, and the books that are done are written beside it. A build that is
+ * interrupted rolls back to the last commit, so the index holds exactly the
+ * books that are recorded. A checkpoint is only used by a build of the same
+ * book with the same policy.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class IndexCheckpoint {
+    /**
+     * Read the checkpoint of an index being built, if it can be used.
+     * 
+     * @param tempPath
+     *            where the index is being built
+     * @param book
+     *            the book being indexed
+     * @param policy
+     *            how it is being indexed
+     */
+    IndexCheckpoint(File tempPath, Book book, IndexPolicy policy) {
+        this.file = new File(tempPath.getPath() + SUFFIX);
+        this.signature = getSignature(book, policy);
+        this.done = EnumSet.noneOf(BibleBook.class);
+
+        if (tempPath.isDirectory() && file.isFile()) {
+            try {
+                PropertyMap props = NetUtil.loadProperties(NetUtil.getURI(file));
+                if (signature.equals(props.get(KEY_SIGNATURE))) {
+                    for (String name : props.get(KEY_DONE, "").split(",")) {
+                        BibleBook bb = BibleBook.fromExactOSIS(name);
+                        if (bb != null) {
+                            done.add(bb);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring checkpoint {}", file, e);
+                done.clear();
+            }
+        }
+    }
+
+    /**
+     * @return whether the build carries on from an earlier one
+     */
+    boolean isResuming() {
+        return !done.isEmpty();
+    }
+
+    /**
+     * @param key
+     *            a key of the book
+     * @return whether it is already in the index
+     */
+    boolean isDone(Key key) {
+        return key instanceof Verse && done.contains(((Verse) key).getBook());
+    }
+
+    /**
+     * Note the key that is about to be indexed. When it is in another Bible
+     * book, the one before is complete, so it is committed and recorded.
+     * 
+     * @param key
+     *            the key about to be indexed
+     * @param writer
+     *            the index being built
+     * @throws IOException
+     */
+    void reached(Key key, IndexWriter writer) throws IOException {
+        if (!(key instanceof Verse)) {
+            return;
+        }
+        BibleBook bb = ((Verse) key).getBook();
+        if (bb == current) {
+            return;
+        }
+        if (current != null && !done.contains(current)) {
+            writer.commit();
+            done.add(current);
+            save();
+        }
+        current = bb;
+    }
+
+    /**
+     * Forget the checkpoint, as the build is complete or cannot be resumed.
+     */
+    void clear() {
+        done.clear();
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private void save() {
+        StringBuilder buf = new StringBuilder();
+        for (BibleBook bb : done) {
+            if (buf.length() > 0) {
+                buf.append(',');
+            }
+            buf.append(bb.getOSIS());
+        }
+        PropertyMap props = new PropertyMap();
+        props.put(KEY_SIGNATURE, signature);
+        props.put(KEY_DONE, buf.toString());
+        try {
+            NetUtil.storeProperties(props, NetUtil.getURI(file), "Index build checkpoint");
+        } catch (IOException e) {
+            // The build goes on, but cannot be resumed from here
+            LOGGER.warn("Unable to save checkpoint {}", file, e);
+        }
+    }
+
+    /**
+     * What must be the same for a build to use the work of another.
+     */
+    private static String getSignature(Book book, IndexPolicy policy) {
+        StringBuilder buf = new StringBuilder(book.getInitials());
+        Object version = book.getBookMetaData().getProperty(KEY_VERSION);
+        buf.append('/').append(version);
+        buf.append('/').append(policy.isStrongsIndexed() ? 'S' : '-');
+        buf.append(policy.isMorphIndexed() ? 'M' : '-');
+        buf.append(policy.isNoteIndexed() ? 'N' : '-');
+        buf.append(policy.isTitleIndexed() ? 'T' : '-');
+        buf.append(policy.isXrefIndexed() ? 'X' : '-');
+        return buf.toString();
+    }
+
+    private final File file;
+    private final String signature;
+
+    /**
+     * The Bible books that are in the index
+     */
+    private final Set<BibleBook> done;
+
+    /**
+     * The Bible book being indexed
+     */
+    private BibleBook current;
+
+    private static final String SUFFIX = ".checkpoint";
+    private static final String KEY_SIGNATURE = "Signature";
+    private static final String KEY_DONE = "Done";
+    private static final String KEY_VERSION = "Version";
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexCheckpoint.class);
+}
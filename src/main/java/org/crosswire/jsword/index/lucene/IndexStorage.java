@@ -0,0 +1,82 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.RAMDirectory;
+
+/**
+ * How the files of an open search index are read.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public enum IndexStorage {
+    /**
+     * Let Lucene choose the best way for the platform.
+     */
+    FILE {
+        @Override
+        Directory open(File path) throws IOException {
+            return FSDirectory.open(path);
+        }
+    },
+
+    /**
+     * Map the files into memory, leaving the caching to the operating system.
+     */
+    MMAP {
+        @Override
+        Directory open(File path) throws IOException {
+            return new MMapDirectory(path);
+        }
+    },
+
+    /**
+     * Copy the whole index onto the heap. This is fastest to search but costs
+     * as much heap as the index is large, so it is for the most used books.
+     */
+    RAM {
+        @Override
+        Directory open(File path) throws IOException {
+            Directory fs = FSDirectory.open(path);
+            try {
+                return new RAMDirectory(fs);
+            } finally {
+                fs.close();
+            }
+        }
+    };
+
+    /**
+     * Open the index at the given location.
+     * 
+     * @param path
+     *            the directory of the index
+     * @return the opened directory
+     * @throws IOException
+     */
+    abstract Directory open(File path) throws IOException;
+}
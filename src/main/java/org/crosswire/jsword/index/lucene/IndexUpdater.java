@@ -0,0 +1,237 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.passage.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the indexes of writable books up to date as their entries are
+ * changed, so that a new note can be found within moments rather than after
+ * the book has been indexed again.
+ * 
+ * <p>Changes are queued and written by a single background thread. It waits
+ * {@link #getBatchDelay()} after the first change so that the changes that
+ * come together, such as a note that is saved as it is typed, are written
+ * and committed together. A key that is changed several times is written
+ * once.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class IndexUpdater {
+    /**
+     * Create an updater for the indexes of the given manager.
+     * 
+     * @param manager
+     *            where the indexes are found
+     */
+    IndexUpdater(LuceneIndexManager manager) {
+        this.manager = manager;
+        this.pending = new LinkedHashMap<Book, Set<Key>>();
+        this.batchDelay = DEFAULT_BATCH_DELAY;
+    }
+
+    /**
+     * Queue a change to an entry of a book.
+     * 
+     * @param book
+     *            the book that was changed
+     * @param key
+     *            the key of the entry that was changed
+     */
+    public synchronized void add(Book book, Key key) {
+        Set<Key> keys = pending.get(book);
+        if (keys == null) {
+            keys = new LinkedHashSet<Key>();
+            pending.put(book, keys);
+        }
+        // The caller may go on to change the key
+        keys.add(key.clone());
+
+        if (worker == null) {
+            startWorker();
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return the number of changes that have not been written
+     */
+    public synchronized int getPending() {
+        int count = 0;
+        for (Set<Key> keys : pending.values()) {
+            count += keys.size();
+        }
+        return count;
+    }
+
+    /**
+     * Wait until all the changes that have been queued are written. If the
+     * updates were stopped, they are started again to write them.
+     * 
+     * @throws InterruptedException
+     *             if the wait was interrupted
+     */
+    public synchronized void flush() throws InterruptedException {
+        while (!pending.isEmpty() || writing) {
+            if (worker == null) {
+                startWorker();
+            }
+            wait();
+        }
+    }
+
+    /**
+     * @return how long, in milliseconds, changes are gathered before they are
+     *         written
+     */
+    public long getBatchDelay() {
+        return batchDelay;
+    }
+
+    /**
+     * Set how long, in milliseconds, changes are gathered before they are
+     * written. Longer delays mean fewer commits but a longer wait before a
+     * change can be found.
+     * 
+     * @param batchDelay
+     *            the delay, which may be 0
+     */
+    public void setBatchDelay(long batchDelay) {
+        this.batchDelay = Math.max(0, batchDelay);
+    }
+
+    /**
+     * Start the thread that writes the changes. The caller holds the lock.
+     */
+    private void startWorker() {
+        worker = new Thread(new Runnable() {
+            public void run() {
+                work();
+            }
+        }, "IndexUpdater");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Write the changes as they come.
+     */
+    private void work() {
+        try {
+            while (true) {
+                Map<Book, Set<Key>> batch;
+                try {
+                    synchronized (this) {
+                        while (pending.isEmpty()) {
+                            wait();
+                        }
+                    }
+                    // Let the changes that come together be written together
+                    Thread.sleep(batchDelay);
+                } catch (InterruptedException e) {
+                    LOGGER.warn("Index updates stopped with {} waiting", Integer.toString(getPending()));
+                    return;
+                }
+
+                synchronized (this) {
+                    batch = pending;
+                    pending = new LinkedHashMap<Book, Set<Key>>();
+                    writing = true;
+                }
+
+                try {
+                    for (Map.Entry<Book, Set<Key>> entry : batch.entrySet()) {
+                        write(entry.getKey(), entry.getValue());
+                    }
+                } finally {
+                    synchronized (this) {
+                        writing = false;
+                        notifyAll();
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                // The next change or flush starts another, and a flush that
+                // is waiting must see that this one has stopped
+                worker = null;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Write the changes to one book. A book that has lost its index since
+     * the changes were queued is skipped.
+     */
+    private void write(Book book, Set<Key> keys) {
+        if (!manager.isIndexed(book)) {
+            return;
+        }
+        try {
+            Index index = manager.getIndex(book);
+            if (index instanceof LuceneIndex) {
+                ((LuceneIndex) index).update(keys, manager.getIndexPolicy());
+                LOGGER.debug("Updated {} entries in the index of {}", Integer.toString(keys.size()), book.getInitials());
+            }
+        } catch (IOException e) {
+            LOGGER.error("Unable to update the index of {}", book.getInitials(), e);
+        } catch (BookException e) {
+            LOGGER.error("Unable to update the index of {}", book.getInitials(), e);
+        } catch (RuntimeException e) {
+            // One bad book must not stop the updates to the others
+            LOGGER.error("Unable to update the index of {}", book.getInitials(), e);
+        }
+    }
+
+    private final LuceneIndexManager manager;
+
+    /**
+     * The changes waiting to be written, by book
+     */
+    private Map<Book, Set<Key>> pending;
+
+    /**
+     * Whether a batch of changes is being written
+     */
+    private boolean writing;
+
+    private volatile long batchDelay;
+    private Thread worker;
+
+    private static final long DEFAULT_BATCH_DELAY = 500;
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexUpdater.class);
+}
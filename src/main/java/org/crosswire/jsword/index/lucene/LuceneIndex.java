@@ -24,44 +24,66 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Searcher;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.spans.SpanQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Version;
+import org.crosswire.common.metrics.Metrics;
 import org.crosswire.common.progress.JobManager;
 import org.crosswire.common.progress.Progress;
 import org.crosswire.common.util.FileUtil;
-import org.crosswire.common.util.IOUtil;
 import org.crosswire.common.util.NetUtil;
 import org.crosswire.common.util.Reporter;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookData;
 import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
 import org.crosswire.jsword.book.FeatureType;
 import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.book.basic.AbstractPassageBook;
+import org.crosswire.jsword.book.study.StrongsConcordance;
 import org.crosswire.jsword.index.AbstractIndex;
 import org.crosswire.jsword.index.IndexPolicy;
 import org.crosswire.jsword.index.IndexStatus;
+import org.crosswire.jsword.index.IndexThrottle;
+import org.crosswire.jsword.index.ProximityIndex;
+import org.crosswire.jsword.index.SelectiveIndex;
+import org.crosswire.jsword.index.StrongsIndex;
 import org.crosswire.jsword.index.lucene.analysis.LuceneAnalyzer;
+import org.crosswire.jsword.index.xref.CrossReferenceCollector;
+import org.crosswire.jsword.index.xref.CrossReferenceIndex;
 import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.AbstractPassage;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.NoSuchKeyException;
 import org.crosswire.jsword.passage.NoSuchVerseException;
 import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.RestrictionType;
 import org.crosswire.jsword.passage.Verse;
 import org.crosswire.jsword.passage.VerseFactory;
 import org.crosswire.jsword.versification.Versification;
@@ -76,7 +98,7 @@ import org.slf4j.LoggerFactory;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author Joe Walker
  */
-public class LuceneIndex extends AbstractIndex implements Closeable {
+public class LuceneIndex extends AbstractIndex implements SelectiveIndex, ProximityIndex, StrongsIndex, Closeable {
     /*
      * The following fields are named the same as Sword in the hopes of sharing
      * indexes.
@@ -121,6 +143,24 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
      */
     public static final String FIELD_INTRO = "intro";
 
+    /**
+     * The Lucene field for the ordinal of a verse, so that searches can be
+     * restricted to ranges of verses
+     */
+    public static final String FIELD_ORDINAL = "ordinal";
+
+    /**
+     * The Lucene field that identifies a chapter by the ordinal of its
+     * introduction
+     */
+    public static final String FIELD_CHAPTER = "chapter";
+
+    /**
+     * The Lucene field for the text of a whole chapter, with each verse at
+     * its own range of positions, so that proximity can be searched for
+     */
+    public static final String FIELD_PROXIMITY = "proximity";
+
     /**
      * An estimate of the percent of time spent indexing.
      * The remaining time, if any, is spent doing cleanup.
@@ -144,7 +184,7 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
             // TRANSLATOR: Error condition: Could not initialize a search index.
             throw new BookException(JSMsg.gettext("Failed to initialize Lucene search engine."), ex);
         }
-        initDirectoryAndSearcher();
+        // It is opened when it is first searched
     }
 
     /**
@@ -179,49 +219,91 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
         // Build to another location and rename in the end.
         File tempPath = new File(path + '.' + IndexStatus.CREATING.toString());
 
-        // Ensure that the temp path is gone
+        // A build that was interrupted can be carried on.
+        // Otherwise ensure that the temp path is gone.
         // It is not good for it to have been leftover from before.
-        if (tempPath.exists()) {
-            FileUtil.delete(tempPath);
+        IndexCheckpoint checkpoint = new IndexCheckpoint(tempPath, book, policy);
+        if (!checkpoint.isResuming()) {
+            checkpoint.clear();
+            if (tempPath.exists()) {
+                FileUtil.delete(tempPath);
+            }
         }
+        // Whether the work done so far is kept for another build
+        boolean resumable = false;
 
         try {
             // When misconfigured, this can throw errors.
             Analyzer analyzer = new LuceneAnalyzer(book);
 
-            // Lock on metadata to allow creation of multiple indexes, so long as they are on different books.
-            // Otherwise lock on a single object to make this serial
-            Object mutex = policy.isSerial() ? CREATING : book.getBookMetaData();
-            synchronized (mutex) {
+            synchronized (getMutex(policy)) {
 
                 book.setIndexStatus(IndexStatus.CREATING);
 
+                // Verse based books with Strong's Numbers also get a concordance.
+                StrongsConcordance concordance = null;
+                if (book instanceof AbstractPassageBook && book.getBookMetaData().hasFeature(FeatureType.STRONGS_NUMBERS) && policy.isStrongsIndexed()) {
+                    concordance = new StrongsConcordance(((AbstractPassageBook) book).getVersification(), true);
+                }
+
+                // Gather cross-references for the "referenced by" index.
+                CrossReferenceCollector xrefs = null;
+                if (policy.isXrefIndexed()) {
+                    xrefs = new CrossReferenceCollector(book.getInitials(), getVersification());
+                }
+
+                // Verse based books also get each chapter as a whole.
+                ChapterIndexer chapters = null;
+                if (book instanceof AbstractPassageBook) {
+                    chapters = new ChapterIndexer(analyzer);
+                }
+
                 IndexWriter writer = null;
+                boolean interrupted = false;
                 try {
                     // Write the core index to disk.
                     final Directory destination = FSDirectory.open(new File(tempPath.getCanonicalPath()));
-                    writer = new IndexWriter(destination, analyzer, true, IndexWriter.MaxFieldLength.UNLIMITED);
+                    if (checkpoint.isResuming()) {
+                        log.info("Resuming the index of {}", book.getInitials());
+                    }
+                    writer = new IndexWriter(destination, analyzer, !checkpoint.isResuming(), IndexWriter.MaxFieldLength.UNLIMITED);
                     writer.setRAMBufferSizeMB(policy.getRAMBufferSize());
 
-                    generateSearchIndexImpl(job, errors, writer, book.getGlobalKeyList(), 0, policy);
+                    generateSearchIndexImpl(job, errors, writer, book.getGlobalKeyList(), 0, policy, concordance, xrefs, chapters, checkpoint);
+                    if (chapters != null) {
+                        chapters.flush(writer);
+                    }
 
                 } finally {
                     if (writer != null) {
-                        writer.close();
+                        interrupted = Thread.currentThread().isInterrupted() || job.isFinished();
+                        if (interrupted) {
+                            // Keep only the Bible books that were completed
+                            writer.rollback();
+                            resumable = checkpoint.isResuming();
+                        } else {
+                            writer.close();
+                        }
                     }
                 }
 
+                if (concordance != null && !interrupted) {
+                    concordance.write(new File(tempPath, StrongsConcordance.FILE_NAME));
+                }
+
                 job.setCancelable(false);
-                if (!job.isFinished()) {
-                    if (!tempPath.renameTo(finalPath)) {
-                        // TRANSLATOR: The search index could not be moved to it's final location.
-                        throw new BookException(JSMsg.gettext("Installation failed."));
-                    }
+                boolean built = !job.isFinished() && !interrupted;
+                if (built) {
+                    replace(tempPath, finalPath);
+                    checkpoint.clear();
                 }
 
                 if (finalPath.exists()) {
                     finalStatus = IndexStatus.DONE;
                 }
+                if (built) {
+                    storeCrossReferences(xrefs);
+                }
 
                 if (!errors.isEmpty()) {
                     StringBuilder buf = new StringBuilder();
@@ -233,7 +315,9 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                     // This message gives a listing of them to the user.
                     Reporter.informUser(this, JSMsg.gettext("The following verses have errors and could not be indexed\n{0}", buf));
                 }
-                initDirectoryAndSearcher();
+                // Any searcher on the index that was replaced is stale
+                unpinSearcher();
+                SearcherCache.instance().evict(path);
             }
         } catch (IOException ex) {
             job.cancel();
@@ -243,44 +327,80 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
             book.setIndexStatus(finalStatus);
             job.done();
             // Ensure that the temp path is gone - errors can leave it there and cause further problems.
-            if (tempPath.exists()) {
-                FileUtil.delete(tempPath);
+            // But keep the work of a build that was interrupted.
+            if (!resumable) {
+                checkpoint.clear();
+                if (tempPath.exists()) {
+                    FileUtil.delete(tempPath);
+                }
             }
         }
     }
 
     /**
-     * Initializes the directory and searcher.
+     * Put the index that was built in its final location, replacing any
+     * index that is there. The old index is searchable until then.
      */
-    private void initDirectoryAndSearcher() {
-        try {
-            directory = FSDirectory.open(new File(path));
-            searcher = new IndexSearcher(directory, true);
-        } catch (IOException ex) {
-            log.warn("second load failure", ex);
+    private void replace(File tempPath, File finalPath) throws BookException {
+        File oldPath = new File(path + OLD_SUFFIX);
+        if (finalPath.exists()) {
+            unpinSearcher();
+            SearcherCache.instance().evict(path);
+            FileUtil.delete(oldPath);
+            if (!finalPath.renameTo(oldPath)) {
+                // TRANSLATOR: The search index could not be moved to it's final location.
+                throw new BookException(JSMsg.gettext("Installation failed."));
+            }
         }
+        if (!tempPath.renameTo(finalPath)) {
+            if (oldPath.exists() && !oldPath.renameTo(finalPath)) {
+                log.error("Unable to restore the index {}", finalPath);
+            }
+            // TRANSLATOR: The search index could not be moved to it's final location.
+            throw new BookException(JSMsg.gettext("Installation failed."));
+        }
+        FileUtil.delete(oldPath);
     }
 
     /* (non-Javadoc)
      * @see org.crosswire.jsword.index.Index#find(java.lang.String)
      */
     public Key find(String search) throws BookException {
+        return find(search, null);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.SelectiveIndex#find(java.lang.String, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(String search, Key restriction) throws BookException {
         String v11nName = book.getBookMetaData().getProperty("Versification").toString();
         Versification v11n = Versifications.instance().getVersification(v11nName);
 
         SearchModifier modifier = getSearchModifier();
         Key results = null;
+        // Whether what was found still has to be restricted
+        boolean unfiltered = false;
 
-        if (search != null) {
+        // Nothing is found within nothing
+        if (search != null && (restriction == null || !restriction.isEmpty())) {
             Throwable theCause = null;
+            long start = Metrics.begin();
+            SearcherCache.OpenIndex open = null;
             try {
-                Analyzer analyzer = new LuceneAnalyzer(book);
-
-                QueryParser parser = new QueryParser(Version.LUCENE_29, LuceneIndex.FIELD_BODY, analyzer);
-                parser.setAllowLeadingWildcard(true);
-                Query query = parser.parse(search);
+                open = SearcherCache.instance().acquire(book.getInitials(), path);
+                IndexSearcher searcher = open.getSearcher();
+                Query query = parse(search);
                 log.info("ParsedQuery- {}", query.toString());
 
+                // Search only within the restriction, if the index can
+                Filter filter = null;
+                if (restriction != null) {
+                    if (hasField(searcher.getIndexReader(), FIELD_ORDINAL)) {
+                        filter = OrdinalFilter.create(restriction, v11n);
+                    }
+                    unfiltered = filter == null;
+                }
+
                 // For ranking we use a PassageTally
                 if (modifier != null && modifier.isRanked()) {
                     PassageTally tally = new PassageTally(v11n);
@@ -289,13 +409,18 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                     results = tally;
 
                     TopScoreDocCollector collector = TopScoreDocCollector.create(modifier.getMaxResults(), false);
-                    searcher.search(query, collector);
+                    searcher.search(query, filter, collector);
                     tally.setTotal(collector.getTotalHits());
                     ScoreDoc[] hits = collector.topDocs().scoreDocs;
                     for (int i = 0; i < hits.length; i++) {
                         int docId = hits[i].doc;
                         Document doc = searcher.doc(docId);
-                        Key key = VerseFactory.fromString(v11n, doc.get(LuceneIndex.FIELD_KEY));
+                        String osisRef = doc.get(LuceneIndex.FIELD_KEY);
+                        if (osisRef == null) {
+                            // A chapter, which is only searched for proximity
+                            continue;
+                        }
+                        Key key = VerseFactory.fromString(v11n, osisRef);
                         // PassageTally understands a score of 0 as the verse
                         // not participating
                         int score = (int) (hits[i].score * 100 + 1);
@@ -313,7 +438,7 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                         passage.raiseEventSuppresion();
                         passage.raiseNormalizeProtection();
                     }
-                    searcher.search(query, new VerseCollector(v11n, searcher, results));
+                    searcher.search(query, filter, new VerseCollector(v11n, searcher, results));
                     if (passage != null) {
                         passage.lowerNormalizeProtection();
                         passage.lowerEventSuppressionAndTest();
@@ -327,7 +452,12 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                 theCause = e;
             } catch (ParseException e) {
                 theCause = e;
+            } finally {
+                if (open != null) {
+                    SearcherCache.instance().release(open);
+                }
             }
+            Metrics.time(Metrics.INDEX_FIND, book.getInitials(), "lucene", start);
 
             if (theCause != null) {
                 // TRANSLATOR: Error condition: An unexpected error happened that caused search to fail.
@@ -341,10 +471,181 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
             } else {
                 results = book.createEmptyKeyList();
             }
+        } else if (unfiltered) {
+            results.retainAll(restriction);
         }
         return results;
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.SelectiveIndex#estimate(java.lang.String)
+     */
+    public int estimate(String search) throws BookException {
+        if (search == null) {
+            return 0;
+        }
+
+        Throwable theCause = null;
+        SearcherCache.OpenIndex open = null;
+        try {
+            open = SearcherCache.instance().acquire(book.getInitials(), path);
+            IndexReader reader = open.getSearcher().getIndexReader();
+            return estimate(parse(search), reader);
+        } catch (IOException e) {
+            theCause = e;
+        } catch (ParseException e) {
+            theCause = e;
+        } finally {
+            if (open != null) {
+                SearcherCache.instance().release(open);
+            }
+        }
+        // TRANSLATOR: Error condition: An unexpected error happened that caused search to fail.
+        throw new BookException(JSMsg.gettext("Search failed."), theCause);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.ProximityIndex#findNear(java.lang.String, java.lang.String, int, org.crosswire.jsword.passage.Key)
+     */
+    public Key findNear(String search, String near, int distance, Key restriction) throws BookException {
+        // Chapters are indexed on their own, so what is near has to be in the same one.
+        // Ranking is left to the searches of each.
+        SearchModifier modifier = getSearchModifier();
+        if (search == null || near == null || distance < 0 || (modifier != null && modifier.isRanked())
+                || RestrictionType.getDefaultBlurRestriction() != RestrictionType.CHAPTER) {
+            return null;
+        }
+
+        Throwable theCause = null;
+        long start = Metrics.begin();
+        SearcherCache.OpenIndex open = null;
+        try {
+            open = SearcherCache.instance().acquire(book.getInitials(), path);
+            IndexReader reader = open.getSearcher().getIndexReader();
+            if (!hasField(reader, FIELD_PROXIMITY)) {
+                return null;
+            }
+
+            SpanQuery query = ProximitySearch.toSpanQuery(parse(search));
+            SpanQuery nearQuery = ProximitySearch.toSpanQuery(parse(near));
+            if (query == null || nearQuery == null) {
+                return null;
+            }
+            log.info("ProximityQuery- {} within {} of {}", new Object[] {query, Integer.valueOf(distance), nearQuery});
+
+            Key results = book.createEmptyKeyList();
+            // If we have an abstract passage,
+            // make sure it does not try to fire change events.
+            AbstractPassage passage = null;
+            if (results instanceof AbstractPassage) {
+                passage = (AbstractPassage) results;
+                passage.raiseEventSuppresion();
+                passage.raiseNormalizeProtection();
+            }
+            ProximitySearch.find(reader, query, nearQuery, distance, getVersification(), results);
+            if (restriction != null) {
+                results.retainAll(restriction);
+            }
+            if (passage != null) {
+                passage.lowerNormalizeProtection();
+                passage.lowerEventSuppressionAndTest();
+            }
+            Metrics.time(Metrics.INDEX_FIND, book.getInitials(), "lucene", start);
+            return results;
+        } catch (IOException e) {
+            theCause = e;
+        } catch (ParseException e) {
+            theCause = e;
+        } finally {
+            if (open != null) {
+                SearcherCache.instance().release(open);
+            }
+        }
+        // TRANSLATOR: Error condition: An unexpected error happened that caused search to fail.
+        throw new BookException(JSMsg.gettext("Search failed."), theCause);
+    }
+
+    /**
+     * Estimate from the document frequencies of its terms how many documents
+     * a query matches. A term matches as many as it is in, a phrase no more
+     * than its rarest term, all of several clauses no more than the most
+     * selective and any of them no more than all of them together. Anything
+     * else, such as a wildcard, is assumed to match everything.
+     */
+    private int estimate(Query query, IndexReader reader) throws IOException {
+        if (query instanceof TermQuery) {
+            return reader.docFreq(((TermQuery) query).getTerm());
+        }
+
+        if (query instanceof PhraseQuery) {
+            int least = reader.maxDoc();
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                least = Math.min(least, reader.docFreq(term));
+            }
+            return least;
+        }
+
+        if (query instanceof BooleanQuery) {
+            int required = -1;
+            int optional = 0;
+            for (BooleanClause clause : ((BooleanQuery) query).getClauses()) {
+                if (clause.isProhibited()) {
+                    continue;
+                }
+                int matched = estimate(clause.getQuery(), reader);
+                if (clause.isRequired()) {
+                    required = required < 0 ? matched : Math.min(required, matched);
+                } else {
+                    optional = (int) Math.min((long) optional + matched, reader.maxDoc());
+                }
+            }
+            // Only prohibited clauses match nothing
+            return required >= 0 ? required : optional;
+        }
+
+        return reader.maxDoc();
+    }
+
+    /**
+     * Parse a search into a Lucene query.
+     */
+    private Query parse(String search) throws ParseException {
+        QueryParser parser = new QueryParser(Version.LUCENE_29, LuceneIndex.FIELD_BODY, new LuceneAnalyzer(book));
+        parser.setAllowLeadingWildcard(true);
+        return parser.parse(search);
+    }
+
+    /**
+     * Indexes built before verses were indexed with their ordinal cannot be
+     * restricted by it, nor can those built before chapters were indexed be
+     * searched for proximity.
+     * 
+     * @return whether the index has the field
+     */
+    private static boolean hasField(IndexReader reader, String field) {
+        return reader.getFieldNames(IndexReader.FieldOption.INDEXED).contains(field);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.StrongsIndex#getStrongsConcordance()
+     */
+    public StrongsConcordance getStrongsConcordance() {
+        // It is loaded the first time it is asked for.
+        StrongsConcordance result = strongsConcordance;
+        if (result == null) {
+            File file = new File(path, StrongsConcordance.FILE_NAME);
+            if (file.isFile()) {
+                try {
+                    result = StrongsConcordance.read(file);
+                    strongsConcordance = result;
+                } catch (IOException e) {
+                    log.warn("Unable to read Strong's concordance {}", file, e);
+                }
+            }
+        }
+        return result;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.index.Index#getKey(java.lang.String)
      */
@@ -356,28 +657,47 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
      * @see org.crosswire.jsword.index.Index#close()
      */
     public final void close() {
-        IOUtil.close(searcher);
-        searcher = null;
-        IOUtil.close(directory);
-        directory = null;
+        // Searches that are using it finish first
+        unpinSearcher();
+        SearcherCache.instance().evict(path);
+        strongsConcordance = null;
     }
 
     /**
-     * Dig down into a Key indexing as we go.
-     * @param policy 
+     * Save the cross-references of a successfully indexed book. Failing to
+     * do so does not fail the index.
+     */
+    private void storeCrossReferences(CrossReferenceCollector xrefs) {
+        if (xrefs == null) {
+            return;
+        }
+        try {
+            CrossReferenceIndex.instance().store(xrefs);
+        } catch (IOException e) {
+            log.warn("Unable to store cross-references for {}", book.getInitials(), e);
+        }
+    }
+
+    /**
+     * @return the versification of the book, or the default
      */
-    private void generateSearchIndexImpl(Progress job, List<Key> errors, IndexWriter writer, Key key, int count, IndexPolicy policy) throws BookException, IOException {
+    private Versification getVersification() {
         String v11nName = null;
         if (book.getBookMetaData().getProperty("Versification") != null) {
             v11nName = book.getBookMetaData().getProperty("Versification").toString();
         }
-        Versification v11n = Versifications.instance().getVersification(v11nName);
-        boolean includeStrongs = book.getBookMetaData().hasFeature(FeatureType.STRONGS_NUMBERS) && policy.isStrongsIndexed();
-        boolean includeXrefs = book.getBookMetaData().hasFeature(FeatureType.SCRIPTURE_REFERENCES) && policy.isXrefIndexed();
-        boolean includeNotes = book.getBookMetaData().hasFeature(FeatureType.FOOTNOTES) && policy.isNoteIndexed();
-        boolean includeHeadings = book.getBookMetaData().hasFeature(FeatureType.HEADINGS) && policy.isTitleIndexed();
-        boolean includeMorphology = book.getBookMetaData().hasFeature(FeatureType.MORPHOLOGY) && policy.isMorphIndexed();
+        return Versifications.instance().getVersification(v11nName);
+    }
 
+    /**
+     * Dig down into a Key indexing as we go.
+     * @param policy 
+     * @param concordance where to record Strong's Numbers, may be null
+     * @param xrefs where to record cross-references, may be null
+     * @param chapters where to put the text of chapters, may be null
+     * @param checkpoint which Bible books are done
+     */
+    private void generateSearchIndexImpl(Progress job, List<Key> errors, IndexWriter writer, Key key, int count, IndexPolicy policy, StrongsConcordance concordance, CrossReferenceCollector xrefs, ChapterIndexer chapters, IndexCheckpoint checkpoint) throws BookException, IOException {
         String oldRootName = "";
         int percent = 0;
         String rootName = "";
@@ -386,14 +706,7 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
 
         // Set up for reuse.
         Document doc = new Document();
-        Field keyField = new Field(FIELD_KEY, "", Field.Store.YES, Field.Index.NOT_ANALYZED, Field.TermVector.NO);
-        Field bodyField = new Field(FIELD_BODY, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field introField = new Field(FIELD_INTRO, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field strongField = new Field(FIELD_STRONG, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.YES);
-        Field xrefField = new Field(FIELD_XREF, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field noteField = new Field(FIELD_NOTE, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field headingField = new Field(FIELD_HEADING, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field morphologyField  = new Field(FIELD_MORPHOLOGY , "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
+        DocumentFactory factory = new DocumentFactory(policy, true);
 
         int size = key.getCardinality();
         int subCount = count;
@@ -403,7 +716,20 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
             // However, tree keyed Books do. So we only index the leaf keys.
             // FIXME(DMS): Should not use recursion!!!!
             if (subkey.canHaveChildren()) {
-                generateSearchIndexImpl(job, errors, writer, subkey, subCount, policy);
+                generateSearchIndexImpl(job, errors, writer, subkey, subCount, policy, concordance, xrefs, chapters, checkpoint);
+                continue;
+            }
+
+            // A chapter is written before the book it is in is committed.
+            if (chapters != null) {
+                chapters.reached(subkey, writer);
+            }
+            checkpoint.reached(subkey, writer);
+            // Verses indexed by an interrupted build are only read again
+            // for what is collected from them.
+            boolean done = checkpoint.isDone(subkey);
+            if (done && concordance == null && xrefs == null) {
+                subCount++;
                 continue;
             }
 
@@ -417,6 +743,227 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                 continue;
             }
 
+            boolean indexed = factory.fill(doc, subkey, osis);
+
+            if (concordance != null && factory.isStrongsIndexed() && subkey instanceof Verse) {
+                concordance.add((Verse) subkey, osis);
+            }
+
+            if (xrefs != null) {
+                xrefs.add(subkey, osis);
+            }
+
+            // Add the document if we added more than just the key.
+            if (indexed && !done) {
+                writer.addDocument(doc);
+                if (chapters != null && subkey instanceof Verse) {
+                    chapters.add((Verse) subkey, factory.getText());
+                }
+            }
+
+            // report progress
+            rootName = subkey.getRootName();
+            if (!rootName.equals(oldRootName)) {
+                oldRootName = rootName;
+                // Note, this does not cause progress to be updated
+                // It will show up the next time progress is updated.
+                job.setSectionName(rootName);
+            }
+
+            subCount++;
+            int oldPercent = percent;
+            percent = WORK_ESTIMATE * subCount / size;
+
+            // Only send out a max of 95 progress updates
+            if (oldPercent != percent) {
+                job.setWork(percent);
+            }
+
+            // This could take a long time ...
+            IndexThrottle.pace();
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Bring the index up to date with entries of the book that have been
+     * changed since it was built. Each entry replaces what was indexed for
+     * its key, and one that is now empty is removed. The changes are
+     * committed together and are searchable once this returns. It waits for
+     * a build of the same index to be put in place first, and does nothing
+     * if there is then no index.
+     * 
+     * @param keys
+     *            the entries that have been changed
+     * @param policy
+     *            what is to be indexed
+     * @throws IOException
+     *             if the index could not be written
+     */
+    void update(Collection<Key> keys, IndexPolicy policy) throws IOException {
+        synchronized (getMutex(policy)) {
+            if (new File(path).isDirectory()) {
+                write(keys, policy);
+            }
+        }
+    }
+
+    /**
+     * Lock on metadata to allow creation of multiple indexes, so long as they are on different books.
+     * Otherwise lock on a single object to make this serial.
+     * 
+     * @param policy
+     *            what is to be indexed
+     * @return what a build or an update of this index locks on
+     */
+    private Object getMutex(IndexPolicy policy) {
+        return policy.isSerial() ? CREATING : book.getBookMetaData();
+    }
+
+    /**
+     * Write the entries that have changed into the index.
+     */
+    private void write(Collection<Key> keys, IndexPolicy policy) throws IOException {
+        Directory directory = FSDirectory.open(new File(path));
+        IndexWriter writer = null;
+        try {
+            // An index without verse ordinals or chapters must not get some
+            boolean includeOrdinal;
+            boolean includeChapters;
+            IndexReader reader = IndexReader.open(directory, true);
+            try {
+                includeOrdinal = hasField(reader, FIELD_ORDINAL);
+                includeChapters = hasField(reader, FIELD_CHAPTER);
+            } finally {
+                reader.close();
+            }
+
+            Analyzer analyzer = new LuceneAnalyzer(book);
+            writer = new IndexWriter(directory, analyzer, false, IndexWriter.MaxFieldLength.UNLIMITED);
+            Document doc = new Document();
+            DocumentFactory factory = new DocumentFactory(policy, includeOrdinal);
+            SortedSet<Integer> changed = new TreeSet<Integer>();
+            for (Key key : keys) {
+                for (Key subkey : key) {
+                    if (subkey.canHaveChildren()) {
+                        continue;
+                    }
+
+                    Element osis = null;
+                    try {
+                        osis = new BookData(book, subkey).getOsisFragment(false);
+                    } catch (BookException e) {
+                        log.warn("Unable to index {} of {}", subkey.getOsisRef(), book.getInitials(), e);
+                    }
+
+                    Term term = new Term(FIELD_KEY, subkey.getOsisRef());
+                    if (osis != null && factory.fill(doc, subkey, osis)) {
+                        writer.updateDocument(term, doc);
+                    } else {
+                        writer.deleteDocuments(term);
+                    }
+
+                    if (includeChapters && subkey instanceof Verse) {
+                        changed.add(Integer.valueOf(ChapterIndexer.getChapter((Verse) subkey)));
+                    }
+                }
+            }
+
+            // Each chapter with a verse that changed is indexed anew
+            ChapterIndexer chapters = new ChapterIndexer(analyzer);
+            for (Integer chapter : changed) {
+                updateChapter(chapter.intValue(), chapters, writer);
+            }
+            writer.close();
+            writer = null;
+        } finally {
+            if (writer != null) {
+                writer.rollback();
+            }
+            directory.close();
+        }
+
+        unpinSearcher();
+        SearcherCache.instance().refresh(book.getInitials(), path);
+    }
+
+    /**
+     * Index the text of all the verses of a chapter as the chapter.
+     * 
+     * @param chapter the ordinal of the introduction of the chapter
+     * @param chapters the indexer of chapters
+     * @param writer where the chapter is written
+     * @throws IOException
+     */
+    private void updateChapter(int chapter, ChapterIndexer chapters, IndexWriter writer) throws IOException {
+        Versification v11n = getVersification();
+        Verse intro = v11n.decodeOrdinal(chapter);
+        int last = v11n.getLastVerse(intro.getBook(), intro.getChapter());
+        for (int i = 0; i <= last; i++) {
+            Verse verse = v11n.decodeOrdinal(chapter + i);
+            String text = null;
+            try {
+                text = OSISUtil.getCanonicalText(new BookData(book, verse).getOsisFragment(false));
+            } catch (BookException e) {
+                log.warn("Unable to index {} of {}", verse.getOsisRef(), book.getInitials(), e);
+            }
+            chapters.add(verse, text);
+        }
+        chapters.flush(writer);
+    }
+
+    /**
+     * Turns the entries of the book into documents, as the policy says.
+     * The fields are reused from one document to the next.
+     */
+    private final class DocumentFactory {
+        DocumentFactory(IndexPolicy policy, boolean includeOrdinal) {
+            BookMetaData bmd = book.getBookMetaData();
+            v11n = getVersification();
+            this.includeOrdinal = includeOrdinal;
+            includeStrongs = bmd.hasFeature(FeatureType.STRONGS_NUMBERS) && policy.isStrongsIndexed();
+            includeXrefs = bmd.hasFeature(FeatureType.SCRIPTURE_REFERENCES) && policy.isXrefIndexed();
+            includeNotes = bmd.hasFeature(FeatureType.FOOTNOTES) && policy.isNoteIndexed();
+            includeHeadings = bmd.hasFeature(FeatureType.HEADINGS) && policy.isTitleIndexed();
+            includeMorphology = bmd.hasFeature(FeatureType.MORPHOLOGY) && policy.isMorphIndexed();
+
+            keyField = new Field(FIELD_KEY, "", Field.Store.YES, Field.Index.NOT_ANALYZED, Field.TermVector.NO);
+            bodyField = new Field(FIELD_BODY, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
+            introField = new Field(FIELD_INTRO, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
+            strongField = new Field(FIELD_STRONG, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.YES);
+            xrefField = new Field(FIELD_XREF, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
+            noteField = new Field(FIELD_NOTE, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
+            headingField = new Field(FIELD_HEADING, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
+            morphologyField = new Field(FIELD_MORPHOLOGY, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
+            ordinalField = new NumericField(FIELD_ORDINAL, Field.Store.NO, true);
+        }
+
+        /**
+         * @return whether Strong's Numbers are indexed
+         */
+        boolean isStrongsIndexed() {
+            return includeStrongs;
+        }
+
+        /**
+         * @return the canonical text of the entry that was last filled in
+         */
+        String getText() {
+            return text;
+        }
+
+        /**
+         * Replace the fields of the document with those of an entry.
+         * 
+         * @param doc the document to fill
+         * @param subkey the key of the entry
+         * @param osis the entry
+         * @return whether more than just the key was added, in which case the
+         *         ordinal of a verse is added too
+         */
+        boolean fill(Document doc, Key subkey, Element osis) {
             // Remove all fields from the document
             doc.getFields().clear();
 
@@ -425,10 +972,11 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
             keyField.setValue(subkey.getOsisRef());
             doc.add(keyField);
 
+            text = OSISUtil.getCanonicalText(osis);
             if (subkey instanceof Verse && ((Verse) subkey).getVerse() == 0) {
-                addField(doc, introField, OSISUtil.getCanonicalText(osis));
+                addField(doc, introField, text);
             } else {
-                addField(doc, bodyField, OSISUtil.getCanonicalText(osis));
+                addField(doc, bodyField, text);
             }
 
             if (includeStrongs) {
@@ -437,7 +985,7 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
 
             if (includeXrefs) {
                 // We pass book and key because the xref may not be valid and it needs to be reported.
-                addField(doc, xrefField, OSISUtil.getReferences(this.book, subkey, v11n, osis));
+                addField(doc, xrefField, OSISUtil.getReferences(book, subkey, v11n, osis));
             }
 
             if (includeNotes) {
@@ -453,62 +1001,82 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                 addField(doc, morphologyField, OSISUtil.getMorphologiesWithStrong(osis));
             }
 
-            // Add the document if we added more than just the key.
-            if (doc.getFields().size() > 1) {
-                writer.addDocument(doc);
+            if (doc.getFields().size() == 1) {
+                return false;
             }
 
-            // report progress
-            rootName = subkey.getRootName();
-            if (!rootName.equals(oldRootName)) {
-                oldRootName = rootName;
-                // Note, this does not cause progress to be updated
-                // It will show up the next time progress is updated.
-                job.setSectionName(rootName);
-            }
-
-            subCount++;
-            int oldPercent = percent;
-            percent = WORK_ESTIMATE * subCount / size;
-
-            // Only send out a max of 95 progress updates
-            if (oldPercent != percent) {
-                job.setWork(percent);
+            if (includeOrdinal && subkey instanceof Verse) {
+                ordinalField.setIntValue(((Verse) subkey).getOrdinal());
+                doc.add(ordinalField);
             }
+            return true;
+        }
 
-            // This could take a long time ...
-            Thread.yield();
-            if (Thread.currentThread().isInterrupted()) {
-                break;
+        /**
+         * Add the text to the Field and put the Field in the document,
+         * ignoring null and empty text.
+         * 
+         * @param doc The Document to which the Field should be added
+         * @param field The Field to add
+         * @param text The text for the field
+         */
+        private void addField(Document doc, Field field, String text) {
+            if (text != null && text.length() > 0) {
+                field.setValue(text);
+                doc.add(field);
             }
         }
-    }
 
-    /**
-     * Add the text to the Field and put the Field in the document,
-     * ignoring null and empty text.
-     * 
-     * @param doc The Document to which the Field should be added
-     * @param field The Field to add
-     * @param text The text for the field
-     */
-    private void addField(Document doc, Field field, String text) {
-        if (text != null && text.length() > 0) {
-            field.setValue(text);
-            doc.add(field);
-        }
+        private final Versification v11n;
+        private final boolean includeOrdinal;
+        private final boolean includeStrongs;
+        private final boolean includeXrefs;
+        private final boolean includeNotes;
+        private final boolean includeHeadings;
+        private final boolean includeMorphology;
+        private final Field keyField;
+        private final Field bodyField;
+        private final Field introField;
+        private final Field strongField;
+        private final Field xrefField;
+        private final Field noteField;
+        private final Field headingField;
+        private final Field morphologyField;
+        private final NumericField ordinalField;
+        private String text;
     }
 
     /**
-     * Could be null if the index has been closed down. This is helpful to third party applications which wish to have greater control over 
+     * Could be null if the index could not be opened. This is helpful to third party applications which wish to have greater control over 
      * the underlying Lucene functionality.
      * 
-     * Note: by using this method, you need to ensure you don't close the searcher while it is being used.
+     * Note: the searcher is shared through the {@link SearcherCache}. It is kept open for the caller, even when the
+     * cache has to close others, until this index is rebuilt, updated or closed. So it should not be kept past then.
+     * You need to ensure you don't close the searcher while it is being used.
      * See {@link org.crosswire.jsword.index.IndexManager#closeAllIndexes()} for more information
      * @return the searcher
      */
-    public Searcher getSearcher() {
-        return searcher;
+    public synchronized Searcher getSearcher() {
+        if (pinned == null) {
+            try {
+                pinned = SearcherCache.instance().acquire(book.getInitials(), path);
+            } catch (IOException ex) {
+                log.warn("Unable to open index {}", path, ex);
+                return null;
+            }
+        }
+        return pinned.getSearcher();
+    }
+
+    /**
+     * Let go of the searcher given out by getSearcher, so that it is closed
+     * once the cache no longer has it.
+     */
+    private synchronized void unpinSearcher() {
+        if (pinned != null) {
+            SearcherCache.instance().release(pinned);
+            pinned = null;
+        }
     }
 
     /**
@@ -522,14 +1090,20 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
     private String path;
 
     /**
-     * The Lucene directory for the path.
+     * The Strong's concordance, once it has been loaded
+     */
+    private volatile StrongsConcordance strongsConcordance;
+
+    /**
+     * The index whose searcher was given out by getSearcher, held open for
+     * whoever has it.
      */
-    private Directory directory;
+    private SearcherCache.OpenIndex pinned;
 
     /**
-     * The Lucene search engine
+     * Where an index that is being replaced is put aside
      */
-    private Searcher searcher;
+    private static final String OLD_SUFFIX = ".old";
 
     /**
      * A synchronization lock point to prevent us from doing 2 index runs at a
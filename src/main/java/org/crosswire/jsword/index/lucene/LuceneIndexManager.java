@@ -22,8 +22,8 @@ package org.crosswire.jsword.index.lucene;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.crosswire.common.util.CWProject;
 import org.crosswire.common.util.FileUtil;
@@ -35,10 +35,12 @@ import org.crosswire.jsword.book.Book;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.BookMetaData;
 import org.crosswire.jsword.index.Index;
-import org.crosswire.jsword.index.IndexManager;
 import org.crosswire.jsword.index.IndexPolicy;
 import org.crosswire.jsword.index.IndexPolicyAdapter;
 import org.crosswire.jsword.index.IndexStatus;
+import org.crosswire.jsword.index.UpdatableIndexManager;
+import org.crosswire.jsword.index.xref.CrossReferenceIndex;
+import org.crosswire.jsword.passage.Key;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,12 +56,13 @@ import org.slf4j.LoggerFactory;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author Joe Walker
  */
-public class LuceneIndexManager implements IndexManager {
+public class LuceneIndexManager implements UpdatableIndexManager {
     /**
      * Create a LuceneIndexManager with a default IndexPolicy.
      */
     public LuceneIndexManager() {
         policy = new IndexPolicyAdapter();
+        updater = new IndexUpdater(this);
         try {
             baseFolderURI = CWProject.instance().getWritableProjectSubdir(DIR_LUCENE, false);
         } catch (IOException ex) {
@@ -91,9 +94,14 @@ public class LuceneIndexManager implements IndexManager {
         try {
             Index reply = INDEXES.get(book);
             if (reply == null) {
-                URI storage = getStorageArea(book);
-                reply = new LuceneIndex(book, storage);
-                INDEXES.put(book, reply);
+                synchronized (INDEXES) {
+                    reply = INDEXES.get(book);
+                    if (reply == null) {
+                        URI storage = getStorageArea(book);
+                        reply = new LuceneIndex(book, storage);
+                        INDEXES.put(book, reply);
+                    }
+                }
             }
 
             return reply;
@@ -148,7 +156,11 @@ public class LuceneIndexManager implements IndexManager {
             // We were successful if the directory exists.
             if (NetUtil.getAsFile(storage).exists()) {
                 finalStatus = IndexStatus.DONE;
-                INDEXES.put(book, index);
+                Index old = INDEXES.put(book, index);
+                if (old != null) {
+                    // Let go of any searcher it was holding on the replaced index
+                    old.close();
+                }
 
                 //update IndexVersion
                 InstalledIndex.instance().storeLatestVersionAsInstalledIndexMetadata(book);
@@ -162,6 +174,23 @@ public class LuceneIndexManager implements IndexManager {
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.UpdatableIndexManager#scheduleIndexUpdate(org.crosswire.jsword.book.Book, org.crosswire.jsword.passage.Key)
+     */
+    public void scheduleIndexUpdate(Book book, Key key) {
+        // A book without an index gets the change when it is indexed
+        if (isIndexed(book)) {
+            updater.add(book, key);
+        }
+    }
+
+    /**
+     * @return what keeps the indexes of writable books up to date
+     */
+    public IndexUpdater getIndexUpdater() {
+        return updater;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.index.IndexManager#installDownloadedIndex(org.crosswire.jsword.book.Book, java.net.URI)
      */
@@ -213,6 +242,9 @@ public class LuceneIndexManager implements IndexManager {
             //Delete index Version metadata (InstalledIndex)
             InstalledIndex.instance().removeFromInstalledIndexMetadata(book);
 
+            // and what it contributed to the "referenced by" index
+            CrossReferenceIndex.instance().remove(book);
+
         } catch (IOException ex) {
             // TRANSLATOR: Error condition: The index could not be deleted.
             throw new BookException(JSMsg.gettext("Failed to delete search index."), ex);
@@ -264,11 +296,13 @@ public class LuceneIndexManager implements IndexManager {
 
     private IndexPolicy policy;
     private URI baseFolderURI;
+    private final IndexUpdater updater;
 
     /**
-     * The created indexes
+     * The created indexes. They are opened when searched and kept open by the
+     * {@link SearcherCache}.
      */
-    protected static final Map<Book, Index> INDEXES = new HashMap<Book, Index>();
+    protected static final Map<Book, Index> INDEXES = new ConcurrentHashMap<Book, Index>();
 
     /**
      * The lucene search index directory
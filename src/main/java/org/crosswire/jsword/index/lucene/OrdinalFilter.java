@@ -0,0 +1,187 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.NumericRangeFilter;
+import org.apache.lucene.util.OpenBitSet;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Versification;
+
+/**
+ * Limits a search to the verses of a restriction, using the ordinal that
+ * each verse is indexed with. Lucene then only scores the documents of those
+ * verses.
+ * 
+ * <p>A restriction of a few ranges, such as a range of books, is looked up
+ * range by range in the index of ordinals. One that is scattered, such as
+ * what another search found, is checked document by document against the
+ * cached ordinals.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class OrdinalFilter extends Filter {
+    /**
+     * Create a filter of ranges of ordinals.
+     * 
+     * @param starts
+     *            the first ordinal of each range, in order
+     * @param ends
+     *            the last ordinal of each range
+     * @param count
+     *            the number of ranges
+     */
+    OrdinalFilter(int[] starts, int[] ends, int count) {
+        this.starts = starts;
+        this.ends = ends;
+        this.count = count;
+    }
+
+    /**
+     * Create a filter of the verses of a key.
+     * 
+     * @param restriction
+     *            the verses to search within
+     * @param v11n
+     *            the versification of the index
+     * @return the filter, or null if the key is not all verses of the
+     *         versification
+     */
+    static OrdinalFilter create(Key restriction, Versification v11n) {
+        int[] ordinals = new int[Math.max(16, restriction.getCardinality())];
+        int size = 0;
+        for (Key key : restriction) {
+            if (!(key instanceof Verse)) {
+                return null;
+            }
+            Verse verse = (Verse) key;
+            if (!v11n.equals(verse.getVersification())) {
+                return null;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = verse.getOrdinal();
+        }
+
+        // A ranked restriction is not in order
+        Arrays.sort(ordinals, 0, size);
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int ordinal = ordinals[i];
+            if (count > 0 && ordinal <= ends[count - 1] + 1) {
+                ends[count - 1] = Math.max(ends[count - 1], ordinal);
+            } else {
+                starts[count] = ordinal;
+                ends[count] = ordinal;
+                count++;
+            }
+        }
+        return new OrdinalFilter(starts, ends, count);
+    }
+
+    /**
+     * @return the number of ranges of ordinals
+     */
+    int getRangeCount() {
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.lucene.search.Filter#getDocIdSet(org.apache.lucene.index.IndexReader)
+     */
+    @Override
+    public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+        OpenBitSet bits = new OpenBitSet(reader.maxDoc());
+        if (count <= MAX_RANGE_LOOKUPS) {
+            for (int i = 0; i < count; i++) {
+                Filter range = NumericRangeFilter.newIntRange(LuceneIndex.FIELD_ORDINAL, Integer.valueOf(starts[i]), Integer.valueOf(ends[i]), true, true);
+                DocIdSet docs = range.getDocIdSet(reader);
+                DocIdSetIterator iter = docs == null ? null : docs.iterator();
+                if (iter == null) {
+                    continue;
+                }
+                for (int doc = iter.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iter.nextDoc()) {
+                    bits.fastSet(doc);
+                }
+            }
+        } else {
+            int[] ordinals = FieldCache.DEFAULT.getInts(reader, LuceneIndex.FIELD_ORDINAL, FieldCache.NUMERIC_UTILS_INT_PARSER);
+            for (int doc = 0; doc < ordinals.length; doc++) {
+                if (contains(ordinals[doc])) {
+                    bits.fastSet(doc);
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @return whether the ordinal is in one of the ranges
+     */
+    boolean contains(int ordinal) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] < ordinal) {
+                low = mid + 1;
+            } else if (starts[mid] > ordinal) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "OrdinalFilter(" + count + " ranges)";
+    }
+
+    /**
+     * Beyond this many ranges it is cheaper to check every document.
+     */
+    private static final int MAX_RANGE_LOOKUPS = 64;
+
+    private final int[] starts;
+    private final int[] ends;
+    private final int count;
+
+    /**
+     * Serialization ID
+     */
+    private static final long serialVersionUID = -73651127952689685L;
+}
@@ -0,0 +1,196 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanOrQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.apache.lucene.search.spans.Spans;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.versification.Versification;
+
+/**
+ * Finds the verses that have something within a number of verses of
+ * something else, using the chapters that the {@link ChapterIndexer} put in
+ * the index. A chapter can only have such verses if the two are within so
+ * many verse gaps of each other in it, which Lucene finds from the positions
+ * of their words. Only in those chapters are the verses of each compared.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class ProximitySearch {
+    /**
+     * Prevent instantiation
+     */
+    private ProximitySearch() {
+    }
+
+    /**
+     * Turn a query of the text of verses into one of the positions of its
+     * words in chapters. Only words, phrases and alternatives of them can be
+     * turned. For anything else, such as a wildcard, a required word or
+     * another field, null is returned.
+     * 
+     * @param query
+     *            the parsed query
+     * @return the query of the chapters, or null
+     */
+    static SpanQuery toSpanQuery(Query query) {
+        if (query instanceof TermQuery) {
+            return toSpanQuery(((TermQuery) query).getTerm());
+        }
+
+        if (query instanceof PhraseQuery) {
+            PhraseQuery phrase = (PhraseQuery) query;
+            Term[] terms = phrase.getTerms();
+            int[] places = phrase.getPositions();
+            if (terms.length == 0) {
+                return null;
+            }
+            SpanQuery[] clauses = new SpanQuery[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                clauses[i] = toSpanQuery(terms[i]);
+                if (clauses[i] == null) {
+                    return null;
+                }
+            }
+            if (clauses.length == 1) {
+                return clauses[0];
+            }
+            // Words that were left out, such as stop words, still take a place
+            int gaps = places[places.length - 1] - places[0] - (places.length - 1);
+            return new SpanNearQuery(clauses, phrase.getSlop() + gaps, phrase.getSlop() == 0);
+        }
+
+        if (query instanceof BooleanQuery) {
+            BooleanClause[] clauses = ((BooleanQuery) query).getClauses();
+            if (clauses.length == 0) {
+                return null;
+            }
+            SpanQuery[] alternatives = new SpanQuery[clauses.length];
+            for (int i = 0; i < clauses.length; i++) {
+                if (clauses[i].getOccur() != BooleanClause.Occur.SHOULD) {
+                    return null;
+                }
+                alternatives[i] = toSpanQuery(clauses[i].getQuery());
+                if (alternatives[i] == null) {
+                    return null;
+                }
+            }
+            return alternatives.length == 1 ? alternatives[0] : new SpanOrQuery(alternatives);
+        }
+
+        return null;
+    }
+
+    private static SpanQuery toSpanQuery(Term term) {
+        if (!LuceneIndex.FIELD_BODY.equals(term.field())) {
+            return null;
+        }
+        return new SpanTermQuery(new Term(LuceneIndex.FIELD_PROXIMITY, term.text()));
+    }
+
+    /**
+     * Find the verses that match the one query and are within a distance of
+     * a verse in the same chapter that matches the other.
+     * 
+     * @param reader
+     *            the index
+     * @param query
+     *            what is to be found
+     * @param near
+     *            what has to be near
+     * @param distance
+     *            how many verses apart they can be
+     * @param v11n
+     *            the versification of the index
+     * @param results
+     *            where the verses are put
+     * @throws IOException
+     */
+    static void find(IndexReader reader, SpanQuery query, SpanQuery near, int distance, Versification v11n, Key results) throws IOException {
+        // The positions of words in verses that are close enough can be no
+        // further apart than this, but in the same verses they can be.
+        int slop = (distance + 1) * ChapterIndexer.VERSE_GAP;
+        Spans chapters = new SpanNearQuery(new SpanQuery[] {
+                query, near
+        }, slop, false).getSpans(reader);
+        VerseSpans found = new VerseSpans(query.getSpans(reader));
+        VerseSpans nearby = new VerseSpans(near.getSpans(reader));
+
+        boolean more = chapters.next();
+        while (more) {
+            int doc = chapters.doc();
+            BitSet foundVerses = found.getVerses(doc);
+            BitSet nearVerses = nearby.getVerses(doc);
+            int chapter = -1;
+            for (int verse = foundVerses.nextSetBit(0); verse >= 0; verse = foundVerses.nextSetBit(verse + 1)) {
+                int close = nearVerses.nextSetBit(Math.max(0, verse - distance));
+                if (close >= 0 && close <= verse + distance) {
+                    if (chapter < 0) {
+                        chapter = Integer.parseInt(reader.document(doc).get(LuceneIndex.FIELD_CHAPTER));
+                    }
+                    results.addAll(v11n.decodeOrdinal(chapter + verse));
+                }
+            }
+            more = chapters.skipTo(doc + 1);
+        }
+    }
+
+    /**
+     * Gives the verses of each chapter that spans are in. The chapters are
+     * to be asked for in order.
+     */
+    private static final class VerseSpans {
+        VerseSpans(Spans spans) {
+            this.spans = spans;
+            this.more = true;
+        }
+
+        BitSet getVerses(int doc) throws IOException {
+            BitSet verses = new BitSet();
+            if (more && (!started || spans.doc() < doc)) {
+                more = spans.skipTo(doc);
+                started = true;
+            }
+            while (more && spans.doc() == doc) {
+                verses.set(spans.start() / ChapterIndexer.VERSE_GAP);
+                more = spans.next();
+            }
+            return verses;
+        }
+
+        private final Spans spans;
+        private boolean started;
+        private boolean more;
+    }
+}
@@ -0,0 +1,416 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.crosswire.common.metrics.Metrics;
+import org.crosswire.common.util.IOUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of open search indexes, shared by all LuceneIndexes. Each
+ * open index holds file handles and heap, so only the most recently used
+ * are kept open. The rest are opened again when they are next searched.
+ * 
+ * <p>Each use of an open index is counted, so that one that is evicted while
+ * it is being searched is closed only when the last search is done. An index
+ * is only ever opened once, however many threads ask for it at once.</p>
+ * 
+ * <p>How an index is read can be chosen for each book, see
+ * {@link #setStorage(String, IndexStorage)}.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class SearcherCache {
+    /**
+     * Create a cache that keeps the given number of indexes open.
+     * 
+     * @param maxOpen
+     *            the most indexes to keep open
+     */
+    SearcherCache(int maxOpen) {
+        this.maxOpen = Math.max(1, maxOpen);
+        this.entries = new LinkedHashMap<String, OpenIndex>(16, 0.75f, true);
+        this.storage = new ConcurrentHashMap<String, IndexStorage>();
+        this.opens = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.searches = new AtomicLong();
+    }
+
+    /**
+     * @return the cache shared by all LuceneIndexes
+     */
+    public static SearcherCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the most indexes that are kept open
+     */
+    public int getMaxOpen() {
+        return maxOpen;
+    }
+
+    /**
+     * Set the most indexes that are kept open. If more are open, the least
+     * recently used are evicted.
+     * 
+     * @param maxOpen
+     *            the most indexes to keep open, at least 1
+     */
+    public void setMaxOpen(int maxOpen) {
+        List<OpenIndex> closing;
+        synchronized (this) {
+            this.maxOpen = Math.max(1, maxOpen);
+            closing = evictExcess();
+        }
+        close(closing);
+    }
+
+    /**
+     * Choose how the index of a book is read. It takes effect the next time
+     * the index is opened.
+     * 
+     * @param initials
+     *            the initials of the book
+     * @param choice
+     *            how its index is read, or null for the default
+     */
+    public void setStorage(String initials, IndexStorage choice) {
+        if (choice == null) {
+            storage.remove(initials);
+        } else {
+            storage.put(initials, choice);
+        }
+    }
+
+    /**
+     * @param initials
+     *            the initials of a book
+     * @return how its index is read
+     */
+    public IndexStorage getStorage(String initials) {
+        IndexStorage choice = storage.get(initials);
+        return choice == null ? IndexStorage.FILE : choice;
+    }
+
+    /**
+     * @return the number of indexes that are open and cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of times an index has been opened
+     */
+    public long getOpenCount() {
+        return opens.get();
+    }
+
+    /**
+     * @return the number of times an index has been evicted
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of times an index has been used to search
+     */
+    public long getSearchCount() {
+        return searches.get();
+    }
+
+    /**
+     * Get the open index at the given location, opening it if need be. It
+     * must be released when it is no longer used.
+     * 
+     * @param initials
+     *            the initials of the book
+     * @param path
+     *            the location of the index
+     * @return the open index
+     * @throws IOException
+     *             if the index could not be opened
+     */
+    OpenIndex acquire(String initials, String path) throws IOException {
+        searches.incrementAndGet();
+        return open(initials, path);
+    }
+
+    /**
+     * Open the index at the given location again, so that what has been
+     * written to it since it was opened can be searched. Searches that are
+     * using it finish with what they had.
+     * 
+     * @param initials
+     *            the initials of the book
+     * @param path
+     *            the location of the index
+     * @throws IOException
+     *             if the index could not be opened
+     */
+    void refresh(String initials, String path) throws IOException {
+        evict(path);
+        // Open it now rather than on the next search
+        release(open(initials, path));
+    }
+
+    private OpenIndex open(String initials, String path) throws IOException {
+        OpenIndex open;
+        List<OpenIndex> closing = null;
+        synchronized (this) {
+            open = entries.get(path);
+            if (open == null) {
+                open = new OpenIndex(initials, path, getStorage(initials));
+                entries.put(path, open);
+                closing = evictExcess();
+            }
+            open.refs++;
+        }
+        close(closing);
+
+        try {
+            if (open.open()) {
+                opens.incrementAndGet();
+                Metrics.increment(Metrics.INDEX_OPEN, initials, "lucene");
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                if (entries.get(path) == open) {
+                    entries.remove(path);
+                }
+            }
+            release(open);
+            throw e;
+        }
+        return open;
+    }
+
+    /**
+     * Stop using an open index. If it has been evicted and this was the last
+     * use of it, it is closed.
+     * 
+     * @param open
+     *            the index gotten from acquire
+     */
+    void release(OpenIndex open) {
+        boolean close;
+        synchronized (this) {
+            open.refs--;
+            close = open.refs == 0 && open.evicted;
+        }
+        if (close) {
+            open.close();
+        }
+    }
+
+    /**
+     * Close the index at the given location once it is no longer being
+     * searched. It will be opened again the next time it is needed, for
+     * example when it has been rebuilt.
+     * 
+     * @param path
+     *            the location of the index
+     */
+    public void evict(String path) {
+        OpenIndex open;
+        synchronized (this) {
+            open = entries.remove(path);
+            if (open == null || !evicted(open)) {
+                open = null;
+            }
+        }
+        if (open != null) {
+            open.close();
+        }
+    }
+
+    /**
+     * Close all the indexes once they are no longer being searched.
+     */
+    public void evictAll() {
+        List<OpenIndex> closing = new ArrayList<OpenIndex>();
+        synchronized (this) {
+            for (OpenIndex open : entries.values()) {
+                if (evicted(open)) {
+                    closing.add(open);
+                }
+            }
+            entries.clear();
+        }
+        close(closing);
+    }
+
+    /**
+     * Evict the least recently used indexes beyond the limit. Must be called
+     * holding the lock.
+     * 
+     * @return those that can be closed now
+     */
+    private List<OpenIndex> evictExcess() {
+        List<OpenIndex> closing = null;
+        Iterator<Map.Entry<String, OpenIndex>> iter = entries.entrySet().iterator();
+        while (entries.size() > maxOpen && iter.hasNext()) {
+            OpenIndex open = iter.next().getValue();
+            iter.remove();
+            if (evicted(open)) {
+                if (closing == null) {
+                    closing = new ArrayList<OpenIndex>();
+                }
+                closing.add(open);
+            }
+        }
+        return closing;
+    }
+
+    /**
+     * Mark an index as evicted. Must be called holding the lock.
+     * 
+     * @return whether it is not in use and can be closed now
+     */
+    private boolean evicted(OpenIndex open) {
+        open.evicted = true;
+        evictions.incrementAndGet();
+        Metrics.increment(Metrics.INDEX_EVICT, open.initials, "lucene");
+        return open.refs == 0;
+    }
+
+    private static void close(List<OpenIndex> closing) {
+        if (closing != null) {
+            for (OpenIndex open : closing) {
+                open.close();
+            }
+        }
+    }
+
+    /**
+     * An index that is, or is about to be, open.
+     */
+    static final class OpenIndex {
+        OpenIndex(String initials, String path, IndexStorage storage) {
+            this.initials = initials;
+            this.path = path;
+            this.storage = storage;
+        }
+
+        /**
+         * @return the searcher of the index
+         */
+        IndexSearcher getSearcher() {
+            return searcher;
+        }
+
+        /**
+         * @return whether the index has been closed
+         */
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Open the index, if it is not already.
+         * 
+         * @return whether it was opened by this call
+         */
+        synchronized boolean open() throws IOException {
+            if (searcher != null) {
+                return false;
+            }
+            Directory dir = storage.open(new File(path));
+            try {
+                searcher = new IndexSearcher(dir, true);
+            } finally {
+                if (searcher == null) {
+                    IOUtil.close(dir);
+                }
+            }
+            directory = dir;
+            return true;
+        }
+
+        synchronized void close() {
+            LOGGER.debug("Closing index {}", path);
+            IOUtil.close(searcher);
+            searcher = null;
+            IOUtil.close(directory);
+            directory = null;
+            closed = true;
+        }
+
+        private final String initials;
+        private final String path;
+        private final IndexStorage storage;
+        private volatile IndexSearcher searcher;
+        private Directory directory;
+        private boolean closed;
+
+        /**
+         * The number of searches using this index, guarded by the cache
+         */
+        private int refs;
+
+        /**
+         * Whether it has been removed from the cache, guarded by the cache
+         */
+        private boolean evicted;
+    }
+
+    /**
+     * The most indexes that are kept open.
+     */
+    private volatile int maxOpen;
+
+    /**
+     * The open indexes by location, least recently used first.
+     */
+    private final LinkedHashMap<String, OpenIndex> entries;
+
+    /**
+     * How each book's index is read, by initials.
+     */
+    private final Map<String, IndexStorage> storage;
+
+    private final AtomicLong opens;
+    private final AtomicLong evictions;
+    private final AtomicLong searches;
+
+    private static final int DEFAULT_MAX_OPEN = 32;
+    private static final SearcherCache INSTANCE = new SearcherCache(DEFAULT_MAX_OPEN);
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearcherCache.class);
+}
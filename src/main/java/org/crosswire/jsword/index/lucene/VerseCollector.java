@@ -71,8 +71,13 @@ public class VerseCollector extends Collector {
     @Override
     public void collect(int docId) throws IOException {
         Document doc = searcher.doc(docBase + docId);
+        String osisRef = doc.get(LuceneIndex.FIELD_KEY);
+        if (osisRef == null) {
+            // Whole chapters are indexed for proximity. They are not verses.
+            return;
+        }
         try {
-            Key key = VerseFactory.fromString(v11n, doc.get(LuceneIndex.FIELD_KEY));
+            Key key = VerseFactory.fromString(v11n, osisRef);
             results.addAll(key);
         } catch (NoSuchVerseException e) {
             // Wrap the NoSuchVerseException in an IOException so it can be
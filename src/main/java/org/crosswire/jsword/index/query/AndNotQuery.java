@@ -29,7 +29,7 @@ import org.crosswire.jsword.passage.Key;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class AndNotQuery extends AbstractBinaryQuery {
+public class AndNotQuery extends AbstractBinaryQuery implements PlannedQuery {
 
     /**
      * Create a query where the right query result is subtracted from the left
@@ -50,13 +50,28 @@ public class AndNotQuery extends AbstractBinaryQuery {
      * .index.search.Index)
      */
     public Key find(Index index) throws BookException {
-        Key left = getLeftQuery().find(index);
+        return find(index, null);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#estimate(org.crosswire.jsword.index.Index)
+     */
+    public int estimate(Index index) throws BookException {
+        return QueryPlanner.estimate(getLeftQuery(), index);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(Index index, Key restriction) throws BookException {
+        Key left = QueryPlanner.find(getLeftQuery(), index, restriction);
 
         if (left.isEmpty()) {
             return left;
         }
 
-        Key right = getRightQuery().find(index);
+        // Only what is in the left needs to be looked for
+        Key right = QueryPlanner.find(getRightQuery(), index, left);
 
         if (right.isEmpty()) {
             return left;
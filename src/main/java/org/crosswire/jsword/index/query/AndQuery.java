@@ -21,7 +21,6 @@ package org.crosswire.jsword.index.query;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
 import org.crosswire.jsword.passage.Key;
-import org.crosswire.jsword.passage.PassageTally;
 
 /**
  * An AND query specifies that a result needs to be in both the left and the
@@ -30,7 +29,7 @@ import org.crosswire.jsword.passage.PassageTally;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class AndQuery extends AbstractBinaryQuery {
+public class AndQuery extends AbstractBinaryQuery implements PlannedQuery {
 
     /**
      * Create a query where the result is the intersection of two queries.
@@ -50,25 +49,22 @@ public class AndQuery extends AbstractBinaryQuery {
      * .index.search.Index)
      */
     public Key find(Index index) throws BookException {
-        Key left = getLeftQuery().find(index);
-
-        if (left.isEmpty()) {
-            return left;
-        }
-
-        Key right = getRightQuery().find(index);
-
-        if (right.isEmpty()) {
-            return right;
-        }
+        return find(index, null);
+    }
 
-        // If ranking was requested then prioritize it.
-        if (right instanceof PassageTally) {
-            right.retainAll(left);
-            return right;
-        }
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#estimate(org.crosswire.jsword.index.Index)
+     */
+    public int estimate(Index index) throws BookException {
+        return Math.min(QueryPlanner.estimate(getLeftQuery(), index), QueryPlanner.estimate(getRightQuery(), index));
+    }
 
-        left.retainAll(right);
-        return left;
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(Index index, Key restriction) throws BookException {
+        // The more selective side is searched first and restricts the other.
+        // If ranking was requested then it is kept.
+        return QueryPlanner.intersect(getLeftQuery(), getRightQuery(), index, restriction);
     }
 }
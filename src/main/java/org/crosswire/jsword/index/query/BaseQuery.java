@@ -20,6 +20,7 @@ package org.crosswire.jsword.index.query;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.SelectiveIndex;
 import org.crosswire.jsword.passage.Key;
 
 /**
@@ -28,7 +29,7 @@ import org.crosswire.jsword.passage.Key;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class BaseQuery extends AbstractQuery {
+public class BaseQuery extends AbstractQuery implements PlannedQuery {
 
     /**
      * Construct a query from a string.
@@ -49,4 +50,24 @@ public class BaseQuery extends AbstractQuery {
     public Key find(Index index) throws BookException {
         return index.find(getQuery());
     }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#estimate(org.crosswire.jsword.index.Index)
+     */
+    public int estimate(Index index) throws BookException {
+        if (index instanceof SelectiveIndex) {
+            return ((SelectiveIndex) index).estimate(getQuery());
+        }
+        return QueryPlanner.UNKNOWN;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(Index index, Key restriction) throws BookException {
+        if (index instanceof SelectiveIndex) {
+            return ((SelectiveIndex) index).find(getQuery(), restriction);
+        }
+        return QueryPlanner.restrict(index.find(getQuery()), restriction);
+    }
 }
@@ -20,6 +20,7 @@ package org.crosswire.jsword.index.query;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.ProximityIndex;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.RestrictionType;
 
@@ -30,7 +31,7 @@ import org.crosswire.jsword.passage.RestrictionType;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class BlurQuery extends AbstractBinaryQuery {
+public class BlurQuery extends AbstractBinaryQuery implements PlannedQuery {
     /**
      * Create a query that specifies how much to blur the results of the right
      * query before ANDing it to the left.
@@ -52,23 +53,71 @@ public class BlurQuery extends AbstractBinaryQuery {
      * .index.search.Index)
      */
     public Key find(Index index) throws BookException {
-        Key left = getLeftQuery().find(index);
+        return find(index, null);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#estimate(org.crosswire.jsword.index.Index)
+     */
+    public int estimate(Index index) throws BookException {
+        int left = QueryPlanner.estimate(getLeftQuery(), index);
+        int right = QueryPlanner.estimate(getRightQuery(), index);
+        if (right != QueryPlanner.UNKNOWN) {
+            // Each hit on the right covers its neighbors
+            right = (int) Math.min((long) right * (2 * factor + 1), QueryPlanner.UNKNOWN - 1);
+        }
+        return Math.min(left, right);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(Index index, Key restriction) throws BookException {
+        // An index that can tell what is near itself does it in one search
+        if (index instanceof ProximityIndex && getLeftQuery() instanceof BaseQuery && getRightQuery() instanceof BaseQuery) {
+            String left = ((BaseQuery) getLeftQuery()).getQuery();
+            String right = ((BaseQuery) getRightQuery()).getQuery();
+            Key near = ((ProximityIndex) index).findNear(left, right, factor, restriction);
+            if (near != null) {
+                return near;
+            }
+        }
+
+        RestrictionType blurRestriction = RestrictionType.getDefaultBlurRestriction();
+
+        // A hit on the one side is near a hit on the other only if it is
+        // within the other blurred. So whichever is searched first restricts
+        // the search of the other to what it finds, blurred.
+        if (QueryPlanner.estimate(getLeftQuery(), index) <= QueryPlanner.estimate(getRightQuery(), index)) {
+            Key left = QueryPlanner.find(getLeftQuery(), index, restriction);
+
+            if (left.isEmpty()) {
+                return left;
+            }
+
+            Key right = QueryPlanner.find(getRightQuery(), index, blur(left, blurRestriction));
+
+            if (right.isEmpty()) {
+                return right;
+            }
+
+            right.blur(factor, blurRestriction);
+
+            left.retainAll(right);
 
-        if (left.isEmpty()) {
             return left;
         }
 
-        Key right = getRightQuery().find(index);
+        Key right = QueryPlanner.find(getRightQuery(), index, restriction == null ? null : blur(restriction, blurRestriction));
 
         if (right.isEmpty()) {
             return right;
         }
 
-        right.blur(factor, RestrictionType.getDefaultBlurRestriction());
+        right.blur(factor, blurRestriction);
+        QueryPlanner.restrict(right, restriction);
 
-        left.retainAll(right);
-
-        return left;
+        return QueryPlanner.find(getLeftQuery(), index, right);
     }
 
     /**
@@ -78,5 +127,14 @@ public class BlurQuery extends AbstractBinaryQuery {
         return factor;
     }
 
+    /**
+     * @return a blurred copy of the key
+     */
+    private Key blur(Key key, RestrictionType blurRestriction) {
+        Key blurred = key.clone();
+        blurred.blur(factor, blurRestriction);
+        return blurred;
+    }
+
     private int factor;
 }
@@ -29,7 +29,7 @@ import org.crosswire.jsword.passage.Key;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class NullQuery implements Query {
+public class NullQuery implements PlannedQuery {
     /**
      * Create a NullQuery.
      */
@@ -47,4 +47,18 @@ public class NullQuery implements Query {
         return index.find(null);
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#estimate(org.crosswire.jsword.index.Index)
+     */
+    public int estimate(Index index) {
+        return 0;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(Index index, Key restriction) throws BookException {
+        return index.find(null);
+    }
+
 }
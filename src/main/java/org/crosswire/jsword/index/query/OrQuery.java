@@ -30,7 +30,7 @@ import org.crosswire.jsword.passage.PassageTally;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class OrQuery extends AbstractBinaryQuery {
+public class OrQuery extends AbstractBinaryQuery implements PlannedQuery {
 
     /**
      * @param theLeftQuery 
@@ -44,8 +44,22 @@ public class OrQuery extends AbstractBinaryQuery {
      * @see org.crosswire.jsword.index.query.Query#find(org.crosswire.jsword.index.Index)
      */
     public Key find(Index index) throws BookException {
-        Key left = getLeftQuery().find(index);
-        Key right = getRightQuery().find(index);
+        return find(index, null);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#estimate(org.crosswire.jsword.index.Index)
+     */
+    public int estimate(Index index) throws BookException {
+        return QueryPlanner.add(QueryPlanner.estimate(getLeftQuery(), index), QueryPlanner.estimate(getRightQuery(), index));
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(Index index, Key restriction) throws BookException {
+        Key left = QueryPlanner.find(getLeftQuery(), index, restriction);
+        Key right = QueryPlanner.find(getRightQuery(), index, restriction);
 
         if (left.isEmpty()) {
             return right;
@@ -0,0 +1,59 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ */
+package org.crosswire.jsword.index.query;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * A Query that can be planned. It can estimate how much it will find, so
+ * that the selective parts of a query are run first, and it can search
+ * within what they found.
+ * 
+ * @see QueryPlanner
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public interface PlannedQuery extends Query {
+    /**
+     * Estimate how many keys the query will find in the index.
+     * 
+     * @param index
+     *            the index to search
+     * @return about how many keys will be found, or
+     *         {@link QueryPlanner#UNKNOWN}
+     * @throws BookException
+     */
+    int estimate(Index index) throws BookException;
+
+    /**
+     * Find the keys that match the query in the index and are in the
+     * restriction.
+     * 
+     * @param index
+     *            the index to search
+     * @param restriction
+     *            what to search within, or null to search everything. It is
+     *            not changed.
+     * @return the set of keys that match
+     * @throws BookException
+     */
+    Key find(Index index, Key restriction) throws BookException;
+}
@@ -0,0 +1,172 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ */
+package org.crosswire.jsword.index.query;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.PassageTally;
+
+/**
+ * Runs a tree of queries so that the least is searched. The side of an AND
+ * that is estimated to find the least is run first, and what it finds
+ * restricts the search of the other side. An empty result ends the AND
+ * without running the other side at all. Range restrictions are handed to
+ * the index, which can search only the entries within them.
+ * 
+ * <p>Queries that are not {@link PlannedQuery}s are run as they always were
+ * and what they find is then restricted.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class QueryPlanner {
+    /**
+     * Prevent instantiation
+     */
+    private QueryPlanner() {
+    }
+
+    /**
+     * Estimate how many keys a query will find.
+     * 
+     * @param query
+     *            the query to estimate
+     * @param index
+     *            the index to search
+     * @return about how many keys will be found, or {@link #UNKNOWN}
+     * @throws BookException
+     */
+    public static int estimate(Query query, Index index) throws BookException {
+        if (query instanceof PlannedQuery) {
+            return ((PlannedQuery) query).estimate(index);
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Find the keys that match a query and are in the restriction.
+     * 
+     * @param query
+     *            the query to run
+     * @param index
+     *            the index to search
+     * @param restriction
+     *            what to search within, or null to search everything
+     * @return the set of keys that match
+     * @throws BookException
+     */
+    public static Key find(Query query, Index index, Key restriction) throws BookException {
+        if (restriction != null && restriction.isEmpty()) {
+            // Nothing can be found within nothing
+            return index.find(null);
+        }
+        if (query instanceof PlannedQuery) {
+            return ((PlannedQuery) query).find(index, restriction);
+        }
+        return restrict(query.find(index), restriction);
+    }
+
+    /**
+     * Find the keys that match both queries, running the more selective
+     * first.
+     * 
+     * @param left
+     *            one query
+     * @param right
+     *            the other query
+     * @param index
+     *            the index to search
+     * @param restriction
+     *            what to search within, or null to search everything
+     * @return the intersection
+     * @throws BookException
+     */
+    public static Key intersect(Query left, Query right, Index index, Key restriction) throws BookException {
+        Query first = left;
+        Query second = right;
+        if (estimate(right, index) < estimate(left, index)) {
+            first = right;
+            second = left;
+        }
+
+        Key found = find(first, index, restriction);
+        if (found.isEmpty()) {
+            return found;
+        }
+
+        // What the second finds is already within the first
+        Key both = find(second, index, found);
+        return rank(both, found);
+    }
+
+    /**
+     * Add two estimates, which may be {@link #UNKNOWN}.
+     * 
+     * @param left
+     *            an estimate
+     * @param right
+     *            another estimate
+     * @return their sum
+     */
+    public static int add(int left, int right) {
+        long sum = (long) left + right;
+        return sum >= UNKNOWN ? UNKNOWN : (int) sum;
+    }
+
+    /**
+     * Remove from what was found everything that is not in the restriction.
+     * 
+     * @param found
+     *            what was found, which is changed
+     * @param restriction
+     *            what to keep, or null to keep everything
+     * @return what was found
+     */
+    public static Key restrict(Key found, Key restriction) {
+        if (restriction != null && !found.isEmpty()) {
+            found.retainAll(restriction);
+        }
+        return found;
+    }
+
+    /**
+     * Of two results, one of which is within the other, keep the smaller.
+     * But if ranking was requested then keep the ranking.
+     * 
+     * @param within
+     *            the smaller result
+     * @param outer
+     *            the result it is within, which may be changed
+     * @return the smaller result, ranked if either was
+     */
+    static Key rank(Key within, Key outer) {
+        if (outer instanceof PassageTally && !(within instanceof PassageTally)) {
+            outer.retainAll(within);
+            return outer;
+        }
+        return within;
+    }
+
+    /**
+     * The estimate of a query that cannot tell how much it will find. It is
+     * run after those that can.
+     */
+    public static final int UNKNOWN = Integer.MAX_VALUE;
+}
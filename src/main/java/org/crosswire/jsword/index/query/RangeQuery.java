@@ -31,7 +31,7 @@ import org.crosswire.jsword.passage.NoSuchKeyException;
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
-public class RangeQuery extends AbstractQuery {
+public class RangeQuery extends AbstractQuery implements PlannedQuery {
 
     /**
      * Construct a query from the range specification.
@@ -50,6 +50,24 @@ public class RangeQuery extends AbstractQuery {
      * .index.search.Index)
      */
     public Key find(Index index) throws BookException {
+        return getRange(index);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#estimate(org.crosswire.jsword.index.Index)
+     */
+    public int estimate(Index index) throws BookException {
+        return getRange(index).getCardinality();
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.query.PlannedQuery#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(Index index, Key restriction) throws BookException {
+        return QueryPlanner.restrict(getRange(index), restriction);
+    }
+
+    private Key getRange(Index index) throws BookException {
         String range = getQuery();
         try {
             return index.getKey(range);
@@ -54,6 +54,16 @@
   </li>
   <li><code>BlurQuery</code>: Like an AndQuery except that the right query is first blurred by a requested amount.</li>
 </ul>
+<h2>Query Planning</h2>
+<p>
+  The <code>QueryPlanner</code> runs the queries that are <code>PlannedQuery</code>s so that
+  the least is searched. Each estimates how much it will find. The more selective side of an
+  AND is run first and what it finds restricts the search of the other side. An index that is
+  a <code>SelectiveIndex</code> can search within a restriction, rather than searching
+  everything and then throwing most of it away. An index that is a <code>ProximityIndex</code>
+  can find what is near something else in one search, and the <code>BlurQuery</code> of two
+  simple queries asks it to before blurring anything.
+</p>
 <h2>Query Parsing</h2>
 <p>
   The <code>QueryBuilder</code> takes a search request as a string and generates a Query from it.
@@ -0,0 +1,118 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ */
+package org.crosswire.jsword.index.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.passage.PassageTally;
+
+/**
+ * The merged results of searching many books with a {@link FederatedSearch}.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class FederatedResult {
+    /**
+     * @param tally
+     *            the merged verses, in the common versification
+     */
+    FederatedResult(PassageTally tally) {
+        this.tally = tally;
+        this.hits = new LinkedHashMap<Book, Integer>();
+        this.missed = new ArrayList<Book>();
+        this.failures = new IdentityHashMap<Book, BookException>();
+    }
+
+    /**
+     * The verses found in all the books that have verses, mapped onto the
+     * common versification. A verse found in several books, or ranked highly
+     * in them, is ranked higher.
+     * 
+     * @return the merged verses, ordered by rank
+     */
+    public PassageTally getTally() {
+        return tally;
+    }
+
+    /**
+     * @return the number of matches in each book that answered, in the
+     *         order the books were given
+     */
+    public Map<Book, Integer> getHitCounts() {
+        return Collections.unmodifiableMap(hits);
+    }
+
+    /**
+     * @param book
+     *            the book
+     * @return the number of matches in the book, or -1 if it did not answer
+     */
+    public int getHitCount(Book book) {
+        Integer count = hits.get(book);
+        return count == null ? -1 : count.intValue();
+    }
+
+    /**
+     * @return the books that were not searched, failed or did not answer in
+     *         time
+     */
+    public List<Book> getMissed() {
+        return Collections.unmodifiableList(missed);
+    }
+
+    /**
+     * @param book
+     *            the book
+     * @return why searching the book failed, or null if it did not fail
+     */
+    public BookException getFailure(Book book) {
+        return failures.get(book);
+    }
+
+    /**
+     * @return whether every book answered
+     */
+    public boolean isComplete() {
+        return missed.isEmpty();
+    }
+
+    void addHits(Book book, int count) {
+        hits.put(book, Integer.valueOf(count));
+    }
+
+    void addMissed(Book book, BookException failure) {
+        missed.add(book);
+        if (failure != null) {
+            failures.put(book, failure);
+        }
+    }
+
+    private PassageTally tally;
+    private Map<Book, Integer> hits;
+    private List<Book> missed;
+    private Map<Book, BookException> failures;
+}
@@ -0,0 +1,295 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ */
+package org.crosswire.jsword.index.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.crosswire.jsword.JSMsg;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.VersificationsMapper;
+
+/**
+ * Search many books at once, such as all the English Bibles, and merge the
+ * results. Each book is searched on its own thread, up to a limit. The
+ * verses found are mapped onto a common versification and merged into one
+ * ranked {@link PassageTally}, and the number of matches in each book is
+ * kept, so books that do not have verses, such as dictionaries, can still
+ * be searched together with Bibles.
+ * 
+ * <p>The search can be given a timeout. Books that have not answered by then
+ * are left out of the result and reported as missed.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class FederatedSearch {
+    /**
+     * Search on a pool of threads that lasts as long as each search.
+     * 
+     * @param v11n
+     *            the versification to merge the verses into
+     */
+    public FederatedSearch(Versification v11n) {
+        this(v11n, null);
+    }
+
+    /**
+     * Search on a shared executor. The caller remains responsible for
+     * shutting it down.
+     * 
+     * @param v11n
+     *            the versification to merge the verses into
+     * @param executor
+     *            where to search each book
+     */
+    public FederatedSearch(Versification v11n, ExecutorService executor) {
+        this.v11n = v11n;
+        this.executor = executor;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.maxResults = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param threads
+     *            the most books to search at once, when this has its own pool
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param maxResults
+     *            the most verses to keep in the merged tally, with
+     *            Integer.MAX_VALUE meaning all
+     */
+    public void setMaxResults(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * @param timeout
+     *            the time allowed for the whole search, or 0 for no limit
+     * @param unit
+     *            the unit of the timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutMillis = unit.toMillis(timeout);
+    }
+
+    /**
+     * Search the books.
+     * 
+     * @param books
+     *            the books to search
+     * @param request
+     *            what to search for. A ranked request merges the ranks of
+     *            each book, otherwise a verse is ranked by the number of
+     *            books it was found in.
+     * @return the merged result
+     * @throws BookException
+     *             if the search was interrupted
+     */
+    public FederatedResult search(Collection<Book> books, SearchRequest request) throws BookException {
+        List<Book> searched = new ArrayList<Book>(books);
+        ExecutorService pool = executor;
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, searched.size())), new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "FederatedSearch");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+
+        BookHits[] answers = new BookHits[searched.size()];
+        BookException[] failures = new BookException[searched.size()];
+        List<Future<BookHits>> futures = new ArrayList<Future<BookHits>>(searched.size());
+        try {
+            CompletionService<BookHits> completion = new ExecutorCompletionService<BookHits>(pool);
+            for (int i = 0; i < searched.size(); i++) {
+                futures.add(completion.submit(new BookSearch(i, searched.get(i), request)));
+            }
+
+            long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : 0;
+            for (int done = 0; done < futures.size(); done++) {
+                Future<BookHits> future;
+                if (deadline == 0) {
+                    future = completion.take();
+                } else {
+                    future = completion.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                    if (future == null) {
+                        break;
+                    }
+                }
+                try {
+                    BookHits answer = future.get();
+                    answers[answer.position] = answer;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    int position = futures.indexOf(future);
+                    failures[position] = cause instanceof BookException
+                            ? (BookException) cause
+                            // TRANSLATOR: Error condition: An unexpected error happened that caused search to fail.
+                            : new BookException(JSMsg.gettext("Search failed."), cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // TRANSLATOR: Error condition: the user or a timeout stopped a search.
+            throw new BookException(JSMsg.gettext("Search cancelled."), e);
+        } finally {
+            // Searches that are still running are left to finish, as
+            // interrupting a Lucene search closes the index files.
+            for (Future<BookHits> future : futures) {
+                future.cancel(false);
+            }
+            if (pool != executor) {
+                pool.shutdown();
+            }
+        }
+
+        return merge(searched, answers, failures);
+    }
+
+    /**
+     * Search a single book. This is called on a worker thread.
+     * 
+     * @param book
+     *            the book to search
+     * @param request
+     *            what to search for
+     * @return the matches
+     * @throws BookException
+     *             if the book could not be searched
+     */
+    protected Key search(Book book, SearchRequest request) throws BookException {
+        return book.find(request);
+    }
+
+    private FederatedResult merge(List<Book> books, BookHits[] answers, BookException[] failures) {
+        PassageTally tally = new PassageTally(v11n);
+        tally.raiseEventSuppresion();
+        tally.raiseNormalizeProtection();
+        int total = 0;
+        FederatedResult result = new FederatedResult(tally);
+        for (int i = 0; i < answers.length; i++) {
+            BookHits answer = answers[i];
+            if (answer == null) {
+                result.addMissed(books.get(i), failures[i]);
+                continue;
+            }
+            result.addHits(answer.book, answer.count);
+            if (answer.verses != null) {
+                tally.addAll(answer.verses);
+                total += answer.count;
+            }
+        }
+        tally.setTotal(total);
+        tally.setOrdering(PassageTally.Order.TALLY);
+        if (maxResults < Integer.MAX_VALUE) {
+            tally.trimVerses(maxResults);
+        }
+        tally.lowerNormalizeProtection();
+        tally.lowerEventSuppressionAndTest();
+        return result;
+    }
+
+    /**
+     * Search one book and map its verses onto the common versification.
+     */
+    private final class BookSearch implements Callable<BookHits> {
+        BookSearch(int position, Book book, SearchRequest request) {
+            this.position = position;
+            this.book = book;
+            this.request = request;
+        }
+
+        public BookHits call() throws BookException {
+            Key found = search(book, request);
+            if (!(found instanceof Passage)) {
+                return new BookHits(position, book, found.getCardinality(), null);
+            }
+
+            PassageTally ranked = found instanceof PassageTally ? (PassageTally) found : null;
+            int count = ranked != null && ranked.getTotal() > 0 ? ranked.getTotal() : found.getCardinality();
+            if (ranked != null && ranked.getVersification().equals(v11n)) {
+                return new BookHits(position, book, count, ranked);
+            }
+
+            PassageTally verses = new PassageTally(v11n);
+            verses.raiseEventSuppresion();
+            verses.raiseNormalizeProtection();
+            VersificationsMapper mapper = VersificationsMapper.instance();
+            for (Key key : found) {
+                Verse verse = (Verse) key;
+                int rank = ranked == null ? 1 : ranked.getTallyOf(verse);
+                Key mapped = mapper.mapVerse(verse, v11n);
+                verses.add(mapped, rank);
+            }
+            verses.lowerNormalizeProtection();
+            verses.lowerEventSuppressionAndTest();
+            return new BookHits(position, book, count, verses);
+        }
+
+        private int position;
+        private Book book;
+        private SearchRequest request;
+    }
+
+    /**
+     * What was found in one book.
+     */
+    private static final class BookHits {
+        BookHits(int position, Book book, int count, PassageTally verses) {
+            this.position = position;
+            this.book = book;
+            this.count = count;
+            this.verses = verses;
+        }
+
+        int position;
+        Book book;
+        int count;
+        PassageTally verses;
+    }
+
+    private Versification v11n;
+    private ExecutorService executor;
+    private int threads;
+    private int maxResults;
+    private long timeoutMillis;
+}
@@ -0,0 +1,202 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.xref;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.crosswire.common.util.IOUtil;
+
+/**
+ * The cross-references made by one book, sorted by the ordinal of the verse
+ * referred to. Each posting is a target ordinal, in the default
+ * versification, and the index of the referring key. Once built it is not
+ * changed.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class BookReferences {
+    /**
+     * Create the references of a book.
+     *
+     * @param initials
+     *            the initials of the book
+     * @param keys
+     *            the names of the referring keys
+     * @param targets
+     *            the target ordinals, ascending
+     * @param sources
+     *            the index into keys of each target
+     */
+    BookReferences(String initials, String[] keys, int[] targets, int[] sources) {
+        this.initials = initials;
+        this.keys = keys;
+        this.targets = targets;
+        this.sources = sources;
+    }
+
+    /**
+     * @return the initials of the book
+     */
+    String getInitials() {
+        return initials;
+    }
+
+    /**
+     * @return the number of postings
+     */
+    int size() {
+        return targets.length;
+    }
+
+    /**
+     * Add the keys that refer to a verse to a list.
+     *
+     * @param ordinal
+     *            the ordinal of the verse in the default versification
+     * @param results
+     *            where to add the references
+     */
+    void find(int ordinal, List<CrossReference> results) {
+        int index = Arrays.binarySearch(targets, ordinal);
+        if (index < 0) {
+            return;
+        }
+        // Back up to the first posting for this ordinal
+        while (index > 0 && targets[index - 1] == ordinal) {
+            index--;
+        }
+        for (; index < targets.length && targets[index] == ordinal; index++) {
+            results.add(new CrossReference(initials, keys[sources[index]]));
+        }
+    }
+
+    /**
+     * Save the references.
+     *
+     * @param file
+     *            where to save them
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    void write(File file) throws IOException {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(initials);
+            out.writeInt(keys.length);
+            for (String key : keys) {
+                out.writeUTF(key);
+            }
+            out.writeInt(targets.length);
+            // The targets are ascending so store the gaps between them
+            int last = 0;
+            for (int i = 0; i < targets.length; i++) {
+                writeVarInt(out, targets[i] - last);
+                writeVarInt(out, sources[i]);
+                last = targets[i];
+            }
+            out.close();
+            out = null;
+        } finally {
+            IOUtil.close(out);
+        }
+    }
+
+    /**
+     * Load references saved by {@link #write(File)}.
+     *
+     * @param file
+     *            where they were saved
+     * @return the references
+     * @throws IOException
+     *             if the file cannot be read or is damaged
+     */
+    static BookReferences read(File file) throws IOException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a cross-reference file: " + file);
+            }
+            String initials = in.readUTF();
+            String[] keys = new String[in.readInt()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = in.readUTF();
+            }
+            int count = in.readInt();
+            int[] targets = new int[count];
+            int[] sources = new int[count];
+            int ordinal = 0;
+            for (int i = 0; i < count; i++) {
+                ordinal += readVarInt(in);
+                targets[i] = ordinal;
+                sources[i] = readVarInt(in);
+                if (sources[i] >= keys.length) {
+                    throw new IOException("Damaged cross-reference file: " + file);
+                }
+            }
+            return new BookReferences(initials, keys, targets, sources);
+        } finally {
+            IOUtil.close(in);
+        }
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number in cross-reference file");
+    }
+
+    private static final int MAGIC = 0x4A535852; // JSXR
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String initials;
+    private final String[] keys;
+    private final int[] targets;
+    private final int[] sources;
+}
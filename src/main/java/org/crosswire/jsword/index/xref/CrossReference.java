@@ -0,0 +1,102 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.xref;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+
+/**
+ * A place in a book that refers to a verse.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class CrossReference {
+    /**
+     * Create a CrossReference.
+     *
+     * @param initials
+     *            the initials of the referring book
+     * @param keyName
+     *            the OSIS reference of the referring key
+     */
+    public CrossReference(String initials, String keyName) {
+        this.initials = initials;
+        this.keyName = keyName;
+    }
+
+    /**
+     * @return the initials of the referring book
+     */
+    public String getInitials() {
+        return initials;
+    }
+
+    /**
+     * @return the OSIS reference of the referring key
+     */
+    public String getKeyName() {
+        return keyName;
+    }
+
+    /**
+     * @return the referring book, or null if it is no longer installed
+     */
+    public Book getBook() {
+        return Books.installed().getBook(initials);
+    }
+
+    /**
+     * @return the referring key, or null if the book is no longer installed
+     * @throws NoSuchKeyException
+     *             if the book no longer has the key
+     */
+    public Key getKey() throws NoSuchKeyException {
+        Book book = getBook();
+        return book == null ? null : book.getKey(keyName);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CrossReference)) {
+            return false;
+        }
+        CrossReference that = (CrossReference) obj;
+        return initials.equals(that.initials) && keyName.equals(that.keyName);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * initials.hashCode() + keyName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return initials + ':' + keyName;
+    }
+
+    private final String initials;
+    private final String keyName;
+}
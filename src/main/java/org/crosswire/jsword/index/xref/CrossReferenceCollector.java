@@ -0,0 +1,189 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.xref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.VersificationsMapper;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.jdom2.Content;
+import org.jdom2.Element;
+
+/**
+ * Gathers the cross-references made by a book while it is being indexed.
+ * The filters turn ThML scripRef, GBF &lt;RX&gt; and OSIS references alike
+ * into OSIS reference elements, so one pass over the OSIS finds them all.
+ *
+ * <p>
+ * Targets are mapped into the default versification so that books with
+ * different versifications can be looked up together. References that
+ * cover more than {@link #MAX_TARGETS} verses, such as a whole book, say
+ * little about any one verse and are left out.
+ * </p>
+ *
+ * <p>
+ * A collector is not thread safe.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class CrossReferenceCollector {
+    /**
+     * Create a collector for a book.
+     *
+     * @param initials
+     *            the initials of the book
+     * @param v11n
+     *            the versification that the book's references are in
+     */
+    public CrossReferenceCollector(String initials, Versification v11n) {
+        this.initials = initials;
+        this.v11n = v11n;
+        this.target = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        this.keys = new ArrayList<String>();
+        this.keyIndexes = new HashMap<String, Integer>();
+        this.postings = new long[64];
+    }
+
+    /**
+     * Record the references in the OSIS of a key.
+     *
+     * @param source
+     *            the key whose content this is
+     * @param osis
+     *            the content
+     */
+    public void add(Key source, Element osis) {
+        for (Content content : OSISUtil.getDeepContent(osis, OSISUtil.OSIS_ELEMENT_REFERENCE)) {
+            String ref = ((Element) content).getAttributeValue(OSISUtil.OSIS_ATTR_REF);
+            if (ref == null || ref.length() == 0) {
+                continue;
+            }
+            try {
+                add(source, PassageKeyFactory.instance().getKey(v11n, ref));
+            } catch (NoSuchKeyException e) {
+                // Bad references are reported when the xref field is indexed
+                continue;
+            }
+        }
+    }
+
+    /**
+     * Record that a key refers to some verses.
+     *
+     * @param source
+     *            the referring key
+     * @param targets
+     *            the verses referred to
+     */
+    public void add(Key source, Key targets) {
+        if (targets.getCardinality() > MAX_TARGETS) {
+            return;
+        }
+
+        int keyIndex = getKeyIndex(source.getOsisRef());
+
+        VersificationsMapper mapper = VersificationsMapper.instance();
+        for (Key key : targets) {
+            Verse verse = (Verse) key;
+            if (verse.getVersification().getName().equals(target.getName())) {
+                addPosting(verse.getOrdinal(), keyIndex);
+            } else {
+                Key mapped = mapper.mapVerse(verse, target);
+                for (Key mappedVerse : mapped) {
+                    addPosting(((Verse) mappedVerse).getOrdinal(), keyIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of references recorded, including repeats
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the references, sorted by target and without repeats
+     */
+    BookReferences toBookReferences() {
+        long[] sorted = Arrays.copyOf(postings, count);
+        Arrays.sort(sorted);
+        int[] targets = new int[count];
+        int[] sources = new int[count];
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && sorted[i] == sorted[i - 1]) {
+                continue;
+            }
+            targets[unique] = (int) (sorted[i] >>> 32);
+            sources[unique] = (int) sorted[i];
+            unique++;
+        }
+        return new BookReferences(initials, keys.toArray(new String[keys.size()]), Arrays.copyOf(targets, unique), Arrays.copyOf(sources, unique));
+    }
+
+    /**
+     * Get the position of a key in the list of keys, adding it if this is
+     * the first reference that it makes.
+     */
+    private int getKeyIndex(String name) {
+        Integer keyIndex = keyIndexes.get(name);
+        if (keyIndex == null) {
+            keyIndex = Integer.valueOf(keys.size());
+            keyIndexes.put(name, keyIndex);
+            keys.add(name);
+        }
+        return keyIndex.intValue();
+    }
+
+    private void addPosting(int ordinal, int keyIndex) {
+        if (count == postings.length) {
+            postings = Arrays.copyOf(postings, count * 2);
+        }
+        // Target in the high half so that sorting orders by target, then key
+        postings[count++] = ((long) ordinal << 32) | keyIndex;
+    }
+
+    /**
+     * The most verses a single reference may cover and still be recorded.
+     */
+    public static final int MAX_TARGETS = 200;
+
+    private String initials;
+    private Versification v11n;
+    private Versification target;
+    private List<String> keys;
+    private Map<String, Integer> keyIndexes;
+    private long[] postings;
+    private int count;
+}
@@ -0,0 +1,288 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.xref;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.crosswire.common.util.CWProject;
+import org.crosswire.common.util.NetUtil;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.BooksEvent;
+import org.crosswire.jsword.book.BooksListener;
+import org.crosswire.jsword.index.lucene.LuceneIndexManager;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.VersificationsMapper;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A singleton that answers "which books and keys refer to this verse?" for
+ * all the books whose cross-references have been collected while indexing.
+ *
+ * <p>
+ * Each book's references are kept in their own file, in the xref directory
+ * of the search index area, so adding or removing a book only touches that
+ * book's file. All the files are read the first time the index is used.
+ * When a book is removed from the installed books its references go too.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class CrossReferenceIndex {
+    /**
+     * All access through this single instance.
+     *
+     * @return the singleton instance
+     */
+    public static CrossReferenceIndex instance() {
+        return CrossReferenceIndexHolder.INSTANCE;
+    }
+
+    /**
+     * Create an index stored in a directory.
+     *
+     * @param directory
+     *            where the books' references are stored, or null to keep
+     *            them only in memory
+     */
+    CrossReferenceIndex(File directory) {
+        this.directory = directory;
+        this.books = new ConcurrentHashMap<String, BookReferences>();
+        this.snapshot = Collections.emptyList();
+        this.v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+    }
+
+    /**
+     * Find what refers to a verse.
+     *
+     * @param verse
+     *            the verse, in any versification
+     * @return the places that refer to it, grouped by book
+     */
+    public List<CrossReference> getReferencesTo(Verse verse) {
+        load();
+        List<CrossReference> results = new ArrayList<CrossReference>();
+        List<BookReferences> sorted = snapshot;
+        if (sorted.isEmpty()) {
+            return results;
+        }
+
+        if (verse.getVersification().getName().equals(v11n.getName())) {
+            find(sorted, verse.getOrdinal(), results);
+        } else {
+            Key mapped = VersificationsMapper.instance().mapVerse(verse, v11n);
+            for (Key mappedVerse : mapped) {
+                find(sorted, ((Verse) mappedVerse).getOrdinal(), results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param book
+     *            the book
+     * @return whether the cross-references of the book have been collected
+     */
+    public boolean isIndexed(Book book) {
+        load();
+        return books.containsKey(book.getInitials());
+    }
+
+    /**
+     * Save and start using the cross-references collected from a book,
+     * replacing any it had before.
+     *
+     * @param collector
+     *            the collected references
+     * @throws IOException
+     *             if they could not be saved
+     */
+    public void store(CrossReferenceCollector collector) throws IOException {
+        load();
+        BookReferences refs = collector.toBookReferences();
+        synchronized (this) {
+            if (directory != null) {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Unable to create " + directory);
+                }
+                File file = getFile(refs.getInitials());
+                File temp = new File(file.getPath() + ".tmp");
+                refs.write(temp);
+                if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+                    if (!temp.delete()) {
+                        temp.deleteOnExit();
+                    }
+                    throw new IOException("Unable to replace " + file);
+                }
+            }
+            books.put(refs.getInitials(), refs);
+            updateSnapshot();
+        }
+    }
+
+    /**
+     * Forget the cross-references of a book.
+     *
+     * @param book
+     *            the book
+     */
+    public void remove(Book book) {
+        remove(book.getInitials());
+    }
+
+    void remove(String initials) {
+        load();
+        synchronized (this) {
+            books.remove(initials);
+            updateSnapshot();
+            if (directory != null) {
+                File file = getFile(initials);
+                if (file.exists() && !file.delete()) {
+                    log.warn("Unable to delete {}", file);
+                }
+            }
+        }
+    }
+
+    private void find(List<BookReferences> sorted, int ordinal, List<CrossReference> results) {
+        for (BookReferences refs : sorted) {
+            refs.find(ordinal, results);
+        }
+    }
+
+    /**
+     * Read all the saved references, once.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            File[] files = directory == null ? null : directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.getName().endsWith(EXTENSION)) {
+                        continue;
+                    }
+                    try {
+                        BookReferences refs = BookReferences.read(file);
+                        books.put(refs.getInitials(), refs);
+                    } catch (IOException e) {
+                        log.warn("Ignoring damaged cross-reference file {}", file, e);
+                    }
+                }
+            }
+            updateSnapshot();
+            loaded = true;
+        }
+    }
+
+    /**
+     * Replace the books that lookups see with the current ones, sorted by
+     * initials. It must be called holding the lock.
+     */
+    private void updateSnapshot() {
+        List<BookReferences> sorted = new ArrayList<BookReferences>(books.values());
+        Collections.sort(sorted, BY_INITIALS);
+        snapshot = Collections.unmodifiableList(sorted);
+    }
+
+    private File getFile(String initials) {
+        return new File(directory, initials + EXTENSION);
+    }
+
+    /**
+     * Find the default place to store cross-references, and follow the
+     * installed books.
+     */
+    static CrossReferenceIndex createDefault() {
+        File dir = null;
+        try {
+            URI lucene = CWProject.instance().getWritableProjectSubdir(LuceneIndexManager.DIR_LUCENE, false);
+            dir = NetUtil.getAsFile(NetUtil.lengthenURI(lucene, DIR_XREF));
+        } catch (IOException ex) {
+            log.error("Failed to find cross-reference storage area.", ex);
+        }
+
+        final CrossReferenceIndex index = new CrossReferenceIndex(dir);
+        Books.installed().addBooksListener(new BooksListener() {
+            public void bookAdded(BooksEvent ev) {
+                // The references are added when the book is indexed
+            }
+
+            public void bookRemoved(BooksEvent ev) {
+                index.remove(ev.getBook());
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Lazily create the singleton.
+     */
+    private static final class CrossReferenceIndexHolder {
+        static final CrossReferenceIndex INSTANCE = createDefault();
+    }
+
+    private static final Comparator<BookReferences> BY_INITIALS = new Comparator<BookReferences>() {
+        public int compare(BookReferences o1, BookReferences o2) {
+            return o1.getInitials().compareTo(o2.getInitials());
+        }
+    };
+
+    /**
+     * The directory, within the search index area, holding cross-references.
+     */
+    public static final String DIR_XREF = "xref";
+
+    private static final String EXTENSION = ".xrf";
+
+    private final File directory;
+    private final Map<String, BookReferences> books;
+    private final Versification v11n;
+    private volatile boolean loaded;
+
+    /**
+     * The books sorted by initials, replaced whenever one is stored or
+     * removed, so that lookups neither lock nor sort.
+     */
+    private volatile List<BookReferences> snapshot;
+
+    /**
+     * The log stream
+     */
+    private static final Logger log = LoggerFactory.getLogger(CrossReferenceIndex.class);
+}
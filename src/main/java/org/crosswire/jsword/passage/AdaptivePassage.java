@@ -0,0 +1,395 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *     The copyright to this program is held by its authors. 
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.BitSet;
+import java.util.Iterator;
+
+import org.crosswire.jsword.versification.Versification;
+
+/**
+ * A Passage that keeps its Verses whichever way takes the least room for
+ * them, and changes as they change. The ways are:
+ * <ul>
+ * <li>the ordinals of the Verses, as a {@link DistinctPassage} does, for a
+ * few scattered Verses, which is what most bookmarks, history and
+ * cross-references are
+ * <li>the ranges of Verses, as a {@link RangedPassage} does, for a few long
+ * ranges, such as whole chapters
+ * <li>a bit for every Verse, as a {@link BitwisePassage} does, for many
+ * Verses
+ * </ul>
+ * 
+ * <p>
+ * It starts as a DistinctPassage. After each change, it works out about how
+ * many bytes each way would take, and changes to another way when that would
+ * take less than half as many. Changes made while events are suppressed are
+ * not looked at until the next change or {@link #optimizeReads()}.
+ * </p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class AdaptivePassage extends AbstractPassage {
+    /**
+     * Create an empty AdaptivePassage.
+     * 
+     * @param v11n
+     *            The Versification to which this Passage belongs.
+     */
+    public AdaptivePassage(Versification v11n) {
+        super(v11n);
+        store = new DistinctPassage(v11n);
+    }
+
+    /**
+     * Create an AdaptivePassage from a human readable string.
+     * 
+     * @param v11n
+     *            The Versification to which this Passage belongs.
+     * @param refs
+     *            A String containing the text of the AdaptivePassage
+     * @param basis
+     *           The basis by which to interpret refs
+     * @throws NoSuchVerseException
+     *             If the string is not valid
+     */
+    protected AdaptivePassage(Versification v11n, String refs, Key basis) throws NoSuchVerseException {
+        super(v11n, refs);
+        store = new DistinctPassage(v11n);
+        addVerses(refs, basis);
+        adapt();
+    }
+
+    protected AdaptivePassage(Versification v11n, String refs) throws NoSuchVerseException {
+        this(v11n, refs, null);
+    }
+
+    @Override
+    public AdaptivePassage clone() {
+        // This gets us a shallow copy
+        AdaptivePassage copy = (AdaptivePassage) super.clone();
+
+        copy.store = store.clone();
+
+        return copy;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Iterable#iterator()
+     */
+    public Iterator<Key> iterator() {
+        return store.iterator();
+    }
+
+    @Override
+    public Iterator<VerseRange> rangeIterator(RestrictionType restrict) {
+        return store.rangeIterator(restrict);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+    @Override
+    public int countVerses() {
+        return store.countVerses();
+    }
+
+    @Override
+    public int countRanges(RestrictionType restrict) {
+        return store.countRanges(restrict);
+    }
+
+    @Override
+    public boolean contains(Key obj) {
+        return store.contains(obj);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.passage.Passage#add(org.crosswire.jsword.passage.Key)
+     */
+    public void add(Key obj) {
+        optimizeWrites();
+
+        if (store == null) {
+            // Being read back in
+            store = new DistinctPassage(getVersification());
+        }
+        store.add(obj);
+        adapt();
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            fireIntervalAdded(this, getStart(obj), getEnd(obj));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.passage.Passage#remove(org.crosswire.jsword.passage.Key)
+     */
+    public void remove(Key obj) {
+        optimizeWrites();
+
+        store.remove(obj);
+        adapt();
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            fireIntervalRemoved(this, getStart(obj), getEnd(obj));
+        }
+    }
+
+    @Override
+    public void addAll(Key key) {
+        //check for key empty. This avoids the AIOBounds with that.getVerseAt, during event firing
+        if (key.isEmpty()) {
+            //nothing to add
+            return;
+        }
+
+        optimizeWrites();
+
+        store.addAll(key);
+        adapt();
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            fireIntervalAdded(this, getStart(key), getEnd(key));
+        }
+    }
+
+    @Override
+    public void removeAll(Key key) {
+        optimizeWrites();
+
+        store.removeAll(key);
+        adapt();
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0 && !key.isEmpty()) {
+            fireIntervalRemoved(this, getStart(key), getEnd(key));
+        }
+    }
+
+    @Override
+    public void retainAll(Key key) {
+        optimizeWrites();
+
+        store.retainAll(key);
+        adapt();
+
+        fireIntervalRemoved(this, null, null);
+    }
+
+    @Override
+    public void clear() {
+        optimizeWrites();
+
+        store = new DistinctPassage(getVersification());
+
+        fireIntervalRemoved(this, null, null);
+    }
+
+    @Override
+    public void blur(int verses, RestrictionType restrict) {
+        optimizeWrites();
+
+        store.blur(verses, restrict);
+        adapt();
+
+        fireIntervalAdded(this, null, null);
+    }
+
+    @Override
+    public void optimizeReads() {
+        adapt();
+        store.optimizeReads();
+    }
+
+    /**
+     * @return the passage the Verses are kept in
+     */
+    Passage getStore() {
+        return store;
+    }
+
+    /**
+     * Change the way the Verses are kept if another way takes much less room.
+     */
+    private void adapt() {
+        if (suppressEvents != 0) {
+            return;
+        }
+
+        int verses = store.countVerses();
+        int runs = countRuns(store);
+        long distinct = (long) DISTINCT_BYTES * verses;
+        long ranged = (long) RANGED_BYTES * runs;
+        long bitwise = (getVersification().maximumOrdinal() + 1L) / 8;
+
+        long current;
+        if (store instanceof BitwisePassage) {
+            current = bitwise;
+        } else if (store instanceof RangedPassage) {
+            current = ranged;
+        } else {
+            current = distinct;
+        }
+
+        AbstractPassage better = null;
+        long least = Math.min(distinct, Math.min(ranged, bitwise));
+        if (least * 2 >= current) {
+            return;
+        }
+        if (least == distinct) {
+            better = new DistinctPassage(getVersification());
+        } else if (least == ranged) {
+            better = new RangedPassage(getVersification());
+        } else {
+            better = new BitwisePassage(getVersification());
+        }
+
+        better.raiseEventSuppresion();
+        better.raiseNormalizeProtection();
+        better.addAll(store);
+        better.lowerNormalizeProtection();
+        better.lowerEventSuppressionAndTest();
+        store = better;
+    }
+
+    /**
+     * @return how many ranges there are when they are not restricted
+     */
+    private static int countRuns(AbstractPassage passage) {
+        if (passage instanceof DistinctPassage) {
+            return ((DistinctPassage) passage).countRuns();
+        }
+
+        if (passage instanceof BitwisePassage) {
+            BitSet bits = ((BitwisePassage) passage).store;
+            int runs = 0;
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(bits.nextClearBit(i))) {
+                runs++;
+            }
+            return runs;
+        }
+
+        return passage.countRanges(RestrictionType.NONE);
+    }
+
+    private static Verse getStart(Key key) {
+        if (key instanceof Verse) {
+            return (Verse) key;
+        }
+        if (key instanceof VerseRange) {
+            return ((VerseRange) key).getStart();
+        }
+        if (key instanceof Passage && !key.isEmpty()) {
+            return ((Passage) key).getVerseAt(0);
+        }
+        return null;
+    }
+
+    private static Verse getEnd(Key key) {
+        if (key instanceof Verse) {
+            return (Verse) key;
+        }
+        if (key instanceof VerseRange) {
+            return ((VerseRange) key).getEnd();
+        }
+        if (key instanceof Passage && !key.isEmpty()) {
+            Passage that = (Passage) key;
+            return that.getVerseAt(that.countVerses() - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Call the support mechanism in AbstractPassage
+     * 
+     * @param out
+     *            The stream to write our state to
+     * @throws IOException
+     *             if the read fails
+     * @serialData Write the ordinal number of this verse
+     * @see AbstractPassage#writeObjectSupport(ObjectOutputStream)
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        writeObjectSupport(out);
+    }
+
+    /**
+     * Call the support mechanism in AbstractPassage
+     * 
+     * @param in
+     *            The stream to read our state from
+     * @throws IOException
+     *             if the read fails
+     * @throws ClassNotFoundException
+     *             If the read data is incorrect
+     * @serialData Write the ordinal number of this verse
+     * @see AbstractPassage#readObjectSupport(ObjectInputStream)
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        optimizeWrites();
+
+        in.defaultReadObject();
+
+        readObjectSupport(in);
+
+        if (store == null) {
+            store = new DistinctPassage(getVersification());
+        }
+        adapt();
+    }
+
+    /**
+     * About how many bytes a DistinctPassage takes for each Verse
+     */
+    private static final int DISTINCT_BYTES = 4;
+
+    /**
+     * About how many bytes a RangedPassage takes for each range: a VerseRange,
+     * its two Verses and the node of the tree it is in.
+     */
+    private static final int RANGED_BYTES = 96;
+
+    /**
+     * To make serialization work across new versions
+     */
+    private static final long serialVersionUID = 5366105564592817453L;
+
+    /**
+     * The place the real data is stored
+     */
+    private transient AbstractPassage store;
+}
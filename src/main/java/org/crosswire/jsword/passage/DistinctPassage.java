@@ -22,20 +22,20 @@ package org.crosswire.jsword.passage;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 
 import org.crosswire.jsword.versification.Versification;
 
 /**
- * A Passage that is implemented using a TreeSet of Verses. The attributes of
- * the style are:
+ * A Passage that is implemented using a sorted array of the ordinals of its
+ * Verses. The attributes of the style are:
  * <ul>
- * <li>Fairly fast manipulation
+ * <li>Fairly fast manipulation, especially of passages of very different sizes
  * <li>Slow getName()
- * <li>Bloated for storing large numbers of Verses
+ * <li>4 bytes a Verse, so small for the few Verses most passages have
  * </ul>
  * 
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
@@ -76,7 +76,6 @@ public class DistinctPassage extends AbstractPassage {
     protected DistinctPassage(Versification v11n, String refs, Key basis) throws NoSuchVerseException {
         super(v11n, refs);
 
-        store = Collections.synchronizedSortedSet(new TreeSet<Key>());
         addVerses(refs, basis);
     }
 
@@ -97,40 +96,32 @@ public class DistinctPassage extends AbstractPassage {
      */
     @Override
     public DistinctPassage clone() {
-        // This gets us a shallow copy
-        DistinctPassage copy = (DistinctPassage) super.clone();
-
-        // I want to just do the following
-        // copy.store = (SortedSet) store.clone();
-        // However SortedSet is not Cloneable so I can't
-        // Watch out for this, I'm not sure if it breaks anything.
-        copy.store = new TreeSet<Key>();
-        copy.store.addAll(store);
-
-        return copy;
+        // This gets us a shallow copy, which is all that is needed as
+        // the store is replaced rather than changed.
+        return (DistinctPassage) super.clone();
     }
 
     /* (non-Javadoc)
      * @see java.lang.Iterable#iterator()
      */
     public Iterator<Key> iterator() {
-        return store.iterator();
+        return new VerseIterator();
     }
 
     @Override
     public boolean isEmpty() {
-        return store.isEmpty();
+        return store.length == 0;
     }
 
     @Override
     public int countVerses() {
-        return store.size();
+        return store.length;
     }
 
     @Override
     public boolean contains(Key obj) {
         for (Key aKey : obj) {
-            if (!store.contains(aKey)) {
+            if (!Ordinals.contains(store, ((Verse) aKey).getOrdinal())) {
                 return false;
             }
         }
@@ -144,20 +135,13 @@ public class DistinctPassage extends AbstractPassage {
     public void add(Key obj) {
         optimizeWrites();
 
-        Verse firstVerse = null;
-        Verse lastVerse = null;
-        for (Key aKey : obj) {
-            lastVerse = (Verse) aKey;
-            if (firstVerse == null) {
-                firstVerse = lastVerse;
-            }
-            store.add(lastVerse);
-        }
+        int[] added = toOrdinals(obj);
+        store = Ordinals.union(store, added);
 
         // we do an extra check here because the cost of calculating the
         // params is non-zero an may be wasted
         if (suppressEvents == 0) {
-            fireIntervalAdded(this, firstVerse, lastVerse);
+            fireIntervalAdded(this, getFirstVerse(added), getLastVerse(added));
         }
     }
 
@@ -167,31 +151,185 @@ public class DistinctPassage extends AbstractPassage {
     public void remove(Key obj) {
         optimizeWrites();
 
-        Verse firstVerse = null;
-        Verse lastVerse = null;
-        for (Key aKey : obj) {
-            lastVerse = (Verse) aKey;
-            if (firstVerse == null) {
-                firstVerse = lastVerse;
-            }
-            store.remove(lastVerse);
-        }
+        int[] removed = toOrdinals(obj);
+        store = Ordinals.difference(store, removed);
 
         // we do an extra check here because the cost of calculating the
         // params is non-zero an may be wasted
         if (suppressEvents == 0) {
-            fireIntervalAdded(this, firstVerse, lastVerse);
+            fireIntervalAdded(this, getFirstVerse(removed), getLastVerse(removed));
+        }
+    }
+
+    @Override
+    public void addAll(Key key) {
+        //check for key empty. This avoids the AIOBounds with that.getVerseAt, during event firing
+        if (key.isEmpty()) {
+            //nothing to add
+            return;
+        }
+
+        optimizeWrites();
+
+        int[] added = toOrdinals(key);
+        store = Ordinals.union(store, added);
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            fireIntervalAdded(this, getFirstVerse(added), getLastVerse(added));
         }
     }
 
+    @Override
+    public void removeAll(Key key) {
+        optimizeWrites();
+
+        int[] removed = toOrdinals(key);
+        store = Ordinals.difference(store, removed);
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0 && removed.length > 0) {
+            fireIntervalRemoved(this, getFirstVerse(removed), getLastVerse(removed));
+        }
+    }
+
+    @Override
+    public void retainAll(Key key) {
+        optimizeWrites();
+
+        store = Ordinals.intersect(store, toOrdinals(key));
+
+        fireIntervalRemoved(this, null, null);
+    }
+
     @Override
     public void clear() {
         optimizeWrites();
 
-        store.clear();
+        store = EMPTY;
         fireIntervalRemoved(this, null, null);
     }
 
+    /**
+     * @return how many ranges there are when they are not restricted
+     */
+    int countRuns() {
+        return Ordinals.countRuns(store);
+    }
+
+    /**
+     * Get the ordinals of the verses of a key, in order, and each once.
+     * 
+     * @param key
+     *            the verses
+     * @return the ordinals of the verses
+     */
+    private static int[] toOrdinals(Key key) {
+        if (key instanceof DistinctPassage) {
+            return ((DistinctPassage) key).store;
+        }
+
+        if (key instanceof Verse) {
+            return new int[] {
+                ((Verse) key).getOrdinal()
+            };
+        }
+
+        if (key instanceof VerseRange) {
+            VerseRange range = (VerseRange) key;
+            return Ordinals.range(range.getStart().getOrdinal(), range.getEnd().getOrdinal());
+        }
+
+        if (key instanceof BitwisePassage) {
+            BitSet bits = ((BitwisePassage) key).store;
+            int[] ordinals = new int[bits.cardinality()];
+            int n = 0;
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                ordinals[n++] = i;
+            }
+            return ordinals;
+        }
+
+        int[] ordinals = new int[Math.max(key.getCardinality(), 1)];
+        int n = 0;
+        boolean sorted = true;
+        for (Key aKey : key) {
+            int ordinal = ((Verse) aKey).getOrdinal();
+            if (n == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, n * 2);
+            }
+            if (n > 0 && ordinal <= ordinals[n - 1]) {
+                sorted = false;
+            }
+            ordinals[n++] = ordinal;
+        }
+
+        if (sorted) {
+            return n == ordinals.length ? ordinals : Arrays.copyOf(ordinals, n);
+        }
+
+        // Such as a tally in the order of its ranks
+        Arrays.sort(ordinals, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || ordinals[i] != ordinals[unique - 1]) {
+                ordinals[unique++] = ordinals[i];
+            }
+        }
+        return Arrays.copyOf(ordinals, unique);
+    }
+
+    private Verse getFirstVerse(int[] ordinals) {
+        return ordinals.length == 0 ? null : getVersification().decodeOrdinal(ordinals[0]);
+    }
+
+    private Verse getLastVerse(int[] ordinals) {
+        return ordinals.length == 0 ? null : getVersification().decodeOrdinal(ordinals[ordinals.length - 1]);
+    }
+
+    /**
+     * Iterate over the Verses
+     */
+    private final class VerseIterator implements Iterator<Key> {
+        /* (non-Javadoc)
+         * @see java.util.Iterator#hasNext()
+         */
+        public boolean hasNext() {
+            return next < store.length;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#next()
+         */
+        public Key next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return getVersification().decodeOrdinal(store[next++]);
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#remove()
+         */
+        public void remove() {
+            if (next == 0) {
+                throw new IllegalStateException();
+            }
+            next--;
+            store = Ordinals.difference(store, new int[] {
+                store[next]
+            });
+        }
+
+        /**
+         * What is the index of the next Verse to be given
+         */
+        private int next;
+    }
+
     /**
      * Call the support mechanism in AbstractPassage
      * 
@@ -223,7 +361,7 @@ public class DistinctPassage extends AbstractPassage {
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         optimizeWrites();
 
-        store = new TreeSet<Key>();
+        store = EMPTY;
 
         in.defaultReadObject();
 
@@ -235,8 +373,11 @@ public class DistinctPassage extends AbstractPassage {
      */
     private static final long serialVersionUID = 817374460730441662L;
 
+    private static final int[] EMPTY = new int[0];
+
     /**
-     * The place the real data is stored
+     * The place the real data is stored, the ordinals of the verses in order.
+     * It is replaced rather than changed, so copies can share it.
      */
-    private transient SortedSet<Key> store = new TreeSet<Key>();
+    private transient int[] store = EMPTY;
 }
@@ -0,0 +1,216 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *     The copyright to this program is held by its authors. 
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted arrays of verse ordinals. The arrays are not
+ * changed, a new one is returned unless the answer is one of them.
+ * 
+ * <p>Passages that are merged are often very different in size, such as a
+ * few verses and a whole book. So rather than stepping through both a verse
+ * at a time, each gallops ahead through the other: it looks 1, 2, 4, 8 ...
+ * ordinals on to find where the next of its own goes, and then narrows that
+ * down. What is between is copied or skipped in one go.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class Ordinals {
+    /**
+     * Prevent instantiation
+     */
+    private Ordinals() {
+    }
+
+    /**
+     * @param ordinals
+     *            sorted ordinals
+     * @param ordinal
+     *            the ordinal to look for
+     * @return whether it is there
+     */
+    static boolean contains(int[] ordinals, int ordinal) {
+        return Arrays.binarySearch(ordinals, ordinal) >= 0;
+    }
+
+    /**
+     * @return the ordinals that are in either
+     */
+    static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+
+        int[] out = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                int k = gallop(a, i, b[j]);
+                System.arraycopy(a, i, out, n, k - i);
+                n += k - i;
+                i = k;
+            } else if (b[j] < a[i]) {
+                int k = gallop(b, j, a[i]);
+                System.arraycopy(b, j, out, n, k - j);
+                n += k - j;
+                j = k;
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        System.arraycopy(a, i, out, n, a.length - i);
+        n += a.length - i;
+        System.arraycopy(b, j, out, n, b.length - j);
+        n += b.length - j;
+        return trim(out, n);
+    }
+
+    /**
+     * @return the ordinals that are in both
+     */
+    static int[] intersect(int[] a, int[] b) {
+        // Gallop through the larger for each of the smaller
+        int[] small = a.length <= b.length ? a : b;
+        int[] large = small == a ? b : a;
+        int[] out = new int[small.length];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < small.length && j < large.length; i++) {
+            j = gallop(large, j, small[i]);
+            if (j < large.length && large[j] == small[i]) {
+                out[n++] = small[i];
+                j++;
+            }
+        }
+        return n == a.length ? a : trim(out, n);
+    }
+
+    /**
+     * @return the ordinals of a that are not in b
+     */
+    static int[] difference(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return a;
+        }
+
+        int[] out = new int[a.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length) {
+            j = gallop(b, j, a[i]);
+            if (j == b.length) {
+                break;
+            }
+            if (b[j] == a[i]) {
+                i++;
+                j++;
+            } else {
+                // Keep what comes before the next to be taken out
+                int k = gallop(a, i, b[j]);
+                System.arraycopy(a, i, out, n, k - i);
+                n += k - i;
+                i = k;
+            }
+        }
+        System.arraycopy(a, i, out, n, a.length - i);
+        n += a.length - i;
+        return n == a.length ? a : trim(out, n);
+    }
+
+    /**
+     * @return the ordinals from start to end, inclusive
+     */
+    static int[] range(int start, int end) {
+        int[] out = new int[end - start + 1];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = start + i;
+        }
+        return out;
+    }
+
+    /**
+     * Count the runs of consecutive ordinals, which is how many ranges there
+     * are when they are not restricted to a chapter or book.
+     * 
+     * @param ordinals
+     *            sorted ordinals
+     * @return the number of runs
+     */
+    static int countRuns(int[] ordinals) {
+        int runs = 0;
+        for (int i = 0; i < ordinals.length; i++) {
+            if (i == 0 || ordinals[i] != ordinals[i - 1] + 1) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Find where a key goes in the ordinals from an index onwards, by looking
+     * ever further ahead and then searching back.
+     * 
+     * @param ordinals
+     *            sorted ordinals
+     * @param from
+     *            where to start looking
+     * @param key
+     *            the ordinal to look for
+     * @return the first index from there of an ordinal that is not less than
+     *         the key, or the length of the ordinals
+     */
+    static int gallop(int[] ordinals, int from, int key) {
+        int to = ordinals.length;
+        int lo = from;
+        int hi = from;
+        int step = 1;
+        while (hi < to && ordinals[hi] < key) {
+            lo = hi + 1;
+            hi = from + step;
+            step <<= 1;
+        }
+        if (hi > to) {
+            hi = to;
+        }
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ordinals[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int[] trim(int[] ordinals, int length) {
+        return length == ordinals.length ? ordinals : Arrays.copyOf(ordinals, length);
+    }
+}
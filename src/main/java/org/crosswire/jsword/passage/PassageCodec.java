@@ -0,0 +1,521 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+
+/**
+ * A compact, versioned binary form for Passages, for storing large numbers of
+ * them, such as bookmarks, highlights and cached search results.
+ * 
+ * <p>The form starts with a header giving the version of the form and the
+ * name of the Versification. The verses follow as a list of windows of 1024
+ * ordinals, of which only those that have verses are stored. Each window is
+ * stored either as runs of verses, each given as the gap from the last run
+ * and its length, or as a bitmap of the verses between its first and last
+ * verse, whichever is smaller. All numbers are variable length, so a small
+ * passage takes a few bytes and a scattered one no more than the bitmap.</p>
+ * 
+ * <p>Decoding works on ordinals and does not create a Verse for each verse.</p>
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class PassageCodec {
+    /**
+     * Prevent instantiation
+     */
+    private PassageCodec() {
+    }
+
+    /**
+     * Write a passage to a stream.
+     * 
+     * @param ref
+     *            the passage to write
+     * @param out
+     *            where to write it
+     * @throws IOException
+     *             if the stream could not be written
+     */
+    public static void write(Passage ref, OutputStream out) throws IOException {
+        Output encoded = encodePassage(ref);
+        out.write(encoded.bytes, 0, encoded.size);
+    }
+
+    /**
+     * Read a passage from a stream. Exactly the bytes that were written are
+     * read.
+     * 
+     * @param in
+     *            where to read it from
+     * @return the passage
+     * @throws IOException
+     *             if the stream could not be read or does not hold a passage
+     */
+    public static Passage read(InputStream in) throws IOException {
+        return toPassage(new StreamInput(in).decode(null));
+    }
+
+    /**
+     * Encode a passage.
+     * 
+     * @param ref
+     *            the passage to encode
+     * @return a buffer, ready to be read, holding the passage
+     */
+    public static ByteBuffer encode(Passage ref) {
+        Output encoded = encodePassage(ref);
+        return ByteBuffer.wrap(encoded.bytes, 0, encoded.size);
+    }
+
+    /**
+     * Encode a passage into a buffer, at its position.
+     * 
+     * @param ref
+     *            the passage to encode
+     * @param out
+     *            where to put it
+     * @throws java.nio.BufferOverflowException
+     *             if there is not room in the buffer
+     */
+    public static void encode(Passage ref, ByteBuffer out) {
+        Output encoded = encodePassage(ref);
+        out.put(encoded.bytes, 0, encoded.size);
+    }
+
+    /**
+     * Decode a passage from a buffer, from its position.
+     * 
+     * @param in
+     *            the buffer
+     * @return the passage
+     * @throws IOException
+     *             if the buffer does not hold a passage
+     */
+    public static Passage decode(ByteBuffer in) throws IOException {
+        return toPassage(new BufferInput(in).decode(null));
+    }
+
+    /**
+     * Decode the ordinals of the verses in a passage, from the buffer's
+     * position, without creating a Passage.
+     * 
+     * @param in
+     *            the buffer
+     * @param v11n
+     *            the Versification the passage is expected to have
+     * @return the ordinals, in ascending order
+     * @throws IOException
+     *             if the buffer does not hold a passage of the Versification
+     */
+    public static int[] decodeOrdinals(ByteBuffer in, Versification v11n) throws IOException {
+        return new BufferInput(in).decode(v11n).ordinals;
+    }
+
+    private static Passage toPassage(Decoded decoded) {
+        BitwisePassage ref = new BitwisePassage(decoded.v11n);
+        ref.raiseEventSuppresion();
+        ref.raiseNormalizeProtection();
+        for (int ordinal : decoded.ordinals) {
+            ref.addVersifiedOrdinal(ordinal);
+        }
+        ref.lowerNormalizeProtection();
+        ref.lowerEventSuppressionAndTest();
+        return ref;
+    }
+
+    private static Output encodePassage(Passage ref) {
+        // Gather the runs of verses
+        int count = 0;
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        Iterator<VerseRange> ranges = ref.rangeIterator(RestrictionType.NONE);
+        while (ranges.hasNext()) {
+            VerseRange range = ranges.next();
+            int start = range.getStart().getOrdinal();
+            int end = start + range.getCardinality();
+            if (count > 0 && ends[count - 1] >= start) {
+                // Ranges that touch are one run
+                ends[count - 1] = Math.max(ends[count - 1], end);
+                continue;
+            }
+            if (count == starts.length) {
+                starts = grow(starts);
+                ends = grow(ends);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        Output body = new Output();
+        int cardinality = 0;
+        int windows = 0;
+        int lastWindow = -1;
+        int[] pieceStarts = new int[16];
+        int[] pieceEnds = new int[16];
+        int run = 0;
+        int pos = count > 0 ? starts[0] : 0;
+        while (run < count) {
+            int window = pos >>> WINDOW_BITS;
+            int base = window << WINDOW_BITS;
+            int limit = base + WINDOW_SIZE;
+
+            // Cut the runs at the edge of the window
+            int pieces = 0;
+            while (run < count && pos < limit) {
+                int end = Math.min(ends[run], limit);
+                if (pieces == pieceStarts.length) {
+                    pieceStarts = grow(pieceStarts);
+                    pieceEnds = grow(pieceEnds);
+                }
+                pieceStarts[pieces] = pos - base;
+                pieceEnds[pieces] = end - base;
+                pieces++;
+                cardinality += end - pos;
+                if (end == ends[run]) {
+                    run++;
+                    if (run < count) {
+                        pos = starts[run];
+                    }
+                } else {
+                    pos = end;
+                }
+            }
+
+            // Work out which way is smaller
+            int runSize = varIntSize(pieces);
+            int last = 0;
+            for (int i = 0; i < pieces; i++) {
+                runSize += varIntSize(pieceStarts[i] - last) + varIntSize(pieceEnds[i] - pieceStarts[i] - 1);
+                last = pieceEnds[i];
+            }
+            int firstByte = pieceStarts[0] >>> 3;
+            int byteCount = ((pieceEnds[pieces - 1] - 1) >>> 3) - firstByte + 1;
+            int bitmapSize = varIntSize(firstByte) + varIntSize(byteCount) + byteCount;
+
+            boolean bitmap = bitmapSize < runSize;
+            body.writeVarInt(((window - lastWindow - 1) << 1) | (bitmap ? 1 : 0));
+            if (bitmap) {
+                body.writeVarInt(firstByte);
+                body.writeVarInt(byteCount);
+                int offset = body.reserve(byteCount);
+                int from = firstByte << 3;
+                for (int i = 0; i < pieces; i++) {
+                    for (int bit = pieceStarts[i] - from; bit < pieceEnds[i] - from; bit++) {
+                        body.bytes[offset + (bit >>> 3)] |= 1 << (bit & 7);
+                    }
+                }
+            } else {
+                body.writeVarInt(pieces);
+                last = 0;
+                for (int i = 0; i < pieces; i++) {
+                    body.writeVarInt(pieceStarts[i] - last);
+                    body.writeVarInt(pieceEnds[i] - pieceStarts[i] - 1);
+                    last = pieceEnds[i];
+                }
+            }
+            lastWindow = window;
+            windows++;
+        }
+
+        byte[] name = ref.getVersification().getName().getBytes(UTF8);
+        Output out = new Output();
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeVarInt(name.length);
+        out.write(name, 0, name.length);
+        out.writeVarInt(cardinality);
+        out.writeVarInt(windows);
+        out.write(body.bytes, 0, body.size);
+        return out;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] bigger = new int[array.length * 2];
+        System.arraycopy(array, 0, bigger, 0, array.length);
+        return bigger;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        int rest = value >>> 7;
+        while (rest != 0) {
+            size++;
+            rest >>>= 7;
+        }
+        return size;
+    }
+
+    /**
+     * A growable byte array to encode into.
+     */
+    private static final class Output {
+        Output() {
+            bytes = new byte[64];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            int rest = value;
+            while ((rest & ~0x7F) != 0) {
+                writeByte((rest & 0x7F) | 0x80);
+                rest >>>= 7;
+            }
+            writeByte(rest);
+        }
+
+        void write(byte[] data, int offset, int length) {
+            ensure(length);
+            System.arraycopy(data, offset, bytes, size, length);
+            size += length;
+        }
+
+        /**
+         * Add zeroed bytes to be filled in.
+         * 
+         * @return where they start
+         */
+        int reserve(int length) {
+            ensure(length);
+            int offset = size;
+            size += length;
+            return offset;
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                byte[] bigger = new byte[Math.max(bytes.length * 2, size + length)];
+                System.arraycopy(bytes, 0, bigger, 0, size);
+                bytes = bigger;
+            }
+        }
+
+        byte[] bytes;
+        int size;
+    }
+
+    /**
+     * The versification and ordinals of a decoded passage.
+     */
+    private static final class Decoded {
+        Decoded(Versification v11n, int[] ordinals) {
+            this.v11n = v11n;
+            this.ordinals = ordinals;
+        }
+
+        Versification v11n;
+        int[] ordinals;
+    }
+
+    /**
+     * Something to decode from.
+     */
+    private abstract static class Input {
+        /**
+         * @return the next byte, from 0 to 255
+         */
+        abstract int readByte() throws IOException;
+
+        abstract void readFully(byte[] data) throws IOException;
+
+        Decoded decode(Versification expected) throws IOException {
+            if (readByte() != MAGIC) {
+                throw new IOException("Not an encoded passage");
+            }
+            int version = readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported passage encoding version " + version);
+            }
+            byte[] name = new byte[readVarInt(MAX_NAME)];
+            readFully(name);
+            String v11nName = new String(name, UTF8);
+            Versification v11n = expected;
+            if (v11n == null) {
+                v11n = Versifications.instance().getVersification(v11nName);
+                if (v11n == null) {
+                    throw new IOException("Unknown versification " + v11nName);
+                }
+            } else if (!v11n.getName().equals(v11nName)) {
+                throw new IOException("Expected versification " + v11n.getName() + " but found " + v11nName);
+            }
+
+            int maxOrdinal = v11n.maximumOrdinal();
+            int maxWindow = maxOrdinal >>> WINDOW_BITS;
+            int[] ordinals = new int[readVarInt(maxOrdinal + 1)];
+            int windows = readVarInt(Integer.MAX_VALUE);
+            int count = 0;
+            int window = -1;
+            for (int w = 0; w < windows; w++) {
+                int tag = readVarInt(Integer.MAX_VALUE);
+                // Check before moving on, so that the window cannot overflow
+                if ((tag >>> 1) >= maxWindow - window) {
+                    throw new IOException("Verse out of range");
+                }
+                window += (tag >>> 1) + 1;
+                int base = window << WINDOW_BITS;
+                // Every verse of a window is at or after base and before limit
+                int limit = Math.min(base + WINDOW_SIZE, maxOrdinal + 1);
+                if ((tag & 1) != 0) {
+                    int from = base + (readVarInt(WINDOW_SIZE / 8) << 3);
+                    int bytes = readVarInt(WINDOW_SIZE / 8);
+                    for (int i = 0; i < bytes; i++) {
+                        int bits = readByte();
+                        for (int bit = 0; bits != 0; bit++, bits >>>= 1) {
+                            if ((bits & 1) != 0) {
+                                count = add(ordinals, count, from + (i << 3) + bit, limit);
+                            }
+                        }
+                    }
+                } else {
+                    int pieces = readVarInt(WINDOW_SIZE);
+                    int pos = base;
+                    for (int i = 0; i < pieces; i++) {
+                        pos += readVarInt(WINDOW_SIZE);
+                        int end = pos + readVarInt(WINDOW_SIZE) + 1;
+                        while (pos < end) {
+                            count = add(ordinals, count, pos++, limit);
+                        }
+                    }
+                }
+            }
+            if (count != ordinals.length) {
+                throw new IOException("Encoded passage is truncated");
+            }
+            return new Decoded(v11n, ordinals);
+        }
+
+        /**
+         * Add the next ordinal, which must be after the one before it and
+         * before the end of its window.
+         */
+        private int add(int[] ordinals, int count, int ordinal, int limit) throws IOException {
+            if (count == ordinals.length || ordinal < 0 || ordinal >= limit) {
+                throw new IOException("Verse out of range");
+            }
+            if (count > 0 && ordinal <= ordinals[count - 1]) {
+                throw new IOException("Verses out of order in encoded passage");
+            }
+            ordinals[count] = ordinal;
+            return count + 1;
+        }
+
+        private int readVarInt(int max) throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0 || value > max) {
+                        throw new IOException("Number out of range in encoded passage");
+                    }
+                    return value;
+                }
+            }
+            throw new IOException("Malformed number in encoded passage");
+        }
+    }
+
+    /**
+     * Decode from a stream.
+     */
+    private static final class StreamInput extends Input {
+        StreamInput(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+        @Override
+        void readFully(byte[] data) throws IOException {
+            int done = 0;
+            while (done < data.length) {
+                int read = in.read(data, done, data.length - done);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                done += read;
+            }
+        }
+
+        private InputStream in;
+    }
+
+    /**
+     * Decode from a buffer.
+     */
+    private static final class BufferInput extends Input {
+        BufferInput(ByteBuffer in) {
+            this.in = in;
+        }
+
+        @Override
+        int readByte() throws IOException {
+            try {
+                return in.get() & 0xFF;
+            } catch (BufferUnderflowException e) {
+                throw new EOFException();
+            }
+        }
+
+        @Override
+        void readFully(byte[] data) throws IOException {
+            try {
+                in.get(data);
+            } catch (BufferUnderflowException e) {
+                throw new EOFException();
+            }
+        }
+
+        private ByteBuffer in;
+    }
+
+    /**
+     * The number of ordinals in a window is 1 &lt;&lt; WINDOW_BITS
+     */
+    private static final int WINDOW_BITS = 10;
+    private static final int WINDOW_SIZE = 1 << WINDOW_BITS;
+    private static final int MAX_NAME = 255;
+    private static final int MAGIC = 0xB5;
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+}
@@ -214,6 +214,7 @@ public final class PassageKeyFactory {
      * <li>PassageType.SIZE
      * <li>PassageType.MIX
      * <li>PassageType.TALLY
+     * <li>PassageType.ADAPTIVE
      * </ul>
      * 
      * @param newDefaultType
@@ -80,13 +80,11 @@ import org.slf4j.LoggerFactory;
  * </p>
  * 
  * <p>
- * Memory considerations: The BitSet approach will always use a
- * <code>int[31000]</code> = 128k of memory.<br>
- * The Distinct approach will be n * int[4] where n is the number of verses
- * stored. I expect most searches to have at least n=1000. Also 128k<br>
- * Given this, (A Distinct style PassageTally will usually use more memory than
- * a BitSet style PassageTally) And the intuitive result that the BitSet will be
- * faster, I'm going to start by implementing the latter only.
+ * Memory considerations: A rank for every verse will always use a
+ * <code>int[31000]</code> = 128k of memory, even for a search that finds three
+ * verses. So the ranks are kept on a {@link TallyBoard}, which starts as a
+ * sorted list of the verses and their ranks, 8 bytes a verse, and changes to a
+ * rank for every verse only when the tally has more than one in 32 of them.
  * </p>
  * 
  * <p>
@@ -108,7 +106,7 @@ public class PassageTally extends AbstractPassage {
      */
     public PassageTally(Versification v11n) {
         super(v11n);
-        board = new int[v11n.maximumOrdinal() + 1];
+        board = new TallyBoard(v11n.maximumOrdinal() + 1);
     }
 
     /**
@@ -125,7 +123,7 @@ public class PassageTally extends AbstractPassage {
      */
     protected PassageTally(Versification v11n, String refs, Key basis) throws NoSuchVerseException {
         super(v11n, refs);
-        board = new int[v11n.maximumOrdinal() + 1];
+        board = new TallyBoard(v11n.maximumOrdinal() + 1);
         addVerses(refs, basis);
     }
 
@@ -331,7 +329,7 @@ public class PassageTally extends AbstractPassage {
     public boolean contains(Key that) {
         for (Key aKey : that) {
             Verse verse = (Verse) aKey;
-            if (board[verse.getOrdinal()] == 0) {
+            if (board.get(verse.getOrdinal()) == 0) {
                 return false;
             }
         }
@@ -347,7 +345,7 @@ public class PassageTally extends AbstractPassage {
      * @return The rank of the verse in question
      */
     public int getTallyOf(Verse verse) {
-        return board[verse.getOrdinal()];
+        return board.get(verse.getOrdinal());
     }
 
     /**
@@ -359,7 +357,7 @@ public class PassageTally extends AbstractPassage {
      */
     public int getIndexOf(Verse verse) {
         int pos = verse.getOrdinal();
-        int tally = board[pos];
+        int tally = board.get(pos);
         return tally > 0 ? pos : -1;
     }
 
@@ -431,9 +429,8 @@ public class PassageTally extends AbstractPassage {
         if (that instanceof PassageTally) {
             PassageTally tally = (PassageTally) that;
 
-            int vib = getVersification().maximumOrdinal();
-            for (int i = 0; i <= vib; i++) {
-                increment(i, tally.board[i]);
+            for (int i = tally.board.next(0); i >= 0; i = tally.board.next(i + 1)) {
+                increment(i, tally.board.get(i));
             }
 
             incrementMax(tally.max);
@@ -461,9 +458,8 @@ public class PassageTally extends AbstractPassage {
         if (that instanceof PassageTally) {
             PassageTally tally = (PassageTally) that;
 
-            int vib = getVersification().maximumOrdinal();
-            for (int i = 0; i <= vib; i++) {
-                increment(i, -tally.board[i]);
+            for (int i = tally.board.next(0); i >= 0; i = tally.board.next(i + 1)) {
+                increment(i, -tally.board.get(i));
             }
         } else {
             for (Key aKey : that) {
@@ -486,11 +482,8 @@ public class PassageTally extends AbstractPassage {
         if (key instanceof PassageTally) {
             PassageTally tally = (PassageTally) key;
 
-            int vib = getVersification().maximumOrdinal();
-            for (int i = 0; i <= vib; i++) {
-                if (tally.board[i] != 0) {
-                    kill(i);
-                }
+            for (int i = tally.board.next(0); i >= 0; i = tally.board.next(i + 1)) {
+                kill(i);
             }
         } else {
             for (Key aKey : key) {
@@ -510,9 +503,7 @@ public class PassageTally extends AbstractPassage {
     public void clear() {
         optimizeWrites();
 
-        for (int i = 0; i < board.length; i++) {
-            board[i] = 0;
-        }
+        board.clear();
 
         size = 0;
 
@@ -564,10 +555,8 @@ public class PassageTally extends AbstractPassage {
     public void flatten() {
         optimizeWrites();
 
-        for (int i = 0; i < board.length; i++) {
-            if (board[i] != 0) {
-                board[i] = 1;
-            }
+        for (int i = board.next(0); i >= 0; i = board.next(i + 1)) {
+            board.set(i, 1);
         }
 
         max = 1;
@@ -596,33 +585,33 @@ public class PassageTally extends AbstractPassage {
                 }
             }
         } else {
-            int[] newBoard = new int[board.length];
-
-            for (int i = 0; i < board.length; i++) {
-                if (board[i] != 0) {
-                    // This could be re-written more simply:
-                    // for (int j = -verses; j <= verses; j++) {
-                    //     int k = i + j;
-                    //     if (k >= 0 && k <= BibleInfo.maximumOrdinal()) {
-                    //         new_board[k] += board[i] + verses - mod(j);
-                    //     }
-                    // }
-                    // However splitting the loop in 2 will speed it up quite a bit.
-
-                    for (int j = -verses; j < 0; j++) {
-                        int k = i + j;
-                        if (k >= 0) {
-                            newBoard[k] += board[i] + verses + j;
-                        }
+            int length = board.getLength();
+            TallyBoard newBoard = new TallyBoard(length);
+
+            for (int i = board.next(0); i >= 0; i = board.next(i + 1)) {
+                int rank = board.get(i);
+                // This could be re-written more simply:
+                // for (int j = -verses; j <= verses; j++) {
+                //     int k = i + j;
+                //     if (k >= 0 && k <= BibleInfo.maximumOrdinal()) {
+                //         new_board[k] += board[i] + verses - mod(j);
+                //     }
+                // }
+                // However splitting the loop in 2 will speed it up quite a bit.
+
+                for (int j = -verses; j < 0; j++) {
+                    int k = i + j;
+                    if (k >= 0) {
+                        newBoard.add(k, rank + verses + j);
                     }
+                }
 
-                    newBoard[i] += board[i] + verses;
+                newBoard.add(i, rank + verses);
 
-                    for (int j = 1; j <= verses; j++) {
-                        int k = i + j;
-                        if (k < board.length - 1) {
-                            newBoard[k] += board[i] + verses - j;
-                        }
+                for (int j = 1; j <= verses; j++) {
+                    int k = i + j;
+                    if (k < length - 1) {
+                        newBoard.add(k, rank + verses - j);
                     }
                 }
             }
@@ -647,14 +636,18 @@ public class PassageTally extends AbstractPassage {
 
         max = 0;
         size = 0;
-        for (int i = 0; i < board.length; i++) {
-            if (board[i] > 0) {
+        for (int i = board.next(0); i >= 0; i = board.next(i + 1)) {
+            int rank = board.get(i);
+            if (rank > 0) {
                 size++;
             }
-            if (board[i] > max) {
-                max = board[i];
+            if (rank > max) {
+                max = rank;
             }
         }
+
+        // Blurring or removing may have changed how many there are a lot
+        board.fit(size);
     }
 
     /**
@@ -685,19 +678,21 @@ public class PassageTally extends AbstractPassage {
      *            The amount to increase by
      */
     private void increment(int ord, int tally) {
-        boolean exists = board[ord] > 0;
-        board[ord] += tally;
-        if (board[ord] > MAX_TALLY) {
-            board[ord] = MAX_TALLY;
+        int rank = board.get(ord);
+        boolean exists = rank > 0;
+        rank += tally;
+        if (rank > MAX_TALLY) {
+            rank = MAX_TALLY;
         }
-        if (board[ord] < 0) {
-            board[ord] = 0;
+        if (rank < 0) {
+            rank = 0;
         }
+        board.set(ord, rank);
 
         // Recompute the size
-        if (exists && board[ord] == 0) {
+        if (exists && rank == 0) {
             size--;
-        } else if (!exists && board[ord] > 0) {
+        } else if (!exists && rank > 0) {
             size++;
         }
     }
@@ -725,11 +720,11 @@ public class PassageTally extends AbstractPassage {
      *            The verse to increment
      */
     private void kill(int ord) {
-        if (board[ord] > 0) {
+        if (board.get(ord) > 0) {
             size--;
         }
 
-        board[ord] = 0;
+        board.set(ord, 0);
     }
 
     /**
@@ -801,7 +796,7 @@ public class PassageTally extends AbstractPassage {
     /**
      * The tally board itself
      */
-    protected int[] board;
+    private TallyBoard board;
 
     /**
      * The maximum tally possible
@@ -840,14 +835,14 @@ public class PassageTally extends AbstractPassage {
          * @see java.util.Iterator#hasNext()
          */
         public boolean hasNext() {
-            return next <= board.length - 1;
+            return next >= 0;
         }
 
         /* (non-Javadoc)
          * @see java.util.Iterator#next()
          */
         public Key next() throws NoSuchElementException {
-            if (next >= board.length) {
+            if (next < 0) {
                 throw new NoSuchElementException();
             }
 
@@ -868,9 +863,7 @@ public class PassageTally extends AbstractPassage {
          * Find the next bit
          */
         private void calculateNext() {
-            do {
-                next++;
-            } while (next < board.length && board[next] == 0);
+            next = board.next(next + 1);
         }
 
         /** What is the next Verse to be considered */
@@ -886,15 +879,12 @@ public class PassageTally extends AbstractPassage {
         /**
          * Find the first unused verse
          */
-        protected OrderedVerseIterator(Versification v11n, int[] board) {
+        protected OrderedVerseIterator(Versification v11n, TallyBoard board) {
             referenceSystem = v11n;
             TreeSet<TalliedVerse> output = new TreeSet<TalliedVerse>();
 
-            int vib = board.length - 1;
-            for (int i = 0; i <= vib; i++) {
-                if (board[i] != 0) {
-                    output.add(new TalliedVerse(i, board[i]));
-                }
+            for (int i = board.next(0); i >= 0; i = board.next(i + 1)) {
+                output.add(new TalliedVerse(i, board.get(i)));
             }
 
             it = output.iterator();
@@ -1031,7 +1021,7 @@ public class PassageTally extends AbstractPassage {
          * @param vit 
          * @param board 
          */
-        protected OrderedVerseRangeIterator(Versification v11n, Iterator<Key> vit, int[] board) {
+        protected OrderedVerseRangeIterator(Versification v11n, Iterator<Key> vit, TallyBoard board) {
             Set<TalliedVerseRange> output = new TreeSet<TalliedVerseRange>();
 
             Iterator<VerseRange> rit = new VerseRangeIterator(v11n, vit, RestrictionType.NONE);
@@ -1043,7 +1033,7 @@ public class PassageTally extends AbstractPassage {
                 Iterator<Key> iter = range.iterator();
                 while (iter.hasNext()) {
                     Verse verse = (Verse) iter.next();
-                    int temp = board[verse.getOrdinal()];
+                    int temp = board.get(verse.getOrdinal());
                     if (temp > rank) {
                         rank = temp;
                     }
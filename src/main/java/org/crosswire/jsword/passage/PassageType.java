@@ -121,6 +121,24 @@ public enum PassageType {
         public Passage createEmptyPassage(Versification v11n) {
             return new PassageTally(v11n);
         }
+    },
+
+    /**
+     * Optimize the Passage for size, whatever is in it
+     */
+    ADAPTIVE {
+        @Override
+        public Passage createPassage(Versification v11n, String passage, Key basis) throws NoSuchVerseException {
+            if (passage == null || passage.length() == 0) {
+                return createEmptyPassage(v11n);
+            }
+            return new AdaptivePassage(v11n, passage, basis);
+        }
+
+        @Override
+        public Passage createEmptyPassage(Versification v11n) {
+            return new AdaptivePassage(v11n);
+        }
     };
 
     /**
@@ -0,0 +1,260 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *     The copyright to this program is held by its authors. 
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The ranks of the verses of a {@link PassageTally}, by ordinal. Most tallies
+ * hold few verses, so the ranks are kept as a sorted list of ordinals and
+ * their ranks. Only when there are so many that a rank for every ordinal
+ * takes little more room are they kept that way.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class TallyBoard implements Cloneable, Serializable {
+    /**
+     * Create a board on which every ordinal has a rank of zero.
+     * 
+     * @param length
+     *            one more than the highest ordinal
+     */
+    TallyBoard(int length) {
+        this.length = length;
+        this.threshold = Math.max(length / DENSITY, 1);
+        this.ordinals = EMPTY;
+        this.tallies = EMPTY;
+    }
+
+    /**
+     * @return one more than the highest ordinal
+     */
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * @return whether there is a rank for every ordinal
+     */
+    boolean isDense() {
+        return board != null;
+    }
+
+    /**
+     * @param ord
+     *            the ordinal of a verse
+     * @return the rank of the verse
+     */
+    int get(int ord) {
+        if (board != null) {
+            return board[ord];
+        }
+        int i = Arrays.binarySearch(ordinals, 0, count, ord);
+        return i >= 0 ? tallies[i] : 0;
+    }
+
+    /**
+     * @param ord
+     *            the ordinal of a verse
+     * @param tally
+     *            the rank of the verse, zero to take it off the board
+     */
+    void set(int ord, int tally) {
+        if (board != null) {
+            board[ord] = tally;
+            return;
+        }
+
+        int i = Arrays.binarySearch(ordinals, 0, count, ord);
+        if (i >= 0) {
+            if (tally != 0) {
+                tallies[i] = tally;
+            } else {
+                count--;
+                System.arraycopy(ordinals, i + 1, ordinals, i, count - i);
+                System.arraycopy(tallies, i + 1, tallies, i, count - i);
+            }
+            return;
+        }
+
+        if (tally == 0) {
+            return;
+        }
+
+        if (ord < 0 || ord >= length) {
+            throw new ArrayIndexOutOfBoundsException(ord);
+        }
+
+        if (count >= threshold) {
+            densify();
+            board[ord] = tally;
+            return;
+        }
+
+        if (count == ordinals.length) {
+            int capacity = Math.min(Math.max(count * 2, 8), threshold);
+            ordinals = Arrays.copyOf(ordinals, capacity);
+            tallies = Arrays.copyOf(tallies, capacity);
+        }
+        i = -i - 1;
+        System.arraycopy(ordinals, i, ordinals, i + 1, count - i);
+        System.arraycopy(tallies, i, tallies, i + 1, count - i);
+        ordinals[i] = ord;
+        tallies[i] = tally;
+        count++;
+    }
+
+    /**
+     * @param ord
+     *            the ordinal of a verse
+     * @param tally
+     *            how much to add to the rank of the verse
+     */
+    void add(int ord, int tally) {
+        set(ord, get(ord) + tally);
+    }
+
+    /**
+     * Find the first verse on the board from an ordinal onwards.
+     * 
+     * @param from
+     *            the ordinal to look from
+     * @return the ordinal of the verse, or -1 if there is none
+     */
+    int next(int from) {
+        if (board != null) {
+            for (int i = Math.max(from, 0); i < length; i++) {
+                if (board[i] != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int i = Arrays.binarySearch(ordinals, 0, count, from);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return i < count ? ordinals[i] : -1;
+    }
+
+    /**
+     * Take every verse off the board.
+     */
+    void clear() {
+        board = null;
+        ordinals = EMPTY;
+        tallies = EMPTY;
+        count = 0;
+    }
+
+    /**
+     * Go back to a list of ranks if the board has so few verses on it that
+     * it no longer needs a rank for every ordinal.
+     * 
+     * @param size
+     *            the number of verses on the board
+     */
+    void fit(int size) {
+        if (board == null || size > threshold / 2) {
+            return;
+        }
+
+        ordinals = new int[size];
+        tallies = new int[size];
+        count = 0;
+        for (int i = 0; i < length && count < size; i++) {
+            if (board[i] != 0) {
+                ordinals[count] = i;
+                tallies[count] = board[i];
+                count++;
+            }
+        }
+        board = null;
+    }
+
+    @Override
+    public TallyBoard clone() {
+        try {
+            TallyBoard copy = (TallyBoard) super.clone();
+            if (board != null) {
+                copy.board = board.clone();
+            } else {
+                copy.ordinals = Arrays.copyOf(ordinals, count);
+                copy.tallies = Arrays.copyOf(tallies, count);
+            }
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            assert false : e;
+            return null;
+        }
+    }
+
+    /**
+     * Change to a rank for every ordinal.
+     */
+    private void densify() {
+        board = new int[length];
+        for (int i = 0; i < count; i++) {
+            board[ordinals[i]] = tallies[i];
+        }
+        ordinals = EMPTY;
+        tallies = EMPTY;
+        count = 0;
+    }
+
+    /**
+     * A board with more than one in this many verses on it is dense.
+     * A rank for every ordinal then takes no more than 16 times the room.
+     */
+    private static final int DENSITY = 32;
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * One more than the highest ordinal
+     */
+    private final int length;
+
+    /**
+     * How many verses a list of ranks can have
+     */
+    private final int threshold;
+
+    /**
+     * The rank of every ordinal, or null while there are few
+     */
+    private int[] board;
+
+    /**
+     * The ordinals of the verses in order, and their ranks, while there are few
+     */
+    private int[] ordinals;
+    private int[] tallies;
+    private int count;
+
+    /**
+     * Serialization ID
+     */
+    private static final long serialVersionUID = -2316735640174541393L;
+}
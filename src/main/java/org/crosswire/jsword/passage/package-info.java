@@ -70,14 +70,16 @@
 
 <p>
   The <code>Passage</code> interface is implemented by 3 concrete classes -
-  <code>DistinctPassage</code> is a simple sorted collection of
+  <code>DistinctPassage</code> is a sorted array of the ordinals of its
   <code>Verse</code>s, <code>RangedPassage</code> is a sorted collection of
   <code>VerseRange</code>s, and <code>BitwisePassage</code> uses an array -
   essentially <code>boolean[31104]</code> to specify whether a verse is a member
   of the <code>Passage</code>. Obviously each of these implementations has
   different strengths, which the user should not need to be bothered with. So
   the <code>PassageFactory</code> class is responsible for creating
-  <code>Passages</code> of a suitable type.
+  <code>Passages</code> of a suitable type. An <code>AdaptivePassage</code>
+  goes further and changes between the three as its <code>Verse</code>s change,
+  keeping them whichever way takes the least room.
 </p>
 
 <h2>PassageTally</h2>
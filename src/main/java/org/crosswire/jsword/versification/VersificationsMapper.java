@@ -21,6 +21,7 @@ package org.crosswire.jsword.versification;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -224,11 +225,12 @@ public final class VersificationsMapper {
     }
 
     /**
-     * Reads the mapping from file if it does not exist
+     * Reads the mapping from file if it does not exist. Verses may be mapped
+     * from several threads at once, so the mapping is only read once.
      *
      * @param versification the versification we want to load
      */
-    private void ensure(final Versification versification) {
+    private synchronized void ensure(final Versification versification) {
         if (MAPPERS.containsKey(versification)) {
             return;
         }
@@ -252,6 +254,6 @@ public final class VersificationsMapper {
 
     private static volatile VersificationsMapper instance;
     private static final Versification KJV = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
-    private static final Map<Versification, VersificationToKJVMapper> MAPPERS = new HashMap<Versification, VersificationToKJVMapper>();
+    private static final Map<Versification, VersificationToKJVMapper> MAPPERS = Collections.synchronizedMap(new HashMap<Versification, VersificationToKJVMapper>());
     private static final Logger LOGGER = LoggerFactory.getLogger(VersificationsMapper.class);
 }
@@ -35,6 +35,7 @@ import org.junit.runners.Suite.SuiteClasses;
     org.crosswire.common.diff.AllTests.class,
     org.crosswire.common.history.AllTests.class,
     org.crosswire.common.icu.AllTests.class,
+    org.crosswire.common.metrics.AllTests.class,
     org.crosswire.common.progress.AllTests.class,
     org.crosswire.common.xml.AllTests.class,
     org.crosswire.common.util.AllTests.class
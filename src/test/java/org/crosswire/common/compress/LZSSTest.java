@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.MissingResourceException;
+import java.util.Random;
 
 import org.crosswire.common.util.PlatformTestUtils;
 import org.crosswire.common.util.ResourceUtil;
@@ -116,4 +117,43 @@ public class LZSSTest {
         }
 
     }
+
+    @Test
+    public void testDecoder() throws IOException {
+        // Long runs give overlapping copies, random bytes give literals
+        // and repeated words give copies from well back in the window.
+        Random random = new Random(7);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        for (int i = 0; i < 20000; i++) {
+            int choice = random.nextInt(3);
+            if (choice == 0) {
+                int len = random.nextInt(40);
+                for (int j = 0; j < len; j++) {
+                    buf.write('a');
+                }
+            } else if (choice == 1) {
+                buf.write(random.nextInt(256));
+            } else {
+                byte[] word = ("word" + random.nextInt(500) + ' ').getBytes("UTF-8");
+                buf.write(word, 0, word.length);
+            }
+        }
+        byte[] original = buf.toByteArray();
+        byte[] compressed = new LZSS(new ByteArrayInputStream(original)).compress().toByteArray();
+
+        Assert.assertArrayEquals(original, LZSSDecoder.decode(compressed, original.length));
+        Assert.assertArrayEquals(original, LZSSDecoder.decode(compressed, 0));
+        Assert.assertArrayEquals(original, CompressorType.LZSS.uncompress(compressed, 10));
+        Assert.assertArrayEquals(original, new LZSS(new ByteArrayInputStream(compressed)).uncompress().toByteArray());
+
+        // Text that begins with spaces refers back into the initial ring buffer.
+        byte[] spaces = "                    In the beginning".getBytes("UTF-8");
+        compressed = new LZSS(new ByteArrayInputStream(spaces)).compress().toByteArray();
+        Assert.assertArrayEquals(spaces, LZSSDecoder.decode(compressed, spaces.length));
+
+        // A truncated block gives what could be decoded.
+        byte[] truncated = LZSSDecoder.decode(compressed, 0, compressed.length - 1, 0);
+        Assert.assertTrue(truncated.length < spaces.length);
+        Assert.assertEquals(0, LZSSDecoder.decode(new byte[0], 0).length);
+    }
 }
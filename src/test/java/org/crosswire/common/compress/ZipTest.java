@@ -76,4 +76,24 @@ public class ZipTest {
         }
 
     }
+
+    @Test
+    public void testInflate() throws IOException {
+        byte[] data = "In the beginning God created the heaven and the earth.".getBytes("UTF-8");
+        byte[] compressed = CompressorType.ZIP.getCompressor(data).compress().toByteArray();
+
+        // The expected length is only a hint
+        Assert.assertArrayEquals(data, CompressorType.ZIP.uncompress(compressed, data.length));
+        Assert.assertArrayEquals(data, Zip.inflate(compressed, 4));
+        Assert.assertArrayEquals(data, Zip.inflate(compressed, 1024));
+
+        byte[] truncated = new byte[compressed.length / 2];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        try {
+            Zip.inflate(truncated, data.length);
+            Assert.fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
 }
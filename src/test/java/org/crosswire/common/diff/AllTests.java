@@ -40,7 +40,8 @@ import org.junit.runners.Suite.SuiteClasses;
     LineMapTest.class,
     MatchTest.class,
     PatchEntryTest.class,
-    PatchTest.class
+    PatchTest.class,
+    TokenDiffTest.class
 })
 public class AllTests {
 }
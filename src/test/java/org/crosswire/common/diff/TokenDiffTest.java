@@ -0,0 +1,136 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.diff;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class TokenDiffTest {
+    private TokenDictionary dictionary;
+    private TokenDiff diff;
+
+    @Before
+    public void setUp() {
+        dictionary = new TokenDictionary();
+        diff = new TokenDiff(dictionary);
+    }
+
+    @Test
+    public void testTokenize() {
+        String text = "In the beginning, God  created́ the heaven.";
+        int[] tokens = dictionary.tokenize(text);
+        // In, sp, the, sp, beginning, comma, sp, God, sp, created, sp, the, sp, heaven, .
+        Assert.assertEquals(15, tokens.length);
+        Assert.assertEquals(tokens[2], tokens[11]);
+        Assert.assertEquals("  ", dictionary.getToken(tokens[8]));
+        Assert.assertEquals("created́", dictionary.getToken(tokens[9]));
+        Assert.assertTrue(dictionary.isWhitespace(tokens[1]));
+        Assert.assertFalse(dictionary.isWhitespace(tokens[5]));
+        StringBuilder buf = new StringBuilder();
+        dictionary.append(buf, tokens, 0, tokens.length);
+        Assert.assertEquals(text, buf.toString());
+    }
+
+    @Test
+    public void testTrivial() {
+        Assert.assertEquals(0, diff.compare("", "").size());
+        Assert.assertEquals(Arrays.asList(new Difference(EditType.EQUAL, "a b")), diff.compare("a b", "a b"));
+        Assert.assertEquals(Arrays.asList(new Difference(EditType.INSERT, "a b")), diff.compare("", "a b"));
+        Assert.assertEquals(Arrays.asList(new Difference(EditType.DELETE, "a b")), diff.compare("a b", ""));
+    }
+
+    @Test
+    public void testWords() {
+        List<Difference> expected = Arrays.asList(
+                new Difference(EditType.EQUAL, "In the beginning "),
+                new Difference(EditType.DELETE, "God"),
+                new Difference(EditType.INSERT, "the LORD"),
+                new Difference(EditType.EQUAL, " created"));
+        Assert.assertEquals(expected, diff.compare("In the beginning God created", "In the beginning the LORD created"));
+
+        expected = Arrays.asList(
+                new Difference(EditType.EQUAL, "And God said"),
+                new Difference(EditType.DELETE, ","),
+                new Difference(EditType.INSERT, ":"),
+                new Difference(EditType.EQUAL, " Let there be light"));
+        Assert.assertEquals(expected, diff.compare("And God said, Let there be light", "And God said: Let there be light"));
+    }
+
+    @Test
+    public void testFoldWhitespace() {
+        // The space between "dark" and "void" would otherwise be kept,
+        // splitting a replaced phrase in two.
+        List<Difference> expected = Arrays.asList(
+                new Difference(EditType.EQUAL, "was "),
+                new Difference(EditType.DELETE, "without form"),
+                new Difference(EditType.INSERT, "formless and empty"),
+                new Difference(EditType.EQUAL, "."));
+        Assert.assertEquals(expected, diff.compare("was without form.", "was formless and empty."));
+    }
+
+    @Test
+    public void testRandom() {
+        // Whatever the edits, the source and target must be recoverable.
+        Random random = new Random(1);
+        String[] words = {
+                "a", "b", "c", "d", "e"
+        };
+        for (int run = 0; run < 200; run++) {
+            String source = randomText(random, words);
+            String target = randomText(random, words);
+            List<Difference> diffs = diff.compare(source, target);
+            StringBuilder before = new StringBuilder();
+            StringBuilder after = new StringBuilder();
+            for (Difference d : diffs) {
+                if (d.getEditType() != EditType.INSERT) {
+                    before.append(d.getText());
+                }
+                if (d.getEditType() != EditType.DELETE) {
+                    after.append(d.getText());
+                }
+            }
+            Assert.assertEquals(source, before.toString());
+            Assert.assertEquals(target, after.toString());
+        }
+    }
+
+    private String randomText(Random random, String[] words) {
+        StringBuilder buf = new StringBuilder();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buf.append(' ');
+            }
+            buf.append(words[random.nextInt(words.length)]);
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class MetricsTest {
+    private MetricsRecorder original;
+    private Recorder recorder;
+
+    @Before
+    public void setUp() {
+        original = Metrics.getRecorder();
+        recorder = new Recorder();
+        Metrics.setRecorder(recorder);
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setRecorder(original);
+    }
+
+    @Test
+    public void testEnableDisable() {
+        Assert.assertTrue(Metrics.isEnabled());
+        Assert.assertSame(recorder, Metrics.getRecorder());
+
+        Metrics.setRecorder(null);
+        Assert.assertFalse(Metrics.isEnabled());
+        Assert.assertTrue(Metrics.getRecorder() instanceof NullMetricsRecorder);
+
+        Metrics.setRecorder(new NullMetricsRecorder());
+        Assert.assertFalse(Metrics.isEnabled());
+
+        Metrics.setRecorder(recorder);
+        Assert.assertTrue(Metrics.isEnabled());
+    }
+
+    @Test
+    public void testRecord() {
+        Metrics.increment(Metrics.INDEX_OPEN, "KJV", "Lucene");
+        Metrics.gauge(Metrics.STATE_POOLED, "KJV", "zText", 3);
+        long start = Metrics.begin();
+        Assert.assertTrue(start != 0L);
+        Metrics.time(Metrics.SWORD_READ, "KJV", "zText", start);
+
+        Assert.assertEquals(3, recorder.events.size());
+        Assert.assertEquals("increment jsword.index.open KJV Lucene", recorder.events.get(0));
+        Assert.assertEquals("gauge jsword.state.pooled KJV zText", recorder.events.get(1));
+        Assert.assertEquals("time jsword.sword.read KJV zText", recorder.events.get(2));
+    }
+
+    @Test
+    public void testRecorderSwap() {
+        Metrics.increment(Metrics.INDEX_OPEN, "KJV", null);
+        Recorder other = new Recorder();
+        Metrics.setRecorder(other);
+        Metrics.increment(Metrics.INDEX_EVICT, "KJV", null);
+
+        Assert.assertEquals(1, recorder.events.size());
+        Assert.assertEquals(1, other.events.size());
+        Assert.assertEquals("increment jsword.index.evict KJV null", other.events.get(0));
+    }
+
+    @Test
+    public void testDisabled() {
+        Metrics.setRecorder(null);
+        long start = Metrics.begin();
+        Assert.assertEquals(0L, start);
+        Metrics.time(Metrics.SWORD_READ, "KJV", "zText", start);
+        Metrics.time(Metrics.SWORD_READ, start);
+        Metrics.increment(Metrics.INDEX_OPEN, "KJV", null);
+        Metrics.gauge(Metrics.STATE_POOLED, "KJV", null, 1);
+        Assert.assertNull(Metrics.enter("KJV", "zText"));
+        Assert.assertFalse(Metrics.isEntered());
+        Metrics.exit(null);
+
+        Assert.assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    public void testNesting() {
+        Object outer = Metrics.enter("KJV", "zText");
+        Metrics.time(Metrics.SWORD_UNCOMPRESS, Metrics.begin());
+        Object inner = Metrics.enter("ESV", "RawText");
+        Metrics.time(Metrics.SWORD_UNCOMPRESS, Metrics.begin());
+        Metrics.exit(inner);
+        Metrics.time(Metrics.SWORD_UNCOMPRESS, Metrics.begin());
+        Metrics.exit(outer);
+        Metrics.time(Metrics.SWORD_UNCOMPRESS, Metrics.begin());
+
+        Assert.assertEquals("time jsword.sword.uncompress KJV zText", recorder.events.get(0));
+        Assert.assertEquals("time jsword.sword.uncompress ESV RawText", recorder.events.get(1));
+        Assert.assertEquals("time jsword.sword.uncompress KJV zText", recorder.events.get(2));
+        Assert.assertEquals("time jsword.sword.uncompress null null", recorder.events.get(3));
+        Assert.assertFalse(Metrics.isEntered());
+    }
+
+    @Test
+    public void testExitTwice() {
+        Object outer = Metrics.enter("KJV", "zText");
+        Object inner = Metrics.enter("ESV", "RawText");
+        Metrics.exit(inner);
+        Metrics.exit(inner);
+        Assert.assertTrue(Metrics.isEntered());
+        Metrics.time(Metrics.SWORD_READ, Metrics.begin());
+        Assert.assertEquals("time jsword.sword.read KJV zText", recorder.events.get(0));
+        Metrics.exit(outer);
+        Metrics.exit(outer);
+        Assert.assertFalse(Metrics.isEntered());
+    }
+
+    @Test
+    public void testExitOuterFirst() {
+        Object outer = Metrics.enter("KJV", "zText");
+        Metrics.enter("ESV", "RawText");
+        Metrics.exit(outer);
+        Assert.assertFalse(Metrics.isEntered());
+    }
+
+    @Test
+    public void testExitAfterDisable() {
+        Object context = Metrics.enter("KJV", "zText");
+        Assert.assertNotNull(context);
+        Metrics.setRecorder(null);
+        Metrics.exit(context);
+        Assert.assertFalse(Metrics.isEntered());
+    }
+
+    /**
+     * Remembers what it is told.
+     */
+    private static class Recorder implements MetricsRecorder {
+        public void increment(String name, String initials, String type, long delta) {
+            events.add("increment " + name + ' ' + initials + ' ' + type);
+        }
+
+        public void time(String name, String initials, String type, long nanos) {
+            events.add("time " + name + ' ' + initials + ' ' + type);
+        }
+
+        public void gauge(String name, String initials, String type, long value) {
+            events.add("gauge " + name + ' ' + initials + ' ' + type);
+        }
+
+        private List<String> events = new ArrayList<String>();
+    }
+}
@@ -94,4 +94,36 @@ public class JobTest {
         Assert.assertEquals(100, job.getWork());
         // Assert.assertFalse(job.isCancelable());
     }
+
+    @Test
+    public void testCancelOwnJob() {
+        Progress job = JobManager.createJob(UUID.randomUUID().toString(), WIBBLE, Thread.currentThread());
+        job.beginJob(WIBBLE);
+        job.cancel();
+        Assert.assertTrue(job.isFinished());
+        Assert.assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testCancelOtherJob() throws InterruptedException {
+        final Object lock = new Object();
+        final boolean[] interrupted = new boolean[1];
+        Thread worker = new Thread(new Runnable() {
+            public void run() {
+                synchronized (lock) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted[0] = true;
+                    }
+                }
+            }
+        });
+        Progress job = JobManager.createJob(UUID.randomUUID().toString(), WIBBLE, worker);
+        job.beginJob(WIBBLE);
+        worker.start();
+        job.cancel();
+        worker.join(10000);
+        Assert.assertTrue(interrupted[0]);
+    }
 }
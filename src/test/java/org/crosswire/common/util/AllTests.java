@@ -34,7 +34,8 @@ import org.junit.runners.Suite.SuiteClasses;
     StringUtilTest.class,
     PropertyMapTest.class,
     LanguageTest.class,
-    LanguagesTest.class
+    LanguagesTest.class,
+    WebResourceTest.class
 })
 public class AllTests {
 }
@@ -0,0 +1,290 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.util;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class WebResourceTest {
+    private HttpServer server;
+    private File dir;
+    private byte[] content;
+    private String etag;
+    private AtomicInteger requests;
+    private AtomicInteger sent;
+    private URI source;
+    private int cutAt;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[300000];
+        new Random(40).nextBytes(content);
+        etag = "\"v1\"";
+        requests = new AtomicInteger();
+        sent = new AtomicInteger();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/mods.d.tar.gz", new Handler());
+        server.start();
+        source = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/mods.d.tar.gz");
+
+        dir = File.createTempFile("jsword-web", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        FileUtil.delete(dir);
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        File dest = new File(dir, "copy");
+        copy(dest, false);
+        Assert.assertTrue(Arrays.equals(content, read(dest)));
+        Assert.assertFalse(new File(dir, "copy.part").exists());
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        File dest = new File(dir, "catalog");
+        Assert.assertTrue(copy(dest, true));
+        Assert.assertEquals(content.length, sent.get());
+
+        // Unchanged, so nothing is sent
+        Assert.assertFalse(copy(dest, true));
+        Assert.assertEquals(content.length, sent.get());
+        Assert.assertEquals(2, requests.get());
+
+        // Changed, so it is sent again
+        content[0]++;
+        etag = "\"v2\"";
+        Assert.assertTrue(copy(dest, true));
+        Assert.assertTrue(Arrays.equals(content, read(dest)));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        File dest = new File(dir, "book.zip");
+        int half = content.length / 2;
+        writePart(dest, half, etag);
+
+        copy(dest, false);
+        Assert.assertTrue(Arrays.equals(content, read(dest)));
+        Assert.assertEquals(content.length - half, sent.get());
+    }
+
+    @Test
+    public void testInterruptAndResume() throws Exception {
+        File dest = new File(dir, "book.zip");
+        File part = new File(dir, "book.zip.part");
+
+        // The transfer stalls part way through
+        cutAt = content.length / 3;
+        WebResource wr = new WebResource(source, 500);
+        try {
+            wr.copy(NetUtil.getURI(dest));
+            Assert.fail("interrupted copy completed");
+        } catch (LucidException e) {
+            // expected
+        } finally {
+            wr.shutdown();
+        }
+        Assert.assertFalse(dest.exists());
+        Assert.assertTrue(part.exists());
+        long kept = part.length();
+        Assert.assertTrue(kept > 0 && kept <= cutAt);
+
+        // Only the rest is asked for and sent
+        cutAt = 0;
+        sent.set(0);
+        copy(dest, false);
+        Assert.assertTrue(Arrays.equals(content, read(dest)));
+        Assert.assertEquals(content.length - kept, sent.get());
+        Assert.assertFalse(part.exists());
+
+        Assert.assertTrue(WebResource.deleteCopy(dest));
+        Assert.assertFalse(dest.exists());
+        Assert.assertFalse(new File(dir, "book.zip.http").exists());
+    }
+
+    @Test
+    public void testResumeComplete() throws Exception {
+        // Left complete when the copy stopped just before the rename
+        File dest = new File(dir, "book.zip");
+        writePart(dest, content.length, etag);
+
+        copy(dest, false);
+        Assert.assertTrue(Arrays.equals(content, read(dest)));
+        Assert.assertEquals(2, requests.get());
+        Assert.assertEquals(content.length, sent.get());
+        Assert.assertFalse(new File(dir, "book.zip.part").exists());
+
+        // And the next copy is not stuck either
+        copy(dest, false);
+        Assert.assertTrue(Arrays.equals(content, read(dest)));
+    }
+
+    @Test
+    public void testForgetCopy() throws Exception {
+        File dest = new File(dir, "index.zip");
+        copy(dest, false);
+        Assert.assertTrue(new File(dir, "index.zip.http").exists());
+
+        Assert.assertTrue(WebResource.forgetCopy(dest));
+        Assert.assertTrue(dest.exists());
+        Assert.assertFalse(new File(dir, "index.zip.http").exists());
+    }
+
+    @Test
+    public void testResumeChanged() throws Exception {
+        File dest = new File(dir, "book.zip");
+        writePart(dest, 1000, "\"v0\"");
+
+        copy(dest, false);
+        Assert.assertTrue(Arrays.equals(content, read(dest)));
+        Assert.assertEquals(content.length, sent.get());
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        WebResource wr = new WebResource(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/missing"), 5000);
+        try {
+            wr.copy(NetUtil.getURI(new File(dir, "missing")));
+            Assert.fail("missing resource copied");
+        } catch (LucidException e) {
+            // expected
+        } finally {
+            wr.shutdown();
+        }
+    }
+
+    private boolean copy(File dest, boolean conditional) throws LucidException {
+        WebResource wr = new WebResource(source, 5000);
+        try {
+            if (conditional) {
+                return wr.copyIfModified(NetUtil.getURI(dest), null);
+            }
+            wr.copy(NetUtil.getURI(dest));
+            return true;
+        } finally {
+            wr.shutdown();
+        }
+    }
+
+    private byte[] read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(data);
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    /**
+     * Leave what an interrupted download would have.
+     */
+    private void writePart(File dest, int length, String validator) throws IOException {
+        OutputStream out = new FileOutputStream(dest.getPath() + ".part");
+        out.write(content, 0, length);
+        out.close();
+        PropertyMap validators = new PropertyMap();
+        validators.put("Partial", validator);
+        NetUtil.storeProperties(validators, NetUtil.getURI(new File(dest.getPath() + ".http")), null);
+    }
+
+    /**
+     * Serve the content with an ETag, honoring conditional and range requests.
+     */
+    private final class Handler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            exchange.getResponseHeaders().set("ETag", etag);
+
+            if (etag.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            int start = 0;
+            int status = 200;
+            if (range != null && range.startsWith("bytes=") && (ifRange == null || etag.equals(ifRange))) {
+                start = Integer.parseInt(range.substring(6, range.indexOf('-')));
+                if (start >= content.length) {
+                    exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                    exchange.sendResponseHeaders(416, -1);
+                    exchange.close();
+                    return;
+                }
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + '-' + (content.length - 1) + '/' + content.length);
+            }
+            exchange.sendResponseHeaders(status, content.length - start);
+            OutputStream out = exchange.getResponseBody();
+            if (cutAt > 0) {
+                // Promise everything, send some, then stall until the client gives up
+                out.write(content, start, cutAt);
+                out.flush();
+                sent.addAndGet(cutAt);
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // expected, as too little was written
+                }
+                return;
+            }
+            out.write(content, start, content.length - start);
+            out.close();
+            sent.addAndGet(content.length - start);
+        }
+    }
+}
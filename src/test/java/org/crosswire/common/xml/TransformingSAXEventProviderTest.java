@@ -0,0 +1,115 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.common.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.crosswire.common.metrics.Metrics;
+import org.crosswire.common.metrics.MetricsRecorder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class TransformingSAXEventProviderTest {
+    @Test
+    public void testPooledTransformerIsReset() throws Exception {
+        File xsl = createStylesheet();
+        try {
+            TransformingSAXEventProvider.compile(xsl.toURI());
+
+            Assert.assertEquals("[one]", transform(xsl, "one"));
+            // The pooled transformer must not remember the previous parameter
+            Assert.assertEquals("[default]", transform(xsl, null));
+            Assert.assertEquals("[two]", transform(xsl, "two"));
+        } finally {
+            xsl.delete();
+        }
+    }
+
+    @Test
+    public void testTimingTaggedWithBaseName() throws Exception {
+        File xsl = createStylesheet();
+        MetricsRecorder original = Metrics.getRecorder();
+        final List<String> types = new ArrayList<String>();
+        try {
+            Metrics.setRecorder(new MetricsRecorder() {
+                public void time(String name, String initials, String type, long nanos) {
+                    if (Metrics.XSLT_TRANSFORM.equals(name)) {
+                        types.add(type);
+                    }
+                }
+
+                public void increment(String name, String initials, String type, long delta) {
+                }
+
+                public void gauge(String name, String initials, String type, long value) {
+                }
+            });
+            transform(xsl, "one");
+        } finally {
+            Metrics.setRecorder(original);
+            xsl.delete();
+        }
+        String name = xsl.getName();
+        Assert.assertEquals(Collections.singletonList(name.substring(0, name.length() - ".xsl".length())), types);
+    }
+
+    private String transform(File xsl, String param) throws Exception {
+        SAXEventProvider input = new StringSAXEventProvider("<a/>");
+        TransformingSAXEventProvider tsep = new TransformingSAXEventProvider(xsl.toURI(), input);
+        tsep.setOutputProperty("omit-xml-declaration", "yes");
+        if (param != null) {
+            tsep.setParameter("p", param);
+        }
+        StringWriter out = new StringWriter();
+        tsep.transform(new SAXSource(new SAXEventProviderXMLReader(input), new SAXEventProviderInputSource()), new StreamResult(out));
+        return out.toString().trim();
+    }
+
+    private File createStylesheet() throws IOException {
+        File xsl = File.createTempFile("tsep", ".xsl");
+        OutputStream out = new FileOutputStream(xsl);
+        try {
+            out.write(("<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                    + "<xsl:output method=\"text\"/>"
+                    + "<xsl:param name=\"p\" select=\"'default'\"/>"
+                    + "<xsl:template match=\"/\">[<xsl:value-of select=\"$p\"/>]</xsl:template>"
+                    + "</xsl:stylesheet>").getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        return xsl;
+    }
+}
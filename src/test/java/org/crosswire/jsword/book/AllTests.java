@@ -34,7 +34,8 @@ import org.junit.runners.Suite.SuiteClasses;
     BooksTest.class,
     BookMetaDataTest.class,
     SentenceUtilTest.class,
-    OsisTest.class
+    OsisTest.class,
+    BookDataSAXEventProviderTest.class
 })
 public class AllTests {
 }
@@ -0,0 +1,140 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.common.xml.JDOMSAXEventProvider;
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.jsword.book.sword.SyntheticModules;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.jdom2.Document;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class BookDataSAXEventProviderTest {
+    private File dir;
+    private Book bible;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("jsword-sax", "");
+        dir.delete();
+        dir.mkdirs();
+        Versification v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        SyntheticModules modules = new SyntheticModules(dir);
+        modules.setBooks(BibleBook.PHIL);
+        // A verse linked across the chapter boundary
+        modules.linkVerse(new Verse(v11n, BibleBook.PHIL, 2, 1), new Verse(v11n, BibleBook.PHIL, 1, 30));
+        bible = modules.createRawText("SaxText");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(dir);
+    }
+
+    @Test
+    public void testSameAsFragment() throws Exception {
+        Key key = bible.getKey("Phil 1:20-3:5");
+        List<String> streamed = record(new BookDataSAXEventProvider(bible, key, true));
+        List<String> built = record(new JDOMSAXEventProvider(new Document(new BookData(bible, key).getOsisFragment())));
+        Assert.assertEquals(built, streamed);
+    }
+
+    @Test
+    public void testLinkedAcrossChapters() throws Exception {
+        Key key = bible.getKey("Phil 1:29-30, Phil 2:1-3");
+        List<String> streamed = record(new BookDataSAXEventProvider(bible, key, true));
+        int verses = 0;
+        for (String event : streamed) {
+            if (event.equals("<" + OSISUtil.OSIS_ELEMENT_VERSE)) {
+                verses++;
+            }
+        }
+        // Phil 2:1 repeats Phil 1:30 so it is only shown once
+        Assert.assertEquals(4, verses);
+        Assert.assertEquals(record(new JDOMSAXEventProvider(new Document(new BookData(bible, key).getOsisFragment()))), streamed);
+    }
+
+    @Test
+    public void testSingleChapter() throws Exception {
+        Key key = bible.getKey("Phil 4:2-7");
+        List<String> streamed = record(new BookDataSAXEventProvider(bible, key, false));
+        List<String> built = record(new JDOMSAXEventProvider(new Document(new BookData(bible, key).getOsisFragment(false))));
+        Assert.assertEquals(built, streamed);
+    }
+
+    /**
+     * Record the elements, attributes and text sent by a provider. Adjacent
+     * text is joined, as outputters are free to split it differently.
+     */
+    private List<String> record(SAXEventProvider provider) throws Exception {
+        final List<String> events = new ArrayList<String>();
+        final StringBuilder text = new StringBuilder();
+        provider.provideSAXEvents(new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                flush();
+                events.add("<" + localName);
+                for (int i = 0; i < atts.getLength(); i++) {
+                    events.add("@" + atts.getLocalName(i) + '=' + atts.getValue(i));
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                flush();
+                events.add("</" + localName);
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                text.append(ch, start, length);
+            }
+
+            private void flush() {
+                if (text.length() > 0) {
+                    events.add(text.toString());
+                    text.setLength(0);
+                }
+            }
+        });
+        return events;
+    }
+}
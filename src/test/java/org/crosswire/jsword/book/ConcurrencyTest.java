@@ -19,70 +19,56 @@
  */
 package org.crosswire.jsword.book;
 
-import org.crosswire.jsword.passage.NoSuchKeyException;
+import java.io.File;
+import java.io.IOException;
+
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.sword.SyntheticModules;
+import org.crosswire.jsword.versification.BibleBook;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
 /**
- * JUnit Test.
+ * JUnit Test. A short run of the {@link LoadHarness} against synthetic
+ * modules, to catch failures that only show up when books are read from
+ * several threads at once.
  * 
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
 public class ConcurrencyTest {
+    private File dir;
 
-    @Test
-    public void testConcurrencyIssueOnBookData() throws InterruptedException {
-        final String[] names = { "KJV", "ESV" };
-        final String ref = "Rom.1.1";
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("jsword-concurrency", "");
+        dir.delete();
+        dir.mkdirs();
+    }
 
-        final Runnable r1 = new Runnable() {
-            public void run() {
-                final Book b0 = Books.installed().getBook(names[0]);
-                BookData bd1;
-                try {
-                    bd1 = new BookData(b0, b0.getKey(ref));
-                    bd1.getSAXEventProvider();
-                } catch (final NoSuchKeyException e) {
-                    System.err.println("A jsword error during test");
-                    e.printStackTrace();
-                    Assert.fail("JSword bug has occured");
-                } catch (final BookException e) {
-                    System.err.println("A jsword error during test");
-                    e.printStackTrace();
-                    Assert.fail("JSword bug has occured");
-                }
-            }
-        };
+    @After
+    public void tearDown() {
+        FileUtil.delete(dir);
+    }
 
-        final Runnable r2 = new Runnable() {
-            public void run() {
-                final Book b0 = Books.installed().getBook(names[1]);
-                BookData bd1;
-                try {
-                    bd1 = new BookData(b0, b0.getKey(ref));
-                    bd1.getSAXEventProvider();
-                } catch (final NoSuchKeyException e) {
-                    System.err.println("A jsword error during test");
-                    e.printStackTrace();
-                    Assert.fail("JSword bug has occured");
-                } catch (final BookException e) {
-                    System.err.println("A jsword error during test");
-                    e.printStackTrace();
-                    Assert.fail("JSword bug has occured");
-                }
-            }
-        };
+    @Test
+    public void testConcurrentMixedLoad() throws Exception {
+        SyntheticModules modules = new SyntheticModules(dir);
+        modules.setBooks(BibleBook.RUTH, BibleBook.JOHN3, BibleBook.JUDE);
+        modules.setEntryCount(200);
 
-        int ii = 0;
-        while (ii++ < 50) {
-            final Thread t1 = new Thread(r1);
-            final Thread t2 = new Thread(r2);
-            t1.start();
-            t2.start();
+        // Searching is left out as indexing needs a JSword home.
+        LoadHarness harness = LoadHarness.createMixed(dir, modules, 4, false);
+        harness.setOperations(400);
+        harness.setDuration(60000);
+        LoadHarness.Report report = harness.run();
 
-            t1.join();
-            t2.join();
+        if (report.getFirstError() != null) {
+            report.getFirstError().printStackTrace();
         }
+        Assert.assertEquals(report.toString(), 0, report.getErrors());
+        Assert.assertEquals(400, report.getOperations());
     }
 }
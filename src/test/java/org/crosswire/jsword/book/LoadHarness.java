@@ -0,0 +1,635 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.util.CWProject;
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.sword.BlockType;
+import org.crosswire.jsword.book.sword.SyntheticModules;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.IndexPolicyAdapter;
+import org.crosswire.jsword.index.lucene.LuceneIndex;
+import org.crosswire.jsword.index.lucene.LuceneIndexManager;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseRange;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+
+/**
+ * A load test for the library. A weighted mix of workloads is run from a
+ * number of threads, optionally paced to a target rate, and the throughput,
+ * latency percentiles, open file handles and allocation rate are reported.
+ *
+ * <p>{@link #createMixed(File, SyntheticModules, int, boolean)} builds the standard mix
+ * against synthetic modules of every backend type: chapter reads from zText
+ * and rawText Bibles, lookups in zLD and rawLD dictionaries and a GenBook,
+ * searches and parallel views. It can be run from the command line, for
+ * example:</p>
+ *
+ * <pre>
+ * java org.crosswire.jsword.book.LoadHarness threads=16 seconds=60 rate=2000 books=all compress=LZSS
+ * </pre>
+ *
+ * <p>When a target rate is given, latency is measured from when an operation
+ * was due to start rather than when it did start, so that a stall shows up in
+ * the latency of every operation that queued behind it.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class LoadHarness {
+    /**
+     * Something to do under load.
+     */
+    public abstract static class Workload {
+        /**
+         * @param name the name under which the workload is reported
+         */
+        protected Workload(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the name under which the workload is reported
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Perform one operation.
+         *
+         * @param random the calling thread's source of randomness
+         * @throws Exception if the operation fails
+         */
+        public abstract void run(Random random) throws Exception;
+
+        private String name;
+    }
+
+    /**
+     * The results of a run.
+     */
+    public static class Report {
+        /**
+         * @return the total number of operations
+         */
+        public int getOperations() {
+            int total = 0;
+            for (Stats stats : workloads.values()) {
+                total += stats.count;
+            }
+            return total;
+        }
+
+        /**
+         * @return the total number of operations that failed
+         */
+        public int getErrors() {
+            int total = 0;
+            for (Stats stats : workloads.values()) {
+                total += stats.errors;
+            }
+            return total;
+        }
+
+        /**
+         * @return the operations per second over the whole run
+         */
+        public double getThroughput() {
+            return elapsed == 0 ? 0 : getOperations() * 1e9 / elapsed;
+        }
+
+        /**
+         * @return the first failure, if any
+         */
+        public Throwable getFirstError() {
+            return firstError;
+        }
+
+        /**
+         * @return the bytes allocated per second by the workers, or -1 if the
+         *         JVM does not measure it
+         */
+        public double getAllocationRate() {
+            return allocated < 0 || elapsed == 0 ? -1 : allocated * 1e9 / elapsed;
+        }
+
+        /**
+         * @return the largest number of open file handles seen, or -1 if the
+         *         JVM does not measure it
+         */
+        public long getPeakFileHandles() {
+            return peakHandles;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder();
+            buf.append(String.format("%-16s %9s %7s %10s %10s %10s %10s%n", "workload", "ops", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms"));
+            List<long[]> all = new ArrayList<long[]>();
+            for (Stats stats : workloads.values()) {
+                long[] sorted = stats.getSorted();
+                all.add(sorted);
+                appendLine(buf, stats.name, sorted, stats.errors);
+            }
+            appendLine(buf, "total", merge(all), getErrors());
+            buf.append(String.format("elapsed %.1f s%n", elapsed / 1e9));
+            buf.append(String.format("file handles: start %d, peak %d, end %d%n", Long.valueOf(startHandles), Long.valueOf(peakHandles), Long.valueOf(endHandles)));
+            if (allocated >= 0) {
+                buf.append(String.format("allocation %.1f MB/s%n", getAllocationRate() / (1024 * 1024)));
+            }
+            return buf.toString();
+        }
+
+        private void appendLine(StringBuilder buf, String name, long[] sorted, int errors) {
+            buf.append(String.format("%-16s %9d %7d %10.1f %10.3f %10.3f %10.3f%n", name, Integer.valueOf(sorted.length), Integer.valueOf(errors),
+                    Double.valueOf(elapsed == 0 ? 0 : sorted.length * 1e9 / elapsed),
+                    Double.valueOf(percentile(sorted, 0.5) / 1e6), Double.valueOf(percentile(sorted, 0.99) / 1e6), Double.valueOf(percentile(sorted, 0.999) / 1e6)));
+        }
+
+        private Map<String, Stats> workloads = new LinkedHashMap<String, Stats>();
+        private long elapsed;
+        private long allocated;
+        private long startHandles;
+        private long peakHandles;
+        private long endHandles;
+        private Throwable firstError;
+    }
+
+    /**
+     * Create a harness with no workloads, running on one thread for ten
+     * seconds as fast as possible.
+     */
+    public LoadHarness() {
+        workloads = new ArrayList<Workload>();
+        weights = new ArrayList<Integer>();
+        threads = 1;
+        duration = 10000;
+    }
+
+    /**
+     * Add something to do. Each operation picks a workload at random, in
+     * proportion to its weight.
+     *
+     * @param workload the workload
+     * @param weight how often it is done relative to the others
+     */
+    public void addWorkload(Workload workload, int weight) {
+        workloads.add(workload);
+        weights.add(Integer.valueOf(weight));
+    }
+
+    /**
+     * @param threads the number of threads generating load
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @param targetRate the operations per second across all threads, or 0
+     *            to run as fast as possible
+     */
+    public void setTargetRate(double targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    /**
+     * @param duration the longest time to run, in milliseconds
+     */
+    public void setDuration(long duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @param operations the number of operations after which to stop, or 0
+     *            to run for the whole duration
+     */
+    public void setOperations(int operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Run the workloads.
+     *
+     * @return what happened
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public Report run() throws InterruptedException {
+        final Report report = new Report();
+        for (Workload workload : workloads) {
+            report.workloads.put(workload.getName(), new Stats(workload.getName()));
+        }
+        final int[] cumulative = new int[weights.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            totalWeight += weights.get(i).intValue();
+            cumulative[i] = totalWeight;
+        }
+        final int weightSum = totalWeight;
+
+        final long start = System.nanoTime();
+        final long deadline = start + duration * 1000000L;
+        final long interval = targetRate > 0 ? (long) (threads * 1e9 / targetRate) : 0;
+        final AtomicInteger remaining = new AtomicInteger(operations > 0 ? operations : Integer.MAX_VALUE);
+        final AtomicLong allocated = new AtomicLong(getAllocatedBytes() < 0 ? -1 : 0);
+        final CountDownLatch done = new CountDownLatch(threads);
+        report.startHandles = getOpenFileHandles();
+        report.peakHandles = report.startHandles;
+
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            // Stagger the threads so that a paced load is spread evenly
+            final long offset = interval * t / threads;
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    Random random = new Random(seed);
+                    Map<String, Stats> local = new LinkedHashMap<String, Stats>();
+                    long startAllocated = getAllocatedBytes();
+                    long due = start + offset;
+                    try {
+                        while (remaining.getAndDecrement() > 0) {
+                            if (interval > 0) {
+                                long wait = due - System.nanoTime();
+                                if (wait > 0) {
+                                    Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+                                }
+                            } else {
+                                due = System.nanoTime();
+                            }
+                            if (due > deadline) {
+                                break;
+                            }
+
+                            int pick = random.nextInt(weightSum);
+                            int w = 0;
+                            while (cumulative[w] <= pick) {
+                                w++;
+                            }
+                            Workload workload = workloads.get(w);
+                            Stats stats = local.get(workload.getName());
+                            if (stats == null) {
+                                stats = new Stats(workload.getName());
+                                local.put(workload.getName(), stats);
+                            }
+                            try {
+                                workload.run(random);
+                            } catch (Exception e) {
+                                stats.errors++;
+                                synchronized (report) {
+                                    if (report.firstError == null) {
+                                        report.firstError = e;
+                                    }
+                                }
+                            }
+                            stats.add(System.nanoTime() - due);
+                            due += interval;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        long endAllocated = getAllocatedBytes();
+                        if (startAllocated >= 0 && endAllocated >= 0) {
+                            allocated.addAndGet(endAllocated - startAllocated);
+                        }
+                        synchronized (report) {
+                            for (Stats stats : local.values()) {
+                                report.workloads.get(stats.name).addAll(stats);
+                            }
+                        }
+                        done.countDown();
+                    }
+                }
+            }, "LoadHarness-" + t);
+            workers.add(worker);
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        // Sample the open files while the load runs
+        while (!done.await(SAMPLE_INTERVAL, TimeUnit.MILLISECONDS)) {
+            report.peakHandles = Math.max(report.peakHandles, getOpenFileHandles());
+        }
+        report.elapsed = System.nanoTime() - start;
+        report.allocated = allocated.get();
+        report.endHandles = getOpenFileHandles();
+        report.peakHandles = Math.max(report.peakHandles, report.endHandles);
+        return report;
+    }
+
+    /**
+     * Build the standard mix of workloads over freshly generated synthetic
+     * modules of every backend type.
+     *
+     * @param dir where to write the modules and the search index
+     * @param modules the settings for the modules
+     * @param threads the number of threads
+     * @param search whether to build a search index and search it. Indexing
+     *            needs a writable JSword home, see {@link CWProject}.
+     * @return the harness ready to run
+     * @throws IOException if the modules cannot be written
+     * @throws BookException if the search index cannot be built
+     */
+    public static LoadHarness createMixed(File dir, final SyntheticModules modules, int threads, boolean search) throws IOException, BookException {
+        final Book ztext = modules.createZText("SynZText");
+        final Book rawtext = modules.createRawText("SynRawText");
+        final Book zld = modules.createZLD("SynZLD");
+        final Book rawld = modules.createRawLD("SynRawLD");
+        final Book genbook = modules.createGenBook("SynGenBook");
+
+        final Versification v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        final BibleBook[] books = modules.getBooks();
+        final int entries = modules.getEntryCount();
+
+        LoadHarness harness = new LoadHarness();
+        harness.setThreads(threads);
+        harness.addWorkload(new Workload("chapter-ztext") {
+            @Override
+            public void run(Random random) throws Exception {
+                new BookData(ztext, randomChapter(v11n, books, random)).getOsisFragment();
+            }
+        }, 30);
+        harness.addWorkload(new Workload("chapter-rawtext") {
+            @Override
+            public void run(Random random) throws Exception {
+                new BookData(rawtext, randomChapter(v11n, books, random)).getOsisFragment();
+            }
+        }, 20);
+        harness.addWorkload(new Workload("lookup-zld") {
+            @Override
+            public void run(Random random) throws Exception {
+                lookup(zld, modules.getDictionaryKey(random.nextInt(entries)));
+            }
+        }, 15);
+        harness.addWorkload(new Workload("lookup-rawld") {
+            @Override
+            public void run(Random random) throws Exception {
+                lookup(rawld, modules.getDictionaryKey(random.nextInt(entries)));
+            }
+        }, 10);
+        harness.addWorkload(new Workload("lookup-genbook") {
+            @Override
+            public void run(Random random) throws Exception {
+                lookup(genbook, modules.getGenBookKey(random.nextInt(entries)));
+            }
+        }, 10);
+        if (search) {
+            final Index index = new LuceneIndex(ztext, new File(dir, "index").toURI(), new IndexPolicyAdapter());
+            harness.addWorkload(new Workload("search") {
+                @Override
+                public void run(Random random) throws Exception {
+                    index.find(SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)]);
+                }
+            }, 10);
+        }
+        harness.addWorkload(new Workload("parallel-view") {
+            @Override
+            public void run(Random random) throws Exception {
+                new BookData(new Book[] { ztext, rawtext }, randomChapter(v11n, books, random), false).getOsisFragment();
+            }
+        }, 5);
+        return harness;
+    }
+
+    /**
+     * Run the standard mix from the command line. The arguments are of the
+     * form name=value: threads, seconds, rate (operations per second, 0 for
+     * unlimited), books (all or a comma separated list of OSIS book names),
+     * words (per verse or entry), entries (per dictionary or GenBook),
+     * compress (ZIP, LZSS, BZIP2, GZIP or XZ) and block (BOOK, CHAPTER or
+     * VERSE).
+     *
+     * @param args the settings
+     * @throws Exception if anything goes wrong
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new LinkedHashMap<String, String>();
+        for (String arg : args) {
+            int pos = arg.indexOf('=');
+            if (pos < 0) {
+                System.err.println("Ignoring " + arg + ", expected name=value");
+                continue;
+            }
+            settings.put(arg.substring(0, pos), arg.substring(pos + 1));
+        }
+
+        File dir = File.createTempFile("jsword-load", "");
+        if (!dir.delete() || !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        try {
+            // Keep everything the library writes, such as index metadata, out
+            // of the user's own JSword home.
+            System.setProperty(HOME_PROPERTY, dir.getPath());
+            CWProject.setHome(HOME_PROPERTY, ".jsword", "JSword");
+            CWProject.instance().getWritableProjectSubdir(LuceneIndexManager.DIR_LUCENE, true);
+
+            SyntheticModules modules = new SyntheticModules(dir);
+            String books = settings.get("books");
+            if ("all".equalsIgnoreCase(books)) {
+                modules.setBooks((BibleBook[]) null);
+            } else if (books != null) {
+                String[] names = books.split(",");
+                BibleBook[] chosen = new BibleBook[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    chosen[i] = BibleBook.fromOSIS(names[i].trim());
+                }
+                modules.setBooks(chosen);
+            }
+            if (settings.containsKey("words")) {
+                modules.setWordsPerEntry(Integer.parseInt(settings.get("words")));
+            }
+            if (settings.containsKey("entries")) {
+                modules.setEntryCount(Integer.parseInt(settings.get("entries")));
+            }
+            if (settings.containsKey("compress")) {
+                modules.setCompressorType(CompressorType.fromString(settings.get("compress")));
+            }
+            if (settings.containsKey("block")) {
+                modules.setBlockType(BlockType.fromString(settings.get("block")));
+            }
+
+            int threads = settings.containsKey("threads") ? Integer.parseInt(settings.get("threads")) : Runtime.getRuntime().availableProcessors();
+            System.out.println("Generating modules in " + dir);
+            LoadHarness harness = createMixed(dir, modules, threads, true);
+            if (settings.containsKey("seconds")) {
+                harness.setDuration(Long.parseLong(settings.get("seconds")) * 1000L);
+            }
+            if (settings.containsKey("rate")) {
+                harness.setTargetRate(Double.parseDouble(settings.get("rate")));
+            }
+            System.out.println("Running with " + threads + " threads");
+            Report report = harness.run();
+            System.out.print(report);
+            if (report.getFirstError() != null) {
+                report.getFirstError().printStackTrace();
+            }
+        } finally {
+            FileUtil.delete(dir);
+        }
+    }
+
+    static Key randomChapter(Versification v11n, BibleBook[] books, Random random) {
+        BibleBook book = books[random.nextInt(books.length)];
+        int chapter = random.nextInt(v11n.getLastChapter(book)) + 1;
+        return new VerseRange(v11n, new Verse(v11n, book, chapter, 1), new Verse(v11n, book, chapter, v11n.getLastVerse(book, chapter)));
+    }
+
+    static void lookup(Book book, String name) throws Exception {
+        Key key = book.getKey(name);
+        if (key.getCardinality() == 0) {
+            throw new BookException("No entry for " + name + " in " + book.getInitials());
+        }
+        new BookData(book, key).getOsisFragment();
+    }
+
+    static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))];
+    }
+
+    static long[] merge(List<long[]> parts) {
+        int size = 0;
+        for (long[] part : parts) {
+            size += part.length;
+        }
+        long[] all = new long[size];
+        int pos = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, all, pos, part.length);
+            pos += part.length;
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    /**
+     * The bytes allocated so far by the current thread. This needs the
+     * HotSpot extension to ThreadMXBean, so it is looked up reflectively.
+     *
+     * @return the bytes or -1 if they cannot be measured
+     */
+    static long getAllocatedBytes() {
+        return invoke(ManagementFactory.getThreadMXBean(), "getThreadAllocatedBytes", Long.valueOf(Thread.currentThread().getId()));
+    }
+
+    /**
+     * The number of open files, which is only available on Unix like systems.
+     *
+     * @return the count or -1 if it cannot be measured
+     */
+    static long getOpenFileHandles() {
+        return invoke(ManagementFactory.getOperatingSystemMXBean(), "getOpenFileDescriptorCount", null);
+    }
+
+    private static long invoke(Object bean, String name, Long arg) {
+        try {
+            Method method = arg == null ? bean.getClass().getMethod(name) : bean.getClass().getMethod(name, long.class);
+            method.setAccessible(true);
+            Object result = arg == null ? method.invoke(bean) : method.invoke(bean, arg);
+            return result instanceof Number ? ((Number) result).longValue() : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The latencies of one workload.
+     */
+    static final class Stats {
+        Stats(String name) {
+            this.name = name;
+            this.latencies = new long[64];
+        }
+
+        void add(long latency) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        void addAll(Stats other) {
+            for (int i = 0; i < other.count; i++) {
+                add(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        long[] getSorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private String name;
+        private long[] latencies;
+        private int count;
+        private int errors;
+    }
+
+    /**
+     * The system property that tells the library where its home is.
+     */
+    private static final String HOME_PROPERTY = "jsword.home";
+
+    /**
+     * How often to sample the open file handles, in milliseconds.
+     */
+    private static final long SAMPLE_INTERVAL = 100;
+
+    /**
+     * Searches that hit the synthetic text.
+     */
+    private static final String[] SEARCH_TERMS = {
+        "god", "lord AND mercy", "+faith -law", "\"word of god\"", "light OR darkness", "salv*"
+    };
+
+    private List<Workload> workloads;
+    private List<Integer> weights;
+    private int threads;
+    private double targetRate;
+    private long duration;
+    private int operations;
+}
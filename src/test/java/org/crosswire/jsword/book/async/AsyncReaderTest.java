@@ -0,0 +1,216 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.async;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.sword.SyntheticModules;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.versification.BibleBook;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class AsyncReaderTest {
+    private ExecutorService executor;
+    private AsyncReader reader;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        reader = new AsyncReader(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        File dir = File.createTempFile("jsword-async", "");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            SyntheticModules modules = new SyntheticModules(dir);
+            modules.setBooks(BibleBook.JOHN2, BibleBook.JOHN3);
+            Book bible = modules.createZText("AsyncZ");
+            Key key = bible.getKey("3John 1:4");
+
+            Assert.assertEquals(bible.getRawText(key), reader.getRawText(bible, key).get());
+            List<Content> osis = reader.getOsis(bible, key, false, false).get();
+            Assert.assertFalse(osis.isEmpty());
+            Assert.assertNotNull(reader.getOsisFragment(bible, key, false).get());
+        } finally {
+            FileUtil.delete(dir);
+        }
+    }
+
+    @Test
+    public void testCoalescedCopies() throws Exception {
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        AsyncReader held = new AsyncReader(new Executor() {
+            public void execute(Runnable command) {
+                queued.add(command);
+            }
+        });
+        File dir = File.createTempFile("jsword-async", "");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            SyntheticModules modules = new SyntheticModules(dir);
+            modules.setBooks(BibleBook.JOHN2, BibleBook.JOHN3);
+            Book bible = modules.createZText("AsyncZ");
+            Key key = bible.getKey("3John 1:4-6");
+
+            BookFuture<Element> firstFragment = held.getOsisFragment(bible, key, false);
+            BookFuture<Element> secondFragment = held.getOsisFragment(bible, key, false);
+            BookFuture<List<Content>> firstOsis = held.getOsis(bible, key, false, false);
+            BookFuture<List<Content>> secondOsis = held.getOsis(bible, key, false, false);
+            Assert.assertEquals(2, queued.size());
+            for (Runnable work : queued) {
+                work.run();
+            }
+
+            // Each caller can put its own fragment in a document
+            Element first = firstFragment.get();
+            Element second = secondFragment.get();
+            Assert.assertNotSame(first, second);
+            new Element("one").addContent(first);
+            new Element("two").addContent(second);
+            Assert.assertSame(first, firstFragment.get());
+
+            // Or change its own list and content
+            List<Content> osis = firstOsis.get();
+            int size = osis.size();
+            Assert.assertTrue(size > 0);
+            new Element("three").addContent(osis);
+            osis.clear();
+            Assert.assertEquals(size, secondOsis.get().size());
+            Assert.assertNull(secondOsis.get().get(0).getParent());
+        } finally {
+            FileUtil.delete(dir);
+        }
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        BookFuture<String> first = reader.submit("same", new Blocked(gate, runs), 0, TimeUnit.SECONDS);
+        BookFuture<String> second = reader.submit("same", new Blocked(gate, runs), 0, TimeUnit.SECONDS);
+        BookFuture<String> other = reader.submit("other", new Blocked(gate, runs), 0, TimeUnit.SECONDS);
+        Assert.assertEquals(2, reader.getInFlightCount());
+
+        // One caller giving up does not affect the other
+        Assert.assertTrue(first.cancel(true));
+        Assert.assertTrue(first.isCancelled());
+        gate.countDown();
+
+        Assert.assertEquals("done", second.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals("done", other.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, runs.get());
+        Assert.assertEquals(0, reader.getInFlightCount());
+        try {
+            first.get();
+            Assert.fail("cancelled request returned a result");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAbandon() throws Exception {
+        // Keep both threads busy so that the next request waits
+        CountDownLatch gate = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        reader.submit(null, new Blocked(gate, runs), 0, TimeUnit.SECONDS);
+        reader.submit(null, new Blocked(gate, runs), 0, TimeUnit.SECONDS);
+
+        AtomicInteger abandoned = new AtomicInteger();
+        BookFuture<String> first = reader.submit("waiting", new Blocked(gate, abandoned), 0, TimeUnit.SECONDS);
+        BookFuture<String> second = reader.submit("waiting", new Blocked(gate, abandoned), 0, TimeUnit.SECONDS);
+        first.cancel(false);
+        second.cancel(false);
+        Assert.assertEquals(0, reader.getInFlightCount());
+
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, abandoned.get());
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch told = new CountDownLatch(1);
+        BookFuture<String> late = reader.submit("late", new Blocked(gate, new AtomicInteger()), 50, TimeUnit.MILLISECONDS);
+        late.addListener(new Runnable() {
+            public void run() {
+                told.countDown();
+            }
+        });
+
+        Assert.assertTrue(told.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(late.isCancelled());
+        gate.countDown();
+    }
+
+    /**
+     * Work that waits to be let through.
+     */
+    private static final class Blocked implements Callable<String> {
+        Blocked(CountDownLatch gate, AtomicInteger runs) {
+            this.gate = gate;
+            this.runs = runs;
+        }
+
+        public String call() throws Exception {
+            runs.incrementAndGet();
+            gate.await();
+            return "done";
+        }
+
+        private CountDownLatch gate;
+        private AtomicInteger runs;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.install.sword;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.crosswire.common.util.FileUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class StagedInstallTest {
+    private File root;
+    private File swordDir;
+    private File jswordHome;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("jsword-stage", "");
+        root.delete();
+        swordDir = new File(root, "sword");
+        jswordHome = new File(root, "jsword");
+        swordDir.mkdirs();
+        jswordHome.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(root);
+    }
+
+    @Test
+    public void testInstall() throws IOException {
+        byte[] zip = zip("mods.d/kjv.conf", "[KJV]",
+                "modules/texts/ztext/kjv/ot.bzz", "ot",
+                "modules/texts/ztext/kjv/nt.bzz", "nt",
+                "lucene/Sword/kjv/segments", "index",
+                "../escape", "bad");
+
+        StagedInstall stage = new StagedInstall(swordDir, jswordHome);
+        stage.unpack(new ByteArrayInputStream(zip));
+        // Nothing is seen until it is committed
+        Assert.assertFalse(new File(swordDir, "mods.d/kjv.conf").exists());
+        List<String> confs = stage.commit();
+
+        Assert.assertEquals(Arrays.asList("mods.d/kjv.conf"), confs);
+        Assert.assertEquals("[KJV]", read(new File(swordDir, "mods.d/kjv.conf")));
+        Assert.assertEquals("nt", read(new File(swordDir, "modules/texts/ztext/kjv/nt.bzz")));
+        Assert.assertEquals("index", read(new File(jswordHome, "lucene/Sword/kjv/segments")));
+        Assert.assertFalse(new File(swordDir, "lucene").exists());
+        Assert.assertFalse(new File(root, "escape").exists());
+        assertNoStaging();
+    }
+
+    @Test
+    public void testUpgrade() throws IOException {
+        write(new File(swordDir, "modules/texts/ztext/kjv/old.bzs"), "stale");
+        write(new File(swordDir, "modules/texts/ztext/kjv/ot.bzz"), "ot1");
+        write(new File(swordDir, "modules/texts/ztext/web/ot.bzz"), "web");
+
+        StagedInstall stage = new StagedInstall(swordDir, jswordHome);
+        stage.unpack(new ByteArrayInputStream(zip("mods.d/kjv.conf", "[KJV]", "modules/texts/ztext/kjv/ot.bzz", "ot2")));
+        stage.commit();
+
+        Assert.assertEquals("ot2", read(new File(swordDir, "modules/texts/ztext/kjv/ot.bzz")));
+        Assert.assertFalse(new File(swordDir, "modules/texts/ztext/kjv/old.bzs").exists());
+        // Other modules beside it are left alone
+        Assert.assertEquals("web", read(new File(swordDir, "modules/texts/ztext/web/ot.bzz")));
+        assertNoStaging();
+    }
+
+    @Test
+    public void testFailedUnpack() throws IOException {
+        write(new File(swordDir, "modules/texts/ztext/kjv/ot.bzz"), "ot1");
+
+        byte[] zip = zip("mods.d/kjv.conf", "[KJV]", "modules/texts/ztext/kjv/ot.bzz", "ot2");
+        InputStream broken = new ByteArrayInputStream(zip) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                if (pos > 40) {
+                    throw new IllegalStateException("connection lost");
+                }
+                return super.read(b, off, Math.min(len, 8));
+            }
+        };
+        StagedInstall stage = new StagedInstall(swordDir, jswordHome);
+        try {
+            stage.unpack(broken);
+            Assert.fail("unpacked a broken zip");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        Assert.assertEquals("ot1", read(new File(swordDir, "modules/texts/ztext/kjv/ot.bzz")));
+        Assert.assertFalse(new File(swordDir, "mods.d/kjv.conf").exists());
+        assertNoStaging();
+    }
+
+    private void assertNoStaging() {
+        for (File dir : new File[] { swordDir, jswordHome }) {
+            for (String name : dir.list()) {
+                Assert.assertFalse(name, name.startsWith(".install-"));
+            }
+        }
+    }
+
+    private static byte[] zip(String... pathsAndContent) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        for (int i = 0; i < pathsAndContent.length; i += 2) {
+            out.putNextEntry(new ZipEntry(pathsAndContent[i]));
+            out.write(pathsAndContent[i + 1].getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+    }
+
+    private static String read(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < data.length) {
+                offset += in.read(data, offset, data.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return new String(data, "UTF-8");
+    }
+}
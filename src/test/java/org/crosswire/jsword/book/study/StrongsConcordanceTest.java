@@ -0,0 +1,131 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.study;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.jdom2.Element;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class StrongsConcordanceTest {
+    private Versification v11n;
+    private StrongsConcordance concordance;
+    private Verse gen11;
+    private Verse gen12;
+    private Verse gen13;
+
+    @Before
+    public void setUp() {
+        v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        gen11 = new Verse(v11n, BibleBook.GEN, 1, 1);
+        gen12 = new Verse(v11n, BibleBook.GEN, 1, 2);
+        gen13 = new Verse(v11n, BibleBook.GEN, 1, 3);
+
+        concordance = new StrongsConcordance(v11n, true);
+        // Out of order to check that verses are kept sorted
+        concordance.add(gen13, createVerse(w("God", "strong:H430"), w("said", "strong:H559")));
+        concordance.add(gen11, createVerse(w("In the beginning", "strong:H7225"), w("God", "strong:H0430"), w("created", "strong:H1254 strong:H853")));
+        concordance.add(gen12, createVerse(w("the Spirit", "strong:H7307"), w("of God", "strong:H430"), w("God", "strong:H430")));
+    }
+
+    @Test
+    public void testLookup() {
+        Assert.assertEquals(3, concordance.getVerseCount("H430"));
+        Assert.assertEquals(4, concordance.getOccurrenceCount("h0430"));
+        Assert.assertEquals(2, concordance.getCount("H430", gen12));
+        Assert.assertEquals(0, concordance.getCount("H7225", gen12));
+        Assert.assertEquals(1, concordance.getVerseCount("H853"));
+        Assert.assertEquals(0, concordance.getVerseCount("H9999"));
+
+        Passage passage = concordance.getPassage("H430");
+        Assert.assertEquals(3, passage.countVerses());
+        Assert.assertTrue(passage.contains(gen13));
+
+        PassageTally tally = concordance.getTally("H430");
+        Assert.assertEquals(2, tally.getTallyOf(gen12));
+        Assert.assertEquals(1, tally.getTallyOf(gen11));
+
+        Assert.assertEquals(2, concordance.getForms("H430").size());
+        Assert.assertTrue(concordance.getForms("H430").contains("of god"));
+    }
+
+    @Test
+    public void testAddTo() {
+        StrongsMapSet sms = new StrongsMapSet();
+        concordance.addTo(sms);
+        // A word with two numbers is a form of each, not of the pair
+        Assert.assertTrue(sms.get("H1254").contains("created"));
+        Assert.assertTrue(sms.get("H0853").contains("created"));
+        Assert.assertNull(sms.get("H1254 H0853"));
+        Assert.assertEquals(concordance.getForms("H430"), sms.get("H0430"));
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        File file = File.createTempFile("strongs", ".jsc");
+        try {
+            concordance.write(file);
+            StrongsConcordance copy = StrongsConcordance.read(file);
+            Assert.assertEquals(v11n.getName(), copy.getVersification().getName());
+            Assert.assertEquals(concordance.getStrongsNumbers(), copy.getStrongsNumbers());
+            for (String number : concordance.getStrongsNumbers()) {
+                Assert.assertEquals(concordance.getTally(number), copy.getTally(number));
+                Assert.assertEquals(concordance.getOccurrenceCount(number), copy.getOccurrenceCount(number));
+                Assert.assertEquals(concordance.getForms(number), copy.getForms(number));
+            }
+            StrongsMapSet sms = new StrongsMapSet();
+            copy.addTo(sms);
+            Assert.assertTrue(sms.get("H7225").contains("in the beginning"));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    private Element w(String text, String lemma) {
+        Element w = OSISUtil.factory().createW();
+        w.setAttribute(OSISUtil.ATTRIBUTE_W_LEMMA, lemma);
+        w.addContent(text);
+        return w;
+    }
+
+    private Element createVerse(Element... words) {
+        Element verse = OSISUtil.factory().createVerse();
+        for (Element word : words) {
+            verse.addContent(word);
+        }
+        return verse;
+    }
+}
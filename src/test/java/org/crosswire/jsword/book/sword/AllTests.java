@@ -32,11 +32,15 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     BackendTest.class,
+    CompactTreeIndexTest.class,
     ConfigEntryTableTest.class,
+    NativeBackendTest.class,
     RawFileBackendTest.class,
     SwordBookDriverTest.class,
     SwordBookMetaDataTest.class,
-    SwordBookTest.class
+    SwordBookTest.class,
+    SwordCatalogTest.class,
+    SwordConfCacheTest.class
 })
 public class AllTests {
 }
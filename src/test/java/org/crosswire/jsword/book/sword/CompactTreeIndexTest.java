@@ -0,0 +1,125 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.crosswire.jsword.passage.TreeKey;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class CompactTreeIndexTest {
+    private CompactTreeIndex tree;
+
+    @Before
+    public void setUp() throws UnsupportedEncodingException {
+        // The tree is:
+        // (root)
+        //   Intro
+        //   Part 1
+        //     Chapter 1
+        //     Chapter 2
+        //   Part 1 (a duplicate, which is hidden by the first)
+        ByteArrayOutputStream idx = new ByteArrayOutputStream();
+        ByteArrayOutputStream dat = new ByteArrayOutputStream();
+        addNode(idx, dat, -1, -1, 1, "", -1, -1);
+        addNode(idx, dat, 0, 2, -1, "Intro", 0, 10);
+        addNode(idx, dat, 0, 5, 3, " Part 1 ", 10, 0);
+        addNode(idx, dat, 2, 4, -1, "Chapter 1", 10, 20);
+        addNode(idx, dat, 2, -1, -1, "Chapter 2", 30, 25);
+        addNode(idx, dat, 0, -1, -1, "Part 1", 55, 5);
+        tree = new CompactTreeIndex(idx.toByteArray(), dat.toByteArray(), "test", "UTF-8");
+    }
+
+    @Test
+    public void testNavigation() {
+        Assert.assertEquals(6, tree.size());
+        Assert.assertEquals(1, tree.getFirstChild(0));
+        Assert.assertEquals(2, tree.getNextSibling(1));
+        Assert.assertEquals(3, tree.getFirstChild(2));
+        Assert.assertEquals(-1, tree.getNextSibling(4));
+        Assert.assertEquals(2, tree.getParent(4));
+        Assert.assertEquals("Part 1", tree.getName(2));
+        Assert.assertEquals(-1, tree.getDataStart(0));
+        Assert.assertEquals(30, tree.getDataStart(4));
+        Assert.assertEquals(25, tree.getDataSize(4));
+    }
+
+    @Test
+    public void testFind() {
+        Assert.assertEquals(1, tree.find("Intro"));
+        Assert.assertEquals(2, tree.find("Part 1"));
+        Assert.assertEquals(4, tree.find("Part 1/Chapter 2"));
+        Assert.assertEquals(-1, tree.find("Chapter 2"));
+
+        TreeKey root = new TreeKey("", null);
+        TreeKey part = new TreeKey("Part 1", root);
+        TreeKey chapter = new TreeKey("Chapter 1", part);
+        Assert.assertEquals(3, tree.find(chapter));
+        Assert.assertEquals(-1, tree.find(new TreeKey("Chapter 3", part)));
+    }
+
+    @Test
+    public void testTreeNode() {
+        TreeNode node = tree.getTreeNode(3);
+        Assert.assertEquals("Chapter 1", node.getName());
+        Assert.assertEquals(8, node.getParent());
+        Assert.assertEquals(16, node.getNextSibling());
+        Assert.assertFalse(node.hasChildren());
+        byte[] userData = node.getUserData();
+        Assert.assertEquals(8, userData.length);
+        Assert.assertEquals(10, SwordUtil.decodeLittleEndian32(userData, 0));
+        Assert.assertEquals(20, SwordUtil.decodeLittleEndian32(userData, 4));
+        Assert.assertEquals(0, tree.getTreeNode(0).getUserData().length);
+    }
+
+    private void addNode(ByteArrayOutputStream idx, ByteArrayOutputStream dat, int parent, int next, int child, String name, int start, int size) throws UnsupportedEncodingException {
+        write32(idx, dat.size());
+        write32(dat, CompactTreeIndex.toRecord(parent));
+        write32(dat, CompactTreeIndex.toRecord(next));
+        write32(dat, CompactTreeIndex.toRecord(child));
+        byte[] bytes = name.getBytes("UTF-8");
+        dat.write(bytes, 0, bytes.length);
+        dat.write(0);
+        if (start == -1) {
+            dat.write(0);
+            dat.write(0);
+        } else {
+            dat.write(8);
+            dat.write(0);
+            write32(dat, start);
+            write32(dat, size);
+        }
+    }
+
+    private void write32(ByteArrayOutputStream out, int val) {
+        byte[] buffer = new byte[4];
+        SwordUtil.encodeLittleEndian32(val, buffer, 0);
+        out.write(buffer, 0, 4);
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.versification.BibleBook;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.Text;
+import org.jdom2.output.XMLOutputter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class NativeBackendTest {
+    private File dir;
+    private SwordBook bible;
+    private NativeModules natives;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("jsword-native", "");
+        dir.delete();
+        dir.mkdirs();
+        SyntheticModules modules = new SyntheticModules(dir);
+        modules.setBooks(BibleBook.JOHN2, BibleBook.JOHN3, BibleBook.JUDE);
+        bible = (SwordBook) modules.createZText("NativeZ");
+        natives = new NativeModules(new File(dir, NativeModules.DIR_NATIVE), new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(dir);
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        Assert.assertTrue(natives.isCompilable(bible));
+        Assert.assertFalse(natives.isCompiled(bible));
+        natives.compile(bible);
+        Assert.assertTrue(natives.isCompiled(bible));
+
+        Book compiled = getCompiled();
+        Assert.assertNotNull(compiled);
+        Assert.assertEquals(bible.getGlobalKeyList().getOsisRef(), compiled.getGlobalKeyList().getOsisRef());
+
+        Key key = bible.getKey("2John-Jude");
+        for (Key verse : key) {
+            Assert.assertEquals(bible.contains(verse), compiled.contains(verse));
+            Assert.assertEquals(bible.getRawText(verse), compiled.getRawText(verse));
+        }
+        Assert.assertEquals(toString(bible.getOsisIterator(key, false, true)), toString(compiled.getOsisIterator(key, false, true)));
+        Assert.assertEquals(toString(bible.getOsisIterator(key, true, false)), toString(compiled.getOsisIterator(key, true, false)));
+    }
+
+    @Test
+    public void testRecompile() throws Exception {
+        natives.compile(bible);
+        Assert.assertNotNull(getCompiled());
+
+        // Upgrading the module makes the compiled copy stale
+        File data = new File(dir, SwordConstants.DIR_DATA + "/texts/ztext/NativeZ");
+        for (File file : data.listFiles()) {
+            Assert.assertTrue(file.setLastModified(file.lastModified() - 60000));
+        }
+        Assert.assertFalse(natives.isCompiled(bible));
+
+        // The module is read until the book has been compiled again
+        SwordBookMetaData sbmd = (SwordBookMetaData) bible.getBookMetaData();
+        Assert.assertSame(bible.getBackend(), natives.getBackend(sbmd, bible.getBackend()));
+        Assert.assertTrue(natives.isCompiled(bible));
+        Assert.assertNotNull(getCompiled());
+
+        // Into a new file, as the old one may still be mapped
+        Assert.assertEquals(Arrays.asList("NativeZ.2.jsn"), getCompiledFiles());
+
+        Assert.assertTrue(natives.delete(bible));
+        Assert.assertFalse(natives.isCompiled(bible));
+        Assert.assertTrue(getCompiledFiles().isEmpty());
+    }
+
+    @Test
+    public void testStamp() throws Exception {
+        // A change to the filter makes the compiled copy stale too
+        SwordBookMetaData sbmd = (SwordBookMetaData) bible.getBookMetaData();
+        Assert.assertTrue(NativeModules.getStamp(sbmd).contains('|' + sbmd.getFilter().getClass().getName() + ':'));
+    }
+
+    @Test
+    public void testBookRemoved() throws Exception {
+        natives = new NativeModules(new File(dir, NativeModules.DIR_NATIVE), new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, true);
+        natives.compile(bible);
+        Assert.assertEquals(1, getCompiledFiles().size());
+
+        Books.installed().addBook(bible);
+        Books.installed().removeBook(bible);
+        Assert.assertTrue(getCompiledFiles().isEmpty());
+    }
+
+    @Test
+    public void testContent() throws IOException {
+        Element w = new Element("w");
+        w.setAttribute("lemma", "strong:G3056");
+        w.setAttribute("lang", "grc", Namespace.XML_NAMESPACE);
+        w.addContent("word");
+        Element q = new Element("q");
+        q.setAttribute("who", "Jesus");
+        q.addContent("In the beginning was the ");
+        q.addContent(w);
+        List<Content> content = new ArrayList<Content>();
+        content.add(new Text("He said, "));
+        content.add(q);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        NativeContent.write(out, content);
+        out.close();
+
+        byte[] data = bytes.toByteArray();
+        List<Content> read = NativeContent.read(data, 0, data.length);
+        Assert.assertEquals(toString(content.iterator()), toString(read.iterator()));
+        Assert.assertNull(read.get(1).getParent());
+    }
+
+    /**
+     * Read the synthetic Bible through its compiled copy.
+     */
+    private Book getCompiled() {
+        SwordBookMetaData sbmd = (SwordBookMetaData) bible.getBookMetaData();
+        Backend<?> backend = natives.getBackend(sbmd, bible.getBackend());
+        if (!(backend instanceof NativeBackend)) {
+            return null;
+        }
+        return new SwordBook(sbmd, backend);
+    }
+
+    /**
+     * @return the names of the compiled files, in order
+     */
+    private List<String> getCompiledFiles() {
+        String[] names = new File(dir, NativeModules.DIR_NATIVE).list();
+        List<String> files = new ArrayList<String>();
+        if (names != null) {
+            files.addAll(Arrays.asList(names));
+            Collections.sort(files);
+        }
+        return files;
+    }
+
+    private static String toString(Iterator<Content> iter) {
+        XMLOutputter outputter = new XMLOutputter();
+        StringBuilder buf = new StringBuilder();
+        while (iter.hasNext()) {
+            Content content = iter.next();
+            if (content instanceof Element) {
+                buf.append(outputter.outputString((Element) content));
+            } else if (content instanceof Text) {
+                buf.append(outputter.outputString((Text) content));
+            }
+        }
+        return buf.toString();
+    }
+}
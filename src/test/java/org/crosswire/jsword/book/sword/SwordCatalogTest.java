@@ -0,0 +1,117 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class SwordCatalogTest {
+    private File source;
+    private File snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        source = File.createTempFile("mods.d", ".zip");
+        snapshot = File.createTempFile("catalog", ".dat");
+        snapshot.delete();
+    }
+
+    @After
+    public void tearDown() {
+        source.delete();
+        snapshot.delete();
+    }
+
+    @Test
+    public void testRefresh() throws IOException {
+        writeZip(1000L, "KJV", "King James", "WEB", "World English", "ASV", "American Standard");
+        SwordCatalog catalog = new SwordCatalog(snapshot);
+        CatalogChanges changes = catalog.refresh(source);
+        Assert.assertEquals(Arrays.asList("KJV", "WEB", "ASV"), changes.getAdded());
+        Assert.assertTrue(changes.getRemoved().isEmpty());
+        Assert.assertTrue(changes.getUpdated().isEmpty());
+        Assert.assertTrue(snapshot.isFile());
+
+        // Unchanged
+        Assert.assertTrue(catalog.refresh(source).isEmpty());
+
+        // One changed, one removed and one added
+        writeZip(2000L, "KJV", "King James Version", "WEB", "World English", "NET", "New English");
+        changes = catalog.refresh(source);
+        Assert.assertEquals(Collections.singletonList("NET"), changes.getAdded());
+        Assert.assertEquals(Collections.singletonList("ASV"), changes.getRemoved());
+        Assert.assertEquals(Collections.singletonList("KJV"), changes.getUpdated());
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        writeZip(1000L, "KJV", "King James", "WEB", "World English");
+        new SwordCatalog(snapshot).refresh(source);
+
+        // A new catalog takes it all from the snapshot
+        SwordCatalog catalog = new SwordCatalog(snapshot);
+        Assert.assertTrue(catalog.refresh(source).isEmpty());
+        List<SwordBookMetaData> sbmds = catalog.getBookMetaDatas(source);
+        Assert.assertEquals(2, sbmds.size());
+        Assert.assertEquals("KJV", sbmds.get(0).getInitials());
+        Assert.assertEquals("King James", sbmds.get(0).getName());
+        Assert.assertEquals("WEB", sbmds.get(1).getInitials());
+
+        // A damaged snapshot is rebuilt
+        FileOutputStream out = new FileOutputStream(snapshot);
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+        catalog = new SwordCatalog(snapshot);
+        Assert.assertEquals(Arrays.asList("KJV", "WEB"), catalog.refresh(source).getAdded());
+    }
+
+    /**
+     * Write a mods.d.zip with a conf for each pair of initials and
+     * description.
+     */
+    private void writeZip(long modified, String... books) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(source));
+        for (int i = 0; i < books.length; i += 2) {
+            out.putNextEntry(new ZipEntry("mods.d/" + books[i].toLowerCase() + ".conf"));
+            String conf = "[" + books[i] + "]\nDescription=" + books[i + 1] + "\nModDrv=RawText\nDataPath=./modules/texts/rawtext/" + books[i].toLowerCase() + "/\n";
+            out.write(conf.getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        out.close();
+        source.setLastModified(modified);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.crosswire.common.util.IniSection;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class SwordConfCacheTest {
+    private File conf;
+    private File snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        conf = File.createTempFile("cache", ".conf");
+        snapshot = File.createTempFile("confs", ".cache");
+        snapshot.delete();
+        write(conf, "[Cache]\nDescription=A cached book\nModDrv=RawText\n");
+    }
+
+    @After
+    public void tearDown() {
+        conf.delete();
+        snapshot.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SwordConfCache cache = new SwordConfCache(snapshot);
+        cache.load();
+        Assert.assertNull(cache.get(conf, false));
+
+        cache.put(conf, false, SwordBookMetaData.loadConf(conf, null));
+        cache.save();
+        Assert.assertTrue(snapshot.isFile());
+
+        cache = new SwordConfCache(snapshot);
+        cache.load();
+        IniSection config = cache.get(conf, false);
+        Assert.assertNotNull(config);
+        Assert.assertEquals("Cache", config.getName());
+        Assert.assertEquals("A cached book", config.get("Description"));
+        Assert.assertEquals("RawText", config.get("ModDrv"));
+
+        // Loaded with a different partial loading setting
+        Assert.assertNull(cache.get(conf, true));
+    }
+
+    @Test
+    public void testChangedConf() throws IOException {
+        SwordConfCache cache = new SwordConfCache(snapshot);
+        cache.load();
+        cache.put(conf, false, SwordBookMetaData.loadConf(conf, null));
+        cache.save();
+
+        write(conf, "[Cache]\nDescription=A changed book\nModDrv=RawText\n");
+        cache.load();
+        Assert.assertNull(cache.get(conf, false));
+    }
+
+    private void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
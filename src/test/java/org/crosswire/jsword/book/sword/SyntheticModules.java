@@ -0,0 +1,636 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.common.util.IniSection;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+
+/**
+ * Writes synthetic SWORD modules into a directory, in the same layout as an
+ * installed SWORD library: a <code>mods.d</code> directory of confs and the
+ * data under <code>modules</code>. The text is generated from a fixed seed, so
+ * the same settings always give the same modules.
+ *
+ * <p>This lets load tests and benchmarks run against every kind of backend
+ * without needing any real modules to be installed.</p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class SyntheticModules {
+    /**
+     * Create modules in the given directory, which becomes their library.
+     *
+     * @param root the directory to write to
+     */
+    public SyntheticModules(File root) {
+        this.root = root;
+        this.v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        this.books = new BibleBook[] {
+                BibleBook.GEN, BibleBook.PS, BibleBook.ISA, BibleBook.MATT, BibleBook.JOHN, BibleBook.ROM, BibleBook.REV
+        };
+        this.wordsPerEntry = 20;
+        this.entryCount = 1000;
+        this.entriesPerBlock = 64;
+        this.compressorType = CompressorType.ZIP;
+        this.blockType = BlockType.BLOCK_CHAPTER;
+    }
+
+    /**
+     * @return the Bible books that are given content
+     */
+    public BibleBook[] getBooks() {
+        return books.clone();
+    }
+
+    /**
+     * Set the Bible books to fill with text. Every verse of each will be
+     * given content and the rest of the Bible is left empty.
+     *
+     * @param books the books to fill, or null for the whole Bible
+     */
+    public void setBooks(BibleBook... books) {
+        if (books == null) {
+            List<BibleBook> all = new ArrayList<BibleBook>();
+            for (Iterator<BibleBook> iter = v11n.getBookIterator(); iter.hasNext(); ) {
+                BibleBook book = iter.next();
+                if (book != BibleBook.INTRO_BIBLE && book != BibleBook.INTRO_OT && book != BibleBook.INTRO_NT) {
+                    all.add(book);
+                }
+            }
+            this.books = all.toArray(new BibleBook[all.size()]);
+        } else {
+            this.books = books.clone();
+        }
+    }
+
+    /**
+     * Give a verse the same text as another, as happens when verses are
+     * linked.
+     *
+     * @param verse the verse to change
+     * @param source the verse whose text it repeats
+     */
+    public void linkVerse(Verse verse, Verse source) {
+        links.put(Integer.valueOf(verse.getOrdinal()), Integer.valueOf(source.getOrdinal()));
+    }
+
+    /**
+     * @param wordsPerEntry the number of words in each verse or entry
+     */
+    public void setWordsPerEntry(int wordsPerEntry) {
+        this.wordsPerEntry = wordsPerEntry;
+    }
+
+    /**
+     * @param entryCount the number of entries in a dictionary or general book
+     */
+    public void setEntryCount(int entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * @return the number of entries in a dictionary or general book
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @param compressorType how compressed modules are compressed
+     */
+    public void setCompressorType(CompressorType compressorType) {
+        this.compressorType = compressorType;
+    }
+
+    /**
+     * @param blockType how verses are grouped into blocks in compressed Bibles
+     */
+    public void setBlockType(BlockType blockType) {
+        this.blockType = blockType;
+    }
+
+    /**
+     * Get the key of a dictionary entry, in the order that they are stored.
+     *
+     * @param entry the number of the entry
+     * @return the key
+     */
+    public String getDictionaryKey(int entry) {
+        return getDictionaryKeys().get(entry);
+    }
+
+    /**
+     * Get the key of a general book entry. Entries are grouped into parts of
+     * ten sections each.
+     *
+     * @param entry the number of the entry
+     * @return the path of the entry
+     */
+    public String getGenBookKey(int entry) {
+        return "Part " + (entry / SECTIONS_PER_PART + 1) + "/Section " + (entry % SECTIONS_PER_PART + 1);
+    }
+
+    /**
+     * Create a compressed Bible.
+     *
+     * @param initials the name of the module
+     * @return the book
+     * @throws IOException if the module cannot be written
+     */
+    public Book createZText(String initials) throws IOException {
+        File dir = getModuleDir("texts/ztext", initials);
+        for (Testament testament : new Testament[] { Testament.OLD, Testament.NEW }) {
+            String prefix = (testament == Testament.OLD ? SwordConstants.FILE_OT : SwordConstants.FILE_NT) + '.' + blockType.getIndicator() + 'z';
+            OutputStream verseIdx = open(new File(dir, prefix + 'v'));
+            OutputStream blockIdx = open(new File(dir, prefix + 's'));
+            OutputStream text = open(new File(dir, prefix + 'z'));
+            try {
+                ByteArrayOutputStream block = new ByteArrayOutputStream();
+                int blockNum = 0;
+                int textSize = 0;
+                int lastGroup = -1;
+                int count = getIndexSize(testament);
+                for (int i = 0; i < count; i++) {
+                    int ordinal = getOrdinal(testament, i);
+                    byte[] data = getVerseText(ordinal);
+                    if (data.length == 0) {
+                        verseIdx.write(new byte[10]);
+                        continue;
+                    }
+                    int group = getBlockGroup(ordinal);
+                    if (group != lastGroup && block.size() > 0) {
+                        textSize += writeBlock(blockIdx, text, block.toByteArray(), textSize);
+                        block.reset();
+                        blockNum++;
+                    }
+                    lastGroup = group;
+                    byte[] entry = new byte[10];
+                    SwordUtil.encodeLittleEndian32(blockNum, entry, 0);
+                    SwordUtil.encodeLittleEndian32(block.size(), entry, 4);
+                    SwordUtil.encodeLittleEndian16(data.length, entry, 8);
+                    verseIdx.write(entry);
+                    block.write(data);
+                }
+                if (block.size() > 0) {
+                    writeBlock(blockIdx, text, block.toByteArray(), textSize);
+                }
+            } finally {
+                IOUtil.close(verseIdx);
+                IOUtil.close(blockIdx);
+                IOUtil.close(text);
+            }
+        }
+
+        IniSection conf = createConf(initials, "zText", "./modules/texts/ztext/" + initials + '/');
+        conf.add(SwordBookMetaData.KEY_COMPRESS_TYPE, compressorType.name());
+        conf.add(SwordBookMetaData.KEY_BLOCK_TYPE, blockType.toString());
+        return createBook(conf);
+    }
+
+    /**
+     * Create an uncompressed Bible.
+     *
+     * @param initials the name of the module
+     * @return the book
+     * @throws IOException if the module cannot be written
+     */
+    public Book createRawText(String initials) throws IOException {
+        File dir = getModuleDir("texts/rawtext", initials);
+        for (Testament testament : new Testament[] { Testament.OLD, Testament.NEW }) {
+            String name = testament == Testament.OLD ? SwordConstants.FILE_OT : SwordConstants.FILE_NT;
+            OutputStream idx = open(new File(dir, name + SwordConstants.EXTENSION_VSS));
+            OutputStream text = open(new File(dir, name));
+            try {
+                int offset = 0;
+                int count = getIndexSize(testament);
+                for (int i = 0; i < count; i++) {
+                    byte[] data = getVerseText(getOrdinal(testament, i));
+                    byte[] entry = new byte[6];
+                    SwordUtil.encodeLittleEndian32(offset, entry, 0);
+                    SwordUtil.encodeLittleEndian16(data.length, entry, 4);
+                    idx.write(entry);
+                    text.write(data);
+                    offset += data.length;
+                }
+            } finally {
+                IOUtil.close(idx);
+                IOUtil.close(text);
+            }
+        }
+
+        return createBook(createConf(initials, "RawText", "./modules/texts/rawtext/" + initials + '/'));
+    }
+
+    /**
+     * Create an uncompressed dictionary.
+     *
+     * @param initials the name of the module
+     * @return the book
+     * @throws IOException if the module cannot be written
+     */
+    public Book createRawLD(String initials) throws IOException {
+        File dir = getModuleDir("lexdict/rawld", initials);
+        String lower = initials.toLowerCase();
+        OutputStream idx = open(new File(dir, lower + SwordConstants.EXTENSION_INDEX));
+        OutputStream dat = open(new File(dir, lower + SwordConstants.EXTENSION_DATA));
+        try {
+            int offset = 0;
+            List<String> keys = getDictionaryKeys();
+            for (int i = 0; i < keys.size(); i++) {
+                byte[] data = concat(getBytes(keys.get(i) + '\n'), getEntryText(i));
+                byte[] entry = new byte[6];
+                SwordUtil.encodeLittleEndian32(offset, entry, 0);
+                SwordUtil.encodeLittleEndian16(data.length, entry, 4);
+                idx.write(entry);
+                dat.write(data);
+                offset += data.length;
+            }
+        } finally {
+            IOUtil.close(idx);
+            IOUtil.close(dat);
+        }
+
+        return createBook(createConf(initials, "RawLD", "./modules/lexdict/rawld/" + initials + '/' + lower));
+    }
+
+    /**
+     * Create a compressed dictionary.
+     *
+     * @param initials the name of the module
+     * @return the book
+     * @throws IOException if the module cannot be written
+     */
+    public Book createZLD(String initials) throws IOException {
+        File dir = getModuleDir("lexdict/zld", initials);
+        String lower = initials.toLowerCase();
+        OutputStream idx = open(new File(dir, lower + SwordConstants.EXTENSION_INDEX));
+        OutputStream dat = open(new File(dir, lower + SwordConstants.EXTENSION_DATA));
+        OutputStream zdx = open(new File(dir, lower + ".zdx"));
+        OutputStream zdt = open(new File(dir, lower + ".zdt"));
+        try {
+            int datOffset = 0;
+            int zdtOffset = 0;
+            List<String> keys = getDictionaryKeys();
+            for (int first = 0; first < keys.size(); first += entriesPerBlock) {
+                int blockNum = first / entriesPerBlock;
+                int count = Math.min(entriesPerBlock, keys.size() - first);
+
+                // The block starts with a count and a table of the entries
+                ByteArrayOutputStream entries = new ByteArrayOutputStream();
+                byte[] table = new byte[4 + 8 * count];
+                SwordUtil.encodeLittleEndian32(count, table, 0);
+                for (int j = 0; j < count; j++) {
+                    byte[] text = concat(getEntryText(first + j), new byte[1]);
+                    SwordUtil.encodeLittleEndian32(table.length + entries.size(), table, 4 + 8 * j);
+                    SwordUtil.encodeLittleEndian32(text.length, table, 8 + 8 * j);
+                    entries.write(text);
+
+                    byte[] data = concat(getBytes(keys.get(first + j) + '\n'), new byte[8]);
+                    SwordUtil.encodeLittleEndian32(blockNum, data, data.length - 8);
+                    SwordUtil.encodeLittleEndian32(j, data, data.length - 4);
+                    byte[] entry = new byte[8];
+                    SwordUtil.encodeLittleEndian32(datOffset, entry, 0);
+                    SwordUtil.encodeLittleEndian32(data.length, entry, 4);
+                    idx.write(entry);
+                    dat.write(data);
+                    datOffset += data.length;
+                }
+
+                byte[] compressed = compress(concat(table, entries.toByteArray()));
+                byte[] entry = new byte[8];
+                SwordUtil.encodeLittleEndian32(zdtOffset, entry, 0);
+                SwordUtil.encodeLittleEndian32(compressed.length, entry, 4);
+                zdx.write(entry);
+                zdt.write(compressed);
+                zdtOffset += compressed.length;
+            }
+        } finally {
+            IOUtil.close(idx);
+            IOUtil.close(dat);
+            IOUtil.close(zdx);
+            IOUtil.close(zdt);
+        }
+
+        IniSection conf = createConf(initials, "zLD", "./modules/lexdict/zld/" + initials + '/' + lower);
+        conf.add(SwordBookMetaData.KEY_COMPRESS_TYPE, compressorType.name());
+        return createBook(conf);
+    }
+
+    /**
+     * Create a general book, with entries grouped in parts.
+     *
+     * @param initials the name of the module
+     * @return the book
+     * @throws IOException if the module cannot be written
+     */
+    public Book createGenBook(String initials) throws IOException {
+        File dir = getModuleDir("genbook/rawgenbook", initials);
+        String lower = initials.toLowerCase();
+        OutputStream idx = open(new File(dir, lower + ".idx"));
+        OutputStream dat = open(new File(dir, lower + ".dat"));
+        OutputStream bdt = open(new File(dir, lower + ".bdt"));
+        try {
+            // The nodes are written depth first: the root, then each part
+            // followed by its sections.
+            int parts = (entryCount + SECTIONS_PER_PART - 1) / SECTIONS_PER_PART;
+            int datOffset = writeTreeNode(idx, dat, 0, -1, -1, parts > 0 ? 1 : -1, "", null);
+            int node = 1;
+            int bdtOffset = 0;
+            for (int part = 0; part < parts; part++) {
+                int partNode = node++;
+                int sections = Math.min(SECTIONS_PER_PART, entryCount - part * SECTIONS_PER_PART);
+                int nextPart = part + 1 < parts ? partNode + sections + 1 : -1;
+                datOffset += writeTreeNode(idx, dat, datOffset, 0, nextPart, partNode + 1, "Part " + (part + 1), null);
+                for (int section = 0; section < sections; section++) {
+                    byte[] text = getEntryText(part * SECTIONS_PER_PART + section);
+                    int[] userData = new int[] { bdtOffset, text.length };
+                    bdt.write(text);
+                    bdtOffset += text.length;
+                    int nextSection = section + 1 < sections ? node + 1 : -1;
+                    datOffset += writeTreeNode(idx, dat, datOffset, partNode, nextSection, -1, "Section " + (section + 1), userData);
+                    node++;
+                }
+            }
+        } finally {
+            IOUtil.close(idx);
+            IOUtil.close(dat);
+            IOUtil.close(bdt);
+        }
+
+        return createBook(createConf(initials, "RawGenBook", "./modules/genbook/rawgenbook/" + initials + '/' + lower));
+    }
+
+    /**
+     * Write a record to the tree of a general book.
+     *
+     * @return the size of the record in the dat file
+     */
+    private int writeTreeNode(OutputStream idx, OutputStream dat, int offset, int parent, int next, int child, String name, int[] userData) throws IOException {
+        byte[] offsetBytes = new byte[4];
+        SwordUtil.encodeLittleEndian32(offset, offsetBytes, 0);
+        idx.write(offsetBytes);
+
+        byte[] nameBytes = getBytes(name);
+        int userDataSize = userData == null ? 0 : 8;
+        byte[] record = new byte[12 + nameBytes.length + 1 + 2 + userDataSize];
+        SwordUtil.encodeLittleEndian32(CompactTreeIndex.toRecord(parent), record, 0);
+        SwordUtil.encodeLittleEndian32(CompactTreeIndex.toRecord(next), record, 4);
+        SwordUtil.encodeLittleEndian32(CompactTreeIndex.toRecord(child), record, 8);
+        System.arraycopy(nameBytes, 0, record, 12, nameBytes.length);
+        int pos = 12 + nameBytes.length + 1;
+        SwordUtil.encodeLittleEndian16(userDataSize, record, pos);
+        if (userData != null) {
+            SwordUtil.encodeLittleEndian32(userData[0], record, pos + 2);
+            SwordUtil.encodeLittleEndian32(userData[1], record, pos + 6);
+        }
+        dat.write(record);
+        return record.length;
+    }
+
+    /**
+     * Compress a block and write it, along with its entry in the block index.
+     *
+     * @return the size of the compressed block
+     */
+    private int writeBlock(OutputStream blockIdx, OutputStream text, byte[] block, int offset) throws IOException {
+        byte[] compressed = compress(block);
+        byte[] entry = new byte[12];
+        SwordUtil.encodeLittleEndian32(offset, entry, 0);
+        SwordUtil.encodeLittleEndian32(compressed.length, entry, 4);
+        SwordUtil.encodeLittleEndian32(block.length, entry, 8);
+        blockIdx.write(entry);
+        text.write(compressed);
+        return compressed.length;
+    }
+
+    /**
+     * Work out which block a verse belongs in.
+     */
+    private int getBlockGroup(int ordinal) {
+        switch (blockType) {
+        case BLOCK_BOOK:
+            return v11n.decodeOrdinal(ordinal).getBook().ordinal();
+        case BLOCK_CHAPTER:
+            return v11n.decodeOrdinal(ordinal).getBook().ordinal() * 1000 + v11n.decodeOrdinal(ordinal).getChapter();
+        default:
+            return ordinal;
+        }
+    }
+
+    /**
+     * The number of entries in a testament's verse index. The NT index has
+     * an unused entry at the start, so its verses are numbered from 1.
+     */
+    private int getIndexSize(Testament testament) {
+        int count = v11n.getCount(testament);
+        return testament == Testament.NEW ? count + 1 : count;
+    }
+
+    /**
+     * Get the ordinal of an entry in a testament's verse index.
+     *
+     * @return the ordinal or -1 for the unused entry
+     */
+    private int getOrdinal(Testament testament, int index) {
+        if (testament == Testament.NEW && index == 0) {
+            return -1;
+        }
+        return v11n.getOrdinal(testament, index);
+    }
+
+    /**
+     * Get the text of a verse, which is empty for verses that are not in the
+     * chosen books and for introductions.
+     */
+    private byte[] getVerseText(int ordinal) throws IOException {
+        Integer source = links.get(Integer.valueOf(ordinal));
+        if (source != null) {
+            return getVerseText(source.intValue());
+        }
+        if (isFilled(ordinal)) {
+            return getText(ordinal);
+        }
+        return new byte[0];
+    }
+
+    private boolean isFilled(int ordinal) {
+        if (ordinal < 0) {
+            return false;
+        }
+        Verse verse = v11n.decodeOrdinal(ordinal);
+        if (verse.getVerse() == 0) {
+            return false;
+        }
+        for (BibleBook book : books) {
+            if (book == verse.getBook()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] getEntryText(int entry) throws IOException {
+        return getText(-1 - entry);
+    }
+
+    /**
+     * Generate some OSIS text. Every fifth word is tagged with a Strong's
+     * number so that the filters and the search index have some work to do.
+     */
+    private byte[] getText(int seed) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder buf = new StringBuilder(wordsPerEntry * 12);
+        for (int i = 0; i < wordsPerEntry; i++) {
+            if (i > 0) {
+                buf.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i % 5 == 4) {
+                buf.append("<w lemma=\"strong:G").append(random.nextInt(5000) + 1).append("\">").append(word).append("</w>");
+            } else {
+                buf.append(word);
+            }
+        }
+        buf.append('.');
+        return getBytes(buf.toString());
+    }
+
+    /**
+     * The dictionary keys, sorted as the dictionary backends expect them.
+     */
+    private List<String> getDictionaryKeys() {
+        if (dictionaryKeys == null || dictionaryKeys.size() != entryCount) {
+            List<String> keys = new ArrayList<String>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                keys.add(WORDS[i % WORDS.length].toUpperCase() + ' ' + (i / WORDS.length + 1));
+            }
+            Collections.sort(keys);
+            dictionaryKeys = keys;
+        }
+        return dictionaryKeys;
+    }
+
+    private byte[] compress(byte[] data) throws IOException {
+        return compressorType.getCompressor(data).compress().toByteArray();
+    }
+
+    private File getModuleDir(String type, String initials) throws IOException {
+        File dir = new File(root, SwordConstants.DIR_DATA + '/' + type + '/' + initials);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        return dir;
+    }
+
+    private IniSection createConf(String initials, String driver, String dataPath) {
+        IniSection conf = new IniSection(initials);
+        conf.add(SwordBookMetaData.KEY_DESCRIPTION, "Synthetic " + driver + " module");
+        conf.add(SwordBookMetaData.KEY_MOD_DRV, driver);
+        conf.add(SwordBookMetaData.KEY_DATA_PATH, dataPath);
+        conf.add(SwordBookMetaData.KEY_SOURCE_TYPE, "OSIS");
+        conf.add(SwordBookMetaData.KEY_ENCODING, "UTF-8");
+        conf.add(BookMetaData.KEY_LANG, "en");
+        conf.add(BookMetaData.KEY_VERSIFICATION, v11n.getName());
+        return conf;
+    }
+
+    private Book createBook(IniSection conf) throws IOException {
+        File modsd = new File(root, SwordConstants.DIR_CONF);
+        if (!modsd.isDirectory() && !modsd.mkdirs()) {
+            throw new IOException("Unable to create " + modsd);
+        }
+        File confFile = new File(modsd, conf.getName().toLowerCase() + SwordConstants.EXTENSION_CONF);
+        conf.save(confFile, "UTF-8");
+        try {
+            SwordBookMetaData sbmd = new SwordBookMetaData(confFile, root.toURI());
+            return sbmd.getBookType().createBook(sbmd);
+        } catch (BookException e) {
+            IOException ex = new IOException("Unable to create " + conf.getName());
+            ex.initCause(e);
+            throw ex;
+        }
+    }
+
+    private static OutputStream open(File file) throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(file));
+    }
+
+    private static byte[] getBytes(String text) throws IOException {
+        return text.getBytes("UTF-8");
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * The number of sections in each part of a general book.
+     */
+    private static final int SECTIONS_PER_PART = 10;
+
+    /**
+     * The words from which the text is made.
+     */
+    private static final String[] WORDS = {
+        "abide", "altar", "ark", "blessed", "bread", "brother", "city", "covenant", "darkness", "david",
+        "earth", "faith", "father", "fire", "glory", "god", "grace", "heaven", "house", "israel",
+        "jerusalem", "judge", "king", "kingdom", "land", "law", "life", "light", "lord", "love",
+        "mercy", "moses", "mountain", "nation", "peace", "people", "prophet", "righteous", "sabbath", "salvation",
+        "sea", "servant", "shepherd", "sin", "spirit", "temple", "truth", "water", "wisdom", "word"
+    };
+
+    private File root;
+    private Versification v11n;
+    private BibleBook[] books;
+    private int wordsPerEntry;
+    private int entryCount;
+    private int entriesPerBlock;
+    private CompressorType compressorType;
+    private BlockType blockType;
+    private List<String> dictionaryKeys;
+    private Map<Integer, Integer> links = new HashMap<Integer, Integer>();
+}
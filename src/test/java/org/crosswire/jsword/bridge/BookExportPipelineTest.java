@@ -0,0 +1,143 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.bridge;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.crosswire.common.compress.CompressorType;
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.book.sword.SyntheticModules;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.versification.BibleBook;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.filter.Filters;
+import org.jdom2.input.SAXBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class BookExportPipelineTest {
+    private File dir;
+    private SyntheticModules modules;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("jsword-export", "");
+        dir.delete();
+        dir.mkdirs();
+        modules = new SyntheticModules(dir);
+        modules.setBooks(BibleBook.RUTH, BibleBook.JOHN2, BibleBook.JOHN3, BibleBook.JUDE);
+        modules.setEntryCount(150);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(dir);
+    }
+
+    @Test
+    public void testImpInOrder() throws Exception {
+        Book bible = modules.createZText("ExportZ");
+
+        // What a single threaded mod2imp would write
+        StringBuilder expected = new StringBuilder();
+        for (Key key : bible.getGlobalKeyList()) {
+            String raw = bible.getRawText(key);
+            if (raw.trim().length() > 0) {
+                expected.append("$$$").append(key).append('\n').append(raw).append('\n');
+            }
+        }
+
+        BookExportPipeline pipeline = new BookExportPipeline(bible);
+        pipeline.setThreads(4);
+        pipeline.setCompression(CompressorType.GZIP);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pipeline.export(out);
+
+        String actual = read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        Assert.assertEquals(expected.toString(), actual);
+    }
+
+    @Test
+    public void testOsisDictionary() throws Exception {
+        Book dict = modules.createRawLD("ExportLD");
+
+        BookExportPipeline pipeline = new BookExportPipeline(dict);
+        pipeline.setFormat(BookExportPipeline.Format.OSIS);
+        pipeline.setThreads(3);
+        pipeline.setChunkSize(7);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pipeline.export(out);
+
+        Document doc = new SAXBuilder().build(new ByteArrayInputStream(out.toByteArray()));
+        int entries = 0;
+        String last = "";
+        for (Element div : doc.getRootElement().getDescendants(Filters.element(OSISUtil.OSIS_ELEMENT_DIV))) {
+            String id = div.getAttributeValue(OSISUtil.OSIS_ATTR_OSISID);
+            if (id != null) {
+                Assert.assertTrue(id + " after " + last, id.compareTo(last) > 0);
+                last = id;
+                entries++;
+            }
+        }
+        Assert.assertEquals(modules.getEntryCount(), entries);
+    }
+
+    @Test
+    public void testText() throws Exception {
+        Book bible = modules.createRawText("ExportRaw");
+
+        BookExportPipeline pipeline = new BookExportPipeline(bible);
+        pipeline.setFormat(BookExportPipeline.Format.TEXT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pipeline.export(out);
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        Assert.assertEquals(bible.getGlobalKeyList().getCardinality(), lines.length);
+        Assert.assertTrue(lines[0].startsWith("Ruth.1.1\t"));
+        Assert.assertTrue(lines[lines.length - 1].startsWith("Jude.1.25\t"));
+    }
+
+    private String read(InputStream in) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        byte[] bytes = new byte[4096];
+        int count = in.read(bytes);
+        while (count != -1) {
+            buf.write(bytes, 0, count);
+            count = in.read(bytes);
+        }
+        return buf.toString("UTF-8");
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.crosswire.jsword.book.Book;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class IndexBuildSchedulerTest {
+    private StubIndexManager manager;
+    private IndexBuildScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        manager = new StubIndexManager();
+        scheduler = new IndexBuildScheduler(manager);
+        scheduler.setMaxConcurrent(1);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        manager.gate.countDown();
+    }
+
+    @Test
+    public void testPriority() throws InterruptedException {
+        Book first = createBook("First");
+        Book low = createBook("Low");
+        Book normal = createBook("Normal");
+        Book high = createBook("High");
+
+        // The first is built at once and holds the only slot
+        Assert.assertTrue(scheduler.schedule(first));
+        Assert.assertTrue(scheduler.schedule(low, -1));
+        Assert.assertTrue(scheduler.schedule(normal));
+        Assert.assertTrue(scheduler.schedule(high, 5));
+        Assert.assertFalse(scheduler.schedule(low, 10));
+        Assert.assertEquals(Arrays.asList(low, high, normal), scheduler.getQueued());
+
+        manager.gate.countDown();
+        manager.await(4);
+        Assert.assertEquals(Arrays.asList(first, low, high, normal), manager.getBuilt());
+        Assert.assertEquals(IndexStatus.DONE, normal.getIndexStatus());
+    }
+
+    @Test
+    public void testMaxConcurrent() throws InterruptedException {
+        scheduler.setMaxConcurrent(2);
+        for (int i = 0; i < 5; i++) {
+            scheduler.schedule(createBook("Book" + i));
+        }
+        manager.started.await(5, TimeUnit.SECONDS);
+        Assert.assertEquals(2, scheduler.getBuilding().size());
+        Assert.assertEquals(3, scheduler.getQueued().size());
+
+        manager.gate.countDown();
+        manager.await(5);
+        Assert.assertTrue(manager.maxActive.get() <= 2);
+        // The last build is counted a moment before the scheduler lets it go
+        long end = System.currentTimeMillis() + 5000;
+        while (!scheduler.getBuilding().isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(scheduler.getBuilding().isEmpty());
+    }
+
+    @Test
+    public void testCancel() {
+        Book first = createBook("First");
+        Book waiting = createBook("Waiting");
+        waiting.setIndexStatus(IndexStatus.UNDONE);
+
+        scheduler.schedule(first);
+        scheduler.schedule(waiting);
+        Assert.assertEquals(IndexStatus.SCHEDULED, waiting.getIndexStatus());
+        Assert.assertTrue(scheduler.cancel(waiting));
+        Assert.assertFalse(scheduler.cancel(waiting));
+        Assert.assertEquals(IndexStatus.UNDONE, waiting.getIndexStatus());
+        Assert.assertTrue(scheduler.getQueued().isEmpty());
+    }
+
+    @Test
+    public void testScheduleAndCancelRace() throws InterruptedException {
+        scheduler.schedule(createBook("First"));
+        final Book book = createBook("Waiting");
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 2000; j++) {
+                        scheduler.schedule(book);
+                        scheduler.cancel(book);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // The status always says whether it is waiting
+        boolean waiting = scheduler.getQueued().contains(book);
+        Assert.assertEquals(waiting, book.getIndexStatus() == IndexStatus.SCHEDULED);
+        if (waiting) {
+            Assert.assertTrue(scheduler.cancel(book));
+        }
+        Assert.assertEquals(IndexStatus.UNDONE, book.getIndexStatus());
+
+        // Nor is the scheduler still listening to it
+        final List<IndexStatus> seen = Collections.synchronizedList(new ArrayList<IndexStatus>());
+        scheduler.addIndexStatusListener(new IndexStatusListener() {
+            public void statusChanged(IndexStatusEvent ev) {
+                seen.add(ev.getIndexStatus());
+            }
+        });
+        book.setIndexStatus(IndexStatus.DONE);
+        Assert.assertTrue(seen.isEmpty());
+    }
+
+    @Test
+    public void testListener() throws InterruptedException {
+        final List<IndexStatus> seen = Collections.synchronizedList(new ArrayList<IndexStatus>());
+        scheduler.addIndexStatusListener(new IndexStatusListener() {
+            public void statusChanged(IndexStatusEvent ev) {
+                seen.add(ev.getIndexStatus());
+            }
+        });
+        Book book = createBook("Book");
+        scheduler.schedule(book);
+        manager.gate.countDown();
+        manager.await(1);
+        Assert.assertEquals(Arrays.asList(IndexStatus.SCHEDULED, IndexStatus.CREATING, IndexStatus.DONE), seen);
+    }
+
+    @Test
+    public void testThrottle() {
+        scheduler.setThrottle(0);
+        Assert.assertEquals(1, scheduler.getThrottle());
+        scheduler.setThrottle(250);
+        Assert.assertEquals(100, scheduler.getThrottle());
+    }
+
+    /**
+     * A book that only knows its name and index status.
+     */
+    private static Book createBook(final String initials) {
+        InvocationHandler handler = new InvocationHandler() {
+            private IndexStatus status = IndexStatus.UNDONE;
+            private List<IndexStatusListener> listeners = new ArrayList<IndexStatusListener>();
+
+            public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("getInitials".equals(name) || "toString".equals(name)) {
+                    return initials;
+                }
+                if ("getIndexStatus".equals(name)) {
+                    return status;
+                }
+                if ("setIndexStatus".equals(name)) {
+                    status = (IndexStatus) args[0];
+                    IndexStatusEvent ev = new IndexStatusEvent(proxy, status);
+                    for (IndexStatusListener li : new ArrayList<IndexStatusListener>(listeners)) {
+                        li.statusChanged(ev);
+                    }
+                    return null;
+                }
+                if ("addIndexStatusListener".equals(name)) {
+                    listeners.add((IndexStatusListener) args[0]);
+                    return null;
+                }
+                if ("removeIndexStatusListener".equals(name)) {
+                    listeners.remove(args[0]);
+                    return null;
+                }
+                if ("hashCode".equals(name)) {
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                }
+                if ("equals".equals(name)) {
+                    return Boolean.valueOf(proxy == args[0]);
+                }
+                throw new UnsupportedOperationException(name);
+            }
+        };
+        return (Book) Proxy.newProxyInstance(Book.class.getClassLoader(), new Class<?>[] { Book.class }, handler);
+    }
+
+    /**
+     * Builds an index by waiting for the test to let it.
+     */
+    private static class StubIndexManager implements IndexManager {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(2);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        private final List<Book> built = new ArrayList<Book>();
+
+        public void scheduleIndexCreation(Book book) {
+            book.setIndexStatus(IndexStatus.CREATING);
+            int now = active.incrementAndGet();
+            while (maxActive.get() < now) {
+                maxActive.set(now);
+            }
+            started.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            synchronized (this) {
+                built.add(book);
+                book.setIndexStatus(IndexStatus.DONE);
+                notifyAll();
+            }
+        }
+
+        synchronized List<Book> getBuilt() {
+            return new ArrayList<Book>(built);
+        }
+
+        synchronized void await(int count) throws InterruptedException {
+            long end = System.currentTimeMillis() + 5000;
+            while (built.size() < count && System.currentTimeMillis() < end) {
+                wait(100);
+            }
+            Assert.assertEquals(count, built.size());
+        }
+
+        public boolean isIndexed(Book book) {
+            return false;
+        }
+
+        public Index getIndex(Book book) {
+            return null;
+        }
+
+        public boolean needsReindexing(Book book) {
+            return false;
+        }
+
+        public void installDownloadedIndex(Book book, URI tempDest) {
+        }
+
+        public void deleteIndex(Book book) {
+        }
+
+        public void closeAllIndexes() {
+        }
+
+        public IndexPolicy getIndexPolicy() {
+            return null;
+        }
+
+        public void setIndexPolicy(IndexPolicy policy) {
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.IndexPolicy;
+import org.crosswire.jsword.index.IndexPolicyAdapter;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class IndexUpdaterTest {
+    private Versification v11n;
+    private List<List<Key>> batches;
+    private boolean indexed;
+    private IndexUpdater updater;
+    private Book book;
+
+    @Before
+    public void setUp() throws IOException {
+        v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        batches = new ArrayList<List<Key>>();
+        indexed = true;
+        book = (Book) Proxy.newProxyInstance(Book.class.getClassLoader(), new Class<?>[] { Book.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getInitials".equals(method.getName())) {
+                    return "Notes";
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                }
+                if ("equals".equals(method.getName())) {
+                    return Boolean.valueOf(proxy == args[0]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+
+        final File storage = File.createTempFile("jsword-update", "");
+        storage.delete();
+        LuceneIndexManager manager = new LuceneIndexManager() {
+            @Override
+            public boolean isIndexed(Book book) {
+                return indexed;
+            }
+
+            @Override
+            public Index getIndex(Book book) throws BookException {
+                return new LuceneIndex(book, storage.toURI()) {
+                    @Override
+                    void update(Collection<Key> keys, IndexPolicy policy) {
+                        synchronized (batches) {
+                            batches.add(new ArrayList<Key>(keys));
+                        }
+                    }
+                };
+            }
+        };
+        updater = manager.getIndexUpdater();
+    }
+
+    @Test
+    public void testBatched() throws InterruptedException {
+        updater.setBatchDelay(200);
+        Verse gen1 = new Verse(v11n, BibleBook.GEN, 1, 1);
+        Verse gen2 = new Verse(v11n, BibleBook.GEN, 1, 2);
+        updater.add(book, gen1);
+        updater.add(book, gen2);
+        updater.add(book, gen1);
+        Assert.assertEquals(2, updater.getPending());
+
+        updater.flush();
+        Assert.assertEquals(0, updater.getPending());
+        Assert.assertEquals(1, batches.size());
+        List<Key> keys = batches.get(0);
+        Assert.assertEquals(2, keys.size());
+        Assert.assertEquals(gen1, keys.get(0));
+        Assert.assertEquals(gen2, keys.get(1));
+    }
+
+    @Test
+    public void testUpdateWaitsForBuild() throws Exception {
+        final BookMetaData bmd = (BookMetaData) Proxy.newProxyInstance(BookMetaData.class.getClassLoader(), new Class<?>[] { BookMetaData.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        Book building = (Book) Proxy.newProxyInstance(Book.class.getClassLoader(), new Class<?>[] { Book.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getBookMetaData".equals(method.getName())) {
+                    return bmd;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        File storage = File.createTempFile("jsword-update", "");
+        storage.delete();
+        final LuceneIndex index = new LuceneIndex(building, storage.toURI());
+        final CountDownLatch updated = new CountDownLatch(1);
+        Thread updater = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    index.update(new ArrayList<Key>(), new IndexPolicyAdapter());
+                    updated.countDown();
+                } catch (IOException e) {
+                    // not counted
+                }
+            }
+        });
+
+        // A build of the book holds this lock until it has replaced the index
+        synchronized (bmd) {
+            updater.start();
+            Assert.assertFalse(updated.await(200, TimeUnit.MILLISECONDS));
+        }
+        Assert.assertTrue(updated.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 5000)
+    public void testFlushAfterStop() throws InterruptedException {
+        updater.setBatchDelay(60000);
+        Verse gen1 = new Verse(v11n, BibleBook.GEN, 1, 1);
+        updater.add(book, gen1);
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("IndexUpdater".equals(thread.getName())) {
+                thread.interrupt();
+            }
+        }
+
+        // The stopped updater must not leave the flush waiting
+        updater.setBatchDelay(0);
+        updater.flush();
+        Assert.assertEquals(0, updater.getPending());
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(gen1, batches.get(0).get(0));
+    }
+
+    @Test
+    public void testNotIndexed() throws InterruptedException {
+        updater.setBatchDelay(0);
+        indexed = false;
+        updater.add(book, new Verse(v11n, BibleBook.GEN, 1, 1));
+        updater.flush();
+        Assert.assertTrue(batches.isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.crosswire.jsword.passage.DefaultLeafKeyList;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class OrdinalFilterTest {
+    private Versification v11n;
+    private RAMDirectory directory;
+    private IndexSearcher searcher;
+
+    @Before
+    public void setUp() throws IOException {
+        v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new SimpleAnalyzer(), true, IndexWriter.MaxFieldLength.UNLIMITED);
+        // Every verse of Genesis 1 and Exodus 1 says "word"
+        for (BibleBook book : new BibleBook[] { BibleBook.GEN, BibleBook.EXOD }) {
+            for (int verse = 1; verse <= v11n.getLastVerse(book, 1); verse++) {
+                Verse v = new Verse(v11n, book, 1, verse);
+                Document doc = new Document();
+                doc.add(new Field(LuceneIndex.FIELD_KEY, v.getOsisRef(), Field.Store.YES, Field.Index.NOT_ANALYZED));
+                doc.add(new Field(LuceneIndex.FIELD_BODY, "word", Field.Store.NO, Field.Index.ANALYZED));
+                doc.add(new NumericField(LuceneIndex.FIELD_ORDINAL, Field.Store.NO, true).setIntValue(v.getOrdinal()));
+                writer.addDocument(doc);
+            }
+        }
+        writer.close();
+        searcher = new IndexSearcher(directory, true);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        searcher.close();
+        directory.close();
+    }
+
+    @Test
+    public void testRanges() throws IOException, NoSuchKeyException {
+        OrdinalFilter filter = OrdinalFilter.create(key("Gen 1:3-5, Gen 1:7, Exo 1:1-2"), v11n);
+        Assert.assertEquals(3, filter.getRangeCount());
+        Assert.assertEquals(6, count(filter));
+    }
+
+    @Test
+    public void testScattered() throws IOException, NoSuchKeyException {
+        // Every other verse of Genesis 1-5 is too many ranges to look up one by one
+        StringBuilder buf = new StringBuilder();
+        for (int chapter = 1; chapter <= 5; chapter++) {
+            for (int verse = 1; verse <= v11n.getLastVerse(BibleBook.GEN, chapter); verse += 2) {
+                buf.append("Gen ").append(chapter).append(':').append(verse).append(", ");
+            }
+        }
+        for (int verse = 1; verse <= 22; verse += 2) {
+            buf.append("Exo 1:").append(verse).append(", ");
+        }
+        buf.append("Rev 22:21");
+        OrdinalFilter filter = OrdinalFilter.create(key(buf.toString()), v11n);
+        Assert.assertTrue(filter.getRangeCount() > 64);
+        Assert.assertEquals(27, count(filter));
+        Assert.assertTrue(filter.contains(new Verse(v11n, BibleBook.REV, 22, 21).getOrdinal()));
+        Assert.assertFalse(filter.contains(new Verse(v11n, BibleBook.GEN, 1, 2).getOrdinal()));
+    }
+
+    @Test
+    public void testNotVerses() {
+        Key names = new DefaultLeafKeyList("love");
+        Assert.assertNull(OrdinalFilter.create(names, v11n));
+    }
+
+    private int count(OrdinalFilter filter) throws IOException {
+        return searcher.search(new TermQuery(new Term(LuceneIndex.FIELD_BODY, "word")), filter, 100).totalHits;
+    }
+
+    private Key key(String text) throws NoSuchKeyException {
+        return PassageKeyFactory.instance().getKey(v11n, text);
+    }
+}
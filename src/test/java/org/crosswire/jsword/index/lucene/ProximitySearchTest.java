@@ -0,0 +1,154 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryParser.ParseException;
+import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class ProximitySearchTest {
+    private Versification v11n;
+    private RAMDirectory directory;
+    private IndexReader reader;
+
+    @Before
+    public void setUp() throws IOException {
+        v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new SimpleAnalyzer(), true, IndexWriter.MaxFieldLength.UNLIMITED);
+        ChapterIndexer chapters = new ChapterIndexer(new SimpleAnalyzer());
+        add(chapters, writer, BibleBook.GEN, 1, 0, "faith in the introduction");
+        add(chapters, writer, BibleBook.GEN, 1, 1, "by faith alone");
+        add(chapters, writer, BibleBook.GEN, 1, 3, "good works");
+        add(chapters, writer, BibleBook.GEN, 1, 9, "faith and works");
+        add(chapters, writer, BibleBook.GEN, 1, 20, "faith");
+        add(chapters, writer, BibleBook.GEN, 2, 1, "works");
+        add(chapters, writer, BibleBook.GEN, 2, 5, "faith");
+        // Faith in Genesis 2:5 is not near works in Exodus 1:1
+        add(chapters, writer, BibleBook.EXOD, 1, 1, "works");
+        chapters.flush(writer);
+        writer.close();
+        reader = IndexReader.open(directory, true);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void testChapters() {
+        Assert.assertEquals(3, reader.numDocs());
+    }
+
+    @Test
+    public void testNear() throws IOException, ParseException, NoSuchKeyException {
+        Assert.assertEquals(key("Gen 1:1, 9"), find("faith", "works", 2));
+        Assert.assertEquals(key("Gen 1:3, 9"), find("works", "faith", 2));
+        Assert.assertEquals(key("Gen 1:9"), find("faith", "works", 0));
+        Assert.assertEquals(key("Gen 1:1, 9, 2:5"), find("faith", "works", 4));
+        Assert.assertEquals(key(""), find("faith", "hope", 4));
+    }
+
+    @Test
+    public void testPhrase() throws IOException, ParseException, NoSuchKeyException {
+        Assert.assertEquals(key("Gen 1:1"), find("\"faith alone\"", "works", 2));
+        Assert.assertEquals(key(""), find("\"alone faith\"", "works", 2));
+        Assert.assertEquals(key("Gen 1:3"), find("\"good works\"", "faith alone", 2));
+    }
+
+    @Test
+    public void testNotSpans() throws ParseException {
+        Assert.assertNull(ProximitySearch.toSpanQuery(new PrefixQuery(new Term(LuceneIndex.FIELD_BODY, "fai"))));
+        Assert.assertNull(ProximitySearch.toSpanQuery(parse("+faith +works")));
+        Assert.assertNull(ProximitySearch.toSpanQuery(parse("strong:H1234")));
+        Assert.assertNotNull(ProximitySearch.toSpanQuery(parse("faith works")));
+    }
+
+    @Test
+    public void testReplace() throws IOException {
+        IndexWriter writer = new IndexWriter(directory, new SimpleAnalyzer(), false, IndexWriter.MaxFieldLength.UNLIMITED);
+        ChapterIndexer chapters = new ChapterIndexer(new SimpleAnalyzer());
+        add(chapters, writer, BibleBook.GEN, 2, 1, "hope");
+        chapters.flush(writer);
+        // A chapter that is now empty is removed
+        add(chapters, writer, BibleBook.EXOD, 1, 1, "");
+        chapters.flush(writer);
+        writer.close();
+
+        IndexReader updated = reader.reopen();
+        try {
+            Assert.assertEquals(2, updated.numDocs());
+            Assert.assertEquals(1, updated.docFreq(new Term(LuceneIndex.FIELD_PROXIMITY, "hope")));
+        } finally {
+            updated.close();
+        }
+    }
+
+    private void add(ChapterIndexer chapters, IndexWriter writer, BibleBook book, int chapter, int verse, String text) throws IOException {
+        Verse v = new Verse(v11n, book, chapter, verse);
+        chapters.reached(v, writer);
+        chapters.add(v, text);
+    }
+
+    private Key find(String search, String near, int distance) throws IOException, ParseException {
+        SpanQuery query = ProximitySearch.toSpanQuery(parse(search));
+        SpanQuery nearQuery = ProximitySearch.toSpanQuery(parse(near));
+        Key results = PassageKeyFactory.instance().createEmptyKeyList(v11n);
+        ProximitySearch.find(reader, query, nearQuery, distance, v11n, results);
+        return results;
+    }
+
+    private Key key(String text) throws NoSuchKeyException {
+        return PassageKeyFactory.instance().getKey(v11n, text);
+    }
+
+    private Query parse(String search) throws ParseException {
+        return new QueryParser(Version.LUCENE_29, LuceneIndex.FIELD_BODY, new SimpleAnalyzer()).parse(search);
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.analysis.SimpleAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Searcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.FSDirectory;
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.Book;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class SearcherCacheTest {
+    private File root;
+    private String[] paths;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("jsword-searchers", "");
+        root.delete();
+        paths = new String[3];
+        for (int i = 0; i < paths.length; i++) {
+            File dir = new File(root, "book" + i);
+            dir.mkdirs();
+            IndexWriter writer = new IndexWriter(FSDirectory.open(dir), new SimpleAnalyzer(), true, IndexWriter.MaxFieldLength.UNLIMITED);
+            Document doc = new Document();
+            doc.add(new Field(LuceneIndex.FIELD_BODY, "in the beginning", Field.Store.NO, Field.Index.ANALYZED));
+            writer.addDocument(doc);
+            writer.close();
+            paths[i] = dir.getPath();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(root);
+    }
+
+    @Test
+    public void testBounded() throws IOException {
+        SearcherCache cache = new SearcherCache(2);
+        for (String path : paths) {
+            cache.release(cache.acquire("Book", path));
+        }
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(3, cache.getOpenCount());
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        // The most recent are still open
+        cache.release(cache.acquire("Book", paths[2]));
+        Assert.assertEquals(3, cache.getOpenCount());
+        Assert.assertEquals(4, cache.getSearchCount());
+
+        // The least recent was closed and is opened again
+        cache.release(cache.acquire("Book", paths[0]));
+        Assert.assertEquals(4, cache.getOpenCount());
+    }
+
+    @Test
+    public void testInUseSurvivesEviction() throws IOException {
+        SearcherCache cache = new SearcherCache(1);
+        SearcherCache.OpenIndex first = cache.acquire("Book", paths[0]);
+        cache.release(cache.acquire("Book", paths[1]));
+        Assert.assertEquals(1, cache.getEvictionCount());
+
+        // Still searchable while in use
+        Assert.assertFalse(first.isClosed());
+        Assert.assertEquals(1, count(first));
+        cache.release(first);
+        Assert.assertTrue(first.isClosed());
+    }
+
+    @Test
+    public void testOpenedOnce() throws Exception {
+        final SearcherCache cache = new SearcherCache(4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws IOException {
+                        SearcherCache.OpenIndex open = cache.acquire("Book", paths[0]);
+                        try {
+                            return Integer.valueOf(count(open));
+                        } finally {
+                            cache.release(open);
+                        }
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                Assert.assertEquals(1, result.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, cache.getOpenCount());
+        Assert.assertEquals(32, cache.getSearchCount());
+    }
+
+    @Test
+    public void testStorage() throws IOException {
+        SearcherCache cache = new SearcherCache(4);
+        Assert.assertEquals(IndexStorage.FILE, cache.getStorage("Book"));
+        cache.setStorage("RAMBook", IndexStorage.RAM);
+        cache.setStorage("MMapBook", IndexStorage.MMAP);
+
+        SearcherCache.OpenIndex ram = cache.acquire("RAMBook", paths[0]);
+        SearcherCache.OpenIndex mmap = cache.acquire("MMapBook", paths[1]);
+        Assert.assertEquals(1, count(ram));
+        Assert.assertEquals(1, count(mmap));
+        cache.release(ram);
+        cache.release(mmap);
+
+        cache.evictAll();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertTrue(ram.isClosed());
+        Assert.assertTrue(mmap.isClosed());
+    }
+
+    @Test
+    public void testRefresh() throws IOException {
+        SearcherCache cache = new SearcherCache(4);
+        SearcherCache.OpenIndex before = cache.acquire("Book", paths[0]);
+        Assert.assertEquals(1, count(before));
+
+        IndexWriter writer = new IndexWriter(FSDirectory.open(new File(paths[0])), new SimpleAnalyzer(), false, IndexWriter.MaxFieldLength.UNLIMITED);
+        Document doc = new Document();
+        doc.add(new Field(LuceneIndex.FIELD_BODY, "in the beginning was the word", Field.Store.NO, Field.Index.ANALYZED));
+        writer.addDocument(doc);
+        writer.close();
+
+        cache.refresh("Book", paths[0]);
+        Assert.assertEquals(2, cache.getOpenCount());
+        Assert.assertEquals(1, cache.getSearchCount());
+
+        // A search that was under way keeps what it had
+        Assert.assertFalse(before.isClosed());
+        Assert.assertEquals(1, count(before));
+        cache.release(before);
+        Assert.assertTrue(before.isClosed());
+
+        SearcherCache.OpenIndex after = cache.acquire("Book", paths[0]);
+        Assert.assertEquals(2, count(after));
+        cache.release(after);
+        Assert.assertEquals(2, cache.getOpenCount());
+    }
+
+    @Test
+    public void testPinnedSearcher() throws Exception {
+        LuceneIndex index = new LuceneIndex(book("Book"), new File(paths[0]).toURI());
+        Searcher searcher = index.getSearcher();
+        Assert.assertSame(searcher, index.getSearcher());
+
+        // The cache closing what it has does not close it under the caller
+        SearcherCache.instance().evictAll();
+        Assert.assertEquals(1, count(searcher));
+
+        index.close();
+        try {
+            count(searcher);
+            Assert.fail("searcher still open after the index was closed");
+        } catch (AlreadyClosedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMissing() {
+        SearcherCache cache = new SearcherCache(4);
+        try {
+            cache.acquire("Book", new File(root, "missing").getPath());
+            Assert.fail("opened a missing index");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(0, cache.size());
+    }
+
+    private static int count(SearcherCache.OpenIndex open) throws IOException {
+        return count(open.getSearcher());
+    }
+
+    private static int count(Searcher searcher) throws IOException {
+        return searcher.search(new TermQuery(new Term(LuceneIndex.FIELD_BODY, "beginning")), 10).totalHits;
+    }
+
+    private static Book book(final String initials) {
+        return (Book) Proxy.newProxyInstance(Book.class.getClassLoader(), new Class<?>[] { Book.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getInitials".equals(method.getName())) {
+                    return initials;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ */
+package org.crosswire.jsword.index.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.AbstractIndex;
+import org.crosswire.jsword.index.ProximityIndex;
+import org.crosswire.jsword.index.SelectiveIndex;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.RestrictionType;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class QueryPlannerTest {
+    private Versification v11n;
+    private StubIndex index;
+
+    @Before
+    public void setUp() throws NoSuchKeyException {
+        v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        index = new StubIndex();
+        index.words.put("rare", key("Gen 1:1, Rom 5:8"));
+        index.words.put("common", key("Gen 1:1-31, Exo 1:1-22, Rom 5:1-21"));
+        index.words.put("beside", key("Gen 1:3, Rom 5:20"));
+        index.words.put("nowhere", key(""));
+    }
+
+    @Test
+    public void testSelectiveFirst() throws BookException, NoSuchKeyException {
+        Key found = new AndQuery(new BaseQuery("common"), new BaseQuery("rare")).find(index);
+        Assert.assertEquals(key("Gen 1:1, Rom 5:8"), found);
+
+        // The rare word is searched everywhere, the common only where the rare was found
+        Assert.assertEquals(2, index.searches.size());
+        Assert.assertEquals("rare", index.searches.get(0));
+        Assert.assertEquals("common within Gen.1.1 Rom.5.8", index.searches.get(1));
+    }
+
+    @Test
+    public void testRangePushedDown() throws BookException, NoSuchKeyException {
+        Key found = new AndQuery(new RangeQuery("Gen 1:1-5"), new BaseQuery("common")).find(index);
+        Assert.assertEquals(key("Gen 1:1-5"), found);
+        Assert.assertEquals(1, index.searches.size());
+        Assert.assertEquals("common within Gen.1.1-Gen.1.5", index.searches.get(0));
+    }
+
+    @Test
+    public void testEmptyShortCircuits() throws BookException {
+        Key found = new AndQuery(new BaseQuery("common"), new BaseQuery("nowhere")).find(index);
+        Assert.assertTrue(found.isEmpty());
+        Assert.assertEquals(1, index.searches.size());
+        Assert.assertEquals("nowhere", index.searches.get(0));
+    }
+
+    @Test
+    public void testAndNot() throws BookException, NoSuchKeyException {
+        Key found = new AndNotQuery(new BaseQuery("rare"), new RangeQuery("Rom")).find(index);
+        Assert.assertEquals(key("Gen 1:1"), found);
+    }
+
+    @Test
+    public void testOr() throws BookException, NoSuchKeyException {
+        Key found = new AndQuery(new RangeQuery("Rom"), new OrQuery(new BaseQuery("rare"), new BaseQuery("beside"))).find(index);
+        Assert.assertEquals(key("Rom 5:8, Rom 5:20"), found);
+    }
+
+    @Test
+    public void testBlur() throws BookException, NoSuchKeyException {
+        // Either way round, the result is the left near the right
+        Key found = new BlurQuery(new BaseQuery("common"), new BaseQuery("beside"), 2).find(index);
+        Assert.assertEquals(key("Gen 1:1-5, Rom 5:18-21"), found);
+        Key near = key("Gen 1:3, Rom 5:20");
+        near.blur(2, RestrictionType.getDefaultBlurRestriction());
+        Assert.assertEquals("common within " + near.getOsisRef(), index.searches.get(1));
+
+        index.searches.clear();
+        found = new BlurQuery(new BaseQuery("beside"), new BaseQuery("common"), 1).find(index);
+        Assert.assertEquals(key("Gen 1:3, Rom 5:20"), found);
+        Assert.assertEquals("beside", index.searches.get(0));
+    }
+
+    @Test
+    public void testNativeBlur() throws BookException, NoSuchKeyException {
+        NearIndex near = new NearIndex();
+        near.words.putAll(index.words);
+        near.found = key("Gen 1:1-5");
+        Key found = new BlurQuery(new BaseQuery("common"), new BaseQuery("beside"), 2).find(near);
+        Assert.assertEquals(key("Gen 1:1-5"), found);
+        Assert.assertEquals("common within 2 of beside", near.searches.get(0));
+        Assert.assertEquals(1, near.searches.size());
+
+        // An index that cannot do it leaves it to the blurring
+        near.searches.clear();
+        near.found = null;
+        found = new BlurQuery(new BaseQuery("common"), new BaseQuery("beside"), 2).find(near);
+        Assert.assertEquals(key("Gen 1:1-5, Rom 5:18-21"), found);
+        Assert.assertEquals(3, near.searches.size());
+    }
+
+    private Key key(String text) throws NoSuchKeyException {
+        return PassageKeyFactory.instance().getKey(v11n, text);
+    }
+
+    /**
+     * An index of a few words that records what it is asked to find.
+     */
+    private class StubIndex extends AbstractIndex implements SelectiveIndex {
+        final Map<String, Key> words = new HashMap<String, Key>();
+        final List<String> searches = new ArrayList<String>();
+
+        public Key find(String query) throws BookException {
+            return find(query, null);
+        }
+
+        public Key find(String query, Key restriction) throws BookException {
+            if (query == null) {
+                return PassageKeyFactory.instance().createEmptyKeyList(v11n);
+            }
+            searches.add(restriction == null ? query : query + " within " + restriction.getOsisRef());
+            Key found = words.get(query.trim()).clone();
+            if (restriction != null) {
+                found.retainAll(restriction);
+            }
+            return found;
+        }
+
+        public int estimate(String query) {
+            return words.get(query.trim()).getCardinality();
+        }
+
+        public Key getKey(String name) throws NoSuchKeyException {
+            return key(name);
+        }
+
+        public void close() {
+        }
+    }
+
+    /**
+     * An index that finds what is near itself, if it has been told what.
+     */
+    private class NearIndex extends StubIndex implements ProximityIndex {
+        Key found;
+
+        public Key findNear(String query, String near, int distance, Key restriction) {
+            searches.add(query + " within " + distance + " of " + near);
+            return found;
+        }
+    }
+}
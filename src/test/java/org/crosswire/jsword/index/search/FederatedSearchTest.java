@@ -0,0 +1,176 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ */
+package org.crosswire.jsword.index.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.sword.SyntheticModules;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class FederatedSearchTest {
+    private File dir;
+    private Book first;
+    private Book second;
+    private Book dict;
+    private Versification kjv;
+    private Map<Book, Key> answers;
+
+    @Before
+    public void setUp() throws IOException, NoSuchKeyException {
+        dir = File.createTempFile("jsword-federated", "");
+        dir.delete();
+        dir.mkdirs();
+        SyntheticModules modules = new SyntheticModules(dir);
+        modules.setBooks(BibleBook.JOHN2, BibleBook.JOHN3);
+        first = modules.createZText("FedZ");
+        second = modules.createRawText("FedRaw");
+        dict = modules.createRawLD("FedLD");
+        kjv = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+
+        // What the index of each book is taken to have found
+        answers = new HashMap<Book, Key>();
+        answers.put(first, first.getKey("2John 1:1-3, 3John 1:5"));
+        PassageTally ranked = new PassageTally(kjv);
+        ranked.add(first.getKey("3John 1:5"), 40);
+        ranked.add(first.getKey("3John 1:9"), 10);
+        ranked.add(first.getKey("2John 1:2"), 5);
+        answers.put(second, ranked);
+        answers.put(dict, dict.getGlobalKeyList());
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(dir);
+    }
+
+    @Test
+    public void testMerge() throws BookException {
+        FederatedSearch search = new StubSearch(kjv, null);
+        search.setThreads(2);
+        FederatedResult result = search.search(Arrays.asList(first, second, dict), new DefaultSearchRequest("god"));
+        Assert.assertTrue(result.isComplete());
+        Assert.assertEquals(Arrays.asList(first, second, dict), Arrays.asList(result.getHitCounts().keySet().toArray()));
+        Assert.assertEquals(4, result.getHitCount(first));
+        Assert.assertEquals(3, result.getHitCount(second));
+        Assert.assertEquals(dict.getGlobalKeyList().getCardinality(), result.getHitCount(dict));
+
+        PassageTally tally = result.getTally();
+        Assert.assertEquals(5, tally.getCardinality());
+        Assert.assertEquals(41, tally.getTallyOf(verse("3John 1:5")));
+        Assert.assertEquals(6, tally.getTallyOf(verse("2John 1:2")));
+        Assert.assertEquals(1, tally.getTallyOf(verse("2John 1:1")));
+        Assert.assertEquals(verse("3John 1:5"), tally.iterator().next());
+    }
+
+    @Test
+    public void testTopRanked() throws BookException {
+        FederatedSearch search = new StubSearch(kjv, null);
+        search.setMaxResults(2);
+        PassageTally tally = search.search(Arrays.asList(first, second), new DefaultSearchRequest("god")).getTally();
+        Assert.assertEquals(2, tally.getCardinality());
+        Assert.assertTrue(tally.contains(verse("3John 1:5")));
+        Assert.assertTrue(tally.contains(verse("3John 1:9")));
+    }
+
+    @Test
+    public void testMapped() throws BookException {
+        Versification nrsv = Versifications.instance().getVersification("NRSV");
+        FederatedResult result = new StubSearch(nrsv, null).search(Arrays.asList(first, second), new DefaultSearchRequest("god"));
+        PassageTally tally = result.getTally();
+        Assert.assertEquals(nrsv, tally.getVersification());
+        Assert.assertEquals(41, tally.getTallyOf(new Verse(nrsv, BibleBook.JOHN3, 1, 5)));
+    }
+
+    @Test
+    public void testTimeout() throws BookException {
+        FederatedSearch search = new StubSearch(kjv, second);
+        search.setTimeout(200, TimeUnit.MILLISECONDS);
+        FederatedResult result = search.search(Arrays.asList(first, second), new DefaultSearchRequest("god"));
+        Assert.assertFalse(result.isComplete());
+        Assert.assertEquals(Arrays.asList(second), result.getMissed());
+        Assert.assertNull(result.getFailure(second));
+        Assert.assertEquals(-1, result.getHitCount(second));
+        Assert.assertEquals(4, result.getHitCount(first));
+    }
+
+    @Test
+    public void testFailure() throws BookException {
+        answers.remove(second);
+        FederatedResult result = new StubSearch(kjv, null).search(Arrays.asList(first, second), new DefaultSearchRequest("god"));
+        Assert.assertEquals(Arrays.asList(second), result.getMissed());
+        Assert.assertNotNull(result.getFailure(second));
+        Assert.assertEquals(4, result.getTally().getCardinality());
+    }
+
+    private Verse verse(String name) {
+        return (Verse) first.getValidKey(name).iterator().next();
+    }
+
+    /**
+     * Answer with the prepared results, with one book that is slow to answer.
+     */
+    private final class StubSearch extends FederatedSearch {
+        StubSearch(Versification v11n, Book slow) {
+            super(v11n);
+            this.slow = slow;
+        }
+
+        @Override
+        protected Key search(Book book, SearchRequest request) throws BookException {
+            if (book == slow) {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            Key found = answers.get(book);
+            if (found == null) {
+                throw new BookException("No index");
+            }
+            return found.clone();
+        }
+
+        private Book slow;
+    }
+}
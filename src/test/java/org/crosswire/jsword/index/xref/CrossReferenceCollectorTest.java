@@ -0,0 +1,147 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.xref;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class CrossReferenceCollectorTest {
+    private Versification kjv;
+    private Verse rom58;
+    private Verse john316;
+    private Verse john317;
+
+    @Before
+    public void setUp() {
+        kjv = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        rom58 = new Verse(kjv, BibleBook.ROM, 5, 8);
+        john316 = new Verse(kjv, BibleBook.JOHN, 3, 16);
+        john317 = new Verse(kjv, BibleBook.JOHN, 3, 17);
+    }
+
+    @Test
+    public void testRepeatsRemoved() throws Exception {
+        CrossReferenceCollector collector = new CrossReferenceCollector("MHC", kjv);
+        Verse gen11 = new Verse(kjv, BibleBook.GEN, 1, 1);
+        collector.add(rom58, PassageKeyFactory.instance().getKey(kjv, "John.3.16"));
+        collector.add(gen11, PassageKeyFactory.instance().getKey(kjv, "John.3.16"));
+        // The same key again, but not straight after its first references
+        collector.add(rom58, PassageKeyFactory.instance().getKey(kjv, "John.3.16-John.3.17"));
+        Assert.assertEquals(4, collector.size());
+
+        BookReferences refs = collector.toBookReferences();
+        Assert.assertEquals(3, refs.size());
+        // In the order that the keys were first seen
+        Assert.assertEquals(Arrays.asList(new CrossReference("MHC", "Rom.5.8"), new CrossReference("MHC", "Gen.1.1")), find(refs, john316));
+        Assert.assertEquals(Arrays.asList(new CrossReference("MHC", "Rom.5.8")), find(refs, john317));
+    }
+
+    @Test
+    public void testBroadReferencesIgnored() throws Exception {
+        CrossReferenceCollector collector = new CrossReferenceCollector("MHC", kjv);
+        collector.add(rom58, PassageKeyFactory.instance().getKey(kjv, "John"));
+        Assert.assertEquals(0, collector.size());
+        Assert.assertEquals(0, collector.toBookReferences().size());
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        CrossReferenceCollector collector = new CrossReferenceCollector("MHC", kjv);
+        collector.add(rom58, PassageKeyFactory.instance().getKey(kjv, "John.3.16-John.3.17"));
+        collector.add(john317, PassageKeyFactory.instance().getKey(kjv, "Rom.5.8"));
+        BookReferences refs = collector.toBookReferences();
+
+        File file = File.createTempFile("xref", ".xrf");
+        try {
+            refs.write(file);
+            BookReferences copy = BookReferences.read(file);
+            Assert.assertEquals("MHC", copy.getInitials());
+            Assert.assertEquals(refs.size(), copy.size());
+            Assert.assertEquals(find(refs, john316), find(copy, john316));
+            Assert.assertEquals(find(refs, rom58), find(copy, rom58));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testDamaged() throws Exception {
+        CrossReferenceCollector collector = new CrossReferenceCollector("MHC", kjv);
+        collector.add(rom58, PassageKeyFactory.instance().getKey(kjv, "John.3.16"));
+
+        File file = File.createTempFile("xref", ".xrf");
+        try {
+            collector.toBookReferences().write(file);
+            // Cut off the postings
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(raf.length() - 1);
+            } finally {
+                raf.close();
+            }
+            assertUnreadable(file);
+
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(new byte[] { 'J', 'S', 'X', 'X', 0, 0, 0, 1 });
+            } finally {
+                out.close();
+            }
+            assertUnreadable(file);
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    private void assertUnreadable(File file) {
+        try {
+            BookReferences.read(file);
+            Assert.fail("Damaged file was read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private List<CrossReference> find(BookReferences refs, Verse verse) {
+        List<CrossReference> results = new ArrayList<CrossReference>();
+        refs.find(verse.getOrdinal(), results);
+        return results;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.index.xref;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.jdom2.Element;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class CrossReferenceIndexTest {
+    private File dir;
+    private Versification kjv;
+    private Verse john316;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("xref", "");
+        Assert.assertTrue(dir.delete());
+        kjv = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        john316 = new Verse(kjv, BibleBook.JOHN, 3, 16);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtil.delete(dir);
+    }
+
+    @Test
+    public void testStoreAndFind() throws IOException {
+        CrossReferenceIndex index = new CrossReferenceIndex(dir);
+
+        CrossReferenceCollector mhc = new CrossReferenceCollector("MHC", kjv);
+        mhc.add(new Verse(kjv, BibleBook.ROM, 5, 8), createOsis("John.3.16", "John.3.16"));
+        mhc.add(new Verse(kjv, BibleBook.JOHN1, 4, 9), createOsis("John.3.16-John.3.17", "Gen.1.1"));
+        // Too broad to be of interest
+        mhc.add(new Verse(kjv, BibleBook.JOHN, 1, 1), createOsis("John"));
+        index.store(mhc);
+
+        CrossReferenceCollector tsk = new CrossReferenceCollector("TSK", kjv);
+        tsk.add(new Verse(kjv, BibleBook.JOHN, 3, 15), createOsis("John.3.16", "nonsense"));
+        index.store(tsk);
+
+        Assert.assertEquals(Arrays.asList(
+                new CrossReference("MHC", "Rom.5.8"),
+                new CrossReference("MHC", "1John.4.9"),
+                new CrossReference("TSK", "John.3.15")),
+                index.getReferencesTo(john316));
+        Assert.assertEquals(Collections.singletonList(new CrossReference("MHC", "1John.4.9")),
+                index.getReferencesTo(new Verse(kjv, BibleBook.GEN, 1, 1)));
+        Assert.assertTrue(index.getReferencesTo(new Verse(kjv, BibleBook.JOHN, 1, 2)).isEmpty());
+
+        // Another versification is mapped to the default one
+        Versification other = Versifications.instance().getVersification("NRSV");
+        Assert.assertEquals(3, index.getReferencesTo(new Verse(other, BibleBook.JOHN, 3, 16)).size());
+
+        // What was stored can be read back
+        CrossReferenceIndex reloaded = new CrossReferenceIndex(dir);
+        Assert.assertEquals(index.getReferencesTo(john316), reloaded.getReferencesTo(john316));
+
+        // Removing a book removes its file
+        reloaded.remove("TSK");
+        Assert.assertEquals(2, reloaded.getReferencesTo(john316).size());
+        Assert.assertEquals(2, new CrossReferenceIndex(dir).getReferencesTo(john316).size());
+    }
+
+    @Test
+    public void testStoreReplaces() throws IOException {
+        CrossReferenceIndex index = new CrossReferenceIndex(dir);
+
+        CrossReferenceCollector first = new CrossReferenceCollector("MHC", kjv);
+        first.add(new Verse(kjv, BibleBook.ROM, 5, 8), createOsis("John.3.16"));
+        index.store(first);
+
+        CrossReferenceCollector second = new CrossReferenceCollector("MHC", kjv);
+        second.add(new Verse(kjv, BibleBook.JOHN1, 4, 9), createOsis("John.3.16"));
+        index.store(second);
+
+        Assert.assertEquals(Collections.singletonList(new CrossReference("MHC", "1John.4.9")), index.getReferencesTo(john316));
+        Assert.assertEquals(index.getReferencesTo(john316), new CrossReferenceIndex(dir).getReferencesTo(john316));
+    }
+
+    @Test
+    public void testMemoryOnly() throws IOException {
+        CrossReferenceIndex index = new CrossReferenceIndex(null);
+        Assert.assertTrue(index.getReferencesTo(john316).isEmpty());
+
+        CrossReferenceCollector mhc = new CrossReferenceCollector("MHC", kjv);
+        mhc.add(new Verse(kjv, BibleBook.ROM, 5, 8), createOsis("John.3.16"));
+        index.store(mhc);
+        Assert.assertEquals(1, index.getReferencesTo(john316).size());
+        Assert.assertFalse(dir.exists());
+
+        index.remove("MHC");
+        Assert.assertTrue(index.getReferencesTo(john316).isEmpty());
+    }
+
+    @Test
+    public void testDamagedFileIgnored() throws IOException {
+        CrossReferenceIndex index = new CrossReferenceIndex(dir);
+        CrossReferenceCollector mhc = new CrossReferenceCollector("MHC", kjv);
+        mhc.add(new Verse(kjv, BibleBook.ROM, 5, 8), createOsis("John.3.16"));
+        index.store(mhc);
+
+        OutputStream out = new FileOutputStream(new File(dir, "Bad.xrf"));
+        try {
+            out.write(new byte[] { 1, 2, 3 });
+        } finally {
+            out.close();
+        }
+
+        Assert.assertEquals(1, new CrossReferenceIndex(dir).getReferencesTo(john316).size());
+    }
+
+    @Test
+    public void testConcurrentChanges() throws Exception {
+        final CrossReferenceIndex index = new CrossReferenceIndex(dir);
+        CrossReferenceCollector mhc = new CrossReferenceCollector("MHC", kjv);
+        mhc.add(new Verse(kjv, BibleBook.ROM, 5, 8), createOsis("John.3.16"));
+        index.store(mhc);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        CrossReferenceCollector tsk = new CrossReferenceCollector("TSK", kjv);
+                        tsk.add(new Verse(kjv, BibleBook.JOHN, 3, 15), createOsis("John.3.16"));
+                        index.store(tsk);
+                        index.remove("TSK");
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            List<CrossReference> refs = index.getReferencesTo(john316);
+            // MHC is always there and always first
+            Assert.assertEquals(new CrossReference("MHC", "Rom.5.8"), refs.get(0));
+            Assert.assertTrue(refs.size() <= 2);
+        }
+        writer.join();
+        Assert.assertNull(failure.get());
+
+        Assert.assertEquals(1, index.getReferencesTo(john316).size());
+        Assert.assertEquals(1, new CrossReferenceIndex(dir).getReferencesTo(john316).size());
+    }
+
+    private Element createOsis(String... refs) {
+        Element div = OSISUtil.factory().createDiv();
+        for (String ref : refs) {
+            Element reference = OSISUtil.factory().createReference();
+            reference.setAttribute(OSISUtil.OSIS_ATTR_REF, ref);
+            reference.addContent(ref);
+            div.addContent(reference);
+        }
+        return div;
+    }
+}
@@ -32,6 +32,8 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     AccuracyTypeTest.class,
+    PassageAdaptiveTest.class,
+    PassageCodecTest.class,
     PassageConstantsTest.class,
     PassageMixTest.class,
     PassageSizeTest.class,
@@ -41,6 +43,7 @@ import org.junit.runners.Suite.SuiteClasses;
     PassageTally2Test.class,
     PassageUtilTest.class,
     PassageWriteSpeedTest.class,
+    TallyBoardTest.class,
     OsisParserTest.class,
     VerseTest.class,
     VerseRangeTest.class,
@@ -0,0 +1,85 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class PassageAdaptiveTest extends PassageParentTst {
+    public PassageAdaptiveTest() {
+        super(PassageType.ADAPTIVE, false);
+    }
+
+    @Test
+    public void testAdapts() throws NoSuchVerseException {
+        Versification v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        AdaptivePassage passage = new AdaptivePassage(v11n, "Gen 1:1, Exo 2:3, Rev 22:21");
+        Assert.assertTrue(passage.getStore() instanceof DistinctPassage);
+
+        // A few long ranges
+        passage.add(VerseRangeFactory.fromString(v11n, "Gen 2-50"));
+        Assert.assertTrue(passage.getStore() instanceof RangedPassage);
+        Assert.assertEquals(4, passage.countRanges(RestrictionType.NONE));
+
+        // Many scattered verses
+        for (int ordinal = 10; ordinal < v11n.maximumOrdinal(); ordinal += 3) {
+            passage.add(v11n.decodeOrdinal(ordinal));
+        }
+        Assert.assertTrue(passage.getStore() instanceof BitwisePassage);
+
+        passage.retainAll(VerseFactory.fromString(v11n, "Rev 22:21"));
+        Assert.assertTrue(passage.getStore() instanceof DistinctPassage);
+        Assert.assertEquals(1, passage.countVerses());
+
+        // A copy has its own verses
+        AdaptivePassage copy = passage.clone();
+        copy.clear();
+        Assert.assertEquals(1, passage.countVerses());
+    }
+
+    @Test
+    public void testMerge() throws NoSuchVerseException {
+        Versification v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        DistinctPassage few = new DistinctPassage(v11n, "Gen 1:3, Gen 1:7, Exo 2:1, Rev 1:1");
+        DistinctPassage book = new DistinctPassage(v11n, "Gen");
+
+        DistinctPassage both = few.clone();
+        both.retainAll(book);
+        Assert.assertEquals("Gen 1:3, 7", both.getName());
+
+        both = few.clone();
+        both.removeAll(book);
+        Assert.assertEquals("Exo 2:1, Rev 1:1", both.getName());
+
+        both = book.clone();
+        both.addAll(few);
+        Assert.assertEquals("Gen, Exo 2:1, Rev 1:1", both.getName());
+        Assert.assertEquals(book.countVerses() + 2, both.countVerses());
+        Assert.assertEquals(4, few.countVerses());
+    }
+}
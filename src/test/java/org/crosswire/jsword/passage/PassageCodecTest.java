@@ -0,0 +1,234 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class PassageCodecTest {
+    private PassageKeyFactory keyf;
+    private Versification kjv;
+
+    @Before
+    public void setUp() {
+        keyf = PassageKeyFactory.instance();
+        kjv = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        String[] refs = {
+            "", "Gen 1:1", "Rev 22:21", "Gen 1:1-Rev 22:21", "Ps 119", "John 3:16, Rom 8:28, 1Cor 13",
+            "Gen 1:1, Gen 1:3, Gen 1:5, Gen 1:7, Gen 2-50", "Matt 5:1-7:29, Mark 1:1-16:20"
+        };
+        for (String ref : refs) {
+            Passage passage = keyf.getKey(kjv, ref);
+            Assert.assertEquals(ref, passage, PassageCodec.decode(PassageCodec.encode(passage)));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PassageCodec.write(passage, out);
+            Assert.assertEquals(ref, passage, PassageCodec.read(new ByteArrayInputStream(out.toByteArray())));
+        }
+    }
+
+    @Test
+    public void testRandom() throws Exception {
+        Random random = new Random(39);
+        int maxOrdinal = kjv.maximumOrdinal();
+        for (int density = 1; density < 1000; density *= 3) {
+            BitwisePassage passage = new BitwisePassage(kjv);
+            for (int i = 0; i < density * 30; i++) {
+                passage.addVersifiedOrdinal(random.nextInt(maxOrdinal + 1));
+            }
+            ByteBuffer encoded = PassageCodec.encode(passage);
+            int size = encoded.remaining();
+            Assert.assertEquals(passage, PassageCodec.decode(encoded));
+
+            // Never much bigger than a bitmap of the whole Bible
+            Assert.assertTrue(size < maxOrdinal / 8 + maxOrdinal / 256 + 16);
+        }
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        // Header of 1 magic, 1 version, 4 name, 1 count, 1 window count
+        Assert.assertEquals(8, PassageCodec.encode(keyf.getKey(kjv, "")).remaining());
+        Assert.assertTrue(PassageCodec.encode(keyf.getKey(kjv, "John 3:16")).remaining() <= 13);
+        Assert.assertTrue(PassageCodec.encode(keyf.getKey(kjv, "Gen 1:1-Rev 22:21")).remaining() < 200);
+    }
+
+    @Test
+    public void testOrdinals() throws Exception {
+        Passage passage = keyf.getKey(kjv, "Gen 1:1-3, Rev 22:21");
+        int[] ordinals = PassageCodec.decodeOrdinals(PassageCodec.encode(passage), kjv);
+        Assert.assertEquals(4, ordinals.length);
+        int i = 0;
+        for (Key key : passage) {
+            Assert.assertEquals(((Verse) key).getOrdinal(), ordinals[i++]);
+        }
+    }
+
+    @Test
+    public void testSeveral() throws Exception {
+        Versification nrsv = Versifications.instance().getVersification("NRSV");
+        Passage first = keyf.getKey(kjv, "Gen 1");
+        Passage second = keyf.getKey(nrsv, "3John 1:15");
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        PassageCodec.encode(first, buffer);
+        PassageCodec.encode(second, buffer);
+        buffer.flip();
+        Assert.assertEquals(first, PassageCodec.decode(buffer));
+        Passage decoded = PassageCodec.decode(buffer);
+        Assert.assertEquals(nrsv, decoded.getVersification());
+        Assert.assertEquals(second, decoded);
+        Assert.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testBadInput() throws Exception {
+        ByteBuffer encoded = PassageCodec.encode(keyf.getKey(kjv, "Gen 1"));
+        try {
+            PassageCodec.decodeOrdinals(encoded.duplicate(), Versifications.instance().getVersification("NRSV"));
+            Assert.fail("wrong versification accepted");
+        } catch (IOException e) {
+            // expected
+        }
+
+        encoded.limit(encoded.limit() - 1);
+        try {
+            PassageCodec.decode(encoded);
+            Assert.fail("truncated passage accepted");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWindowOverflow() throws Exception {
+        // A jump of nearly 2^31 windows
+        assertBad(craft(1, 1, Integer.MAX_VALUE - 1, 1, 0, 0));
+        // One window past the end of the versification
+        assertBad(craft(1, 1, (kjv.maximumOrdinal() >>> 10) + 1 << 1, 1, 0, 0));
+    }
+
+    @Test
+    public void testBitmapOutsideWindow() throws Exception {
+        // Bytes starting at the last byte of the first window run into the next
+        assertBad(craft(14, 1, 1, 127, 2, 0x7F, 0x7F));
+    }
+
+    @Test
+    public void testRunOutsideWindow() throws Exception {
+        // A run from 1020 to 1029 in the first window, then 1025 in the next
+        assertBad(craft(11, 2, 0, 1, 1020, 9, 0, 1, 1, 0));
+        // The same run alone is still outside its window
+        assertBad(craft(10, 1, 0, 1, 1020, 9));
+    }
+
+    @Test
+    public void testCorruption() throws Exception {
+        Random random = new Random(390);
+        int maxOrdinal = kjv.maximumOrdinal();
+        for (int trial = 0; trial < 2000; trial++) {
+            BitwisePassage passage = new BitwisePassage(kjv);
+            int verses = 1 + random.nextInt(200);
+            for (int i = 0; i < verses; i++) {
+                passage.addVersifiedOrdinal(random.nextInt(maxOrdinal + 1));
+            }
+            ByteBuffer encoded = PassageCodec.encode(passage);
+            byte[] data = new byte[encoded.remaining()];
+            encoded.get(data);
+
+            // Change a few bytes, or cut it short
+            int changes = 1 + random.nextInt(3);
+            for (int i = 0; i < changes; i++) {
+                data[random.nextInt(data.length)] = (byte) random.nextInt(256);
+            }
+            int length = random.nextInt(4) == 0 ? random.nextInt(data.length) : data.length;
+
+            try {
+                int[] ordinals = PassageCodec.decodeOrdinals(ByteBuffer.wrap(data, 0, length), kjv);
+                for (int i = 0; i < ordinals.length; i++) {
+                    Assert.assertTrue(ordinals[i] >= 0 && ordinals[i] <= maxOrdinal);
+                    Assert.assertTrue(i == 0 || ordinals[i] > ordinals[i - 1]);
+                }
+            } catch (IOException e) {
+                // expected
+            }
+            try {
+                PassageCodec.decode(ByteBuffer.wrap(data, 0, length));
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Build an encoded KJV passage by hand. Each value is written as a
+     * variable length number, which for values under 128 is a single byte.
+     */
+    private ByteBuffer craft(int... values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xB5);
+        out.write(1);
+        byte[] name = kjv.getName().getBytes();
+        out.write(name.length);
+        out.write(name, 0, name.length);
+        for (int value : values) {
+            int v = value;
+            while ((v & ~0x7F) != 0) {
+                out.write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.write(v);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private void assertBad(ByteBuffer encoded) {
+        try {
+            PassageCodec.decodeOrdinals(encoded.duplicate(), kjv);
+            Assert.fail("bad passage accepted");
+        } catch (IOException e) {
+            // expected
+        }
+        try {
+            PassageCodec.decode(encoded.duplicate());
+            Assert.fail("bad passage accepted");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2026
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class TallyBoardTest {
+    @Test
+    public void testSparse() {
+        TallyBoard board = new TallyBoard(1000);
+        board.set(500, 3);
+        board.set(10, 1);
+        board.add(500, 2);
+        board.add(20, 4);
+        Assert.assertFalse(board.isDense());
+        Assert.assertEquals(5, board.get(500));
+        Assert.assertEquals(0, board.get(11));
+        Assert.assertEquals(10, board.next(0));
+        Assert.assertEquals(20, board.next(11));
+        Assert.assertEquals(500, board.next(21));
+        Assert.assertEquals(-1, board.next(501));
+
+        board.set(20, 0);
+        Assert.assertEquals(500, board.next(11));
+    }
+
+    @Test
+    public void testDense() {
+        TallyBoard board = new TallyBoard(3200);
+        for (int i = 0; i < 100; i++) {
+            board.set(i * 2, i + 1);
+        }
+        Assert.assertFalse(board.isDense());
+        board.set(1000, 7);
+        Assert.assertTrue(board.isDense());
+        Assert.assertEquals(7, board.get(1000));
+        Assert.assertEquals(50, board.get(98));
+        Assert.assertEquals(1000, board.next(199));
+
+        // A copy does not change with the original
+        TallyBoard copy = board.clone();
+        board.set(1000, 0);
+        Assert.assertEquals(7, copy.get(1000));
+
+        // Until there are few again
+        board.fit(100);
+        Assert.assertTrue(board.isDense());
+        for (int i = 0; i < 100; i += 2) {
+            board.set(i * 2, 0);
+        }
+        board.fit(50);
+        Assert.assertFalse(board.isDense());
+        Assert.assertEquals(4, board.get(6));
+        Assert.assertEquals(6, board.next(3));
+    }
+
+    @Test
+    public void testTally() throws NoSuchVerseException {
+        Versification v11n = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
+        PassageTally tally = new PassageTally(v11n);
+        tally.add(VerseFactory.fromString(v11n, "Gen 1:1"), 3);
+        tally.add(VerseFactory.fromString(v11n, "Rev 22:21"));
+        PassageTally copy = tally.clone();
+        tally.blur(2, RestrictionType.NONE);
+        Assert.assertEquals(2, copy.countVerses());
+        Assert.assertEquals(5, tally.getTallyOf(VerseFactory.fromString(v11n, "Gen 1:1")));
+        Assert.assertEquals(3, tally.getTallyOf(VerseFactory.fromString(v11n, "Gen 1:3")));
+        Assert.assertEquals(3, tally.getTallyOf(VerseFactory.fromString(v11n, "Rev 22:21")));
+    }
+}